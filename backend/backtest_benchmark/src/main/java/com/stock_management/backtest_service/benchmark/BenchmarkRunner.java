@@ -0,0 +1,118 @@
+package com.stock_management.backtest_service.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 基準測試進入點
+ * 接受一般的 JMH 命令列參數，固定開啟 GC 分析（每次操作配置的位元組數 gc.alloc.rate.norm），
+ * 結果以 JSON 寫入 target/jmh-result.json（可用 -rff 覆寫）。
+ * <p>
+ * 指定 -Dbenchmark.baseline=上一次的結果檔 時作為回歸檢查：任何基準測試的平均時間或每次配置量
+ * 比基準差超過 benchmark.max-regression（預設 0.10，即 10%）就以非零結束碼結束。
+ */
+public final class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT = "target/jmh-result.json";
+    private static final String TIME_METRIC = "primary";
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // 每次配置量差距小於此值視為雜訊，避免極小配置量的比例誤報
+    private static final double ALLOCATION_NOISE_BYTES = 1024;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String resultFile = commandLine.getResult().orElse(DEFAULT_RESULT);
+        new File(resultFile).getAbsoluteFile().getParentFile().mkdirs();
+
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+
+        String baseline = System.getProperty("benchmark.baseline");
+        if (baseline == null || baseline.isBlank()) {
+            return;
+        }
+        double maxRegression = Double.parseDouble(System.getProperty("benchmark.max-regression", "0.10"));
+        List<String> regressions = compare(new File(baseline), new File(resultFile), maxRegression);
+        if (regressions.isEmpty()) {
+            System.out.printf("與基準 %s 比較：沒有超過 %.0f%% 的回歸%n", baseline, maxRegression * 100);
+            return;
+        }
+        System.err.printf("與基準 %s 比較，以下項目回歸超過 %.0f%%：%n", baseline, maxRegression * 100);
+        regressions.forEach(line -> System.err.println("  " + line));
+        System.exit(1);
+    }
+
+    /**
+     * 比較兩份 JMH JSON 結果，只比較兩邊都有的基準測試（名稱加參數相同）
+     */
+    static List<String> compare(File baselineFile, File currentFile, double maxRegression) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(baselineFile));
+        Map<String, JsonNode> current = index(objectMapper.readTree(currentFile));
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+
+            double beforeTime = before.path("primaryMetric").path("score").asDouble();
+            double afterTime = after.path("primaryMetric").path("score").asDouble();
+            if (beforeTime > 0 && afterTime > beforeTime * (1 + maxRegression)) {
+                regressions.add(describe(entry.getKey(), TIME_METRIC, beforeTime, afterTime,
+                        after.path("primaryMetric").path("scoreUnit").asText()));
+            }
+
+            JsonNode beforeAllocation = before.path("secondaryMetrics").path(ALLOCATION_METRIC);
+            JsonNode afterAllocation = after.path("secondaryMetrics").path(ALLOCATION_METRIC);
+            if (!beforeAllocation.isMissingNode() && !afterAllocation.isMissingNode()) {
+                double beforeBytes = beforeAllocation.path("score").asDouble();
+                double afterBytes = afterAllocation.path("score").asDouble();
+                if (afterBytes - beforeBytes > ALLOCATION_NOISE_BYTES
+                        && afterBytes > beforeBytes * (1 + maxRegression)) {
+                    regressions.add(describe(entry.getKey(), ALLOCATION_METRIC, beforeBytes, afterBytes, "B/op"));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            JsonNode params = result.path("params");
+            // 參數依名稱排序，與 JSON 欄位順序無關
+            Map<String, String> sortedParams = new TreeMap<>();
+            params.properties().forEach(param -> sortedParams.put(param.getKey(), param.getValue().asText()));
+            sortedParams.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static String describe(String benchmark, String metric, double before, double after, String unit) {
+        return String.format("%s [%s] %.3f -> %.3f %s (%+.1f%%)",
+                benchmark, metric, before, after, unit, (after / before - 1) * 100);
+    }
+}
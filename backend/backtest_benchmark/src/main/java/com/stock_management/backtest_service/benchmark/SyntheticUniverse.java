@@ -0,0 +1,146 @@
+package com.stock_management.backtest_service.benchmark;
+
+import com.stock_management.backtest_service.dto.TradeAction;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 基準測試用的合成市場資料：股票數 × 交易日數 × 交易筆數
+ * 以固定種子產生，同樣的參數每次得到相同的 K 棒與交易，結果可重現且不需要 Data Provider。
+ * 股價為兩位小數的幾何隨機漫步，交易日只包含平日；起始資金 {@link #INITIAL_CAPITAL} 足以讓所有買進成交。
+ */
+public final class SyntheticUniverse {
+
+    public static final long SEED = 42L;
+    public static final BigDecimal INITIAL_CAPITAL = new BigDecimal("1000000000");
+
+    private final List<String> symbols;
+    private final List<String> dates;
+    private final Map<String, BarSeries> bars;
+    private final List<TradeAction> trades;
+
+    private SyntheticUniverse(List<String> symbols, List<String> dates, Map<String, BarSeries> bars,
+                              List<TradeAction> trades) {
+        this.symbols = symbols;
+        this.dates = dates;
+        this.bars = bars;
+        this.trades = trades;
+    }
+
+    public static SyntheticUniverse generate(int symbolCount, int dayCount, int tradeCount) {
+        Random random = new Random(SEED);
+
+        List<String> dates = new ArrayList<>(dayCount);
+        LocalDate date = LocalDate.of(2015, 1, 5);
+        while (dates.size() < dayCount) {
+            if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                dates.add(date.toString());
+            }
+            date = date.plusDays(1);
+        }
+
+        List<String> symbols = new ArrayList<>(symbolCount);
+        Map<String, BarSeries> bars = new LinkedHashMap<>(symbolCount * 2);
+        for (int i = 0; i < symbolCount; i++) {
+            String symbol = String.valueOf(1101 + i);
+            symbols.add(symbol);
+
+            BarSeries.Builder builder = BarSeries.builder(dayCount);
+            double price = 20 + random.nextInt(900);
+            for (String day : dates) {
+                double open = Math.round(price * 100) / 100.0;
+                price = Math.max(1.0, price * (1 + random.nextGaussian() * 0.02));
+                double close = Math.round(price * 100) / 100.0;
+                double high = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+                double low = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+                int epochDay = TradingCalendar.toEpochDay(day);
+                builder.add(epochDay, epochDay * 86_400L + 48_600L,
+                        open, Math.round(high * 100) / 100.0, Math.round(low * 100) / 100.0, close,
+                        1_000L + random.nextInt(50_000));
+            }
+            bars.put(symbol, builder.build());
+        }
+
+        // 交易日期先排序，賣出只針對已持有的股票且不超過持股，確保每筆交易都能成交
+        int[] tradeDays = new int[tradeCount];
+        for (int i = 0; i < tradeCount; i++) {
+            tradeDays[i] = random.nextInt(dayCount);
+        }
+        Arrays.sort(tradeDays);
+        int[] holdings = new int[symbolCount];
+        List<TradeAction> trades = new ArrayList<>(tradeCount);
+        for (int tradeDay : tradeDays) {
+            int slot = random.nextInt(symbolCount);
+            if (holdings[slot] > 0 && random.nextInt(3) == 0) {
+                int shares = 1 + random.nextInt(holdings[slot]);
+                holdings[slot] -= shares;
+                trades.add(new TradeAction(dates.get(tradeDay), symbols.get(slot), TradeAction.TradeType.SELL, shares));
+            } else {
+                int shares = 1 + random.nextInt(200);
+                holdings[slot] += shares;
+                trades.add(new TradeAction(dates.get(tradeDay), symbols.get(slot), TradeAction.TradeType.BUY, shares));
+            }
+        }
+
+        return new SyntheticUniverse(symbols, dates, bars, trades);
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    public String getStartDate() {
+        return dates.get(0);
+    }
+
+    public String getEndDate() {
+        return dates.get(dates.size() - 1);
+    }
+
+    public Map<String, BarSeries> getBars() {
+        return bars;
+    }
+
+    public List<TradeAction> getTrades() {
+        return trades;
+    }
+
+    /**
+     * 與 Data Provider /api/historical 相同格式的回應內容
+     */
+    public byte[] toProviderResponse() {
+        StringBuilder json = new StringBuilder(bars.size() * dates.size() * 128);
+        json.append('{');
+        boolean firstSymbol = true;
+        for (Map.Entry<String, BarSeries> entry : bars.entrySet()) {
+            if (!firstSymbol) {
+                json.append(',');
+            }
+            firstSymbol = false;
+            json.append('"').append(entry.getKey()).append("\":[");
+            BarSeries series = entry.getValue();
+            for (int i = 0; i < series.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"date\":\"").append(series.getDate(i))
+                    .append("\",\"close\":").append(series.getClose(i))
+                    .append(",\"ts\":").append(series.getTimestamp(i))
+                    .append(",\"open\":").append(series.getOpen(i))
+                    .append(",\"high\":").append(series.getHigh(i))
+                    .append(",\"low\":").append(series.getLow(i))
+                    .append(",\"volume\":").append(series.getVolume(i))
+                    .append('}');
+            }
+            json.append(']');
+        }
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
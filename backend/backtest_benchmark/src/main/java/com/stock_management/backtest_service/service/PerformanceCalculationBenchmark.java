@@ -0,0 +1,74 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.benchmark.SyntheticUniverse;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 績效計算（PortfolioCalculationService.calculateBacktestResult）的基準測試
+ * 比較 BigDecimal 快照的參考實作與定點數原始陣列的單次走訪。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerformanceCalculationBenchmark {
+
+    @Param({"10"})
+    private int symbols;
+
+    @Param({"250", "2500"})
+    private int days;
+
+    @Param({"1000"})
+    private int trades;
+
+    private PortfolioCalculationService portfolioCalculationService;
+    private SimulationResult reference;
+    private SimulationResult fixedPoint;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticUniverse universe = SyntheticUniverse.generate(symbols, days, trades);
+        portfolioCalculationService = new PortfolioCalculationService();
+        BacktestService backtestService = new BacktestService(null, portfolioCalculationService,
+                new IndicatorCache(new SimpleMeterRegistry()), new BacktestResultCache(new SimpleMeterRegistry()));
+        PriceMatrix priceMatrix = PriceMatrix.fromBars(universe.getBars());
+
+        BacktestRequestDto request = new BacktestRequestDto();
+        request.setSymbols(universe.getSymbols());
+        request.setInitialCapital(SyntheticUniverse.INITIAL_CAPITAL);
+        request.setTradeActions(universe.getTrades());
+        reference = backtestService.simulateBacktest(request, priceMatrix, PrecisionMode.BIG_DECIMAL,
+                BacktestProgressListener.NONE, HistoryFormat.FULL);
+        fixedPoint = backtestService.simulateBacktest(request, priceMatrix, PrecisionMode.FIXED_POINT,
+                BacktestProgressListener.NONE, HistoryFormat.NONE);
+    }
+
+    @Benchmark
+    public BacktestResponseDto fromSnapshots() {
+        BacktestResponseDto response = new BacktestResponseDto();
+        portfolioCalculationService.calculateBacktestResult(response, reference.getPortfolioHistory(),
+                SyntheticUniverse.INITIAL_CAPITAL);
+        return response;
+    }
+
+    @Benchmark
+    public BacktestResponseDto fromArrays() {
+        BacktestResponseDto response = new BacktestResponseDto();
+        portfolioCalculationService.calculateBacktestResult(response, fixedPoint.getTotalValues(),
+                fixedPoint.getDailyReturns(), SyntheticUniverse.INITIAL_CAPITAL);
+        return response;
+    }
+}
@@ -0,0 +1,55 @@
+package com.stock_management.backtest_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.stock_management.backtest_service.benchmark.SyntheticUniverse;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 股價資料轉換的基準測試：解析 Data Provider 回應為欄式 K 棒，以及建立股價矩陣
+ * （取代原本的 convertPriceData）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceDataBenchmark {
+
+    @Param({"10", "100"})
+    private int symbols;
+
+    @Param({"250", "2500"})
+    private int days;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private List<String> symbolList;
+    private Map<String, BarSeries> bars;
+    private byte[] providerResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticUniverse universe = SyntheticUniverse.generate(symbols, days, 0);
+        symbolList = universe.getSymbols();
+        bars = universe.getBars();
+        providerResponse = universe.toProviderResponse();
+    }
+
+    @Benchmark
+    public Map<String, BarSeries> parseProviderResponse() throws IOException {
+        return HistoricalBarParser.parse(jsonFactory, new ByteArrayInputStream(providerResponse), symbolList);
+    }
+
+    @Benchmark
+    public PriceMatrix buildPriceMatrix() {
+        return PriceMatrix.fromBars(bars);
+    }
+}
@@ -0,0 +1,66 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.benchmark.SyntheticUniverse;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回測模擬迴圈（BacktestService.simulateBacktest）的基準測試
+ * 股價矩陣在 Trial 開始前建立，只量測模擬本身；與服務位於同一個套件以呼叫套件層級的方法。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulateBacktestBenchmark {
+
+    @Param({"10", "100"})
+    private int symbols;
+
+    @Param({"250", "2500"})
+    private int days;
+
+    @Param({"1000"})
+    private int trades;
+
+    @Param({"FIXED_POINT", "BIG_DECIMAL"})
+    private PrecisionMode precisionMode;
+
+    @Param({"NONE", "FULL"})
+    private HistoryFormat historyFormat;
+
+    private BacktestService backtestService;
+    private PriceMatrix priceMatrix;
+    private BacktestRequestDto request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticUniverse universe = SyntheticUniverse.generate(symbols, days, trades);
+        backtestService = new BacktestService(null, new PortfolioCalculationService(),
+                new IndicatorCache(new SimpleMeterRegistry()), new BacktestResultCache(new SimpleMeterRegistry()));
+        priceMatrix = PriceMatrix.fromBars(universe.getBars());
+
+        request = new BacktestRequestDto();
+        request.setSymbols(universe.getSymbols());
+        request.setStartDate(universe.getStartDate());
+        request.setEndDate(universe.getEndDate());
+        request.setInitialCapital(SyntheticUniverse.INITIAL_CAPITAL);
+        request.setTradeActions(universe.getTrades());
+    }
+
+    @Benchmark
+    public SimulationResult simulateBacktest() {
+        return backtestService.simulateBacktest(request, priceMatrix, precisionMode,
+                BacktestProgressListener.NONE, historyFormat);
+    }
+}
@@ -0,0 +1,45 @@
+package com.stock_management.backtest_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class BacktestJobConfig {
+
+    @Value("${backtest.jobs.pool-size:2}")
+    private int poolSize;
+
+    @Value("${backtest.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${backtest.batch.parallelism:0}")
+    private int batchParallelism;
+
+    /**
+     * 非同步回測工作專用的執行緒池
+     * 執行緒數與佇列長度皆有上限，佇列滿時拒絕新工作，避免大量回測佔用 Tomcat 執行緒
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor backtestJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("backtest-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 批次回測（參數掃描）專用的 ForkJoinPool，未設定平行度時使用所有 CPU 核心
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool backtestBatchPool() {
+        int parallelism = batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -0,0 +1,27 @@
+package com.stock_management.backtest_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class DataProviderConfig {
+
+    @Value("${data.provider.fetch.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 向 Data Provider 請求歷史資料區塊的執行緒池
+     * 執行緒數即為所有回測共用的同時請求上限，避免大量區塊同時打到 Data Provider
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor historicalFetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, parallelism));
+        executor.setMaxPoolSize(Math.max(1, parallelism));
+        executor.setThreadNamePrefix("historical-fetch-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,12 +1,28 @@
 package com.stock_management.backtest_service.controller;
 
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto;
+import com.stock_management.backtest_service.dto.BacktestBatchResponseDto;
 import com.stock_management.backtest_service.dto.BacktestRequestDto;
 import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto;
+import com.stock_management.backtest_service.dto.MonteCarloResponseDto;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationRequestDto;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationResponseDto;
+import com.stock_management.backtest_service.dto.WalkForwardRequestDto;
+import com.stock_management.backtest_service.dto.WalkForwardResponseDto;
+import com.stock_management.backtest_service.service.BacktestBatchService;
 import com.stock_management.backtest_service.service.BacktestService;
+import com.stock_management.backtest_service.service.BacktestStreamService;
+import com.stock_management.backtest_service.service.MonteCarloService;
+import com.stock_management.backtest_service.service.PortfolioOptimizationService;
+import com.stock_management.backtest_service.service.WalkForwardService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/backtest")
@@ -15,6 +31,20 @@ import org.springframework.web.bind.annotation.*;
 public class BacktestController {
 
     private final BacktestService backtestService;
+    private final BacktestBatchService backtestBatchService;
+    private final BacktestStreamService backtestStreamService;
+    private final MonteCarloService monteCarloService;
+    private final WalkForwardService walkForwardService;
+    private final PortfolioOptimizationService portfolioOptimizationService;
+
+    @Value("${backtest.batch.max-variants:200}")
+    private int maxVariants = 200;
+
+    @Value("${backtest.monte-carlo.max-paths:20000}")
+    private int maxMonteCarloPaths = 20000;
+
+    @Value("${backtest.optimizer.max-symbols:1000}")
+    private int maxOptimizerSymbols = 1000;
 
     /**
      * 執行股票回測分析
@@ -43,6 +73,150 @@ public class BacktestController {
         }
     }
 
+    /**
+     * 串流回測：以 NDJSON 逐日輸出投資組合快照，最後一行為績效摘要
+     */
+    @PostMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBacktest(@RequestBody BacktestRequestDto request) {
+        log.info("收到串流回測請求：股票代號 {}, 日期區間 {} 到 {}", 
+                 request.getSymbols(), request.getStartDate(), request.getEndDate());
+
+        // 驗證請求參數
+        if (request.getSymbols() == null || request.getSymbols().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> backtestStreamService.streamBacktest(request, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 批次回測（參數掃描）：同一組股票與期間搭配多個策略變體
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BacktestBatchResponseDto> analyzeBatch(@RequestBody BacktestBatchRequestDto request) {
+        try {
+            log.info("收到批次回測請求：股票代號 {}, 日期區間 {} 到 {}", 
+                     request.getSymbols(), request.getStartDate(), request.getEndDate());
+
+            // 驗證請求參數
+            if (request.getSymbols() == null || request.getSymbols().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getStartDate() == null || request.getEndDate() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getVariants() == null || request.getVariants().isEmpty()
+                    || request.getVariants().size() > maxVariants) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok(backtestBatchService.performBatchBacktest(request));
+
+        } catch (Exception e) {
+            log.error("處理批次回測請求時發生錯誤", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 蒙地卡羅回測：以重抽樣的價格路徑重播交易計畫，回傳績效分布
+     */
+    @PostMapping("/monte-carlo")
+    public ResponseEntity<MonteCarloResponseDto> analyzeMonteCarlo(@RequestBody MonteCarloRequestDto request) {
+        try {
+            log.info("收到蒙地卡羅回測請求：股票代號 {}, 日期區間 {} 到 {}, 路徑數 {}", 
+                     request.getSymbols(), request.getStartDate(), request.getEndDate(), request.getPaths());
+
+            // 驗證請求參數
+            if (request.getSymbols() == null || request.getSymbols().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getStartDate() == null || request.getEndDate() == null || request.getInitialCapital() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getPaths() != null && (request.getPaths() < 1 || request.getPaths() > maxMonteCarloPaths)) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok(monteCarloService.performMonteCarlo(request));
+
+        } catch (Exception e) {
+            log.error("處理蒙地卡羅回測請求時發生錯誤", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Walk-forward 分析：逐視窗以樣本內資料挑選候選策略，串接樣本外權益曲線
+     */
+    @PostMapping("/walk-forward")
+    public ResponseEntity<WalkForwardResponseDto> analyzeWalkForward(@RequestBody WalkForwardRequestDto request) {
+        try {
+            log.info("收到 Walk-forward 分析請求：股票代號 {}, 日期區間 {} 到 {}", 
+                     request.getSymbols(), request.getStartDate(), request.getEndDate());
+
+            // 驗證請求參數
+            if (request.getSymbols() == null || request.getSymbols().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getStartDate() == null || request.getEndDate() == null || request.getInitialCapital() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getCandidates() == null || request.getCandidates().isEmpty()
+                    || request.getCandidates().size() > maxVariants) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok(walkForwardService.performWalkForward(request));
+
+        } catch (Exception e) {
+            log.error("處理 Walk-forward 分析請求時發生錯誤", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 投資組合最佳化：以歷史日報酬的共變異數求解最小變異數、最大 Sharpe 與風險平價權重
+     */
+    @PostMapping("/optimize")
+    public ResponseEntity<PortfolioOptimizationResponseDto> optimizePortfolio(
+            @RequestBody PortfolioOptimizationRequestDto request) {
+        try {
+            log.info("收到投資組合最佳化請求：股票數 {}, 日期區間 {} 到 {}", 
+                     request.getSymbols() == null ? 0 : request.getSymbols().size(),
+                     request.getStartDate(), request.getEndDate());
+
+            // 驗證請求參數
+            if (request.getSymbols() == null || request.getSymbols().size() < 2
+                    || request.getSymbols().size() > maxOptimizerSymbols) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (request.getStartDate() == null || request.getEndDate() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok(portfolioOptimizationService.optimize(request));
+
+        } catch (Exception e) {
+            log.error("處理投資組合最佳化請求時發生錯誤", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 健康檢查端點
      */
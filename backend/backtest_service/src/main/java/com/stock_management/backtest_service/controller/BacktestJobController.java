@@ -0,0 +1,79 @@
+package com.stock_management.backtest_service.controller;
+
+import com.stock_management.backtest_service.dto.BacktestJobStatusDto;
+import com.stock_management.backtest_service.dto.BacktestJobStatusDto.JobStatus;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.service.BacktestJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/backtest/jobs")
+@RequiredArgsConstructor
+@Slf4j
+public class BacktestJobController {
+
+    private final BacktestJobService backtestJobService;
+
+    /**
+     * 提交非同步回測工作，回傳工作編號
+     */
+    @PostMapping
+    public ResponseEntity<BacktestJobStatusDto> submitJob(@RequestBody BacktestRequestDto request) {
+        log.info("收到非同步回測請求：股票代號 {}, 日期區間 {} 到 {}", 
+                 request.getSymbols(), request.getStartDate(), request.getEndDate());
+
+        // 驗證請求參數
+        if (request.getSymbols() == null || request.getSymbols().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.accepted().body(backtestJobService.submit(request));
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
+    /**
+     * 查詢工作狀態與進度
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BacktestJobStatusDto> getJobStatus(@PathVariable String jobId) {
+        return ResponseEntity.of(backtestJobService.getStatus(jobId));
+    }
+
+    /**
+     * 取得工作的回測結果，尚未完成時回傳 409 與目前狀態
+     */
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable String jobId) {
+        Optional<BacktestJobStatusDto> status = backtestJobService.getStatus(jobId);
+        if (status.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (status.get().getStatus() != JobStatus.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(status.get());
+        }
+
+        return ResponseEntity.ok(backtestJobService.getResult(jobId).orElse(null));
+    }
+
+    /**
+     * 取消工作
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<BacktestJobStatusDto> cancelJob(@PathVariable String jobId) {
+        return ResponseEntity.of(backtestJobService.cancel(jobId));
+    }
+}
@@ -0,0 +1,36 @@
+package com.stock_management.backtest_service.dto;
+
+import com.stock_management.backtest_service.dto.BacktestRequestDto.FillPrice;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.TradingCosts;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestBatchRequestDto {
+    private List<String> symbols;            // 共用股票代號列表
+    private String startDate;                // 開始日期，格式: "2025-07-01"
+    private String endDate;                  // 結束日期，格式: "2025-07-22"
+    private BigDecimal initialCapital;       // 預設起始資金（策略變體未指定時使用）
+    private PrecisionMode precisionMode;     // 金額運算精度模式
+    private FillPrice fillPrice;             // 成交價，未指定時為收盤價
+    private BigDecimal maxVolumeParticipation; // 單日成交股數佔當日成交量的比例上限
+    private TradingCosts tradingCosts;       // 交易成本與交易單位，未指定時不計成本
+    private boolean includeHistory;          // 是否回傳每個變體的完整投資組合歷史
+    private List<StrategyVariant> variants;  // 策略變體列表
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StrategyVariant {
+        private String name;                    // 變體名稱
+        private BigDecimal initialCapital;      // 起始資金（覆寫預設值）
+        private List<TradeAction> tradeActions; // 交易動作列表
+        private StrategyDefinition strategy;    // 伺服器端策略
+    }
+}
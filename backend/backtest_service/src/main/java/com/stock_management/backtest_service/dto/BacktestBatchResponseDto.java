@@ -0,0 +1,18 @@
+package com.stock_management.backtest_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestBatchResponseDto {
+    private int tradingDays;                // 交易天數
+    private List<VariantResultDto> results; // 各策略變體結果（與請求順序相同）
+    private List<String> missingSymbols;    // 無法取得歷史資料的股票（未納入回測）
+    private LocalDateTime timestamp;        // 資料產生時間
+    private String message;                 // 訊息（成功/錯誤）
+}
@@ -0,0 +1,25 @@
+package com.stock_management.backtest_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestJobStatusDto {
+    private String jobId;                  // 工作編號
+    private JobStatus status;              // 工作狀態
+    private int completedDays;             // 已模擬交易日數
+    private int totalDays;                 // 總交易日數（取得資料後才有值）
+    private double progress;               // 進度（%）
+    private LocalDateTime submittedAt;     // 提交時間
+    private LocalDateTime startedAt;       // 開始執行時間
+    private LocalDateTime finishedAt;      // 結束時間
+    private String message;                // 訊息（錯誤原因等）
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+}
@@ -5,6 +5,7 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
@@ -15,4 +16,65 @@ public class BacktestRequestDto {
     private String endDate;                // 結束日期，格式: "2025-07-22"
     private BigDecimal initialCapital;     // 起始資金
     private List<TradeAction> tradeActions; // 交易動作列表
+    private StrategyDefinition strategy;   // 伺服器端策略（可與交易動作並用，交易動作先執行）
+    private FillPrice fillPrice;           // 成交價，未指定時為收盤價
+    private BigDecimal maxVolumeParticipation; // 單日成交股數佔當日成交量的比例上限，例如 0.1，未指定時不限制
+    private TradingCosts tradingCosts;     // 交易成本與交易單位，未指定時不計成本、可交易任意股數
+    private PrecisionMode precisionMode;   // 金額運算精度模式，未指定時使用服務預設值
+    private HistoryFormat historyFormat;   // 投資組合歷史格式，未指定時為 FULL
+    private Set<RiskMetric> riskMetrics;   // 額外計算的風險指標，未指定時不計算
+    private String benchmarkSymbol;        // 計算 Beta 的基準股票代號，例如 "0050"
+    private BigDecimal varConfidenceLevel; // VaR/CVaR 信賴水準，未指定時為 0.95
+    private List<Integer> rollingWindows;  // 滑動視窗長度（交易日），例如 [20, 60, 252]，未指定時不計算
+    private BarResolution resolution;      // K 棒週期，未指定時為日 K
+    private Integer snapshotInterval;      // 每幾根 K 棒輸出一筆快照，未指定時日 K 每日輸出、分 K 只輸出每日最後一根
+
+    public enum BarResolution {
+        DAILY,         // 日 K
+        MINUTE         // 1 分 K：交易與快照以分鐘為單位，交易日期可指定到分鐘，例如 "2025-07-01 09:30"
+    }
+
+    /**
+     * 交易成本與交易單位（台股預設值：手續費 0.1425%、最低 20 元、證交稅 0.3%）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TradingCosts {
+        private BigDecimal commissionRate;     // 手續費率，未指定時為 0.001425
+        private BigDecimal commissionDiscount; // 手續費折扣，例如 0.6 表示六折，未指定時不打折
+        private BigDecimal minimumCommission;  // 每筆最低手續費（元），未指定時為 20
+        private BigDecimal transactionTaxRate; // 證券交易稅率（僅賣出），未指定時為 0.003
+        private BigDecimal slippageBps;        // 滑價（基點），買入加價、賣出減價，未指定時為 0
+        private Integer lotSize;               // 交易單位股數：1000 為整股、1 為零股，未指定時為 1
+    }
+
+    public enum PrecisionMode {
+        BIG_DECIMAL,   // BigDecimal 參考模式
+        FIXED_POINT    // 定點數模式（萬分之一元的 long 運算）
+    }
+
+    public enum FillPrice {
+        CLOSE,         // 收盤價
+        OPEN,          // 開盤價（策略訊號延後一個交易日成交）
+        VWAP           // 以日 K 典型價 (高 + 低 + 收) / 3 近似（策略訊號延後一個交易日成交）
+    }
+
+    public enum HistoryFormat {
+        FULL,          // 每日完整快照（portfolioHistory）
+        COMPACT,       // 精簡格式（compactHistory）：平行陣列與持股變動
+        NONE           // 只回傳績效摘要
+    }
+
+    public enum RiskMetric {
+        SORTINO,             // Sortino Ratio（年化，僅以下跌日計算標準差）
+        CALMAR,              // Calmar Ratio（年化報酬率 / 最大回撤）
+        VOLATILITY,          // 年化波動率
+        DRAWDOWN_DURATION,   // 最長回撤期間（交易日）
+        VAR,                 // 歷史模擬法單日 VaR
+        CVAR,                // 歷史模擬法單日 CVaR（Expected Shortfall）
+        WIN_RATE,            // 上漲日比例
+        TURNOVER,            // 年化週轉率
+        BETA                 // 相對 benchmarkSymbol 的 Beta
+    }
 }
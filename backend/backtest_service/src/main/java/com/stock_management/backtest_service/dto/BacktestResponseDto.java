@@ -18,7 +18,12 @@ public class BacktestResponseDto {
     private BigDecimal annualizedSharpeRatio; // 年化 Sharpe Ratio
     private BigDecimal maxDrawdown;         // 最大回撤（%）
     private int tradingDays;                // 交易天數
+    private BigDecimal totalTradingCosts;   // 累計手續費與交易稅
+    private RiskMetricsDto riskMetrics;     // 額外風險指標（只包含請求的項目）
+    private List<RollingMetricsDto> rollingMetrics; // 滑動視窗績效序列（依請求的視窗長度）
     private List<PortfolioSnapshot> portfolioHistory; // 投資組合歷史
+    private CompactPortfolioHistory compactHistory;   // 精簡格式的投資組合歷史（historyFormat=COMPACT）
+    private List<String> missingSymbols;    // 無法取得歷史資料的股票（未納入回測）
     private LocalDateTime timestamp;       // 資料產生時間
     private String message;                // 訊息（成功/錯誤）
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.stock_management.backtest_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 串流回測輸出（NDJSON）的單行事件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BacktestStreamEvent {
+    private EventType type;   // 事件類型
+    private Object data;      // snapshot: PortfolioSnapshot；summary: BacktestResponseDto（不含逐日資料）
+    private String message;   // error 時的錯誤訊息
+
+    public enum EventType {
+        SNAPSHOT,  // 單一交易日的投資組合快照
+        SUMMARY,   // 回測完成後的績效摘要（最後一行）
+        ERROR      // 回測失敗（最後一行）
+    }
+}
@@ -0,0 +1,33 @@
+package com.stock_management.backtest_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 精簡格式的投資組合歷史
+ * 現金、總價值、報酬率為與 dates 對齊的平行陣列；股價為每支股票一條欄位陣列（無資料為 null）；
+ * 持股只在變動的交易日輸出變動的股票，前端依序套用即可還原每日持股。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactPortfolioHistory {
+    private List<String> dates;                    // 交易日
+    private Map<String, List<BigDecimal>> prices;  // 當日股價 {股票代號: [各交易日價格]}
+    private List<HoldingsChange> holdingsChanges;  // 持股變動（依交易日排序）
+    private List<BigDecimal> cash;                 // 現金
+    private List<BigDecimal> totalValue;           // 總價值
+    private List<BigDecimal> dailyReturn;          // 當日報酬率
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HoldingsChange {
+        private int day;                       // dates 中的索引
+        private Map<String, Integer> holdings; // 當日變動後的持股 {股票代號: 股數}
+    }
+}
@@ -0,0 +1,29 @@
+package com.stock_management.backtest_service.dto;
+
+import com.stock_management.backtest_service.dto.BacktestRequestDto.TradingCosts;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonteCarloRequestDto {
+    private List<String> symbols;          // 股票代號列表
+    private String startDate;              // 開始日期，格式: "2025-07-01"
+    private String endDate;                // 結束日期，格式: "2025-07-22"
+    private BigDecimal initialCapital;     // 起始資金
+    private List<TradeAction> tradeActions; // 交易動作列表，依交易日索引套用到每條模擬路徑
+    private TradingCosts tradingCosts;     // 交易成本與交易單位，未指定時不計成本
+    private ResamplingMethod method;       // 路徑產生方式，未指定時為區塊拔靴法
+    private Integer paths;                 // 模擬路徑數，未指定時為 1000
+    private Integer blockSize;             // 區塊拔靴法的區塊長度（交易日），未指定時為 20
+    private Long seed;                     // 亂數種子，指定時結果可重現
+
+    public enum ResamplingMethod {
+        BLOCK_BOOTSTRAP,   // 以連續區塊重抽歷史日報酬，所有股票使用相同的日期區塊以保留相關性
+        GBM                // 以各股票歷史對數報酬的平均與標準差配適幾何布朗運動
+    }
+}
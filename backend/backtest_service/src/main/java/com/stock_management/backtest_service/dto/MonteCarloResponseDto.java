@@ -0,0 +1,45 @@
+package com.stock_management.backtest_service.dto;
+
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto.ResamplingMethod;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonteCarloResponseDto {
+    private ResamplingMethod method;        // 路徑產生方式
+    private Integer paths;                  // 模擬路徑數
+    private Long seed;                      // 使用的亂數種子
+    private Integer tradingDays;            // 每條路徑的交易天數
+    private BigDecimal initialCapital;      // 起始資金
+    private Distribution finalValue;        // 最終投資組合價值的分布
+    private Distribution annualizedSharpeRatio; // 年化 Sharpe Ratio 的分布
+    private Distribution maxDrawdown;       // 最大回撤（%）的分布
+    private BigDecimal probabilityOfLoss;   // 最終價值低於起始資金的路徑比例（%）
+    private List<String> missingSymbols;    // 無法取得歷史資料的股票代號
+    private LocalDateTime timestamp;        // 回測執行時間
+    private String message;                 // 訊息（成功/錯誤）
+
+    /**
+     * 各路徑結果的摘要統計
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Distribution {
+        private BigDecimal mean;            // 平均
+        private BigDecimal stdDev;          // 標準差
+        private BigDecimal min;             // 最小值
+        private BigDecimal percentile5;     // 第 5 百分位數
+        private BigDecimal percentile25;    // 第 25 百分位數
+        private BigDecimal median;          // 中位數
+        private BigDecimal percentile75;    // 第 75 百分位數
+        private BigDecimal percentile95;    // 第 95 百分位數
+        private BigDecimal max;             // 最大值
+    }
+}
@@ -0,0 +1,25 @@
+package com.stock_management.backtest_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioOptimizationRequestDto {
+    private List<String> symbols;            // 股票池
+    private String startDate;                // 開始日期，格式: "2025-07-01"
+    private String endDate;                  // 結束日期，格式: "2025-07-22"
+    private Set<OptimizationMethod> methods; // 求解的最佳化方法，未指定時全部求解
+    private BigDecimal riskFreeRate;         // 年化無風險利率，例如 0.015，未指定時為 0
+
+    public enum OptimizationMethod {
+        MINIMUM_VARIANCE,   // 最小變異數
+        MAXIMUM_SHARPE,     // 最大 Sharpe Ratio（切線投資組合）
+        RISK_PARITY         // 風險平價（等風險貢獻）
+    }
+}
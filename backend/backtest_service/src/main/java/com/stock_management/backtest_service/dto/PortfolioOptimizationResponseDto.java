@@ -0,0 +1,36 @@
+package com.stock_management.backtest_service.dto;
+
+import com.stock_management.backtest_service.dto.PortfolioOptimizationRequestDto.OptimizationMethod;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioOptimizationResponseDto {
+    private Integer universeSize;           // 納入估計的股票數
+    private Integer observations;           // 估計使用的日報酬個數
+    private List<OptimizedPortfolio> portfolios; // 各最佳化方法的結果
+    private List<String> missingSymbols;    // 無法取得歷史資料的股票代號
+    private List<String> excludedSymbols;   // 報酬資料不足或價格無變動而未納入的股票代號
+    private boolean cached;                 // 共變異數矩陣是否取自快取
+    private LocalDateTime timestamp;        // 執行時間
+    private String message;                 // 訊息（成功/錯誤）
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OptimizedPortfolio {
+        private OptimizationMethod method;      // 最佳化方法
+        private Map<String, BigDecimal> weights; // 權重 {股票代號: 權重}，依權重由大到小排列，省略 0 權重
+        private BigDecimal expectedReturn;      // 年化預期報酬（%）
+        private BigDecimal volatility;          // 年化波動度（%）
+        private BigDecimal sharpeRatio;         // Sharpe Ratio
+        private String message;                 // 無法求解時的說明
+    }
+}
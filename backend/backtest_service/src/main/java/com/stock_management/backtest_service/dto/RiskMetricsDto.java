@@ -0,0 +1,27 @@
+package com.stock_management.backtest_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+
+/**
+ * 額外風險指標，未請求的項目為 null 且不輸出
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RiskMetricsDto {
+    private BigDecimal sortinoRatio;          // 年化 Sortino Ratio
+    private BigDecimal calmarRatio;           // Calmar Ratio
+    private BigDecimal annualizedVolatility;  // 年化波動率（%）
+    private Integer maxDrawdownDuration;      // 最長回撤期間（交易日，自前高至回到前高）
+    private BigDecimal valueAtRisk;           // 單日 VaR（%，以正值表示損失）
+    private BigDecimal conditionalValueAtRisk; // 單日 CVaR（%，以正值表示損失）
+    private BigDecimal winRate;               // 上漲日比例（%）
+    private BigDecimal annualizedTurnover;    // 年化週轉率（%，成交金額 / 平均總價值）
+    private BigDecimal beta;                  // 相對基準的 Beta
+    private String benchmarkSymbol;           // Beta 使用的基準股票代號
+}
@@ -0,0 +1,20 @@
+package com.stock_management.backtest_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 單一滑動視窗的逐日績效序列，與投資組合歷史的日期一一對應；視窗未滿的交易日為 null
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollingMetricsDto {
+    private int window;                      // 視窗長度（交易日）
+    private List<BigDecimal> sharpeRatio;    // 滑動年化 Sharpe Ratio
+    private List<BigDecimal> volatility;     // 滑動年化波動率（%）
+    private List<BigDecimal> drawdown;       // 相對視窗內最高價值的回撤（%）
+}
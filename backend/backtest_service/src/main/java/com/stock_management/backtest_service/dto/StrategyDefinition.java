@@ -0,0 +1,108 @@
+package com.stock_management.backtest_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 伺服器端策略定義
+ * 由後端在每個交易日依序評估規則並下單，不需在請求中列出每一筆交易。
+ *
+ * <pre>
+ * { "rules": [
+ *     { "symbol": "2330", "action": "BUY",
+ *       "when": { "type": "CROSS_ABOVE", "left": { "type": "SMA", "period": 5 },
+ *                 "right": { "type": "SMA", "period": 20 } },
+ *       "sizing": { "type": "PERCENT_OF_EQUITY", "value": 0.5 } } ],
+ *   "rebalance": { "intervalDays": 20, "targetWeights": { "2330": 0.6, "2317": 0.4 } } }
+ * </pre>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StrategyDefinition {
+    private List<Rule> rules;        // 每個交易日依序評估的規則
+    private Rebalance rebalance;     // 定期再平衡（可選）
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+        private String symbol;                  // 套用的股票，未指定時套用到所有股票
+        private Condition when;                 // 觸發條件，未指定時每個交易日都觸發
+        private TradeAction.TradeType action;   // 交易類型：BUY, SELL
+        private Sizing sizing;                  // 部位大小
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Condition {
+        private ConditionType type;             // 條件類型
+        private Operand left;                   // 左運算元（比較、交叉）
+        private Operand right;                  // 右運算元（比較、交叉）
+        private List<Condition> conditions;     // 子條件（AND、OR、NOT）
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operand {
+        private OperandType type;               // 運算元類型
+        private Integer period;                 // 指標期間（交易日）；MACD 為快線期間
+        private BigDecimal value;               // 常數值（CONSTANT）
+        private Integer slowPeriod;             // MACD 慢線期間
+        private Integer signalPeriod;           // MACD 訊號線期間
+        private BigDecimal multiplier;          // 布林通道標準差倍數
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Sizing {
+        private SizingType type;                // 部位大小計算方式
+        private BigDecimal value;               // 股數（SHARES）或比例（PERCENT_OF_EQUITY，0.1 表示 10%）
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rebalance {
+        private int intervalDays;                       // 每隔幾個交易日再平衡（第一個交易日即執行；分 K 模式為 K 棒數）
+        private Map<String, BigDecimal> targetWeights;  // 目標權重 {股票代號: 權重}，未列出的股票全數賣出
+    }
+
+    public enum ConditionType {
+        ABOVE,          // left > right
+        BELOW,          // left < right
+        CROSS_ABOVE,    // 前一日 left <= right，當日 left > right
+        CROSS_BELOW,    // 前一日 left >= right，當日 left < right
+        AND,            // 所有子條件成立
+        OR,             // 任一子條件成立
+        NOT             // 子條件不成立
+    }
+
+    public enum OperandType {
+        PRICE,              // 收盤價
+        CONSTANT,           // 常數
+        SMA,                // 簡單移動平均（period）
+        EMA,                // 指數移動平均（period）
+        RSI,                // 相對強弱指標（period）
+        MACD,               // MACD 線（period, slowPeriod）
+        MACD_SIGNAL,        // MACD 訊號線（period, slowPeriod, signalPeriod）
+        MACD_HISTOGRAM,     // MACD 柱狀圖（period, slowPeriod, signalPeriod）
+        BOLLINGER_UPPER,    // 布林通道上軌（period, multiplier）
+        BOLLINGER_MIDDLE,   // 布林通道中軌（period）
+        BOLLINGER_LOWER,    // 布林通道下軌（period, multiplier）
+        ATR                 // 平均真實區間（period）
+    }
+
+    public enum SizingType {
+        SHARES,             // 固定股數
+        PERCENT_OF_EQUITY,  // 投資組合總價值的比例
+        ALL                 // 買入：用盡現金；賣出：全部持股
+    }
+}
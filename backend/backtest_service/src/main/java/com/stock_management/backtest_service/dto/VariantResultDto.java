@@ -0,0 +1,23 @@
+package com.stock_management.backtest_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantResultDto {
+    private String name;                    // 變體名稱
+    private BigDecimal initialCapital;      // 起始資金
+    private BigDecimal finalValue;          // 最終投資組合價值
+    private BigDecimal returnRate;          // 報酬率（%）
+    private BigDecimal annualizedSharpeRatio; // 年化 Sharpe Ratio
+    private BigDecimal maxDrawdown;         // 最大回撤（%）
+    private String message;                 // 訊息（成功/錯誤）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<PortfolioSnapshot> portfolioHistory; // 投資組合歷史（僅在要求時回傳）
+}
@@ -0,0 +1,35 @@
+package com.stock_management.backtest_service.dto;
+
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto.StrategyVariant;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.FillPrice;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.TradingCosts;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalkForwardRequestDto {
+    private List<String> symbols;            // 股票代號列表
+    private String startDate;                // 開始日期，格式: "2025-07-01"
+    private String endDate;                  // 結束日期，格式: "2025-07-22"
+    private BigDecimal initialCapital;       // 起始資金（樣本內最佳化與第一個樣本外視窗）
+    private PrecisionMode precisionMode;     // 金額運算精度模式
+    private FillPrice fillPrice;             // 成交價，未指定時為收盤價
+    private BigDecimal maxVolumeParticipation; // 單日成交股數佔當日成交量的比例上限
+    private TradingCosts tradingCosts;       // 交易成本與交易單位，未指定時不計成本
+    private List<StrategyVariant> candidates; // 參數網格：候選策略（變體的起始資金不使用）
+    private Integer inSampleDays;            // 樣本內視窗長度（交易日）
+    private Integer outOfSampleDays;         // 樣本外視窗長度（交易日），同時為視窗前進的步長
+    private Objective objective;             // 樣本內最佳化目標，未指定時為年化 Sharpe Ratio
+
+    public enum Objective {
+        SHARPE_RATIO,           // 年化 Sharpe Ratio
+        RETURN_RATE,            // 報酬率
+        RETURN_OVER_DRAWDOWN    // 報酬率 / 最大回撤
+    }
+}
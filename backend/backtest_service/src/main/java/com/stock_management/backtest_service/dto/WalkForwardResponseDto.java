@@ -0,0 +1,51 @@
+package com.stock_management.backtest_service.dto;
+
+import com.stock_management.backtest_service.dto.WalkForwardRequestDto.Objective;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalkForwardResponseDto {
+    private Objective objective;            // 樣本內最佳化目標
+    private BigDecimal initialCapital;      // 起始資金
+    private BigDecimal finalValue;          // 串接樣本外權益曲線的最終價值
+    private BigDecimal totalReturn;         // 樣本外總報酬
+    private BigDecimal returnRate;          // 樣本外報酬率（%）
+    private BigDecimal annualizedSharpeRatio; // 樣本外年化 Sharpe Ratio
+    private BigDecimal maxDrawdown;         // 樣本外最大回撤（%）
+    private Integer tradingDays;            // 樣本外交易天數
+    private List<Window> windows;           // 各視窗的最佳化與樣本外結果
+    private List<EquityPoint> equityCurve;  // 串接的樣本外每日總價值
+    private List<String> missingSymbols;    // 無法取得歷史資料的股票代號
+    private LocalDateTime timestamp;        // 回測執行時間
+    private String message;                 // 訊息（成功/錯誤）
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Window {
+        private String inSampleStart;       // 樣本內第一個交易日
+        private String inSampleEnd;         // 樣本內最後一個交易日
+        private String outOfSampleStart;    // 樣本外第一個交易日
+        private String outOfSampleEnd;      // 樣本外最後一個交易日
+        private String selectedCandidate;   // 樣本內表現最佳的候選策略
+        private BigDecimal inSampleScore;   // 最佳候選策略的樣本內目標值
+        private BigDecimal outOfSampleReturnRate; // 樣本外報酬率（%）
+        private BigDecimal outOfSampleSharpeRatio; // 樣本外年化 Sharpe Ratio
+        private BigDecimal outOfSampleMaxDrawdown; // 樣本外最大回撤（%）
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EquityPoint {
+        private String date;                // 交易日期
+        private BigDecimal totalValue;      // 投資組合總價值
+    }
+}
@@ -0,0 +1,31 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.PortfolioSnapshot;
+
+/**
+ * 回測進度回報與取消檢查
+ * 回測迴圈每完成一個交易日回報一次進度，並在每個交易日開始前檢查是否已被取消。
+ * 需要逐日快照的監聽者（例如串流輸出）可在每個交易日結算後收到當日快照。
+ */
+public interface BacktestProgressListener {
+
+    BacktestProgressListener NONE = new BacktestProgressListener() {
+    };
+
+    default void onProgress(int completedDays, int totalDays) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * 是否需要逐日快照；回傳 true 時回測迴圈會為每個交易日建立快照並呼叫 onSnapshot
+     */
+    default boolean wantsSnapshots() {
+        return false;
+    }
+
+    default void onSnapshot(PortfolioSnapshot snapshot) {
+    }
+}
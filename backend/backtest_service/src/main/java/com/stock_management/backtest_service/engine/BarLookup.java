@@ -0,0 +1,32 @@
+package com.stock_management.backtest_service.engine;
+
+import java.util.List;
+
+/**
+ * K 棒查詢結果：已有的 K 棒，以及仍需向下一層資料來源查詢的交易日區間
+ */
+public final class BarLookup {
+
+    private final BarSeries bars;
+    private final List<int[]> missingRanges;
+
+    public BarLookup(BarSeries bars, List<int[]> missingRanges) {
+        this.bars = bars;
+        this.missingRanges = missingRanges;
+    }
+
+    public BarSeries getBars() {
+        return bars;
+    }
+
+    /**
+     * 尚未查詢過的交易日區間 [fromDay, toDay]
+     */
+    public List<int[]> getMissingRanges() {
+        return missingRanges;
+    }
+
+    public boolean isComplete() {
+        return missingRanges.isEmpty();
+    }
+}
@@ -0,0 +1,307 @@
+package com.stock_management.backtest_service.engine;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 單一股票的欄式 K 棒資料（開高低收量）
+ * 以交易日（epoch day）遞增排序，每根 K 棒只佔用幾個原始型別欄位，不為每根 K 棒建立物件。
+ * 日 K 每個交易日一根；分 K（intraday）同一交易日有多根，改以時間戳記排序與去除重複。
+ */
+public final class BarSeries {
+
+    public static final BarSeries EMPTY = new BarSeries(new int[0], new long[0],
+            new double[0], new double[0], new double[0], new double[0], new long[0], 0, false);
+
+    private final int[] days;
+    private final long[] timestamps;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final long[] volumes;
+    private final int size;
+    private final boolean intraday;
+
+    private BarSeries(int[] days, long[] timestamps, double[] opens, double[] highs,
+                      double[] lows, double[] closes, long[] volumes, int size, boolean intraday) {
+        this.days = days;
+        this.timestamps = timestamps;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.volumes = volumes;
+        this.size = size;
+        this.intraday = intraday;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize, false);
+    }
+
+    /**
+     * 分 K 序列的 Builder：同一交易日可有多根 K 棒，以時間戳記排序
+     */
+    public static Builder intradayBuilder(int expectedSize) {
+        return new Builder(expectedSize, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 是否為分 K 序列（排序鍵為時間戳記）
+     */
+    public boolean isIntraday() {
+        return intraday;
+    }
+
+    /**
+     * 排序鍵：日 K 為交易日，分 K 為時間戳記
+     */
+    public long getKey(int index) {
+        return intraday ? timestamps[index] : days[index];
+    }
+
+    /**
+     * 交易日（LocalDate.toEpochDay）
+     */
+    public int getDay(int index) {
+        return days[index];
+    }
+
+    /**
+     * 交易日字串，格式: "2025-07-01"
+     */
+    public String getDate(int index) {
+        return LocalDate.ofEpochDay(days[index]).toString();
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double getOpen(int index) {
+        return opens[index];
+    }
+
+    public double getHigh(int index) {
+        return highs[index];
+    }
+
+    public double getLow(int index) {
+        return lows[index];
+    }
+
+    public double getClose(int index) {
+        return closes[index];
+    }
+
+    public long getVolume(int index) {
+        return volumes[index];
+    }
+
+    /**
+     * 收盤價欄位的複本（長度等於 K 棒數）
+     */
+    public double[] copyCloses() {
+        return Arrays.copyOf(closes, size);
+    }
+
+    public double[] copyHighs() {
+        return Arrays.copyOf(highs, size);
+    }
+
+    public double[] copyLows() {
+        return Arrays.copyOf(lows, size);
+    }
+
+    /**
+     * 最後一根 K 棒的交易日，無資料時回傳 Integer.MIN_VALUE
+     */
+    public int getLastDay() {
+        return size == 0 ? Integer.MIN_VALUE : days[size - 1];
+    }
+
+    /**
+     * 取出 [fromDay, toDay] 區間內的 K 棒
+     */
+    public BarSeries slice(int fromDay, int toDay) {
+        int from = lowerBound(fromDay);
+        int to = lowerBound(toDay + 1);
+        if (from == 0 && to == size) {
+            return this;
+        }
+        if (from >= to) {
+            return EMPTY;
+        }
+        return new BarSeries(
+                Arrays.copyOfRange(days, from, to),
+                Arrays.copyOfRange(timestamps, from, to),
+                Arrays.copyOfRange(opens, from, to),
+                Arrays.copyOfRange(highs, from, to),
+                Arrays.copyOfRange(lows, from, to),
+                Arrays.copyOfRange(closes, from, to),
+                Arrays.copyOfRange(volumes, from, to),
+                to - from, intraday);
+    }
+
+    /**
+     * 移除 fromDay（含）之後的 K 棒
+     */
+    public BarSeries truncateFrom(int fromDay) {
+        return slice(Integer.MIN_VALUE, fromDay - 1);
+    }
+
+    /**
+     * 合併兩段 K 棒，同一排序鍵（日 K 為交易日、分 K 為時間戳記）以 newer 為準
+     */
+    public static BarSeries merge(BarSeries older, BarSeries newer) {
+        if (older.isEmpty()) {
+            return newer;
+        }
+        if (newer.isEmpty()) {
+            return older;
+        }
+
+        Builder builder = new Builder(older.size + newer.size, older.intraday);
+        int i = 0;
+        int j = 0;
+        while (i < older.size || j < newer.size) {
+            if (j >= newer.size || (i < older.size && older.getKey(i) < newer.getKey(j))) {
+                builder.add(older, i);
+                i++;
+            } else {
+                if (i < older.size && older.getKey(i) == newer.getKey(j)) {
+                    i++;
+                }
+                builder.add(newer, j);
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 逐筆加入 K 棒；輸入未排序時於 build 時排序，同一排序鍵保留最後加入的一筆
+     */
+    public static final class Builder {
+
+        private int[] days;
+        private long[] timestamps;
+        private double[] opens;
+        private double[] highs;
+        private double[] lows;
+        private double[] closes;
+        private long[] volumes;
+        private int size;
+        private boolean sorted = true;
+        private final boolean intraday;
+
+        private Builder(int expectedSize, boolean intraday) {
+            this.intraday = intraday;
+            int capacity = Math.max(expectedSize, 8);
+            this.days = new int[capacity];
+            this.timestamps = new long[capacity];
+            this.opens = new double[capacity];
+            this.highs = new double[capacity];
+            this.lows = new double[capacity];
+            this.closes = new double[capacity];
+            this.volumes = new long[capacity];
+        }
+
+        public Builder add(int day, long timestamp, double open, double high, double low,
+                           double close, long volume) {
+            if (size == days.length) {
+                grow(size * 2);
+            }
+            if (size > 0 && (intraday ? timestamp <= timestamps[size - 1] : day <= days[size - 1])) {
+                sorted = false;
+            }
+            days[size] = day;
+            timestamps[size] = timestamp;
+            opens[size] = open;
+            highs[size] = high;
+            lows[size] = low;
+            closes[size] = close;
+            volumes[size] = volume;
+            size++;
+            return this;
+        }
+
+        /**
+         * 複製另一個序列中的一根 K 棒
+         */
+        public Builder add(BarSeries series, int index) {
+            return add(series.days[index], series.timestamps[index], series.opens[index],
+                    series.highs[index], series.lows[index], series.closes[index], series.volumes[index]);
+        }
+
+        public BarSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (!sorted) {
+                sortAndDeduplicate();
+            }
+            return new BarSeries(days, timestamps, opens, highs, lows, closes, volumes, size, intraday);
+        }
+
+        private void grow(int capacity) {
+            days = Arrays.copyOf(days, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+        }
+
+        private void sortAndDeduplicate() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // 穩定排序，相同排序鍵維持加入順序
+            BarSeries unsorted = new BarSeries(days, timestamps, opens, highs, lows, closes, volumes, size, intraday);
+            Arrays.sort(order, (a, b) -> Long.compare(unsorted.getKey(a), unsorted.getKey(b)));
+
+            days = new int[size];
+            timestamps = new long[size];
+            opens = new double[size];
+            highs = new double[size];
+            lows = new double[size];
+            closes = new double[size];
+            volumes = new long[size];
+            size = 0;
+            sorted = true;
+            for (Integer index : order) {
+                if (size > 0 && (intraday ? timestamps[size - 1] == unsorted.timestamps[index]
+                        : days[size - 1] == unsorted.days[index])) {
+                    size--;
+                }
+                add(unsorted, index);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.stock_management.backtest_service.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * BigDecimal 參考模式帳本，計算結果與原始實作逐位相同
+ */
+public final class BigDecimalLedger extends PortfolioLedger {
+
+    private final BigDecimal[] prices;
+    private BigDecimal cash;
+    private BigDecimal lastTradeValue = BigDecimal.ZERO;
+    private BigDecimal previousValue;
+    private BigDecimal totalValue;
+    private BigDecimal dailyReturn = BigDecimal.ZERO;
+
+    public BigDecimalLedger(BigDecimal initialCapital, int slotCount) {
+        super(slotCount);
+        this.prices = new BigDecimal[slotCount];
+        this.cash = initialCapital;
+        this.previousValue = initialCapital;
+        this.totalValue = initialCapital;
+    }
+
+    @Override
+    public void setPrice(int slot, double close) {
+        prices[slot] = Double.isNaN(close) ? null : BigDecimal.valueOf(close);
+    }
+
+    @Override
+    public boolean hasPrice(int slot) {
+        return prices[slot] != null;
+    }
+
+    @Override
+    public boolean buy(int slot, int quantity, CostModel costs) {
+        BigDecimal tradeValue = executionPrice(slot, costs, true).multiply(BigDecimal.valueOf(quantity));
+        long cost = costs == CostModel.NONE ? 0L : costs.cost(FixedPoint.fromBigDecimal(tradeValue), true);
+        BigDecimal payment = cost == 0L ? tradeValue : tradeValue.add(FixedPoint.toBigDecimal(cost));
+        if (cash.compareTo(payment) < 0) {
+            return false;
+        }
+        cash = cash.subtract(payment);
+        shares[slot] += quantity;
+        traded[slot] = true;
+        lastTradeValue = tradeValue;
+        totalCosts += cost;
+        return true;
+    }
+
+    @Override
+    public boolean sell(int slot, int quantity, CostModel costs) {
+        if (shares[slot] < quantity) {
+            return false;
+        }
+        BigDecimal tradeValue = executionPrice(slot, costs, false).multiply(BigDecimal.valueOf(quantity));
+        long cost = costs == CostModel.NONE ? 0L : costs.cost(FixedPoint.fromBigDecimal(tradeValue), false);
+        cash = cash.add(cost == 0L ? tradeValue : tradeValue.subtract(FixedPoint.toBigDecimal(cost)));
+        shares[slot] -= quantity;
+        traded[slot] = true;
+        lastTradeValue = tradeValue;
+        totalCosts += cost;
+        return true;
+    }
+
+    /**
+     * 含滑價的成交價；沒有滑價時直接使用當日股價，與原始實作逐位相同
+     */
+    private BigDecimal executionPrice(int slot, CostModel costs, boolean buy) {
+        if (costs == CostModel.NONE) {
+            return prices[slot];
+        }
+        long price = FixedPoint.fromBigDecimal(prices[slot]);
+        long adjusted = costs.executionPrice(price, buy);
+        return adjusted == price ? prices[slot] : FixedPoint.toBigDecimal(adjusted);
+    }
+
+    @Override
+    public void closeDay() {
+        BigDecimal value = cash;
+        for (int slot = 0; slot < shares.length; slot++) {
+            if (shares[slot] > 0 && prices[slot] != null) {
+                value = value.add(prices[slot].multiply(BigDecimal.valueOf(shares[slot])));
+            }
+        }
+
+        dailyReturn = BigDecimal.ZERO;
+        if (previousValue.compareTo(BigDecimal.ZERO) > 0) {
+            dailyReturn = value.subtract(previousValue).divide(previousValue, 6, RoundingMode.HALF_UP);
+        }
+        totalValue = value;
+        previousValue = value;
+    }
+
+    @Override
+    public BigDecimal getCash() {
+        return cash;
+    }
+
+    @Override
+    public double getCashAsDouble() {
+        return cash.doubleValue();
+    }
+
+    @Override
+    public BigDecimal getPrice(int slot) {
+        return prices[slot];
+    }
+
+    @Override
+    public BigDecimal getLastTradeValue() {
+        return lastTradeValue;
+    }
+
+    @Override
+    public long getLastTradeValueScaled() {
+        return FixedPoint.fromBigDecimal(lastTradeValue);
+    }
+
+    @Override
+    public BigDecimal getTotalValue() {
+        return totalValue;
+    }
+
+    @Override
+    public BigDecimal getDailyReturn() {
+        return dailyReturn;
+    }
+
+    @Override
+    public long getTotalValueScaled() {
+        return FixedPoint.fromBigDecimal(totalValue);
+    }
+
+    @Override
+    public double getDailyReturnAsDouble() {
+        return dailyReturn.doubleValue();
+    }
+}
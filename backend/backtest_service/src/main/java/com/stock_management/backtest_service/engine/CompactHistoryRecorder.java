@@ -0,0 +1,79 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.CompactPortfolioHistory;
+import com.stock_management.backtest_service.dto.CompactPortfolioHistory.HoldingsChange;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 逐日記錄精簡格式的投資組合歷史
+ * 持股只在與前一日不同時記錄變動的欄位，股價以欄位陣列累積，不為每日建立 Map。
+ */
+public final class CompactHistoryRecorder {
+
+    private final String[] slotSymbols;
+    private final int[] lastShares;
+    private final boolean[] lastTraded;
+
+    private final List<String> dates;
+    private final List<List<BigDecimal>> prices;
+    private final List<HoldingsChange> holdingsChanges = new ArrayList<>();
+    private final List<BigDecimal> cash;
+    private final List<BigDecimal> totalValue;
+    private final List<BigDecimal> dailyReturn;
+
+    public CompactHistoryRecorder(String[] slotSymbols, int dayCount) {
+        this.slotSymbols = slotSymbols;
+        this.lastShares = new int[slotSymbols.length];
+        this.lastTraded = new boolean[slotSymbols.length];
+        this.dates = new ArrayList<>(dayCount);
+        this.prices = new ArrayList<>(slotSymbols.length);
+        for (int slot = 0; slot < slotSymbols.length; slot++) {
+            prices.add(new ArrayList<>(dayCount));
+        }
+        this.cash = new ArrayList<>(dayCount);
+        this.totalValue = new ArrayList<>(dayCount);
+        this.dailyReturn = new ArrayList<>(dayCount);
+    }
+
+    /**
+     * 記錄結算後的當日狀態
+     *
+     * @param dailyReturn 當日報酬率（分 K 模式為相對前一交易日收盤，由呼叫端計算）
+     */
+    public void record(String date, PortfolioLedger ledger, BigDecimal dailyReturn) {
+        int day = dates.size();
+        dates.add(date);
+
+        Map<String, Integer> changed = null;
+        for (int slot = 0; slot < slotSymbols.length; slot++) {
+            prices.get(slot).add(ledger.hasPrice(slot) ? ledger.getPrice(slot) : null);
+
+            // 與完整快照一致：持股只包含曾交易的股票（包含已賣光的 0 股）
+            if (ledger.isTraded(slot) && (!lastTraded[slot] || ledger.getShares(slot) != lastShares[slot])) {
+                if (changed == null) {
+                    changed = new HashMap<>();
+                }
+                changed.put(slotSymbols[slot], ledger.getShares(slot));
+                lastTraded[slot] = true;
+                lastShares[slot] = ledger.getShares(slot);
+            }
+        }
+        if (changed != null) {
+            holdingsChanges.add(new HoldingsChange(day, changed));
+        }
+
+        cash.add(ledger.getCash());
+        totalValue.add(ledger.getTotalValue());
+        this.dailyReturn.add(dailyReturn);
+    }
+
+    public CompactPortfolioHistory build() {
+        Map<String, List<BigDecimal>> priceColumns = new LinkedHashMap<>(slotSymbols.length * 2);
+        for (int slot = 0; slot < slotSymbols.length; slot++) {
+            priceColumns.put(slotSymbols[slot], prices.get(slot));
+        }
+        return new CompactPortfolioHistory(dates, priceColumns, holdingsChanges, cash, totalValue, dailyReturn);
+    }
+}
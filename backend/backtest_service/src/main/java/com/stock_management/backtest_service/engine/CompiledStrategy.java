@@ -0,0 +1,378 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.StrategyDefinition;
+import com.stock_management.backtest_service.dto.StrategyDefinition.Condition;
+import com.stock_management.backtest_service.dto.StrategyDefinition.Operand;
+import com.stock_management.backtest_service.dto.StrategyDefinition.Rule;
+import com.stock_management.backtest_service.dto.StrategyDefinition.Sizing;
+import com.stock_management.backtest_service.dto.StrategyDefinition.SizingType;
+import com.stock_management.backtest_service.dto.TradeAction;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 編譯後的伺服器端策略
+ * 每次回測只編譯一次：指標序列預先計算成與日期軸對齊的 double[]（指標本身跨回測共用，見 {@link IndicatorSpec}），
+ * 條件編譯為以交易日索引求值的 DayCondition 樹，回測迴圈每日只需依序呼叫規則，不再解析策略定義。
+ * 下單透過 {@link OrderExecutor}，與明確交易動作使用相同的成交價與成交量上限。
+ * 編譯結果暫存當日總價值，每次模擬各自編譯，不在執行緒間共用。
+ */
+public final class CompiledStrategy {
+
+    private final CompiledRule[] rules;
+    private final int rebalanceInterval;
+    private final double[] targetWeights;
+
+    private int equityDay = -1;
+    private double equity;
+
+    private CompiledStrategy(CompiledRule[] rules, int rebalanceInterval, double[] targetWeights) {
+        this.rules = rules;
+        this.rebalanceInterval = rebalanceInterval;
+        this.targetWeights = targetWeights;
+    }
+
+    /**
+     * 編譯策略定義
+     *
+     * @param slotSymbols 持股欄位對應的股票代號
+     * @param columns     持股欄位對應的股價矩陣欄位
+     * @param memo        指標序列備忘錄
+     * @throws IllegalArgumentException 策略定義不完整或參數不合法
+     */
+    public static CompiledStrategy compile(StrategyDefinition definition, PriceMatrix priceMatrix,
+                                           String[] slotSymbols, int[] columns, IndicatorMemo memo) {
+        Map<String, Integer> slotIndex = new HashMap<>(slotSymbols.length * 2);
+        for (int slot = 0; slot < slotSymbols.length; slot++) {
+            slotIndex.put(slotSymbols[slot], slot);
+        }
+        SeriesCompiler series = new SeriesCompiler(priceMatrix, memo);
+
+        List<CompiledRule> compiledRules = new ArrayList<>();
+        if (definition.getRules() != null) {
+            for (Rule rule : definition.getRules()) {
+                if (rule.getAction() == null) {
+                    throw new IllegalArgumentException("策略規則缺少交易類型 (action)");
+                }
+                Sizing sizing = validateSizing(rule.getSizing());
+                int[] targetSlots;
+                if (rule.getSymbol() == null) {
+                    targetSlots = new int[slotSymbols.length];
+                    for (int slot = 0; slot < targetSlots.length; slot++) {
+                        targetSlots[slot] = slot;
+                    }
+                } else {
+                    // 沒有股價資料的股票不在持股欄位中，規則直接略過
+                    Integer slot = slotIndex.get(rule.getSymbol());
+                    targetSlots = slot == null ? new int[0] : new int[]{slot};
+                }
+                for (int slot : targetSlots) {
+                    DayCondition condition = rule.getWhen() == null
+                            ? DayCondition.ALWAYS : compileCondition(rule.getWhen(), columns[slot], series);
+                    compiledRules.add(new CompiledRule(slot, condition,
+                            rule.getAction() == TradeAction.TradeType.BUY,
+                            sizing.getType(), sizing.getValue() == null ? 0.0 : sizing.getValue().doubleValue()));
+                }
+            }
+        }
+
+        int rebalanceInterval = 0;
+        double[] targetWeights = null;
+        if (definition.getRebalance() != null) {
+            StrategyDefinition.Rebalance rebalance = definition.getRebalance();
+            if (rebalance.getIntervalDays() < 1) {
+                throw new IllegalArgumentException("再平衡間隔至少為 1 個交易日");
+            }
+            rebalanceInterval = rebalance.getIntervalDays();
+            targetWeights = new double[slotSymbols.length];
+            double totalWeight = 0.0;
+            Map<String, BigDecimal> weights = rebalance.getTargetWeights() == null
+                    ? Collections.emptyMap() : rebalance.getTargetWeights();
+            for (Map.Entry<String, BigDecimal> entry : weights.entrySet()) {
+                double weight = entry.getValue() == null ? 0.0 : entry.getValue().doubleValue();
+                if (weight < 0) {
+                    throw new IllegalArgumentException("再平衡權重不可為負數: " + entry.getKey());
+                }
+                totalWeight += weight;
+                Integer slot = slotIndex.get(entry.getKey());
+                if (slot != null) {
+                    targetWeights[slot] = weight;
+                }
+            }
+            if (totalWeight > 1.0 + 1e-9) {
+                throw new IllegalArgumentException("再平衡權重合計不可超過 1");
+            }
+        }
+
+        return new CompiledStrategy(compiledRules.toArray(new CompiledRule[0]), rebalanceInterval, targetWeights);
+    }
+
+    /**
+     * 執行當日策略：先依排程再平衡，再依序評估規則
+     * 成交價為開盤價或 VWAP 時，規則依前一個交易日的收盤資料判斷，於當日成交
+     * 須在成交模型開始交易日之後呼叫
+     */
+    public void execute(int day, OrderExecutor executor) {
+        execute(day, day, executor);
+    }
+
+    /**
+     * @param elapsedDays 自模擬起點起算的 K 棒數，決定再平衡時點
+     */
+    public void execute(int day, int elapsedDays, OrderExecutor executor) {
+        if (rebalanceInterval > 0 && elapsedDays % rebalanceInterval == 0) {
+            rebalance(day, executor);
+        }
+        int signalDay = executor.fillsBeforeClose() ? day - 1 : day;
+        if (signalDay < 0) {
+            return;
+        }
+        for (CompiledRule rule : rules) {
+            if (rule.condition.test(signalDay)) {
+                rule.execute(this, day, executor);
+            }
+        }
+    }
+
+    private void rebalance(int day, OrderExecutor executor) {
+        PortfolioLedger ledger = executor.getLedger();
+        double total = equity(day, executor);
+        int slotCount = targetWeights.length;
+        int[] targets = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            targets[slot] = ledger.hasPrice(slot)
+                    ? (int) Math.floor(targetWeights[slot] * total / executor.getFillPrice(slot))
+                    : ledger.getShares(slot);
+        }
+
+        // 先賣後買，讓賣出的資金可用於買入
+        for (int slot = 0; slot < slotCount; slot++) {
+            int excess = ledger.getShares(slot) - targets[slot];
+            if (excess > 0) {
+                executor.sell(slot, excess);
+            }
+        }
+        // 交易成本使目標股數略超過可用現金時，買到可負擔的股數為止
+        for (int slot = 0; slot < slotCount; slot++) {
+            int shortfall = Math.min(targets[slot] - ledger.getShares(slot), executor.getAffordableShares(slot));
+            if (shortfall > 0) {
+                executor.buy(slot, shortfall);
+            }
+        }
+    }
+
+    /**
+     * 以當日成交價計算的投資組合總價值
+     * 同一交易日內快取到下一筆成交為止：手續費、交易稅與滑價會降低總價值，規則成交後須重新計算
+     */
+    private double equity(int day, OrderExecutor executor) {
+        if (equityDay != day) {
+            equity = executor.getEquity();
+            equityDay = day;
+        }
+        return equity;
+    }
+
+    private static final class CompiledRule {
+
+        private final int slot;
+        private final DayCondition condition;
+        private final boolean buy;
+        private final SizingType sizingType;
+        private final double sizingValue;
+
+        private CompiledRule(int slot, DayCondition condition, boolean buy, SizingType sizingType, double sizingValue) {
+            this.slot = slot;
+            this.condition = condition;
+            this.buy = buy;
+            this.sizingType = sizingType;
+            this.sizingValue = sizingValue;
+        }
+
+        private void execute(CompiledStrategy strategy, int day, OrderExecutor executor) {
+            PortfolioLedger ledger = executor.getLedger();
+            if (!ledger.hasPrice(slot)) {
+                return;
+            }
+            double price = executor.getFillPrice(slot);
+            int quantity = switch (sizingType) {
+                case SHARES -> (int) sizingValue;
+                case PERCENT_OF_EQUITY -> (int) Math.floor(sizingValue * strategy.equity(day, executor) / price);
+                case ALL -> buy ? executor.getAffordableShares(slot) : ledger.getShares(slot);
+            };
+            if (!buy) {
+                quantity = Math.min(quantity, ledger.getShares(slot));
+            } else if (sizingType == SizingType.PERCENT_OF_EQUITY) {
+                // 依權益比例計算的股數加上交易成本可能超過現金，買到可負擔的股數為止
+                quantity = Math.min(quantity, executor.getAffordableShares(slot));
+            }
+            if (quantity <= 0) {
+                return;
+            }
+            int filled = buy ? executor.buy(slot, quantity) : executor.sell(slot, quantity);
+            if (filled > 0) {
+                strategy.equityDay = -1;
+            }
+        }
+    }
+
+    private static Sizing validateSizing(Sizing sizing) {
+        if (sizing == null || sizing.getType() == null) {
+            throw new IllegalArgumentException("策略規則缺少部位大小 (sizing)");
+        }
+        if (sizing.getType() != SizingType.ALL
+                && (sizing.getValue() == null || sizing.getValue().signum() <= 0)) {
+            throw new IllegalArgumentException("部位大小 " + sizing.getType() + " 需指定正數 value");
+        }
+        return sizing;
+    }
+
+    private static DayCondition compileCondition(Condition condition, int column, SeriesCompiler series) {
+        if (condition.getType() == null) {
+            throw new IllegalArgumentException("策略條件缺少類型 (type)");
+        }
+        switch (condition.getType()) {
+            case AND, OR -> {
+                List<Condition> children = condition.getConditions();
+                if (children == null || children.isEmpty()) {
+                    throw new IllegalArgumentException(condition.getType() + " 條件需包含子條件");
+                }
+                DayCondition[] compiled = new DayCondition[children.size()];
+                for (int i = 0; i < compiled.length; i++) {
+                    compiled[i] = compileCondition(children.get(i), column, series);
+                }
+                if (compiled.length == 1) {
+                    return compiled[0];
+                }
+                if (condition.getType() == StrategyDefinition.ConditionType.AND) {
+                    return day -> {
+                        for (DayCondition child : compiled) {
+                            if (!child.test(day)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    };
+                }
+                return day -> {
+                    for (DayCondition child : compiled) {
+                        if (child.test(day)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            case NOT -> {
+                if (condition.getConditions() == null || condition.getConditions().size() != 1) {
+                    throw new IllegalArgumentException("NOT 條件需包含恰好一個子條件");
+                }
+                DayCondition child = compileCondition(condition.getConditions().get(0), column, series);
+                return day -> !child.test(day);
+            }
+            default -> {
+                if (condition.getLeft() == null || condition.getRight() == null) {
+                    throw new IllegalArgumentException(condition.getType() + " 條件需指定 left 與 right");
+                }
+                // NaN（資料不足）的比較一律為 false
+                double[] left = series.resolve(condition.getLeft(), column);
+                double[] right = series.resolve(condition.getRight(), column);
+                return switch (condition.getType()) {
+                    case ABOVE -> day -> left[day] > right[day];
+                    case BELOW -> day -> left[day] < right[day];
+                    case CROSS_ABOVE -> day -> day > 0 && left[day - 1] <= right[day - 1] && left[day] > right[day];
+                    case CROSS_BELOW -> day -> day > 0 && left[day - 1] >= right[day - 1] && left[day] < right[day];
+                    default -> throw new IllegalStateException("未處理的條件類型: " + condition.getType());
+                };
+            }
+        }
+    }
+
+    /**
+     * 將運算元解析為與日期軸對齊的序列，同一次編譯中相同的運算元只對齊一次
+     * 指標以股票自身的 K 棒計算並透過備忘錄共用，再對齊到日期軸（無 K 棒的交易日沿用前值）
+     */
+    private static final class SeriesCompiler {
+
+        private final PriceMatrix priceMatrix;
+        private final IndicatorMemo memo;
+        private final Map<String, double[]> aligned = new HashMap<>();
+
+        private SeriesCompiler(PriceMatrix priceMatrix, IndicatorMemo memo) {
+            this.priceMatrix = priceMatrix;
+            this.memo = memo;
+        }
+
+        private double[] resolve(Operand operand, int column) {
+            if (operand.getType() == null) {
+                throw new IllegalArgumentException("策略運算元缺少類型 (type)");
+            }
+            if (operand.getType() == StrategyDefinition.OperandType.CONSTANT) {
+                if (operand.getValue() == null) {
+                    throw new IllegalArgumentException("CONSTANT 運算元需指定 value");
+                }
+                double[] values = new double[priceMatrix.getDayCount()];
+                Arrays.fill(values, operand.getValue().doubleValue());
+                return values;
+            }
+            if (operand.getType() == StrategyDefinition.OperandType.PRICE) {
+                return aligned.computeIfAbsent(column + "|PRICE", key -> closes(column));
+            }
+
+            IndicatorSpec spec = toSpec(operand);
+            String key = column + "|" + spec.key();
+            double[] values = aligned.get(key);
+            if (values == null) {
+                String symbol = priceMatrix.getSymbol(column);
+                values = priceMatrix.alignToAxis(column, spec.compute(symbol, priceMatrix.getBars(column), memo));
+                aligned.put(key, values);
+            }
+            return values;
+        }
+
+        private static IndicatorSpec toSpec(Operand operand) {
+            int period = required(operand.getPeriod(), operand.getType() + " 運算元需指定 period");
+            return switch (operand.getType()) {
+                case SMA -> IndicatorSpec.of(IndicatorSpec.Type.SMA, period);
+                case EMA -> IndicatorSpec.of(IndicatorSpec.Type.EMA, period);
+                case RSI -> IndicatorSpec.of(IndicatorSpec.Type.RSI, period);
+                case ATR -> IndicatorSpec.of(IndicatorSpec.Type.ATR, period);
+                case MACD -> IndicatorSpec.macd(IndicatorSpec.Type.MACD, period,
+                        required(operand.getSlowPeriod(), "MACD 運算元需指定 slowPeriod"), 0);
+                case MACD_SIGNAL, MACD_HISTOGRAM -> IndicatorSpec.macd(
+                        operand.getType() == StrategyDefinition.OperandType.MACD_SIGNAL
+                                ? IndicatorSpec.Type.MACD_SIGNAL : IndicatorSpec.Type.MACD_HISTOGRAM,
+                        period,
+                        required(operand.getSlowPeriod(), operand.getType() + " 運算元需指定 slowPeriod"),
+                        required(operand.getSignalPeriod(), operand.getType() + " 運算元需指定 signalPeriod"));
+                case BOLLINGER_MIDDLE -> IndicatorSpec.bollinger(IndicatorSpec.Type.BOLLINGER_MIDDLE, period, 0.0);
+                case BOLLINGER_UPPER, BOLLINGER_LOWER -> {
+                    if (operand.getMultiplier() == null) {
+                        throw new IllegalArgumentException(operand.getType() + " 運算元需指定 multiplier");
+                    }
+                    yield IndicatorSpec.bollinger(
+                            operand.getType() == StrategyDefinition.OperandType.BOLLINGER_UPPER
+                                    ? IndicatorSpec.Type.BOLLINGER_UPPER : IndicatorSpec.Type.BOLLINGER_LOWER,
+                            period, operand.getMultiplier().doubleValue());
+                }
+                default -> throw new IllegalStateException("未處理的運算元類型: " + operand.getType());
+            };
+        }
+
+        private static int required(Integer value, String message) {
+            if (value == null) {
+                throw new IllegalArgumentException(message);
+            }
+            return value;
+        }
+
+        private double[] closes(int column) {
+            double[] values = new double[priceMatrix.getDayCount()];
+            for (int day = 0; day < values.length; day++) {
+                values[day] = priceMatrix.getClose(column, day);
+            }
+            return values;
+        }
+    }
+}
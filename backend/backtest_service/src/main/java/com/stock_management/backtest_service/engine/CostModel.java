@@ -0,0 +1,101 @@
+package com.stock_management.backtest_service.engine;
+
+/**
+ * 交易成本與成交單位模型
+ * 參數在回測開始前轉為原始型別，回測迴圈內只做 long/double 運算，每筆交易不配置物件。
+ * 金額皆為定點數（萬分之一元）；手續費與交易稅依台股慣例無條件捨去至元。
+ *
+ * <ul>
+ *   <li>手續費：成交金額 × 手續費率 × 折扣，每筆不低於最低手續費（買賣皆收）</li>
+ *   <li>證券交易稅：成交金額 × 稅率（僅賣出）</li>
+ *   <li>滑價：買入成交價上調、賣出成交價下調固定比例</li>
+ *   <li>交易單位：委託股數無條件捨去至交易單位的整數倍（1000 為整股、1 為零股）</li>
+ * </ul>
+ */
+public final class CostModel {
+
+    public static final CostModel NONE = new CostModel(0.0, 0L, 0.0, 0.0, 1);
+
+    private final double commissionRate;
+    private final long minimumCommission;
+    private final double sellTaxRate;
+    private final double slippage;
+    private final int lotSize;
+
+    /**
+     * @param commissionRate    手續費率（已乘上折扣）
+     * @param minimumCommission 每筆最低手續費（定點數）
+     * @param sellTaxRate       賣出時的證券交易稅率
+     * @param slippage          滑價比例，例如 0.001 表示 10 個基點
+     * @param lotSize           交易單位股數
+     */
+    public CostModel(double commissionRate, long minimumCommission, double sellTaxRate,
+                     double slippage, int lotSize) {
+        this.commissionRate = commissionRate;
+        this.minimumCommission = minimumCommission;
+        this.sellTaxRate = sellTaxRate;
+        this.slippage = slippage;
+        this.lotSize = Math.max(1, lotSize);
+    }
+
+    /**
+     * 含滑價的成交價（定點數）
+     */
+    public long executionPrice(long price, boolean buy) {
+        if (slippage == 0.0) {
+            return price;
+        }
+        long adjustment = Math.round(price * slippage);
+        return buy ? price + adjustment : Math.max(0L, price - adjustment);
+    }
+
+    /**
+     * 含滑價的成交價，供策略估算可買股數
+     */
+    public double executionPrice(double price, boolean buy) {
+        return buy ? price * (1.0 + slippage) : price * (1.0 - slippage);
+    }
+
+    /**
+     * 一筆交易的手續費與交易稅合計（定點數）
+     *
+     * @param tradeValue 成交金額（定點數）
+     */
+    public long cost(long tradeValue, boolean buy) {
+        if (tradeValue <= 0) {
+            return 0L;
+        }
+        long cost = 0L;
+        if (commissionRate > 0.0 || minimumCommission > 0L) {
+            cost = Math.max(floorToDollar(tradeValue * commissionRate), minimumCommission);
+        }
+        if (!buy && sellTaxRate > 0.0) {
+            cost += floorToDollar(tradeValue * sellTaxRate);
+        }
+        return cost;
+    }
+
+    /**
+     * 委託股數捨去至交易單位的整數倍
+     */
+    public int roundToLot(int quantity) {
+        return lotSize == 1 ? quantity : quantity - quantity % lotSize;
+    }
+
+    /**
+     * 以現金可負擔的最大買入股數（含滑價與比例手續費，已捨去至交易單位）
+     */
+    public int affordableShares(double cash, double price) {
+        double unitCost = executionPrice(price, true) * (1.0 + commissionRate);
+        if (!(unitCost > 0.0)) {
+            return 0;
+        }
+        long shares = (long) Math.floor(Math.max(0.0, cash - FixedPoint.toDouble(minimumCommission)) / unitCost);
+        return roundToLot((int) Math.min(shares, Integer.MAX_VALUE));
+    }
+
+    private static long floorToDollar(double scaled) {
+        long value = (long) scaled;
+        return value - value % FixedPoint.ONE;
+    }
+}
@@ -0,0 +1,175 @@
+package com.stock_management.backtest_service.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 日報酬的樣本平均與共變異數矩陣
+ * 報酬率為相鄰兩日都有收盤價時的簡單報酬；平均以各股票有效的交易日計算。
+ * 每對股票的共變異數只以兩者都有報酬的交易日計算（除以共同交易日數 - 1），
+ * 較晚上市或停牌的股票變異數不會因缺值日而被低估；代價是矩陣不保證半正定，
+ * 呼叫端應先排除有效報酬比例過低的股票（見 {@link #countReturns}）。
+ * <p>
+ * 共變異數以 {@link #BLOCK_SIZE} × {@link #BLOCK_SIZE} 的股票區塊為單位平行計算，只計算上三角區塊；
+ * 區塊內再依 {@link #TIME_BLOCK} 個交易日分段累加，讓兩組股票的報酬片段同時留在快取中。
+ * 各區塊寫入互不重疊的矩陣位置，不需同步。
+ */
+public final class CovarianceEstimator {
+
+    public static final int BLOCK_SIZE = 64;
+    private static final int TIME_BLOCK = 256;
+
+    private CovarianceEstimator() {
+    }
+
+    /**
+     * 股票欄位中有效日報酬的個數，少於 2 個的股票無法估計變異數
+     */
+    public static int countReturns(PriceMatrix priceMatrix, int column) {
+        int count = 0;
+        for (int day = 1; day < priceMatrix.getDayCount(); day++) {
+            if (priceMatrix.hasPrice(column, day) && priceMatrix.hasPrice(column, day - 1)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param columns 估計的股價矩陣欄位，順序即結果矩陣的順序
+     */
+    public static Estimate estimate(PriceMatrix priceMatrix, String[] symbols, int[] columns, ForkJoinPool pool)
+            throws InterruptedException, ExecutionException {
+        int size = columns.length;
+        int observations = Math.max(0, priceMatrix.getDayCount() - 1);
+        double[] means = new double[size];
+        double[][] centered = new double[size][observations];
+        // 有效報酬的指示值（1 或 0），兩兩內積即為共同交易日數
+        double[][] masks = new double[size][observations];
+        for (int i = 0; i < size; i++) {
+            double[] returns = centered[i];
+            double[] valid = masks[i];
+            int count = 0;
+            double sum = 0.0;
+            for (int t = 0; t < observations; t++) {
+                double previous = priceMatrix.getClose(columns[i], t);
+                double close = priceMatrix.getClose(columns[i], t + 1);
+                if (!Double.isNaN(previous) && !Double.isNaN(close) && previous > 0.0) {
+                    returns[t] = close / previous - 1.0;
+                    valid[t] = 1.0;
+                    sum += returns[t];
+                    count++;
+                }
+            }
+            double mean = count == 0 ? 0.0 : sum / count;
+            means[i] = mean;
+            for (int t = 0; t < observations; t++) {
+                returns[t] = valid[t] > 0.0 ? returns[t] - mean : 0.0;
+            }
+        }
+
+        double[] covariance = new double[size * size];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int rowStart = 0; rowStart < size; rowStart += BLOCK_SIZE) {
+            for (int columnStart = rowStart; columnStart < size; columnStart += BLOCK_SIZE) {
+                int rowBlock = rowStart;
+                int columnBlock = columnStart;
+                tasks.add(() -> {
+                    computeBlock(centered, masks, covariance, size, observations, rowBlock, columnBlock);
+                    return null;
+                });
+            }
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            future.get();
+        }
+        return new Estimate(symbols, means, covariance, observations);
+    }
+
+    private static void computeBlock(double[][] centered, double[][] masks, double[] covariance, int size,
+                                     int observations, int rowStart, int columnStart) {
+        int rowEnd = Math.min(size, rowStart + BLOCK_SIZE);
+        int columnEnd = Math.min(size, columnStart + BLOCK_SIZE);
+        int width = columnEnd - columnStart;
+        double[] sums = new double[(rowEnd - rowStart) * width];
+        double[] counts = new double[(rowEnd - rowStart) * width];
+        for (int timeStart = 0; timeStart < observations; timeStart += TIME_BLOCK) {
+            int timeEnd = Math.min(observations, timeStart + TIME_BLOCK);
+            for (int i = rowStart; i < rowEnd; i++) {
+                double[] x = centered[i];
+                double[] xValid = masks[i];
+                int base = (i - rowStart) * width;
+                for (int j = Math.max(i, columnStart); j < columnEnd; j++) {
+                    double[] y = centered[j];
+                    double[] yValid = masks[j];
+                    double sum = 0.0;
+                    double count = 0.0;
+                    for (int t = timeStart; t < timeEnd; t++) {
+                        sum += x[t] * y[t];
+                        count += xValid[t] * yValid[t];
+                    }
+                    sums[base + j - columnStart] += sum;
+                    counts[base + j - columnStart] += count;
+                }
+            }
+        }
+        for (int i = rowStart; i < rowEnd; i++) {
+            int base = (i - rowStart) * width;
+            for (int j = Math.max(i, columnStart); j < columnEnd; j++) {
+                // 共同交易日少於 2 日時無法估計，視為不相關
+                double count = counts[base + j - columnStart];
+                double value = count < 2 ? 0.0 : sums[base + j - columnStart] / (count - 1);
+                covariance[i * size + j] = value;
+                covariance[j * size + i] = value;
+            }
+        }
+    }
+
+    /**
+     * 估計結果（不可變，可在多個請求間共用）
+     */
+    public static final class Estimate {
+        private final String[] symbols;
+        private final double[] means;
+        private final double[] covariance;
+        private final int observations;
+
+        public Estimate(String[] symbols, double[] means, double[] covariance, int observations) {
+            this.symbols = symbols;
+            this.means = means;
+            this.covariance = covariance;
+            this.observations = observations;
+        }
+
+        public int size() {
+            return symbols.length;
+        }
+
+        public String getSymbol(int index) {
+            return symbols[index];
+        }
+
+        public double getMean(int index) {
+            return means[index];
+        }
+
+        public double getCovariance(int row, int column) {
+            return covariance[row * symbols.length + column];
+        }
+
+        /**
+         * 列優先排列的共變異數矩陣，呼叫端不可修改
+         */
+        public double[] getCovarianceMatrix() {
+            return covariance;
+        }
+
+        public int getObservations() {
+            return observations;
+        }
+    }
+}
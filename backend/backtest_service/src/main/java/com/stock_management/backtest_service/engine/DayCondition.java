@@ -0,0 +1,12 @@
+package com.stock_management.backtest_service.engine;
+
+/**
+ * 編譯後的策略條件，以交易日索引求值
+ */
+@FunctionalInterface
+public interface DayCondition {
+
+    DayCondition ALWAYS = day -> true;
+
+    boolean test(int day);
+}
@@ -0,0 +1,33 @@
+package com.stock_management.backtest_service.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定點數金額運算工具
+ * 金額以 long 表示，單位為萬分之一元（1 元 = 10,000），避免回測迴圈內配置 BigDecimal。
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 4;
+    public static final long ONE = 10_000L;
+
+    private FixedPoint() {
+    }
+
+    public static long fromDouble(double value) {
+        return Math.round(value * ONE);
+    }
+
+    public static long fromBigDecimal(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    public static double toDouble(long scaled) {
+        return scaled / (double) ONE;
+    }
+}
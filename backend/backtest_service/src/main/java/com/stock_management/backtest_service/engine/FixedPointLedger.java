@@ -0,0 +1,128 @@
+package com.stock_management.backtest_service.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定點數模式帳本
+ * 現金、股價與市值皆以萬分之一元的 long 運算，迴圈內不配置任何物件；
+ * BigDecimal 只在輸出快照時才建立。
+ */
+public final class FixedPointLedger extends PortfolioLedger {
+
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final long[] prices;
+    private long cash;
+    private long lastTradeValue;
+    private long previousValue;
+    private long totalValue;
+    private double dailyReturn;
+
+    public FixedPointLedger(BigDecimal initialCapital, int slotCount) {
+        super(slotCount);
+        this.prices = new long[slotCount];
+        this.cash = FixedPoint.fromBigDecimal(initialCapital);
+        this.previousValue = cash;
+        this.totalValue = cash;
+    }
+
+    @Override
+    public void setPrice(int slot, double close) {
+        prices[slot] = Double.isNaN(close) ? NO_PRICE : FixedPoint.fromDouble(close);
+    }
+
+    @Override
+    public boolean hasPrice(int slot) {
+        return prices[slot] != NO_PRICE;
+    }
+
+    @Override
+    public boolean buy(int slot, int quantity, CostModel costs) {
+        long tradeValue = Math.multiplyExact(costs.executionPrice(prices[slot], true), (long) quantity);
+        long cost = costs.cost(tradeValue, true);
+        if (cash < tradeValue + cost) {
+            return false;
+        }
+        cash -= tradeValue + cost;
+        shares[slot] += quantity;
+        traded[slot] = true;
+        lastTradeValue = tradeValue;
+        totalCosts += cost;
+        return true;
+    }
+
+    @Override
+    public boolean sell(int slot, int quantity, CostModel costs) {
+        if (shares[slot] < quantity) {
+            return false;
+        }
+        long tradeValue = Math.multiplyExact(costs.executionPrice(prices[slot], false), (long) quantity);
+        long cost = costs.cost(tradeValue, false);
+        cash += tradeValue - cost;
+        shares[slot] -= quantity;
+        traded[slot] = true;
+        lastTradeValue = tradeValue;
+        totalCosts += cost;
+        return true;
+    }
+
+    @Override
+    public void closeDay() {
+        long value = cash;
+        for (int slot = 0; slot < shares.length; slot++) {
+            if (shares[slot] > 0 && prices[slot] != NO_PRICE) {
+                value += prices[slot] * shares[slot];
+            }
+        }
+
+        dailyReturn = previousValue > 0 ? (double) (value - previousValue) / previousValue : 0.0;
+        totalValue = value;
+        previousValue = value;
+    }
+
+    @Override
+    public BigDecimal getCash() {
+        return FixedPoint.toBigDecimal(cash);
+    }
+
+    @Override
+    public double getCashAsDouble() {
+        return FixedPoint.toDouble(cash);
+    }
+
+    @Override
+    public BigDecimal getPrice(int slot) {
+        return prices[slot] == NO_PRICE ? null : FixedPoint.toBigDecimal(prices[slot]);
+    }
+
+    @Override
+    public BigDecimal getLastTradeValue() {
+        return FixedPoint.toBigDecimal(lastTradeValue);
+    }
+
+    @Override
+    public long getLastTradeValueScaled() {
+        return lastTradeValue;
+    }
+
+    @Override
+    public BigDecimal getTotalValue() {
+        return FixedPoint.toBigDecimal(totalValue);
+    }
+
+    @Override
+    public BigDecimal getDailyReturn() {
+        return BigDecimal.valueOf(dailyReturn).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public long getTotalValueScaled() {
+        return totalValue;
+    }
+
+    @Override
+    public double getDailyReturnAsDouble() {
+        return dailyReturn;
+    }
+}
@@ -0,0 +1,18 @@
+package com.stock_management.backtest_service.engine;
+
+import java.util.function.Supplier;
+
+/**
+ * 指標序列的備忘錄，以 {@link IndicatorSpec#cacheKey(String, BarSeries)} 為鍵
+ * 計算函式內可再查詢其他鍵（例如 MACD 訊號線先取得 MACD 線），實作不可在計算期間持有鎖。
+ */
+@FunctionalInterface
+public interface IndicatorMemo {
+
+    /**
+     * 不保留任何結果，每次都重新計算
+     */
+    IndicatorMemo NONE = (key, compute) -> compute.get();
+
+    double[] get(String key, Supplier<double[]> compute);
+}
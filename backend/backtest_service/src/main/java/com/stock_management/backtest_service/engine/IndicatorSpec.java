@@ -0,0 +1,152 @@
+package com.stock_management.backtest_service.engine;
+
+/**
+ * 技術指標與參數
+ * 指標以單一股票自身的 K 棒計算（不含其他股票造成的日期軸空缺），結果依
+ * (股票, 指標, 參數, K 棒區間) 存入 {@link IndicatorMemo}，參數掃描中相同的序列只計算一次；
+ * 由其他序列組成的指標（MACD、布林通道）也透過備忘錄取得組成序列。
+ */
+public final class IndicatorSpec {
+
+    public enum Type {
+        CLOSE,              // 收盤價
+        SMA,                // 簡單移動平均（period）
+        EMA,                // 指數移動平均（period）
+        STDDEV,             // 移動標準差（period）
+        RSI,                // 相對強弱指標（period）
+        MACD,               // MACD 線（fast, slow）
+        MACD_SIGNAL,        // MACD 訊號線（fast, slow, signal）
+        MACD_HISTOGRAM,     // MACD 柱狀圖（fast, slow, signal）
+        BOLLINGER_MIDDLE,   // 布林通道中軌（period）
+        BOLLINGER_UPPER,    // 布林通道上軌（period, multiplier）
+        BOLLINGER_LOWER,    // 布林通道下軌（period, multiplier）
+        ATR                 // 平均真實區間（period）
+    }
+
+    private final Type type;
+    private final int period;
+    private final int slowPeriod;
+    private final int signalPeriod;
+    private final double multiplier;
+
+    private IndicatorSpec(Type type, int period, int slowPeriod, int signalPeriod, double multiplier) {
+        this.type = type;
+        this.period = period;
+        this.slowPeriod = slowPeriod;
+        this.signalPeriod = signalPeriod;
+        this.multiplier = multiplier;
+    }
+
+    public static IndicatorSpec close() {
+        return new IndicatorSpec(Type.CLOSE, 0, 0, 0, 0.0);
+    }
+
+    /**
+     * 單一期間的指標（SMA、EMA、STDDEV、RSI、BOLLINGER_MIDDLE、ATR）
+     */
+    public static IndicatorSpec of(Type type, int period) {
+        return new IndicatorSpec(type, requirePositive(period, "period"), 0, 0, 0.0);
+    }
+
+    public static IndicatorSpec macd(Type type, int fastPeriod, int slowPeriod, int signalPeriod) {
+        requirePositive(fastPeriod, "fastPeriod");
+        requirePositive(slowPeriod, "slowPeriod");
+        if (type != Type.MACD) {
+            requirePositive(signalPeriod, "signalPeriod");
+        } else {
+            signalPeriod = 0;
+        }
+        if (fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("MACD 快線期間必須小於慢線期間");
+        }
+        return new IndicatorSpec(type, fastPeriod, slowPeriod, signalPeriod, 0.0);
+    }
+
+    public static IndicatorSpec bollinger(Type type, int period, double multiplier) {
+        if (type != Type.BOLLINGER_MIDDLE && !(multiplier > 0)) {
+            throw new IllegalArgumentException("布林通道倍數 (multiplier) 必須為正數");
+        }
+        return new IndicatorSpec(type, requirePositive(period, "period"), 0, 0,
+                type == Type.BOLLINGER_MIDDLE ? 0.0 : multiplier);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 指標與參數的字串鍵，例如 "SMA(20)"、"MACD_SIGNAL(12,26,9)"
+     */
+    public String key() {
+        return switch (type) {
+            case CLOSE -> "CLOSE";
+            case MACD -> type + "(" + period + "," + slowPeriod + ")";
+            case MACD_SIGNAL, MACD_HISTOGRAM -> type + "(" + period + "," + slowPeriod + "," + signalPeriod + ")";
+            case BOLLINGER_UPPER, BOLLINGER_LOWER ->
+                    type + "(" + period + "," + multiplier + ")";
+            default -> type + "(" + period + ")";
+        };
+    }
+
+    /**
+     * 備忘錄鍵：股票代號、K 棒區間與根數、最後收盤價、指標與參數
+     * 今日的 K 棒在收盤前仍會變動，最後收盤價不同時視為不同的序列
+     */
+    public String cacheKey(String symbol, BarSeries bars) {
+        if (bars.isEmpty()) {
+            return symbol + "|empty|" + key();
+        }
+        return symbol + "|" + bars.getDay(0) + "|" + bars.getLastDay() + "|" + bars.size()
+                + "|" + bars.getClose(bars.size() - 1) + "|" + key();
+    }
+
+    /**
+     * 取得指標序列（與 K 棒一一對應），已計算過時直接回傳備忘錄中的結果
+     * 回傳的陣列由備忘錄共用，呼叫端不可修改
+     */
+    public double[] compute(String symbol, BarSeries bars, IndicatorMemo memo) {
+        return memo.get(cacheKey(symbol, bars), () -> calculate(symbol, bars, memo));
+    }
+
+    private double[] calculate(String symbol, BarSeries bars, IndicatorMemo memo) {
+        return switch (type) {
+            case CLOSE -> bars.copyCloses();
+            case SMA -> Indicators.sma(closes(symbol, bars, memo), period);
+            case EMA -> Indicators.ema(closes(symbol, bars, memo), period);
+            case STDDEV -> Indicators.standardDeviation(closes(symbol, bars, memo), period);
+            case RSI -> Indicators.rsi(closes(symbol, bars, memo), period);
+            case MACD -> Indicators.difference(
+                    of(Type.EMA, period).compute(symbol, bars, memo),
+                    of(Type.EMA, slowPeriod).compute(symbol, bars, memo));
+            case MACD_SIGNAL -> Indicators.ema(
+                    macd(Type.MACD, period, slowPeriod, 0).compute(symbol, bars, memo), signalPeriod);
+            case MACD_HISTOGRAM -> Indicators.difference(
+                    macd(Type.MACD, period, slowPeriod, 0).compute(symbol, bars, memo),
+                    macd(Type.MACD_SIGNAL, period, slowPeriod, signalPeriod).compute(symbol, bars, memo));
+            case BOLLINGER_MIDDLE -> of(Type.SMA, period).compute(symbol, bars, memo);
+            case BOLLINGER_UPPER -> Indicators.offset(
+                    of(Type.SMA, period).compute(symbol, bars, memo),
+                    of(Type.STDDEV, period).compute(symbol, bars, memo), multiplier);
+            case BOLLINGER_LOWER -> Indicators.offset(
+                    of(Type.SMA, period).compute(symbol, bars, memo),
+                    of(Type.STDDEV, period).compute(symbol, bars, memo), -multiplier);
+            case ATR -> Indicators.atr(bars.copyHighs(), bars.copyLows(), closes(symbol, bars, memo), period);
+        };
+    }
+
+    private static double[] closes(String symbol, BarSeries bars, IndicatorMemo memo) {
+        return close().compute(symbol, bars, memo);
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException("指標參數 " + name + " 必須為正整數");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
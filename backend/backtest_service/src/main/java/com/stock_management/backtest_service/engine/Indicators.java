@@ -0,0 +1,173 @@
+package com.stock_management.backtest_service.engine;
+
+/**
+ * 技術指標計算
+ * 每個指標以遞推方式逐根 K 棒更新，每根 K 棒 O(1)、迴圈內不配置物件，輸出為與輸入等長的 double[]。
+ * 暖機期間（資料不足）以及輸入為 NaN 的前導區段輸出 NaN；輸入中間不應出現 NaN。
+ */
+public final class Indicators {
+
+    private Indicators() {
+    }
+
+    /**
+     * 簡單移動平均
+     */
+    public static double[] sma(double[] input, int period) {
+        double[] output = new double[input.length];
+        double sum = 0.0;
+        int valid = 0;
+        for (int i = 0; i < input.length; i++) {
+            if (Double.isNaN(input[i])) {
+                output[i] = Double.NaN;
+                continue;
+            }
+            sum += input[i];
+            if (++valid > period) {
+                sum -= input[i - period];
+            }
+            output[i] = valid >= period ? sum / period : Double.NaN;
+        }
+        return output;
+    }
+
+    /**
+     * 指數移動平均，以前 period 根的簡單平均作為起始值
+     */
+    public static double[] ema(double[] input, int period) {
+        double[] output = new double[input.length];
+        double alpha = 2.0 / (period + 1);
+        double value = 0.0;
+        int valid = 0;
+        for (int i = 0; i < input.length; i++) {
+            if (Double.isNaN(input[i])) {
+                output[i] = Double.NaN;
+                continue;
+            }
+            valid++;
+            if (valid < period) {
+                value += input[i];
+                output[i] = Double.NaN;
+            } else if (valid == period) {
+                value = (value + input[i]) / period;
+                output[i] = value;
+            } else {
+                value += alpha * (input[i] - value);
+                output[i] = value;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * 移動母體標準差（布林通道寬度）
+     */
+    public static double[] standardDeviation(double[] input, int period) {
+        double[] output = new double[input.length];
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        int valid = 0;
+        for (int i = 0; i < input.length; i++) {
+            if (Double.isNaN(input[i])) {
+                output[i] = Double.NaN;
+                continue;
+            }
+            sum += input[i];
+            sumOfSquares += input[i] * input[i];
+            if (++valid > period) {
+                double evicted = input[i - period];
+                sum -= evicted;
+                sumOfSquares -= evicted * evicted;
+            }
+            if (valid >= period) {
+                double mean = sum / period;
+                output[i] = Math.sqrt(Math.max(0.0, sumOfSquares / period - mean * mean));
+            } else {
+                output[i] = Double.NaN;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * 相對強弱指標（Wilder 平滑），範圍 0 到 100
+     */
+    public static double[] rsi(double[] close, int period) {
+        double[] output = new double[close.length];
+        double averageGain = 0.0;
+        double averageLoss = 0.0;
+        int changes = 0;
+        for (int i = 0; i < close.length; i++) {
+            if (i == 0 || Double.isNaN(close[i - 1]) || Double.isNaN(close[i])) {
+                output[i] = Double.NaN;
+                continue;
+            }
+            double change = close[i] - close[i - 1];
+            double gain = Math.max(change, 0.0);
+            double loss = Math.max(-change, 0.0);
+            changes++;
+            if (changes <= period) {
+                averageGain += gain / period;
+                averageLoss += loss / period;
+                if (changes < period) {
+                    output[i] = Double.NaN;
+                    continue;
+                }
+            } else {
+                averageGain = (averageGain * (period - 1) + gain) / period;
+                averageLoss = (averageLoss * (period - 1) + loss) / period;
+            }
+            output[i] = averageLoss == 0.0
+                    ? (averageGain == 0.0 ? 50.0 : 100.0)
+                    : 100.0 - 100.0 / (1.0 + averageGain / averageLoss);
+        }
+        return output;
+    }
+
+    /**
+     * 兩條序列的差（MACD 線 = 快線 EMA - 慢線 EMA；柱狀圖 = MACD 線 - 訊號線）
+     */
+    public static double[] difference(double[] left, double[] right) {
+        double[] output = new double[left.length];
+        for (int i = 0; i < left.length; i++) {
+            output[i] = left[i] - right[i];
+        }
+        return output;
+    }
+
+    /**
+     * base + multiplier × offset（布林通道上下軌）
+     */
+    public static double[] offset(double[] base, double[] offset, double multiplier) {
+        double[] output = new double[base.length];
+        for (int i = 0; i < base.length; i++) {
+            output[i] = base[i] + multiplier * offset[i];
+        }
+        return output;
+    }
+
+    /**
+     * 平均真實區間（Wilder 平滑）
+     * 缺少最高價或最低價的 K 棒以收盤價代替
+     */
+    public static double[] atr(double[] high, double[] low, double[] close, int period) {
+        double[] output = new double[close.length];
+        double average = 0.0;
+        for (int i = 0; i < close.length; i++) {
+            double h = Double.isNaN(high[i]) ? close[i] : high[i];
+            double l = Double.isNaN(low[i]) ? close[i] : low[i];
+            double trueRange = h - l;
+            if (i > 0) {
+                trueRange = Math.max(trueRange, Math.max(Math.abs(h - close[i - 1]), Math.abs(l - close[i - 1])));
+            }
+            if (i < period) {
+                average += trueRange / period;
+                output[i] = i == period - 1 ? average : Double.NaN;
+            } else {
+                average = (average * (period - 1) + trueRange) / period;
+                output[i] = average;
+            }
+        }
+        return output;
+    }
+}
@@ -0,0 +1,226 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto.ResamplingMethod;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 蒙地卡羅重抽樣回測
+ * 由歷史收盤價產生多條模擬價格路徑，並在每條路徑上依交易日索引重播同一份交易排程，
+ * 只記錄每條路徑的最終價值、年化 Sharpe Ratio 與最大回撤。
+ * <p>
+ * 路徑不預先產生：每個交易日抽出當日報酬後立即更新各股票的模擬價格並結算，
+ * 每條路徑只使用 {@link Workspace} 中可重複使用的原始型別陣列，不建立快照或帳本物件。
+ * 亂數由呼叫端以 {@link SplittableRandom#split()} 分給各工作，結果與執行緒排程無關。
+ * <p>
+ * 成交規則與 {@link FixedPointLedger} 相同：以當日收盤價成交、資金或持股不足時略過、
+ * 當日無股價（尚未上市或停牌）的股票不可交易且不計入市值。
+ */
+public final class MonteCarloSimulator {
+
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final int dayCount;
+    private final int slotCount;
+    private final TradeSchedule schedule;
+    private final long initialCapital;
+    private final CostModel costs;
+    private final ResamplingMethod method;
+    private final int blockSize;
+
+    // 依 [day * slotCount + slot] 排列，同一交易日的各股票相鄰
+    private final double[] closes;
+    private final double[] growth;
+    private final double[] drift;
+    private final double[] volatility;
+
+    /**
+     * @param columns        各持股欄位對應的股價矩陣欄位
+     * @param initialCapital 起始資金（定點數）
+     * @param blockSize      區塊拔靴法的區塊長度（交易日）
+     */
+    public MonteCarloSimulator(PriceMatrix priceMatrix, int[] columns, TradeSchedule schedule, long initialCapital,
+                               CostModel costs, ResamplingMethod method, int blockSize) {
+        this.dayCount = priceMatrix.getDayCount();
+        this.slotCount = columns.length;
+        this.schedule = schedule;
+        this.initialCapital = initialCapital;
+        this.costs = costs;
+        this.method = method;
+        this.blockSize = Math.max(1, blockSize);
+
+        closes = new double[dayCount * slotCount];
+        growth = new double[dayCount * slotCount];
+        drift = new double[slotCount];
+        volatility = new double[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            // 相鄰兩日都有股價時的日成長倍數，其餘為 1；同時累加對數報酬以配適幾何布朗運動
+            int count = 0;
+            double mean = 0.0;
+            double m2 = 0.0;
+            for (int day = 0; day < dayCount; day++) {
+                double close = priceMatrix.getClose(columns[slot], day);
+                closes[day * slotCount + slot] = close;
+                growth[day * slotCount + slot] = 1.0;
+                if (day == 0 || Double.isNaN(close)) {
+                    continue;
+                }
+                double previous = closes[(day - 1) * slotCount + slot];
+                if (Double.isNaN(previous) || previous <= 0.0 || close <= 0.0) {
+                    continue;
+                }
+                growth[day * slotCount + slot] = close / previous;
+                double logReturn = Math.log(close / previous);
+                count++;
+                double delta = logReturn - mean;
+                mean += delta / count;
+                m2 += delta * (logReturn - mean);
+            }
+            drift[slot] = mean;
+            volatility[slot] = count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+        }
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    /**
+     * 每個工作各自建立一次，在其負責的所有路徑間重複使用
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(slotCount);
+    }
+
+    /**
+     * 模擬 [fromPath, toPath) 的路徑，結果寫入對應索引
+     *
+     * @param finalValues    每條路徑的最終價值（元）
+     * @param sharpeRatios   每條路徑的年化 Sharpe Ratio
+     * @param maxDrawdowns   每條路徑的最大回撤（比例）
+     */
+    public void simulate(int fromPath, int toPath, SplittableRandom random, Workspace workspace,
+                         double[] finalValues, double[] sharpeRatios, double[] maxDrawdowns) {
+        for (int path = fromPath; path < toPath; path++) {
+            simulatePath(path, random, workspace, finalValues, sharpeRatios, maxDrawdowns);
+        }
+    }
+
+    private void simulatePath(int path, SplittableRandom random, Workspace workspace,
+                              double[] finalValues, double[] sharpeRatios, double[] maxDrawdowns) {
+        double[] levels = workspace.levels;
+        long[] prices = workspace.prices;
+        int[] shares = workspace.shares;
+        Arrays.fill(levels, Double.NaN);
+        Arrays.fill(shares, 0);
+
+        long cash = initialCapital;
+        long previousValue = initialCapital;
+        long peakValue = 0L;
+        double maxDrawdown = 0.0;
+        int count = 0;
+        double mean = 0.0;
+        double m2 = 0.0;
+
+        int source = 0;
+        int blockRemaining = 0;
+        for (int day = 0; day < dayCount; day++) {
+            // 區塊拔靴法：所有股票共用同一個來源交易日，區塊超出期間時從頭接續
+            if (day > 0 && method == ResamplingMethod.BLOCK_BOOTSTRAP) {
+                if (blockRemaining == 0) {
+                    source = 1 + random.nextInt(dayCount - 1);
+                    blockRemaining = blockSize;
+                } else if (++source == dayCount) {
+                    source = 1;
+                }
+                blockRemaining--;
+            }
+
+            int offset = day * slotCount;
+            for (int slot = 0; slot < slotCount; slot++) {
+                double close = closes[offset + slot];
+                if (Double.isNaN(close)) {
+                    prices[slot] = NO_PRICE;
+                    continue;
+                }
+                double level = levels[slot];
+                if (Double.isNaN(level)) {
+                    // 路徑從第一個有股價的交易日的實際收盤價開始
+                    level = close;
+                } else if (method == ResamplingMethod.BLOCK_BOOTSTRAP) {
+                    level *= growth[source * slotCount + slot];
+                } else {
+                    level *= Math.exp(drift[slot] + volatility[slot] * random.nextGaussian());
+                }
+                levels[slot] = level;
+                prices[slot] = FixedPoint.fromDouble(level);
+            }
+
+            for (int i = schedule.getStart(day), end = schedule.getEnd(day); i < end; i++) {
+                int slot = schedule.getSlot(i);
+                if (slot < 0 || prices[slot] == NO_PRICE) {
+                    continue;
+                }
+                int quantity = costs.roundToLot(schedule.getShares(i));
+                if (quantity <= 0) {
+                    continue;
+                }
+                if (schedule.isBuy(i)) {
+                    long tradeValue = Math.multiplyExact(costs.executionPrice(prices[slot], true), (long) quantity);
+                    long cost = costs.cost(tradeValue, true);
+                    if (cash >= tradeValue + cost) {
+                        cash -= tradeValue + cost;
+                        shares[slot] += quantity;
+                    }
+                } else if (schedule.isSell(i) && shares[slot] >= quantity) {
+                    long tradeValue = Math.multiplyExact(costs.executionPrice(prices[slot], false), (long) quantity);
+                    cash += tradeValue - costs.cost(tradeValue, false);
+                    shares[slot] -= quantity;
+                }
+            }
+
+            // 結算：與 PerformanceAccumulator 相同的 Welford 更新與回撤追蹤
+            long value = cash;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (shares[slot] > 0 && prices[slot] != NO_PRICE) {
+                    value += prices[slot] * shares[slot];
+                }
+            }
+            double dailyReturn = previousValue > 0 ? (double) (value - previousValue) / previousValue : 0.0;
+            previousValue = value;
+            count++;
+            double delta = dailyReturn - mean;
+            mean += delta / count;
+            m2 += delta * (dailyReturn - mean);
+            if (value > peakValue) {
+                peakValue = value;
+            }
+            if (peakValue > 0) {
+                maxDrawdown = Math.max(maxDrawdown, (double) (peakValue - value) / peakValue);
+            }
+        }
+
+        double stdDev = count == 0 ? 0.0 : Math.sqrt(m2 / count);
+        finalValues[path] = FixedPoint.toDouble(previousValue);
+        sharpeRatios[path] = count < 2 || stdDev == 0.0 ? 0.0
+                : (mean * PerformanceAccumulator.TRADING_DAYS_PER_YEAR)
+                        / (stdDev * Math.sqrt(PerformanceAccumulator.TRADING_DAYS_PER_YEAR));
+        maxDrawdowns[path] = maxDrawdown;
+    }
+
+    /**
+     * 單一工作的路徑暫存區
+     */
+    public static final class Workspace {
+        private final double[] levels;
+        private final long[] prices;
+        private final int[] shares;
+
+        private Workspace(int slotCount) {
+            this.levels = new double[slotCount];
+            this.prices = new long[slotCount];
+            this.shares = new int[slotCount];
+        }
+    }
+}
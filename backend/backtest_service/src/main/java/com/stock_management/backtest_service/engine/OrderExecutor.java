@@ -0,0 +1,186 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.BacktestRequestDto.FillPrice;
+
+/**
+ * 成交模型：決定委託以什麼價格、多少股數成交
+ * 每個交易日開始時把帳本股價設為成交價（收盤、開盤或 VWAP），並依當日成交量計算各股可成交的股數上限；
+ * 交易日結束時把帳本股價還原為收盤價，再由帳本以收盤價結算市值。
+ * 明確交易動作與伺服器端策略都透過同一個成交模型下單；委託股數先捨去至交易單位，
+ * 滑價、手續費與交易稅由 {@link CostModel} 在帳本成交時一併計算。
+ */
+public final class OrderExecutor {
+
+    private final PortfolioLedger ledger;
+    private final PriceMatrix priceMatrix;
+    private final int[] columns;
+    private final FillPrice fillPrice;
+    private final double participation;
+    private final long sharesPerVolumeUnit;
+    private final CostModel costModel;
+    private final long[] remainingCapacity;
+    private final double[] fillPrices;
+    private long tradedValue;
+
+    /**
+     * @param participation       單日可成交股數佔當日成交量的比例上限，0 或以下表示不限制
+     * @param sharesPerVolumeUnit K 棒成交量的單位股數（台股為張，1 張 = 1000 股）
+     */
+    public OrderExecutor(PortfolioLedger ledger, PriceMatrix priceMatrix, int[] columns,
+                         FillPrice fillPrice, double participation, long sharesPerVolumeUnit) {
+        this(ledger, priceMatrix, columns, fillPrice, participation, sharesPerVolumeUnit, CostModel.NONE);
+    }
+
+    /**
+     * @param costModel 交易成本與交易單位
+     */
+    public OrderExecutor(PortfolioLedger ledger, PriceMatrix priceMatrix, int[] columns,
+                         FillPrice fillPrice, double participation, long sharesPerVolumeUnit,
+                         CostModel costModel) {
+        this.ledger = ledger;
+        this.priceMatrix = priceMatrix;
+        this.columns = columns;
+        this.fillPrice = fillPrice == null ? FillPrice.CLOSE : fillPrice;
+        this.participation = participation;
+        this.sharesPerVolumeUnit = sharesPerVolumeUnit;
+        this.costModel = costModel;
+        this.remainingCapacity = new long[columns.length];
+        this.fillPrices = new double[columns.length];
+    }
+
+    /**
+     * 成交價是否為收盤前的價格（開盤、VWAP）
+     * 此時以收盤資料產生的訊號只能在下一個交易日成交，避免使用未來資料
+     */
+    public boolean fillsBeforeClose() {
+        return fillPrice != FillPrice.CLOSE;
+    }
+
+    public PortfolioLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * 開始交易日：設定成交價與成交量上限
+     */
+    public void beginDay(int day) {
+        tradedValue = 0;
+        for (int slot = 0; slot < columns.length; slot++) {
+            int column = columns[slot];
+            double close = priceMatrix.getClose(column, day);
+            double price = switch (fillPrice) {
+                case CLOSE -> close;
+                case OPEN -> priceMatrix.getOpen(column, day);
+                case VWAP -> typicalPrice(priceMatrix.getHigh(column, day), priceMatrix.getLow(column, day), close);
+            };
+            // 缺少開盤價時以收盤價成交
+            fillPrices[slot] = Double.isNaN(price) ? close : price;
+            ledger.setPrice(slot, fillPrices[slot]);
+            remainingCapacity[slot] = participation > 0
+                    ? (long) Math.floor(participation * priceMatrix.getVolume(column, day) * sharesPerVolumeUnit)
+                    : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 結束交易日：帳本股價還原為收盤價
+     *
+     * @return 當日成交金額合計（定點數）
+     */
+    public long endDay(int day) {
+        if (fillPrice != FillPrice.CLOSE) {
+            for (int slot = 0; slot < columns.length; slot++) {
+                ledger.setPrice(slot, priceMatrix.getClose(columns[slot], day));
+            }
+        }
+        return tradedValue;
+    }
+
+    /**
+     * 當日剩餘可成交股數
+     */
+    public long getRemainingCapacity(int slot) {
+        return remainingCapacity[slot];
+    }
+
+    /**
+     * 當日成交價，無資料時為 NaN
+     */
+    public double getFillPrice(int slot) {
+        return fillPrices[slot];
+    }
+
+    /**
+     * 委託股數是否不足一個交易單位
+     */
+    public boolean isBelowLotSize(int quantity) {
+        return costModel.roundToLot(quantity) == 0;
+    }
+
+    /**
+     * 以現金可負擔的最大買入股數（含滑價與手續費，已捨去至交易單位）
+     */
+    public int getAffordableShares(int slot) {
+        double price = fillPrices[slot];
+        return Double.isNaN(price) ? 0 : costModel.affordableShares(ledger.getCashAsDouble(), price);
+    }
+
+    /**
+     * 以當日成交價計算的投資組合總價值
+     */
+    public double getEquity() {
+        double value = ledger.getCashAsDouble();
+        for (int slot = 0; slot < columns.length; slot++) {
+            if (ledger.getShares(slot) > 0 && ledger.hasPrice(slot)) {
+                value += ledger.getShares(slot) * fillPrices[slot];
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 買入，超過成交量上限的部分不成交
+     *
+     * @return 實際成交股數，資金不足、不足一個交易單位或無價格時為 0
+     */
+    public int buy(int slot, int quantity) {
+        int fillable = fillable(slot, quantity);
+        if (fillable <= 0 || !ledger.buy(slot, fillable, costModel)) {
+            return 0;
+        }
+        return filled(slot, fillable);
+    }
+
+    /**
+     * 賣出，超過成交量上限的部分不成交
+     *
+     * @return 實際成交股數，持股不足、不足一個交易單位或無價格時為 0
+     */
+    public int sell(int slot, int quantity) {
+        int fillable = fillable(slot, quantity);
+        if (fillable <= 0 || !ledger.sell(slot, fillable, costModel)) {
+            return 0;
+        }
+        return filled(slot, fillable);
+    }
+
+    private int fillable(int slot, int quantity) {
+        if (!ledger.hasPrice(slot)) {
+            return 0;
+        }
+        return costModel.roundToLot((int) Math.min(quantity, remainingCapacity[slot]));
+    }
+
+    private int filled(int slot, int quantity) {
+        remainingCapacity[slot] -= quantity;
+        tradedValue += ledger.getLastTradeValueScaled();
+        return quantity;
+    }
+
+    private static double typicalPrice(double high, double low, double close) {
+        if (Double.isNaN(high) || Double.isNaN(low)) {
+            return close;
+        }
+        return (high + low + close) / 3.0;
+    }
+}
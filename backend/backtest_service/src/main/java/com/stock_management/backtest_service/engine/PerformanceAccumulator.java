@@ -0,0 +1,99 @@
+package com.stock_management.backtest_service.engine;
+
+/**
+ * 單次走訪的績效統計累加器
+ * 模擬迴圈每結算一個交易日呼叫一次 add，以 Welford 演算法更新日報酬的平均與變異數，
+ * 並以執行中的最高價值追蹤最大回撤；最後一個交易日結算後即可取得所有統計值，
+ * 不需再走訪投資組合歷史。單次回測、批次回測與串流輸出共用同一個累加器。
+ */
+public final class PerformanceAccumulator {
+
+    public static final int TRADING_DAYS_PER_YEAR = 252;
+
+    private int count;
+    private double mean;
+    private double m2;
+
+    private long peakValue;
+    private long lastValue;
+    private double maxDrawdown;
+
+    /**
+     * 加入一個交易日
+     *
+     * @param totalValue  當日總價值（定點數，單位為萬分之一元）
+     * @param dailyReturn 當日報酬率
+     */
+    public void add(long totalValue, double dailyReturn) {
+        count++;
+        double delta = dailyReturn - mean;
+        mean += delta / count;
+        m2 += delta * (dailyReturn - mean);
+
+        lastValue = totalValue;
+        if (totalValue > peakValue) {
+            peakValue = totalValue;
+        }
+        if (peakValue > 0) {
+            double drawdown = (double) (peakValue - totalValue) / peakValue;
+            if (drawdown > maxDrawdown) {
+                maxDrawdown = drawdown;
+            }
+        }
+    }
+
+    /**
+     * 由模擬結果的原始陣列建立累加器
+     */
+    public static PerformanceAccumulator of(long[] totalValues, double[] dailyReturns) {
+        PerformanceAccumulator accumulator = new PerformanceAccumulator();
+        for (int day = 0; day < totalValues.length; day++) {
+            accumulator.add(totalValues[day], dailyReturns[day]);
+        }
+        return accumulator;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 最後一個交易日的總價值（定點數）
+     */
+    public long getLastValue() {
+        return lastValue;
+    }
+
+    public double getMeanReturn() {
+        return mean;
+    }
+
+    /**
+     * 日報酬的母體變異數
+     */
+    public double getVariance() {
+        return count == 0 ? 0.0 : m2 / count;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * 年化 Sharpe Ratio（無風險利率為 0），少於兩個交易日或標準差為 0 時回傳 0
+     */
+    public double getAnnualizedSharpeRatio() {
+        double stdDev = getStdDev();
+        if (count < 2 || stdDev == 0.0) {
+            return 0.0;
+        }
+        return (mean * TRADING_DAYS_PER_YEAR) / (stdDev * Math.sqrt(TRADING_DAYS_PER_YEAR));
+    }
+
+    /**
+     * 最大回撤（比例，0.1 表示 10%）
+     */
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+}
@@ -0,0 +1,122 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+
+import java.math.BigDecimal;
+
+/**
+ * 回測帳本：記錄現金、各持股欄位的股數與當日股價，並負責每日市值與報酬率計算
+ * 金額運算方式由子類別決定（BigDecimal 參考模式或定點數模式），回測迴圈本身與精度無關。
+ */
+public abstract class PortfolioLedger {
+
+    protected final int[] shares;
+    protected final boolean[] traded;
+    protected long totalCosts;
+
+    protected PortfolioLedger(int slotCount) {
+        this.shares = new int[slotCount];
+        this.traded = new boolean[slotCount];
+    }
+
+    /**
+     * 依精度模式建立帳本
+     */
+    public static PortfolioLedger create(PrecisionMode mode, BigDecimal initialCapital, int slotCount) {
+        if (mode == PrecisionMode.FIXED_POINT) {
+            return new FixedPointLedger(initialCapital, slotCount);
+        }
+        return new BigDecimalLedger(initialCapital, slotCount);
+    }
+
+    public int getSlotCount() {
+        return shares.length;
+    }
+
+    public int getShares(int slot) {
+        return shares[slot];
+    }
+
+    /**
+     * 該欄位是否曾成功交易（快照中的持股只包含曾交易的股票）
+     */
+    public boolean isTraded(int slot) {
+        return traded[slot];
+    }
+
+    /**
+     * 設定當日股價，NaN 表示當日無資料
+     */
+    public abstract void setPrice(int slot, double close);
+
+    public abstract boolean hasPrice(int slot);
+
+    /**
+     * 以當日股價買入，資金不足時回傳 false 且不變動帳本
+     */
+    public boolean buy(int slot, int quantity) {
+        return buy(slot, quantity, CostModel.NONE);
+    }
+
+    /**
+     * 以當日股價賣出，持股不足時回傳 false 且不變動帳本
+     */
+    public boolean sell(int slot, int quantity) {
+        return sell(slot, quantity, CostModel.NONE);
+    }
+
+    /**
+     * 以當日股價加上滑價買入並支付手續費，資金不足以支付價款與費用時回傳 false 且不變動帳本
+     */
+    public abstract boolean buy(int slot, int quantity, CostModel costs);
+
+    /**
+     * 以當日股價扣除滑價賣出，價款扣除手續費與交易稅後入帳；持股不足時回傳 false 且不變動帳本
+     */
+    public abstract boolean sell(int slot, int quantity, CostModel costs);
+
+    /**
+     * 累計支付的手續費與交易稅（定點數）
+     */
+    public long getTotalCostsScaled() {
+        return totalCosts;
+    }
+
+    /**
+     * 結算當日：計算投資組合總價值與相對前一日的報酬率
+     */
+    public abstract void closeDay();
+
+    public abstract BigDecimal getCash();
+
+    /**
+     * 現金（double，供策略計算部位大小）
+     */
+    public abstract double getCashAsDouble();
+
+    public abstract BigDecimal getPrice(int slot);
+
+    /**
+     * 最近一筆成功交易的成交金額（不含手續費與交易稅）
+     */
+    public abstract BigDecimal getLastTradeValue();
+
+    /**
+     * 最近一筆成功交易的成交金額（定點數）
+     */
+    public abstract long getLastTradeValueScaled();
+
+    public abstract BigDecimal getTotalValue();
+
+    public abstract BigDecimal getDailyReturn();
+
+    /**
+     * 當日總價值（定點數，單位為萬分之一元）
+     */
+    public abstract long getTotalValueScaled();
+
+    /**
+     * 當日報酬率（未經四捨五入）
+     */
+    public abstract double getDailyReturnAsDouble();
+}
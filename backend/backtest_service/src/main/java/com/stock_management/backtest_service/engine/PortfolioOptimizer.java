@@ -0,0 +1,246 @@
+package com.stock_management.backtest_service.engine;
+
+import java.util.Arrays;
+
+/**
+ * 只做多、全額投資的投資組合權重求解
+ *
+ * <ul>
+ *   <li>最小變異數：min w'Σw，w ≥ 0，Σw = 1</li>
+ *   <li>最大 Sharpe：先解 min y'Σy，y ≥ 0，(μ - r)'y = 1，再正規化 w = y / Σy（凸問題，解唯一）</li>
+ *   <li>風險平價：各股票的風險貢獻 w_i (Σw)_i 相等，以循環座標下降法求解</li>
+ * </ul>
+ * 兩個二次規劃以加速投影梯度法（FISTA，搭配自適應重啟）求解，投影到 {y ≥ 0, a'y = 1} 以二分搜尋拉格朗日乘數完成，
+ * 每次迭代只需一次矩陣向量乘法，500 檔以上的股票也不需分解矩陣。
+ */
+public final class PortfolioOptimizer {
+
+    private static final int MAX_ITERATIONS = 20_000;
+    private static final double TOLERANCE = 1e-10;
+    private static final int BISECTION_STEPS = 100;
+
+    private PortfolioOptimizer() {
+    }
+
+    public static double[] minimumVariance(CovarianceEstimator.Estimate estimate) {
+        double[] ones = new double[estimate.size()];
+        Arrays.fill(ones, 1.0);
+        return minimizeVariance(estimate, ones);
+    }
+
+    /**
+     * @param dailyRiskFree 每日無風險利率
+     * @return 權重；沒有任何股票的平均報酬高於無風險利率時回傳 null
+     */
+    public static double[] maximumSharpe(CovarianceEstimator.Estimate estimate, double dailyRiskFree) {
+        int size = estimate.size();
+        double[] excess = new double[size];
+        boolean positive = false;
+        for (int i = 0; i < size; i++) {
+            excess[i] = estimate.getMean(i) - dailyRiskFree;
+            positive |= excess[i] > 0.0;
+        }
+        if (!positive) {
+            return null;
+        }
+        return normalize(minimizeVariance(estimate, excess));
+    }
+
+    /**
+     * 等風險貢獻權重（Griveau-Billion 等人的循環座標下降法）
+     * 每個座標的更新是二次方程式的正根，並以增量方式維護 Σx，每輪成本為 O(n²)
+     */
+    public static double[] riskParity(CovarianceEstimator.Estimate estimate) {
+        int size = estimate.size();
+        double[] sigma = estimate.getCovarianceMatrix();
+        double budget = 1.0 / size;
+        double[] x = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = 1.0 / Math.sqrt(sigma[i * size + i]);
+        }
+        double[] sigmaX = multiply(sigma, x, size, new double[size]);
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double maxChange = 0.0;
+            for (int i = 0; i < size; i++) {
+                double variance = sigma[i * size + i];
+                double others = sigmaX[i] - variance * x[i];
+                double updated = (-others + Math.sqrt(others * others + 4.0 * variance * budget)) / (2.0 * variance);
+                double delta = updated - x[i];
+                if (delta != 0.0) {
+                    int row = i * size;
+                    for (int j = 0; j < size; j++) {
+                        sigmaX[j] += sigma[row + j] * delta;
+                    }
+                    x[i] = updated;
+                    maxChange = Math.max(maxChange, Math.abs(delta) / updated);
+                }
+            }
+            if (maxChange < 1e-10) {
+                break;
+            }
+        }
+        return normalize(x);
+    }
+
+    /**
+     * 年化預期報酬、年化波動度（皆為比例）
+     */
+    public static double[] annualizedReturnAndVolatility(CovarianceEstimator.Estimate estimate, double[] weights) {
+        int size = estimate.size();
+        double mean = 0.0;
+        for (int i = 0; i < size; i++) {
+            mean += weights[i] * estimate.getMean(i);
+        }
+        double[] sigmaW = multiply(estimate.getCovarianceMatrix(), weights, size, new double[size]);
+        double variance = 0.0;
+        for (int i = 0; i < size; i++) {
+            variance += weights[i] * sigmaW[i];
+        }
+        return new double[]{
+                mean * PerformanceAccumulator.TRADING_DAYS_PER_YEAR,
+                Math.sqrt(Math.max(0.0, variance) * PerformanceAccumulator.TRADING_DAYS_PER_YEAR)};
+    }
+
+    /**
+     * min y'Σy，y ≥ 0，a'y = 1（呼叫端須確認至少一個 a_i > 0）
+     */
+    private static double[] minimizeVariance(CovarianceEstimator.Estimate estimate, double[] a) {
+        int size = estimate.size();
+        double[] sigma = estimate.getCovarianceMatrix();
+        // 梯度 2Σy 的 Lipschitz 常數為 2λmax(Σ)；冪次法從下方逼近 λmax，保留 1% 餘裕
+        double step = 1.0 / (2.02 * largestEigenvalue(sigma, size) + TOLERANCE);
+
+        double[] start = new double[size];
+        Arrays.fill(start, 1.0 / size);
+        double[] y = project(start, a, new double[size]);
+        double[] z = y.clone();
+        double[] previous = new double[size];
+        double[] gradient = new double[size];
+        double[] candidate = new double[size];
+        double momentum = 1.0;
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            multiply(sigma, z, size, gradient);
+            for (int i = 0; i < size; i++) {
+                candidate[i] = z[i] - step * 2.0 * gradient[i];
+            }
+            System.arraycopy(y, 0, previous, 0, size);
+            project(candidate, a, y);
+
+            // 自適應重啟：動量方向與本次更新方向相反時（目標值可能上升）歸零動量
+            double alignment = 0.0;
+            for (int i = 0; i < size; i++) {
+                alignment += (z[i] - y[i]) * (y[i] - previous[i]);
+            }
+            if (alignment > 0.0) {
+                momentum = 1.0;
+            }
+            double nextMomentum = (1.0 + Math.sqrt(1.0 + 4.0 * momentum * momentum)) / 2.0;
+            double beta = (momentum - 1.0) / nextMomentum;
+            momentum = nextMomentum;
+            double change = 0.0;
+            double scale = 0.0;
+            for (int i = 0; i < size; i++) {
+                double delta = y[i] - previous[i];
+                z[i] = y[i] + beta * delta;
+                change = Math.max(change, Math.abs(delta));
+                scale = Math.max(scale, Math.abs(y[i]));
+            }
+            if (change <= TOLERANCE * Math.max(1.0, scale)) {
+                break;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * 歐氏投影到 {y ≥ 0, a'y = 1}：y_i = max(0, v_i + λ a_i)，a'y(λ) 隨 λ 遞增，以二分搜尋求 λ
+     */
+    private static double[] project(double[] v, double[] a, double[] out) {
+        double low = -1.0;
+        double high = 1.0;
+        while (constraintValue(v, a, low) > 1.0) {
+            low *= 2.0;
+        }
+        while (constraintValue(v, a, high) < 1.0) {
+            high *= 2.0;
+        }
+        for (int i = 0; i < BISECTION_STEPS; i++) {
+            double middle = (low + high) / 2.0;
+            if (constraintValue(v, a, middle) < 1.0) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        double lambda = (low + high) / 2.0;
+        for (int i = 0; i < v.length; i++) {
+            out[i] = Math.max(0.0, v[i] + lambda * a[i]);
+        }
+        return out;
+    }
+
+    private static double constraintValue(double[] v, double[] a, double lambda) {
+        double sum = 0.0;
+        for (int i = 0; i < v.length; i++) {
+            double value = v[i] + lambda * a[i];
+            if (value > 0.0) {
+                sum += a[i] * value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 以冪次法估計最大特徵值
+     */
+    private static double largestEigenvalue(double[] sigma, int size) {
+        double[] vector = new double[size];
+        double[] next = new double[size];
+        Arrays.fill(vector, 1.0 / Math.sqrt(size));
+        double eigenvalue = 0.0;
+        for (int iteration = 0; iteration < 100; iteration++) {
+            multiply(sigma, vector, size, next);
+            double norm = 0.0;
+            for (double value : next) {
+                norm += value * value;
+            }
+            norm = Math.sqrt(norm);
+            if (norm == 0.0) {
+                return 0.0;
+            }
+            for (int i = 0; i < size; i++) {
+                vector[i] = next[i] / norm;
+            }
+            if (Math.abs(norm - eigenvalue) <= 1e-9 * norm) {
+                return norm;
+            }
+            eigenvalue = norm;
+        }
+        return eigenvalue;
+    }
+
+    private static double[] multiply(double[] matrix, double[] vector, int size, double[] out) {
+        for (int i = 0; i < size; i++) {
+            int row = i * size;
+            double sum = 0.0;
+            for (int j = 0; j < size; j++) {
+                sum += matrix[row + j] * vector[j];
+            }
+            out[i] = sum;
+        }
+        return out;
+    }
+
+    private static double[] normalize(double[] weights) {
+        double total = 0.0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+}
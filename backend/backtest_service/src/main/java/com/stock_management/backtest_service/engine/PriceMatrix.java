@@ -0,0 +1,274 @@
+package com.stock_management.backtest_service.engine;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 欄式股價矩陣
+ * 每支股票一個以交易日索引的 double[]（無資料為 NaN），搭配排序後的日期軸，
+ * 讓回測迴圈以交易日索引存取價格，不需逐日以日期字串查詢 Map。
+ * 同時保留每支股票原始的 K 棒與日期軸到 K 棒索引的對應：收盤價以外的開高低量直接由 K 棒的欄位讀取，
+ * 每個儲存格只多佔一個 int；指標也以股票自身的交易日計算後再對齊日期軸。
+ * <p>
+ * 分 K 模式的時間軸為所有股票分 K 時間戳記的聯集，每個索引是一根 K 棒（一分鐘）而非一個交易日；
+ * 時間標籤只在輸出時才格式化，不為每根 K 棒預先建立字串。
+ * Data Provider 的時間戳記是以 UTC 編碼的台北當地時間，格式化時直接以 UTC 解讀。
+ */
+public final class PriceMatrix {
+
+    private static final DateTimeFormatter MINUTE_LABEL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final boolean intraday;
+    private final long[] keys;
+    private final int[] days;
+    private final String[] dates;
+    private final String[] symbols;
+    private final Map<String, Integer> symbolIndex;
+    private final double[][] closes;
+    private final BarSeries[] bars;
+    private final int[][] barIndex;
+
+    private PriceMatrix(boolean intraday, long[] keys, int[] days, String[] dates, String[] symbols,
+                        double[][] closes, BarSeries[] bars, int[][] barIndex) {
+        this.intraday = intraday;
+        this.keys = keys;
+        this.days = days;
+        this.dates = dates;
+        this.symbols = symbols;
+        this.closes = closes;
+        this.bars = bars;
+        this.barIndex = barIndex;
+        this.symbolIndex = new HashMap<>(symbols.length * 2);
+        for (int i = 0; i < symbols.length; i++) {
+            symbolIndex.put(symbols[i], i);
+        }
+    }
+
+    /**
+     * 由每支股票的日 K 建立矩陣，日期軸為所有股票交易日的聯集
+     */
+    public static PriceMatrix fromBars(Map<String, BarSeries> bars) {
+        return build(bars, false);
+    }
+
+    /**
+     * 由每支股票的分 K 建立矩陣，時間軸為所有股票分 K 時間戳記的聯集
+     */
+    public static PriceMatrix fromIntradayBars(Map<String, BarSeries> bars) {
+        return build(bars, true);
+    }
+
+    private static PriceMatrix build(Map<String, BarSeries> bars, boolean intraday) {
+        int total = 0;
+        for (BarSeries series : bars.values()) {
+            total += series.size();
+        }
+        long[] allKeys = new long[total];
+        int offset = 0;
+        for (BarSeries series : bars.values()) {
+            for (int i = 0; i < series.size(); i++) {
+                allKeys[offset++] = intraday ? series.getTimestamp(i) : series.getDay(i);
+            }
+        }
+        long[] keys = Arrays.stream(allKeys).sorted().distinct().toArray();
+
+        int[] days = new int[keys.length];
+        String[] dates = null;
+        if (intraday) {
+            for (int step = 0; step < keys.length; step++) {
+                days[step] = (int) Math.floorDiv(keys[step], 86_400L);
+            }
+        } else {
+            dates = new String[keys.length];
+            for (int day = 0; day < keys.length; day++) {
+                days[day] = (int) keys[day];
+                dates[day] = TradingCalendar.toDateString(days[day]);
+            }
+        }
+
+        String[] symbols = new String[bars.size()];
+        double[][] closes = new double[bars.size()][];
+        BarSeries[] columnBars = new BarSeries[bars.size()];
+        int[][] barIndex = new int[bars.size()][];
+        int column = 0;
+        for (Map.Entry<String, BarSeries> entry : bars.entrySet()) {
+            BarSeries series = entry.getValue();
+            double[] values = new double[keys.length];
+            int[] indexes = new int[keys.length];
+            Arrays.fill(values, Double.NaN);
+            Arrays.fill(indexes, -1);
+            for (int i = 0; i < series.size(); i++) {
+                int step = Arrays.binarySearch(keys, intraday ? series.getTimestamp(i) : series.getDay(i));
+                values[step] = series.getClose(i);
+                indexes[step] = i;
+            }
+            symbols[column] = entry.getKey();
+            closes[column] = values;
+            columnBars[column] = series;
+            barIndex[column] = indexes;
+            column++;
+        }
+
+        return new PriceMatrix(intraday, keys, days, dates, symbols, closes, columnBars, barIndex);
+    }
+
+    /**
+     * 是否為分 K 時間軸
+     */
+    public boolean isIntraday() {
+        return intraday;
+    }
+
+    /**
+     * 軸的長度：日 K 為交易日數，分 K 為 K 棒數
+     */
+    public int getDayCount() {
+        return keys.length;
+    }
+
+    /**
+     * 軸上涵蓋的交易日數（日 K 時等於 getDayCount）
+     */
+    public int getTradingDayCount() {
+        if (!intraday) {
+            return keys.length;
+        }
+        int count = 0;
+        for (int step = 0; step < days.length; step++) {
+            if (isLastOfTradingDay(step)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 該索引所在的交易日（epoch day）
+     */
+    public int getEpochDay(int day) {
+        return days[day];
+    }
+
+    /**
+     * 該索引是否為所在交易日的最後一根 K 棒（日 K 時恆為 true）
+     */
+    public boolean isLastOfTradingDay(int day) {
+        return day == days.length - 1 || days[day + 1] != days[day];
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * 日期標籤：日 K 為 "2025-07-01"，分 K 為 "2025-07-01 09:01"
+     */
+    public String getDate(int day) {
+        if (!intraday) {
+            return dates[day];
+        }
+        return LocalDateTime.ofEpochSecond(keys[day], 0, ZoneOffset.UTC).format(MINUTE_LABEL);
+    }
+
+    public String getSymbol(int column) {
+        return symbols[column];
+    }
+
+    /**
+     * 取得股票欄位索引，不存在時回傳 -1
+     */
+    public int indexOfSymbol(String symbol) {
+        Integer column = symbolIndex.get(symbol);
+        return column == null ? -1 : column;
+    }
+
+    /**
+     * 取得日期在日期軸上的索引，不存在時回傳負值
+     * 分 K 模式接受 "2025-07-01 09:30"（該分鐘或之後當日第一根 K 棒）或 "2025-07-01"（當日第一根 K 棒）
+     */
+    public int indexOfDate(String date) {
+        if (date == null) {
+            return -1;
+        }
+        if (!intraday) {
+            return Arrays.binarySearch(dates, date);
+        }
+        long key;
+        try {
+            key = date.length() > 10
+                    ? LocalDateTime.parse(date, MINUTE_LABEL).toEpochSecond(ZoneOffset.UTC)
+                    : TradingCalendar.toEpochDay(date) * 86_400L;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+        int step = Arrays.binarySearch(keys, key);
+        if (step < 0) {
+            step = -step - 1;
+        }
+        return step < keys.length && days[step] == Math.floorDiv(key, 86_400L) ? step : -1;
+    }
+
+    /**
+     * 取得收盤價，無資料時回傳 NaN
+     */
+    public double getClose(int column, int day) {
+        return closes[column][day];
+    }
+
+    public boolean hasPrice(int column, int day) {
+        return !Double.isNaN(closes[column][day]);
+    }
+
+    /**
+     * 取得開盤價，無資料時回傳 NaN
+     */
+    public double getOpen(int column, int day) {
+        int index = barIndex[column][day];
+        return index < 0 ? Double.NaN : bars[column].getOpen(index);
+    }
+
+    public double getHigh(int column, int day) {
+        int index = barIndex[column][day];
+        return index < 0 ? Double.NaN : bars[column].getHigh(index);
+    }
+
+    public double getLow(int column, int day) {
+        int index = barIndex[column][day];
+        return index < 0 ? Double.NaN : bars[column].getLow(index);
+    }
+
+    /**
+     * 取得成交量（張，見 sharesPerVolumeUnit），無資料時回傳 0
+     */
+    public long getVolume(int column, int day) {
+        int index = barIndex[column][day];
+        return index < 0 ? 0L : bars[column].getVolume(index);
+    }
+
+    /**
+     * 股票原始的 K 棒
+     */
+    public BarSeries getBars(int column) {
+        return bars[column];
+    }
+
+    /**
+     * 將與該欄位 K 棒一一對應的序列對齊到日期軸
+     * 該股票當日（分 K 為該分鐘）無 K 棒時沿用前一根 K 棒的值，第一根 K 棒之前為 NaN
+     */
+    public double[] alignToAxis(int column, double[] barValues) {
+        BarSeries series = bars[column];
+        double[] aligned = new double[keys.length];
+        double value = Double.NaN;
+        int index = 0;
+        for (int day = 0; day < keys.length; day++) {
+            if (index < series.size() && (intraday ? series.getTimestamp(index) : series.getDay(index)) == keys[day]) {
+                value = barValues[index++];
+            }
+            aligned[day] = value;
+        }
+        return aligned;
+    }
+}
@@ -0,0 +1,123 @@
+package com.stock_management.backtest_service.engine;
+
+/**
+ * 固定長度滑動視窗的績效統計
+ * 日報酬率存放在環狀緩衝區，以累計和與平方和在 O(1) 內移入、移出；
+ * 視窗內的最高總價值以單調遞減佇列（存放交易日索引的環狀陣列）維護，攤銷後每日 O(1)。
+ * 視窗未滿時統計值為 NaN。
+ */
+public final class RollingWindowStatistics {
+
+    private final int window;
+
+    private final double[] returns;
+    private int count;
+    private int next;
+    private double sum;
+    private double sumOfSquares;
+
+    // 單調遞減佇列：隊首為視窗內最高總價值
+    private final long[] dequeValues;
+    private final int[] dequeDays;
+    private int head;
+    private int size;
+    private int day = -1;
+
+    public RollingWindowStatistics(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("滑動視窗長度至少為 2 個交易日");
+        }
+        this.window = window;
+        this.returns = new double[window];
+        this.dequeValues = new long[window];
+        this.dequeDays = new int[window];
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * 加入一個交易日，超出視窗的最舊交易日同時移出
+     *
+     * @param totalValue  當日總價值（定點數）
+     * @param dailyReturn 當日報酬率
+     */
+    public void add(long totalValue, double dailyReturn) {
+        day++;
+
+        if (count == window) {
+            double evicted = returns[next];
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+        } else {
+            count++;
+        }
+        returns[next] = dailyReturn;
+        next = next + 1 == window ? 0 : next + 1;
+        sum += dailyReturn;
+        sumOfSquares += dailyReturn * dailyReturn;
+
+        // 移除已離開視窗的隊首，以及不高於今日總價值的隊尾
+        if (size > 0 && dequeDays[head] <= day - window) {
+            head = head + 1 == window ? 0 : head + 1;
+            size--;
+        }
+        while (size > 0 && dequeValues[(head + size - 1) % window] <= totalValue) {
+            size--;
+        }
+        int tail = (head + size) % window;
+        dequeValues[tail] = totalValue;
+        dequeDays[tail] = day;
+        size++;
+    }
+
+    public boolean isFull() {
+        return count == window;
+    }
+
+    /**
+     * 視窗內日報酬的母體標準差
+     */
+    public double getStdDev() {
+        if (!isFull()) {
+            return Double.NaN;
+        }
+        double mean = sum / window;
+        return Math.sqrt(Math.max(0.0, sumOfSquares / window - mean * mean));
+    }
+
+    /**
+     * 年化波動率
+     */
+    public double getAnnualizedVolatility() {
+        return getStdDev() * Math.sqrt(PerformanceAccumulator.TRADING_DAYS_PER_YEAR);
+    }
+
+    /**
+     * 年化 Sharpe Ratio（無風險利率為 0），標準差為 0 時回傳 0
+     */
+    public double getAnnualizedSharpeRatio() {
+        double stdDev = getStdDev();
+        if (Double.isNaN(stdDev)) {
+            return Double.NaN;
+        }
+        if (stdDev == 0.0) {
+            return 0.0;
+        }
+        double mean = sum / window;
+        return (mean * PerformanceAccumulator.TRADING_DAYS_PER_YEAR)
+                / (stdDev * Math.sqrt(PerformanceAccumulator.TRADING_DAYS_PER_YEAR));
+    }
+
+    /**
+     * 今日總價值相對視窗內最高總價值的回撤（比例）
+     */
+    public double getDrawdown(long totalValue) {
+        if (!isFull()) {
+            return Double.NaN;
+        }
+        long peak = dequeValues[head];
+        return peak > 0 ? (double) (peak - totalValue) / peak : 0.0;
+    }
+}
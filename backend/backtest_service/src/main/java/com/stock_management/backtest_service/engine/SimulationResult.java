@@ -0,0 +1,81 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.CompactPortfolioHistory;
+import com.stock_management.backtest_service.dto.PortfolioSnapshot;
+
+import java.util.List;
+
+/**
+ * 回測模擬結果：投資組合快照（完整或精簡格式），以及供績效計算使用的每日總價值、報酬率與成交金額原始陣列
+ */
+public final class SimulationResult {
+
+    private final List<PortfolioSnapshot> portfolioHistory;
+    private final CompactPortfolioHistory compactHistory;
+    private final long[] totalValues;
+    private final double[] dailyReturns;
+    private final long[] tradedValues;
+    private final PerformanceAccumulator performance;
+    private final long tradingCosts;
+
+    public SimulationResult(List<PortfolioSnapshot> portfolioHistory, CompactPortfolioHistory compactHistory,
+                            long[] totalValues, double[] dailyReturns, long[] tradedValues,
+                            PerformanceAccumulator performance) {
+        this(portfolioHistory, compactHistory, totalValues, dailyReturns, tradedValues, performance, 0L);
+    }
+
+    /**
+     * @param tradingCosts 累計支付的手續費與交易稅（定點數）
+     */
+    public SimulationResult(List<PortfolioSnapshot> portfolioHistory, CompactPortfolioHistory compactHistory,
+                            long[] totalValues, double[] dailyReturns, long[] tradedValues,
+                            PerformanceAccumulator performance, long tradingCosts) {
+        this.portfolioHistory = portfolioHistory;
+        this.compactHistory = compactHistory;
+        this.totalValues = totalValues;
+        this.dailyReturns = dailyReturns;
+        this.tradedValues = tradedValues;
+        this.performance = performance;
+        this.tradingCosts = tradingCosts;
+    }
+
+    public List<PortfolioSnapshot> getPortfolioHistory() {
+        return portfolioHistory;
+    }
+
+    public CompactPortfolioHistory getCompactHistory() {
+        return compactHistory;
+    }
+
+    /**
+     * 每日總價值（定點數，單位為萬分之一元）
+     */
+    public long[] getTotalValues() {
+        return totalValues;
+    }
+
+    public double[] getDailyReturns() {
+        return dailyReturns;
+    }
+
+    /**
+     * 每日成交金額合計（買賣皆計入，定點數）
+     */
+    public long[] getTradedValues() {
+        return tradedValues;
+    }
+
+    /**
+     * 模擬過程中逐日累加的績效統計
+     */
+    public PerformanceAccumulator getPerformance() {
+        return performance;
+    }
+
+    /**
+     * 累計支付的手續費與交易稅（定點數）
+     */
+    public long getTradingCosts() {
+        return tradingCosts;
+    }
+}
@@ -0,0 +1,123 @@
+package com.stock_management.backtest_service.engine;
+
+import java.util.Arrays;
+
+/**
+ * 靜態配置投資組合的向量化模擬
+ * 買進持有或定期再平衡的交易排程中，持股與現金只在交易日改變；若每筆交易都能成交（有股價、資金與持股足夠），
+ * 兩個交易日之間的每日總價值就是「現金 + 持股 · 股價」，可以用緊密的陣列迴圈逐欄累加，
+ * 迴圈本體只有 long 乘加，讓 JIT 自動向量化，不需逐日逐欄呼叫帳本。
+ * <p>
+ * 只適用於以收盤價成交、無成交量上限、無交易成本、無策略的定點數日 K 回測；
+ * 任何一筆交易無法成交時回傳 null，由呼叫端改用一般的逐日事件迴圈（保留原本的略過與日誌行為）。
+ * 結果與 {@link FixedPointLedger} 逐日結算的結果逐位相同。
+ */
+public final class StaticAllocationSimulator {
+
+    private StaticAllocationSimulator() {
+    }
+
+    /**
+     * @param initialCapital 起始資金（定點數）
+     * @return 模擬結果（不含快照），有交易無法成交時回傳 null
+     */
+    public static SimulationResult simulate(TradeSchedule schedule, PriceMatrix priceMatrix, int[] columns,
+                                            long initialCapital) {
+        int dayCount = priceMatrix.getDayCount();
+        int slotCount = columns.length;
+        long[] totalValues = new long[dayCount];
+        long[] tradedValues = new long[dayCount];
+        long[][] scaledCloses = new long[slotCount][];
+
+        int[] shares = new int[slotCount];
+        long cash = initialCapital;
+        int segmentStart = 0;
+        for (int day = 0; day < dayCount; day++) {
+            int start = schedule.getStart(day);
+            int end = schedule.getEnd(day);
+            if (start == end) {
+                continue;
+            }
+
+            // 上一段持股不變的區間 [segmentStart, day)
+            accumulate(totalValues, segmentStart, day, cash, shares, scaledCloses, priceMatrix, columns);
+            segmentStart = day;
+
+            // 依原始順序套用當日交易，任何一筆無法成交即放棄快速路徑
+            for (int i = start; i < end; i++) {
+                int slot = schedule.getSlot(i);
+                int quantity = schedule.getShares(i);
+                if (slot < 0 || quantity <= 0 || !priceMatrix.hasPrice(columns[slot], day)) {
+                    return null;
+                }
+                long tradeValue = Math.multiplyExact(
+                        FixedPoint.fromDouble(priceMatrix.getClose(columns[slot], day)), (long) quantity);
+                if (schedule.isBuy(i)) {
+                    if (cash < tradeValue) {
+                        return null;
+                    }
+                    cash -= tradeValue;
+                    shares[slot] += quantity;
+                } else if (schedule.isSell(i)) {
+                    if (shares[slot] < quantity) {
+                        return null;
+                    }
+                    cash += tradeValue;
+                    shares[slot] -= quantity;
+                } else {
+                    return null;
+                }
+                tradedValues[day] += tradeValue;
+            }
+        }
+        accumulate(totalValues, segmentStart, dayCount, cash, shares, scaledCloses, priceMatrix, columns);
+
+        // 報酬率與績效統計，計算方式與 FixedPointLedger.closeDay 相同
+        double[] dailyReturns = new double[dayCount];
+        PerformanceAccumulator performance = new PerformanceAccumulator();
+        long previousValue = initialCapital;
+        for (int day = 0; day < dayCount; day++) {
+            long value = totalValues[day];
+            dailyReturns[day] = previousValue > 0 ? (double) (value - previousValue) / previousValue : 0.0;
+            performance.add(value, dailyReturns[day]);
+            previousValue = value;
+        }
+        return new SimulationResult(null, null, totalValues, dailyReturns, tradedValues, performance);
+    }
+
+    /**
+     * values[from, to) = 現金 + Σ 持股 × 股價（當日無股價的股票不計入市值）
+     */
+    private static void accumulate(long[] values, int from, int to, long cash, int[] shares,
+                                   long[][] scaledCloses, PriceMatrix priceMatrix, int[] columns) {
+        if (from >= to) {
+            return;
+        }
+        Arrays.fill(values, from, to, cash);
+        for (int slot = 0; slot < shares.length; slot++) {
+            long quantity = shares[slot];
+            if (quantity <= 0) {
+                continue;
+            }
+            long[] closes = scaledCloses[slot];
+            if (closes == null) {
+                closes = scaledCloses[slot] = toScaled(priceMatrix, columns[slot]);
+            }
+            for (int day = from; day < to; day++) {
+                values[day] += quantity * closes[day];
+            }
+        }
+    }
+
+    /**
+     * 將收盤價欄位轉為定點數，無資料為 0
+     */
+    private static long[] toScaled(PriceMatrix priceMatrix, int column) {
+        long[] scaled = new long[priceMatrix.getDayCount()];
+        for (int day = 0; day < scaled.length; day++) {
+            double close = priceMatrix.getClose(column, day);
+            scaled[day] = Double.isNaN(close) ? 0L : FixedPoint.fromDouble(close);
+        }
+        return scaled;
+    }
+}
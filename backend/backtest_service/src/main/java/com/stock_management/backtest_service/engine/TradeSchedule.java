@@ -0,0 +1,118 @@
+package com.stock_management.backtest_service.engine;
+
+import com.stock_management.backtest_service.dto.TradeAction;
+
+import java.util.*;
+
+/**
+ * 依交易日索引排列的交易排程
+ * 交易動作預先對應到日期軸索引與持股欄位，回測迴圈只需依索引區間逐筆執行。
+ * 同一交易日內的交易維持請求中的原始順序；不在日期軸上的交易會被略過。
+ */
+public final class TradeSchedule {
+
+    private final int[] dayOffsets;
+    private final TradeAction[] trades;
+    private final int[] slots;
+    private final int[] shares;
+    private final boolean[] buys;
+
+    private TradeSchedule(int[] dayOffsets, TradeAction[] trades, int[] slots, int[] shares, boolean[] buys) {
+        this.dayOffsets = dayOffsets;
+        this.trades = trades;
+        this.slots = slots;
+        this.shares = shares;
+        this.buys = buys;
+    }
+
+    /**
+     * 編譯交易排程
+     *
+     * @param tradeActions 請求中的交易動作
+     * @param priceMatrix  股價矩陣（提供日期軸）
+     * @param slotIndex    股票代號到持股欄位的對應，不在其中的股票欄位為 -1
+     */
+    public static TradeSchedule compile(List<TradeAction> tradeActions,
+                                        PriceMatrix priceMatrix,
+                                        Map<String, Integer> slotIndex) {
+        int dayCount = priceMatrix.getDayCount();
+        int[] dayOffsets = new int[dayCount + 1];
+        if (tradeActions == null || tradeActions.isEmpty()) {
+            return new TradeSchedule(dayOffsets, new TradeAction[0], new int[0], new int[0], new boolean[0]);
+        }
+
+        // 先計算每個交易日的交易筆數，再以穩定的計數排序放入對應區間
+        int[] tradeDays = new int[tradeActions.size()];
+        int scheduled = 0;
+        for (int i = 0; i < tradeActions.size(); i++) {
+            TradeAction trade = tradeActions.get(i);
+            int day = priceMatrix.indexOfDate(trade.getDate());
+            tradeDays[i] = day;
+            if (day >= 0) {
+                dayOffsets[day + 1]++;
+                scheduled++;
+            }
+        }
+        for (int day = 0; day < dayCount; day++) {
+            dayOffsets[day + 1] += dayOffsets[day];
+        }
+
+        TradeAction[] trades = new TradeAction[scheduled];
+        int[] slots = new int[scheduled];
+        int[] shares = new int[scheduled];
+        boolean[] buys = new boolean[scheduled];
+        int[] cursor = Arrays.copyOf(dayOffsets, dayCount);
+        for (int i = 0; i < tradeActions.size(); i++) {
+            if (tradeDays[i] < 0) {
+                continue;
+            }
+            TradeAction trade = tradeActions.get(i);
+            int position = cursor[tradeDays[i]]++;
+            Integer slot = slotIndex.get(trade.getSymbol());
+            trades[position] = trade;
+            slots[position] = slot == null ? -1 : slot;
+            shares[position] = trade.getShares() == null ? 0 : trade.getShares();
+            buys[position] = trade.getAction() == TradeAction.TradeType.BUY;
+        }
+
+        return new TradeSchedule(dayOffsets, trades, slots, shares, buys);
+    }
+
+    /**
+     * 指定交易日第一筆交易的索引
+     */
+    public int getStart(int day) {
+        return dayOffsets[day];
+    }
+
+    /**
+     * 指定交易日最後一筆交易之後的索引
+     */
+    public int getEnd(int day) {
+        return dayOffsets[day + 1];
+    }
+
+    public int size() {
+        return trades.length;
+    }
+
+    public TradeAction getTrade(int index) {
+        return trades[index];
+    }
+
+    public int getSlot(int index) {
+        return slots[index];
+    }
+
+    public int getShares(int index) {
+        return shares[index];
+    }
+
+    public boolean isBuy(int index) {
+        return buys[index];
+    }
+
+    public boolean isSell(int index) {
+        return trades[index].getAction() == TradeAction.TradeType.SELL;
+    }
+}
@@ -0,0 +1,47 @@
+package com.stock_management.backtest_service.engine;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * 台股交易日相關工具，交易日以 LocalDate.toEpochDay 表示
+ */
+public final class TradingCalendar {
+
+    public static final ZoneId MARKET_ZONE = ZoneId.of("Asia/Taipei");
+
+    private TradingCalendar() {
+    }
+
+    /**
+     * 台北時區的今日
+     */
+    public static int today() {
+        return (int) LocalDate.now(MARKET_ZONE).toEpochDay();
+    }
+
+    public static int toEpochDay(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    public static String toDateString(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    /**
+     * [fromDay, toDay] 是否完全落在週末（必定沒有交易）
+     */
+    public static boolean isWeekendOnly(int fromDay, int toDay) {
+        if (toDay - fromDay >= 2) {
+            return false;
+        }
+        for (int day = fromDay; day <= toDay; day++) {
+            DayOfWeek dayOfWeek = LocalDate.ofEpochDay(day).getDayOfWeek();
+            if (dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
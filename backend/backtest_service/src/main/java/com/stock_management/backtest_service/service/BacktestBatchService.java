@@ -0,0 +1,130 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto.StrategyVariant;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BacktestBatchService {
+
+    private final BacktestService backtestService;
+    private final ForkJoinPool backtestBatchPool;
+
+    /**
+     * 執行批次回測（參數掃描）
+     * 共用的股票與期間只取得一次股價資料，各策略變體在 ForkJoinPool 上平行模擬
+     */
+    public BacktestBatchResponseDto performBatchBacktest(BacktestBatchRequestDto request) {
+        try {
+            log.info("開始執行批次回測，股票: {}, 期間: {} 到 {}, 變體數量: {}", 
+                     request.getSymbols(), request.getStartDate(), request.getEndDate(), 
+                     request.getVariants().size());
+
+            // 共用股價矩陣只載入一次
+            PriceMatrix priceMatrix = backtestService.loadPriceMatrix(
+                    request.getSymbols(), request.getStartDate(), request.getEndDate());
+
+            PrecisionMode precisionMode = backtestService.resolvePrecisionMode(request.getPrecisionMode());
+            // BigDecimal 參考模式以快照計算績效，因此一律保留快照
+            boolean recordHistory = request.isIncludeHistory() || precisionMode == PrecisionMode.BIG_DECIMAL;
+
+            List<Callable<VariantResultDto>> tasks = new ArrayList<>(request.getVariants().size());
+            for (StrategyVariant variant : request.getVariants()) {
+                tasks.add(() -> runVariant(request, variant, priceMatrix, precisionMode, recordHistory));
+            }
+
+            List<VariantResultDto> results = new ArrayList<>(tasks.size());
+            for (Future<VariantResultDto> future : backtestBatchPool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+
+            BacktestBatchResponseDto response = new BacktestBatchResponseDto();
+            response.setTradingDays(priceMatrix.getDayCount());
+            response.setResults(results);
+            response.setMissingSymbols(backtestService.findMissingSymbols(request.getSymbols(), priceMatrix));
+            response.setTimestamp(LocalDateTime.now());
+            response.setMessage("批次回測執行成功");
+
+            log.info("批次回測執行完成，變體數量: {}", results.size());
+            return response;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse(e);
+        } catch (Exception e) {
+            log.error("執行批次回測時發生錯誤: {}", e.getMessage(), e);
+            return errorResponse(e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * 模擬單一策略變體並轉換為精簡摘要
+     */
+    private VariantResultDto runVariant(BacktestBatchRequestDto batchRequest, StrategyVariant variant,
+                                        PriceMatrix priceMatrix, PrecisionMode precisionMode,
+                                        boolean recordHistory) {
+        BigDecimal initialCapital = variant.getInitialCapital() != null
+                ? variant.getInitialCapital() : batchRequest.getInitialCapital();
+
+        VariantResultDto result = new VariantResultDto();
+        result.setName(variant.getName());
+        result.setInitialCapital(initialCapital);
+
+        try {
+            BacktestRequestDto request = new BacktestRequestDto();
+            request.setSymbols(batchRequest.getSymbols());
+            request.setStartDate(batchRequest.getStartDate());
+            request.setEndDate(batchRequest.getEndDate());
+            request.setInitialCapital(initialCapital);
+            request.setTradeActions(variant.getTradeActions());
+            request.setStrategy(variant.getStrategy());
+            request.setFillPrice(batchRequest.getFillPrice());
+            request.setMaxVolumeParticipation(batchRequest.getMaxVolumeParticipation());
+            request.setTradingCosts(batchRequest.getTradingCosts());
+            request.setPrecisionMode(precisionMode);
+
+            SimulationResult simulation = backtestService.simulateBacktest(
+                    request, priceMatrix, precisionMode, BacktestProgressListener.NONE,
+                    recordHistory ? HistoryFormat.FULL : HistoryFormat.NONE);
+            BacktestResponseDto response = backtestService.buildResponse(simulation, precisionMode, initialCapital);
+
+            result.setFinalValue(response.getFinalValue());
+            result.setReturnRate(response.getReturnRate());
+            result.setAnnualizedSharpeRatio(response.getAnnualizedSharpeRatio());
+            result.setMaxDrawdown(response.getMaxDrawdown());
+            result.setMessage(response.getMessage());
+            if (batchRequest.isIncludeHistory()) {
+                result.setPortfolioHistory(response.getPortfolioHistory());
+            }
+        } catch (Exception e) {
+            log.warn("策略變體 {} 執行失敗: {}", variant.getName(), e.getMessage());
+            result.setMessage("回測執行失敗: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private BacktestBatchResponseDto errorResponse(Throwable e) {
+        BacktestBatchResponseDto errorResponse = new BacktestBatchResponseDto();
+        errorResponse.setTimestamp(LocalDateTime.now());
+        errorResponse.setMessage("批次回測執行失敗: " + e.getMessage());
+        return errorResponse;
+    }
+}
@@ -0,0 +1,182 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.BacktestJobStatusDto;
+import com.stock_management.backtest_service.dto.BacktestJobStatusDto.JobStatus;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BacktestJobService {
+
+    private final BacktestService backtestService;
+    private final ThreadPoolTaskExecutor backtestJobExecutor;
+
+    @Value("${backtest.jobs.retention-minutes:30}")
+    private long retentionMinutes = 30;
+
+    private final Map<String, BacktestJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 提交非同步回測工作
+     *
+     * @throws TaskRejectedException 工作佇列已滿
+     */
+    public BacktestJobStatusDto submit(BacktestRequestDto request) {
+        purgeExpiredJobs();
+
+        BacktestJob job = new BacktestJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        try {
+            job.future = backtestJobExecutor.submit(() -> execute(job, request));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            log.warn("回測工作佇列已滿，拒絕工作: {}", job.id);
+            throw e;
+        }
+
+        log.info("已提交回測工作 {}，股票: {}", job.id, request.getSymbols());
+        return job.toStatus();
+    }
+
+    /**
+     * 查詢工作狀態與進度
+     */
+    public Optional<BacktestJobStatusDto> getStatus(String jobId) {
+        purgeExpiredJobs();
+        return Optional.ofNullable(jobs.get(jobId)).map(BacktestJob::toStatus);
+    }
+
+    /**
+     * 取得已完成工作的回測結果
+     */
+    public Optional<BacktestResponseDto> getResult(String jobId) {
+        purgeExpiredJobs();
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> job.result);
+    }
+
+    /**
+     * 取消工作：排隊中的工作不會再執行，執行中的工作於下一個交易日停止
+     */
+    public Optional<BacktestJobStatusDto> cancel(String jobId) {
+        purgeExpiredJobs();
+        BacktestJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        job.cancelRequested = true;
+        if (job.finish(JobStatus.CANCELLED, "工作已取消", null)) {
+            Future<?> future = job.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+            log.info("已取消回測工作 {}", jobId);
+        }
+        return Optional.of(job.toStatus());
+    }
+
+    private void execute(BacktestJob job, BacktestRequestDto request) {
+        if (!job.start()) {
+            return;
+        }
+
+        try {
+            BacktestResponseDto response = backtestService.runBacktest(request, job);
+            job.finish(JobStatus.COMPLETED, response.getMessage(), response);
+        } catch (CancellationException e) {
+            job.finish(JobStatus.CANCELLED, "工作已取消", null);
+        } catch (Exception e) {
+            log.error("回測工作 {} 執行失敗: {}", job.id, e.getMessage(), e);
+            job.finish(JobStatus.FAILED, "回測執行失敗: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * 移除結束超過保留時間的工作
+     * 於提交與每次查詢時執行，不再提交新工作時已結束工作的結果也會在保留時間後釋放
+     */
+    private void purgeExpiredJobs() {
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry));
+    }
+
+    private static final class BacktestJob implements BacktestProgressListener {
+
+        private final String id;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile int completedDays;
+        private volatile int totalDays;
+        private volatile String message;
+        private volatile BacktestResponseDto result;
+        private volatile boolean cancelRequested;
+        private volatile Future<?> future;
+
+        private BacktestJob(String id) {
+            this.id = id;
+        }
+
+        private synchronized boolean start() {
+            if (status != JobStatus.QUEUED) {
+                return false;
+            }
+            status = JobStatus.RUNNING;
+            startedAt = LocalDateTime.now();
+            return true;
+        }
+
+        /**
+         * 將工作轉為結束狀態，已結束的工作不會被覆寫
+         */
+        private synchronized boolean finish(JobStatus finalStatus, String finalMessage,
+                                            BacktestResponseDto response) {
+            if (status != JobStatus.QUEUED && status != JobStatus.RUNNING) {
+                return false;
+            }
+            status = finalStatus;
+            message = finalMessage;
+            result = response;
+            finishedAt = LocalDateTime.now();
+            return true;
+        }
+
+        @Override
+        public void onProgress(int completedDays, int totalDays) {
+            this.completedDays = completedDays;
+            this.totalDays = totalDays;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelRequested;
+        }
+
+        private BacktestJobStatusDto toStatus() {
+            int total = totalDays;
+            int completed = completedDays;
+            double progress = status == JobStatus.COMPLETED ? 100.0
+                    : total > 0 ? completed * 100.0 / total : 0.0;
+            return new BacktestJobStatusDto(id, status, completed, total, progress,
+                    submittedAt, startedAt, finishedAt, message);
+        }
+    }
+}
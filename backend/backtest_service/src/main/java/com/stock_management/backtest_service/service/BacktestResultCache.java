@@ -0,0 +1,355 @@
+package com.stock_management.backtest_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.CompactPortfolioHistory;
+import com.stock_management.backtest_service.dto.PortfolioSnapshot;
+import com.stock_management.backtest_service.dto.RollingMetricsDto;
+import com.stock_management.backtest_service.dto.TradeAction;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 回測結果快取，以正規化請求的雜湊為鍵
+ * 重新整理頁面或開啟分享連結時送出的相同請求直接回傳先前的結果，不向 Data Provider 取得資料、也不重新模擬。
+ * 鍵為正規化請求 JSON 的 SHA-256：股票代號去除重複（保留順序，持股欄位與策略的下單順序依此決定）、
+ * 交易動作依日期穩定排序（同日交易維持原順序）、金額去除尾端的 0、屬性與 Map 依名稱排序，
+ * 未指定的精度模式與歷史格式代入實際使用的值。
+ * 只快取結束日期在今日（台北時區）以前的請求（{@link #isCacheable}），今日的股價可能仍在變動。
+ * <p>
+ * 快取回應保留的數值總數（快照欄位、持股與股價、精簡格式陣列、滑動視窗序列）超過上限時依 LRU 淘汰。
+ * 啟用磁碟溢寫時，被淘汰的結果以 gzip JSON 寫入 {dir}/{雜湊}.json.gz，記憶體未命中時再從磁碟載入；
+ * 磁碟檔案數超過上限時刪除最久未使用的檔案。
+ * 快取的回應由多個請求共用，呼叫端不可修改。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BacktestResultCache {
+
+    private static final String SPILL_SUFFIX = ".json.gz";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${backtest.result-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${backtest.result-cache.max-values:2000000}")
+    private long maxValues = 2_000_000;
+
+    @Value("${backtest.result-cache.spill.enabled:false}")
+    private boolean spillEnabled;
+
+    @Value("${backtest.result-cache.spill.dir:data/results}")
+    private String spillDirectory = "data/results";
+
+    @Value("${backtest.result-cache.spill.max-entries:10000}")
+    private int spillMaxEntries = 10_000;
+
+    private final ObjectMapper canonicalMapper = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .addModule(new SimpleModule().addSerializer(BigDecimal.class, new CanonicalDecimalSerializer()))
+            .build();
+
+    private final ObjectMapper spillMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final LinkedHashMap<String, BacktestResponseDto> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalValues;
+
+    // 磁碟上的溢寫檔案，依存取順序排列
+    private final LinkedHashMap<String, Boolean> spilled = new LinkedHashMap<>(64, 0.75f, true);
+    private Path spillRoot;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("backtest.result.cache.entries", this, cache -> cache.size())
+                .description("記憶體中快取的回測結果筆數")
+                .register(meterRegistry);
+        Gauge.builder("backtest.result.cache.values", this, BacktestResultCache::getTotalValues)
+                .description("記憶體中快取的回測結果保留的數值個數")
+                .register(meterRegistry);
+        if (!enabled || !spillEnabled) {
+            return;
+        }
+        try {
+            spillRoot = Files.createDirectories(Paths.get(spillDirectory));
+            // 重啟後沿用既有檔案，依修改時間由舊到新排列
+            try (Stream<Path> files = Files.list(spillRoot)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SPILL_SUFFIX))
+                     .sorted(Comparator.comparingLong(BacktestResultCache::lastModified))
+                     .forEach(file -> {
+                         String name = file.getFileName().toString();
+                         spilled.put(name.substring(0, name.length() - SPILL_SUFFIX.length()), Boolean.TRUE);
+                     });
+            }
+            log.info("回測結果溢寫目錄: {}，既有檔案 {} 個", spillRoot.toAbsolutePath(), spilled.size());
+        } catch (IOException e) {
+            log.warn("無法建立回測結果溢寫目錄 {}，停用磁碟溢寫: {}", spillDirectory, e.getMessage());
+            spillEnabled = false;
+        }
+    }
+
+    /**
+     * 請求結果是否可快取：快取啟用且結束日期在今日以前
+     */
+    public boolean isCacheable(BacktestRequestDto request) {
+        return enabled && isSettled(request.getEndDate());
+    }
+
+    /**
+     * 計算正規化請求的雜湊，內容相同的請求得到相同的鍵（也用於合併同時進行的相同請求）
+     *
+     * @param precisionMode 實際使用的精度模式
+     * @return 快取鍵；請求無法序列化時回傳 null
+     */
+    public String keyOf(BacktestRequestDto request, PrecisionMode precisionMode) {
+        BacktestRequestDto canonical = new BacktestRequestDto();
+        BeanUtils.copyProperties(request, canonical);
+        if (request.getSymbols() != null) {
+            // 與 BacktestService.resolveSlotSymbols 相同：去除重複但不排序，順序不同的請求結果可能不同
+            canonical.setSymbols(request.getSymbols().stream().distinct().toList());
+        }
+        if (request.getTradeActions() != null) {
+            List<TradeAction> trades = new ArrayList<>(request.getTradeActions());
+            trades.sort(Comparator.comparing(TradeAction::getDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+            canonical.setTradeActions(trades);
+        }
+        if (request.getRiskMetrics() != null) {
+            canonical.setRiskMetrics(new TreeSet<>(request.getRiskMetrics()));
+        }
+        canonical.setPrecisionMode(precisionMode);
+        canonical.setHistoryFormat(request.getHistoryFormat() == null ? HistoryFormat.FULL : request.getHistoryFormat());
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalMapper.writeValueAsBytes(canonical));
+            return HexFormat.of().formatHex(digest);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("無法計算回測請求的快取鍵，略過快取: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 查詢快取，先查記憶體再查磁碟；未命中時回傳 null
+     */
+    public BacktestResponseDto get(String key) {
+        synchronized (this) {
+            BacktestResponseDto cached = entries.get(key);
+            if (cached != null) {
+                meterRegistry.counter("backtest.result.cache.requests", "result", "hit").increment();
+                return cached;
+            }
+            if (spilled.get(key) == null) {
+                meterRegistry.counter("backtest.result.cache.requests", "result", "miss").increment();
+                return null;
+            }
+        }
+
+        BacktestResponseDto loaded = readSpilled(key);
+        meterRegistry.counter("backtest.result.cache.requests", "result", loaded != null ? "disk" : "miss").increment();
+        if (loaded != null) {
+            put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public void put(String key, BacktestResponseDto response) {
+        List<Map.Entry<String, BacktestResponseDto>> evicted = new ArrayList<>();
+        synchronized (this) {
+            BacktestResponseDto previous = entries.put(key, response);
+            if (previous != null) {
+                totalValues -= weightOf(previous);
+            }
+            totalValues += weightOf(response);
+            Iterator<Map.Entry<String, BacktestResponseDto>> iterator = entries.entrySet().iterator();
+            while (totalValues > maxValues && entries.size() > 1 && iterator.hasNext()) {
+                Map.Entry<String, BacktestResponseDto> eldest = iterator.next();
+                totalValues -= weightOf(eldest.getValue());
+                iterator.remove();
+                evicted.add(eldest);
+            }
+        }
+        // 寫入磁碟不持有鎖，避免阻塞其他請求的查詢
+        for (Map.Entry<String, BacktestResponseDto> entry : evicted) {
+            log.debug("回測結果快取超過上限，淘汰 {}", entry.getKey());
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalValues() {
+        return totalValues;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalValues = 0;
+    }
+
+    private void spill(String key, BacktestResponseDto response) {
+        if (!spillEnabled) {
+            return;
+        }
+        synchronized (this) {
+            if (spilled.get(key) != null) {
+                return;
+            }
+        }
+        Path file = spillRoot.resolve(key + SPILL_SUFFIX);
+        try {
+            Path temp = Files.createTempFile(spillRoot, key, ".tmp");
+            try {
+                try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                    spillMapper.writeValue(output, response);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("寫入回測結果溢寫檔 {} 失敗: {}", file, e.getMessage());
+            return;
+        }
+
+        List<String> removed = new ArrayList<>();
+        synchronized (this) {
+            spilled.put(key, Boolean.TRUE);
+            Iterator<String> iterator = spilled.keySet().iterator();
+            while (spilled.size() > spillMaxEntries && iterator.hasNext()) {
+                removed.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        for (String eldest : removed) {
+            try {
+                Files.deleteIfExists(spillRoot.resolve(eldest + SPILL_SUFFIX));
+            } catch (IOException e) {
+                log.warn("刪除回測結果溢寫檔 {} 失敗: {}", eldest, e.getMessage());
+            }
+        }
+    }
+
+    private BacktestResponseDto readSpilled(String key) {
+        Path file = spillRoot.resolve(key + SPILL_SUFFIX);
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+            return spillMapper.readValue(input, BacktestResponseDto.class);
+        } catch (IOException e) {
+            log.warn("讀取回測結果溢寫檔 {} 失敗: {}", file, e.getMessage());
+            synchronized (this) {
+                spilled.remove(key);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 以保留的數值個數估計回應大小：完整歷史每筆快照的持股與股價與股票數成正比，
+     * 分 K 逐根快照時每日約 270 筆，只以交易日數估計會嚴重低估
+     */
+    static long weightOf(BacktestResponseDto response) {
+        long values = 1;
+        if (response.getPortfolioHistory() != null) {
+            for (PortfolioSnapshot snapshot : response.getPortfolioHistory()) {
+                values += 4 + sizeOf(snapshot.getHoldings()) + sizeOf(snapshot.getPrices());
+            }
+        }
+        CompactPortfolioHistory compact = response.getCompactHistory();
+        if (compact != null) {
+            values += sizeOf(compact.getDates()) + sizeOf(compact.getCash())
+                    + sizeOf(compact.getTotalValue()) + sizeOf(compact.getDailyReturn());
+            if (compact.getPrices() != null) {
+                for (List<BigDecimal> prices : compact.getPrices().values()) {
+                    values += sizeOf(prices);
+                }
+            }
+            if (compact.getHoldingsChanges() != null) {
+                for (CompactPortfolioHistory.HoldingsChange change : compact.getHoldingsChanges()) {
+                    values += 1 + sizeOf(change.getHoldings());
+                }
+            }
+        }
+        if (response.getRollingMetrics() != null) {
+            for (RollingMetricsDto rolling : response.getRollingMetrics()) {
+                values += sizeOf(rolling.getSharpeRatio()) + sizeOf(rolling.getVolatility())
+                        + sizeOf(rolling.getDrawdown());
+            }
+        }
+        return values;
+    }
+
+    private static int sizeOf(Collection<?> values) {
+        return values == null ? 0 : values.size();
+    }
+
+    private static int sizeOf(Map<?, ?> values) {
+        return values == null ? 0 : values.size();
+    }
+
+    private static boolean isSettled(String endDate) {
+        if (endDate == null) {
+            return false;
+        }
+        try {
+            // 分 K 請求的日期可指定到分鐘，例如 "2025-07-01 13:30"
+            String date = endDate.length() > 10 ? endDate.substring(0, 10) : endDate;
+            return TradingCalendar.toEpochDay(date) < TradingCalendar.today();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * 金額以去除尾端 0 的字串輸出，100000 與 100000.00 視為相同
+     */
+    private static final class CanonicalDecimalSerializer extends JsonSerializer<BigDecimal> {
+        @Override
+        public void serialize(BigDecimal value, JsonGenerator generator, SerializerProvider serializers)
+                throws IOException {
+            generator.writeString(value.stripTrailingZeros().toPlainString());
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package com.stock_management.backtest_service.service;
 
 import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.BarResolution;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.RiskMetric;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.CompactHistoryRecorder;
+import com.stock_management.backtest_service.engine.CompiledStrategy;
+import com.stock_management.backtest_service.engine.CostModel;
+import com.stock_management.backtest_service.engine.FixedPoint;
+import com.stock_management.backtest_service.engine.OrderExecutor;
+import com.stock_management.backtest_service.engine.PerformanceAccumulator;
+import com.stock_management.backtest_service.engine.PortfolioLedger;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import com.stock_management.backtest_service.engine.StaticAllocationSimulator;
+import com.stock_management.backtest_service.engine.TradeSchedule;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 @Service
 @RequiredArgsConstructor
@@ -18,48 +39,58 @@ public class BacktestService {
 
     private final DataProviderService dataProviderService;
     private final PortfolioCalculationService portfolioCalculationService;
+    private final IndicatorCache indicatorCache;
+    private final BacktestResultCache resultCache;
+
+    // 進行中的回測：正規化請求的雜湊 -> 結果
+    private final ConcurrentHashMap<String, CompletableFuture<BacktestResponseDto>> inFlightBacktests =
+            new ConcurrentHashMap<>();
+
+    @Value("${backtest.engine.precision-mode:FIXED_POINT}")
+    private PrecisionMode defaultPrecisionMode = PrecisionMode.FIXED_POINT;
+
+    @Value("${backtest.engine.shares-per-volume-unit:1000}")
+    private long sharesPerVolumeUnit = 1000;
 
     /**
-     * 執行回測分析
+     * 執行回測分析，相同的請求直接回傳快取的結果；
+     * 相同的請求同時進行時（例如多個分頁同時開啟儀表板）只執行一次，其餘請求等待並共用其結果
      */
     public BacktestResponseDto performBacktest(BacktestRequestDto request) {
         try {
-            log.info("開始執行回測，股票: {}, 期間: {} 到 {}, 起始資金: {}", 
-                     request.getSymbols(), request.getStartDate(), request.getEndDate(), 
-                     request.getInitialCapital());
-
-            // 取得歷史股價資料
-            Map<String, List<Map<String, Object>>> rawData = dataProviderService.getHistoricalData(
-                request.getSymbols(), 
-                request.getStartDate(), 
-                request.getEndDate()
-            );
-
-            // 轉換股價資料格式
-            Map<String, Map<String, BigDecimal>> priceData = convertPriceData(rawData);
-            
-            // 取得所有交易日期
-            Set<String> allDates = priceData.values().stream()
-                    .flatMap(stockPrices -> stockPrices.keySet().stream())
-                    .collect(Collectors.toSet());
-            List<String> sortedDates = allDates.stream().sorted().collect(Collectors.toList());
-
-            // 執行回測模擬
-            List<PortfolioSnapshot> portfolioHistory = simulateBacktest(
-                    request, priceData, sortedDates);
-
-            // 建立回應物件
-            BacktestResponseDto response = new BacktestResponseDto();
-            response.setPortfolioHistory(portfolioHistory);
-            response.setTimestamp(LocalDateTime.now());
-            response.setMessage("回測執行成功");
-
-            // 計算回測結果並設置到回應物件中
-            portfolioCalculationService.calculateBacktestResult(
-                    response, portfolioHistory, request.getInitialCapital());
+            String requestKey = resultCache.keyOf(request, resolvePrecisionMode(request.getPrecisionMode()));
+            if (requestKey == null) {
+                return runBacktest(request, BacktestProgressListener.NONE);
+            }
+            boolean cacheable = resultCache.isCacheable(request);
+            BacktestResponseDto cached = cacheable ? resultCache.get(requestKey) : null;
+            if (cached != null) {
+                log.info("回測結果取自快取，股票: {}, 期間: {} 到 {}",
+                         request.getSymbols(), request.getStartDate(), request.getEndDate());
+                return cached;
+            }
 
-            log.info("回測執行完成，總報酬率: {}%", response.getReturnRate());
-            return response;
+            CompletableFuture<BacktestResponseDto> flight = new CompletableFuture<>();
+            CompletableFuture<BacktestResponseDto> existing = inFlightBacktests.putIfAbsent(requestKey, flight);
+            if (existing != null) {
+                log.info("相同的回測正在執行，等待其結果，股票: {}, 期間: {} 到 {}",
+                         request.getSymbols(), request.getStartDate(), request.getEndDate());
+                return awaitInFlight(existing);
+            }
+            try {
+                BacktestResponseDto response = runBacktest(request, BacktestProgressListener.NONE);
+                // 先寫入快取再移除進行中的紀錄，之後的相同請求一定能由其中之一取得結果
+                if (cacheable) {
+                    resultCache.put(requestKey, response);
+                }
+                flight.complete(response);
+                return response;
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightBacktests.remove(requestKey, flight);
+            }
 
         } catch (Exception e) {
             log.error("執行回測時發生錯誤: {}", e.getMessage(), e);
@@ -72,151 +103,492 @@ public class BacktestService {
         }
     }
 
+    private static BacktestResponseDto awaitInFlight(CompletableFuture<BacktestResponseDto> flight) {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            // 與執行中的請求回報相同的錯誤訊息
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("等待相同回測的結果時被中斷");
+        }
+    }
+
     /**
-     * 轉換原始股價資料格式
+     * 執行回測分析，錯誤以例外拋出
+     *
+     * @param listener 進度回報與取消檢查，取消時拋出 CancellationException
      */
-    private Map<String, Map<String, BigDecimal>> convertPriceData(
-            Map<String, List<Map<String, Object>>> rawData) {
-        
-        Map<String, Map<String, BigDecimal>> priceData = new HashMap<>();
-        
-        for (Map.Entry<String, List<Map<String, Object>>> entry : rawData.entrySet()) {
-            String symbol = entry.getKey();
-            Map<String, BigDecimal> stockPrices = new HashMap<>();
-            
-            for (Map<String, Object> dataPoint : entry.getValue()) {
-                String date = (String) dataPoint.get("date");
-                Double closePrice = (Double) dataPoint.get("close");
-                stockPrices.put(date, BigDecimal.valueOf(closePrice));
+    public BacktestResponseDto runBacktest(BacktestRequestDto request, BacktestProgressListener listener) {
+        log.info("開始執行回測，股票: {}, 期間: {} 到 {}, 起始資金: {}", 
+                 request.getSymbols(), request.getStartDate(), request.getEndDate(), 
+                 request.getInitialCapital());
+
+        Set<RiskMetric> riskMetrics = request.getRiskMetrics() == null ? Set.of() : request.getRiskMetrics();
+        double confidenceLevel = resolveConfidenceLevel(request.getVarConfidenceLevel());
+        if (riskMetrics.contains(RiskMetric.BETA)
+                && (request.getBenchmarkSymbol() == null || request.getBenchmarkSymbol().isBlank())) {
+            throw new IllegalArgumentException("計算 Beta 需指定基準股票代號 (benchmarkSymbol)");
+        }
+        BigDecimal participation = request.getMaxVolumeParticipation();
+        if (participation != null && (participation.signum() <= 0 || participation.compareTo(BigDecimal.ONE) > 0)) {
+            throw new IllegalArgumentException("成交量比例上限必須介於 0 與 1 之間");
+        }
+        List<Integer> rollingWindows = request.getRollingWindows() == null ? List.of() : request.getRollingWindows();
+        if (rollingWindows.stream().anyMatch(window -> window == null || window < 2)) {
+            throw new IllegalArgumentException("滑動視窗長度至少為 2 個交易日");
+        }
+        if (request.getSnapshotInterval() != null && request.getSnapshotInterval() < 1) {
+            throw new IllegalArgumentException("快照間隔至少為 1 根 K 棒");
+        }
+
+        // 取得歷史股價資料並轉換為欄式股價矩陣
+        PriceMatrix priceMatrix = loadPriceMatrix(
+            request.getSymbols(), 
+            request.getStartDate(), 
+            request.getEndDate(),
+            request.getResolution()
+        );
+
+        // 執行回測模擬
+        PrecisionMode precisionMode = resolvePrecisionMode(request.getPrecisionMode());
+        HistoryFormat historyFormat = request.getHistoryFormat() == null ? HistoryFormat.FULL : request.getHistoryFormat();
+        SimulationResult result = simulateBacktest(request, priceMatrix, precisionMode, listener, historyFormat);
+
+        // 建立回應物件並計算回測結果
+        BacktestResponseDto response = buildResponse(result, precisionMode, request.getInitialCapital());
+        response.setMissingSymbols(findMissingSymbols(request.getSymbols(), priceMatrix));
+
+        // 額外風險指標（只計算請求的項目）
+        if (!riskMetrics.isEmpty()) {
+            double[] benchmarkReturns = riskMetrics.contains(RiskMetric.BETA)
+                    ? loadBenchmarkReturns(request.getBenchmarkSymbol(), request.getStartDate(),
+                                           request.getEndDate(), priceMatrix)
+                    : null;
+            RiskMetricsDto metrics = portfolioCalculationService.calculateRiskMetrics(
+                    result, riskMetrics, request.getInitialCapital(), benchmarkReturns, confidenceLevel);
+            if (benchmarkReturns != null) {
+                metrics.setBenchmarkSymbol(request.getBenchmarkSymbol());
             }
-            
-            priceData.put(symbol, stockPrices);
+            response.setRiskMetrics(metrics);
+        }
+
+        // 滑動視窗績效序列
+        if (!rollingWindows.isEmpty()) {
+            response.setRollingMetrics(portfolioCalculationService.calculateRollingMetrics(result, rollingWindows));
+        }
+
+        log.info("回測執行完成，總報酬率: {}%", response.getReturnRate());
+        return response;
+    }
+
+    /**
+     * 取得歷史股價資料並轉換為欄式股價矩陣
+     */
+    PriceMatrix loadPriceMatrix(List<String> symbols, String startDate, String endDate) {
+        return loadPriceMatrix(symbols, startDate, endDate, BarResolution.DAILY);
+    }
+
+    /**
+     * 依 K 棒週期取得歷史股價資料：分 K 以時間戳記為軸，未指定時為日 K
+     */
+    PriceMatrix loadPriceMatrix(List<String> symbols, String startDate, String endDate, BarResolution resolution) {
+        if (resolution == BarResolution.MINUTE) {
+            return PriceMatrix.fromIntradayBars(dataProviderService.getIntradayBars(symbols, startDate, endDate));
         }
-        
-        return priceData;
+        Map<String, BarSeries> bars = dataProviderService.getHistoricalBars(symbols, startDate, endDate);
+        return PriceMatrix.fromBars(bars);
+    }
+
+    /**
+     * 取得基準股票的日報酬率並對齊股價矩陣涵蓋的交易日
+     * 基準當日無資料時沿用前一個收盤價（報酬率為 0）；無法取得基準資料時回傳 null，不計算 Beta
+     */
+    double[] loadBenchmarkReturns(String benchmarkSymbol, String startDate, String endDate,
+                                  PriceMatrix priceMatrix) {
+        BarSeries bars;
+        try {
+            bars = dataProviderService.getHistoricalBars(List.of(benchmarkSymbol), startDate, endDate)
+                    .get(benchmarkSymbol);
+        } catch (Exception e) {
+            log.warn("無法取得基準 {} 的歷史資料，略過 Beta: {}", benchmarkSymbol, e.getMessage());
+            return null;
+        }
+        if (bars == null || bars.isEmpty()) {
+            log.warn("基準 {} 沒有歷史資料，略過 Beta", benchmarkSymbol);
+            return null;
+        }
+
+        int dayCount = priceMatrix.getDayCount();
+        double[] returns = new double[priceMatrix.getTradingDayCount()];
+        double previousClose = Double.NaN;
+        int index = 0;
+        int tradingDay = 0;
+        for (int day = 0; day < dayCount; day++) {
+            if (!priceMatrix.isLastOfTradingDay(day)) {
+                continue;
+            }
+            int epochDay = priceMatrix.getEpochDay(day);
+            double close = previousClose;
+            while (index < bars.size() && bars.getDay(index) <= epochDay) {
+                close = bars.getClose(index++);
+            }
+            returns[tradingDay++] = Double.isNaN(previousClose) || Double.isNaN(close) ? 0.0 : close / previousClose - 1;
+            previousClose = close;
+        }
+        return returns;
+    }
+
+    /**
+     * VaR/CVaR 信賴水準，未指定時為 0.95
+     */
+    private double resolveConfidenceLevel(BigDecimal requested) {
+        if (requested == null) {
+            return 0.95;
+        }
+        double level = requested.doubleValue();
+        if (level <= 0 || level >= 1) {
+            throw new IllegalArgumentException("VaR 信賴水準必須介於 0 與 1 之間");
+        }
+        return level;
+    }
+
+    /**
+     * 建立回應物件並計算績效指標
+     * BigDecimal 模式以快照計算（參考實作），定點數模式、未保留快照或快照經過抽樣時以原始陣列計算
+     */
+    BacktestResponseDto buildResponse(SimulationResult result, PrecisionMode precisionMode,
+                                      BigDecimal initialCapital) {
+        List<PortfolioSnapshot> portfolioHistory = result.getPortfolioHistory();
+
+        BacktestResponseDto response = new BacktestResponseDto();
+        response.setPortfolioHistory(portfolioHistory);
+        response.setCompactHistory(result.getCompactHistory());
+        response.setTotalTradingCosts(FixedPoint.toBigDecimal(result.getTradingCosts()));
+        response.setTimestamp(LocalDateTime.now());
+        response.setMessage("回測執行成功");
+
+        if (precisionMode == PrecisionMode.FIXED_POINT || portfolioHistory == null
+                || portfolioHistory.size() != result.getTotalValues().length) {
+            portfolioCalculationService.calculateBacktestResult(
+                    response, result.getPerformance(), initialCapital);
+        } else {
+            portfolioCalculationService.calculateBacktestResult(
+                    response, portfolioHistory, initialCapital);
+        }
+        return response;
+    }
+
+    /**
+     * 決定本次回測的金額運算精度模式：請求指定優先，其次為服務設定，預設為定點數模式
+     */
+    PrecisionMode resolvePrecisionMode(PrecisionMode requested) {
+        return requested != null ? requested : defaultPrecisionMode;
     }
 
     /**
      * 執行回測模擬
+     * 只讀取股價矩陣，不修改共享狀態，可在多個執行緒上對同一矩陣平行執行
+     * 分 K 模式逐根 K 棒交易與結算，績效計算用的原始陣列仍以交易日為單位（取每日最後一根 K 棒），
+     * 報酬率為相對前一交易日收盤的當日報酬；快照依 snapshotInterval 抽樣輸出。
+     *
+     * @param historyFormat 投資組合歷史的記錄格式，NONE 時只保留績效計算用的原始陣列
      */
-    private List<PortfolioSnapshot> simulateBacktest(
-            BacktestRequestDto request,
-            Map<String, Map<String, BigDecimal>> priceData,
-            List<String> sortedDates) {
+    SimulationResult simulateBacktest(BacktestRequestDto request, PriceMatrix priceMatrix,
+                                      PrecisionMode precisionMode, BacktestProgressListener listener,
+                                      HistoryFormat historyFormat) {
+        return simulateBacktest(request, priceMatrix, 0, priceMatrix.getDayCount(), precisionMode, listener,
+                historyFormat);
+    }
+
+    /**
+     * 只在股價矩陣的 [fromDay, toDay) 區間內模擬
+     * 區間之前的資料仍可供策略指標暖機，區間外的交易動作不執行；再平衡間隔自 fromDay 起算。
+     * 供 Walk-forward 分析在同一份股價矩陣上模擬不同的樣本內外視窗。
+     */
+    SimulationResult simulateBacktest(BacktestRequestDto request, PriceMatrix priceMatrix, int fromDay, int toDay,
+                                      PrecisionMode precisionMode, BacktestProgressListener listener,
+                                      HistoryFormat historyFormat) {
+        return simulateBacktest(request, priceMatrix, fromDay, toDay, precisionMode, listener, historyFormat, false);
+    }
+
+    /**
+     * @param liquidateAtEnd 區間最後一日在策略執行後，透過成交模型賣出所有持股（計入交易成本與成交量上限，
+     *                       無法成交的部分仍以收盤價計入總價值）
+     */
+    SimulationResult simulateBacktest(BacktestRequestDto request, PriceMatrix priceMatrix, int fromDay, int toDay,
+                                      PrecisionMode precisionMode, BacktestProgressListener listener,
+                                      HistoryFormat historyFormat, boolean liquidateAtEnd) {
+        int dayCount = toDay - fromDay;
+        boolean fullRange = fromDay == 0 && toDay == priceMatrix.getDayCount();
+        int tradingDayCount = fullRange ? priceMatrix.getTradingDayCount() : countTradingDays(priceMatrix, fromDay, toDay);
+        boolean intraday = priceMatrix.isIntraday();
+        int snapshotInterval = request.getSnapshotInterval() != null ? request.getSnapshotInterval() : intraday ? 0 : 1;
+        boolean recordHistory = historyFormat == HistoryFormat.FULL;
+        boolean emitSnapshots = listener.wantsSnapshots();
+        List<PortfolioSnapshot> portfolioHistory = recordHistory ? new ArrayList<>(tradingDayCount) : null;
+        long[] totalValues = new long[tradingDayCount];
+        double[] dailyReturns = new double[tradingDayCount];
+        long[] tradedValues = new long[tradingDayCount];
+
+        // 將請求的股票對應到持股欄位（僅保留有股價資料的股票）
+        String[] slotSymbols = resolveSlotSymbols(request.getSymbols(), priceMatrix);
+        int slotCount = slotSymbols.length;
+        int[] columns = new int[slotCount];
+        Map<String, Integer> slotIndex = new HashMap<>(slotCount * 2);
+        for (int slot = 0; slot < slotCount; slot++) {
+            columns[slot] = priceMatrix.indexOfSymbol(slotSymbols[slot]);
+            slotIndex.put(slotSymbols[slot], slot);
+        }
+
+        // 建立交易排程索引
+        TradeSchedule schedule = TradeSchedule.compile(request.getTradeActions(), priceMatrix, slotIndex);
+
+        // 靜態配置（只有明確交易且每筆都能成交）且不需快照時，以向量化的陣列迴圈計算價值序列
+        if (fullRange && historyFormat == HistoryFormat.NONE && !emitSnapshots && !liquidateAtEnd
+                && isStaticAllocation(request, priceMatrix, precisionMode)) {
+            if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("回測已取消");
+            }
+            SimulationResult result = StaticAllocationSimulator.simulate(schedule, priceMatrix, columns,
+                    FixedPoint.fromBigDecimal(request.getInitialCapital()));
+            if (result != null) {
+                listener.onProgress(dayCount, dayCount);
+                return result;
+            }
+            log.debug("交易排程含無法成交的交易，改用逐日模擬");
+        }
+
+        CompiledStrategy strategy = request.getStrategy() == null ? null
+                : CompiledStrategy.compile(request.getStrategy(), priceMatrix, slotSymbols, columns, indicatorCache);
 
-        List<PortfolioSnapshot> portfolioHistory = new ArrayList<>();
-        
         // 初始化投資組合
-        BigDecimal cash = request.getInitialCapital();
-        Map<String, Integer> holdings = new HashMap<>();
-        
-        // 建立交易動作索引
-        Map<String, List<TradeAction>> tradesByDate = request.getTradeActions().stream()
-                .collect(Collectors.groupingBy(TradeAction::getDate));
-
-        BigDecimal previousValue = request.getInitialCapital();
-
-        for (String date : sortedDates) {
-            // 取得當日股價
-            Map<String, BigDecimal> dailyPrices = new HashMap<>();
-            for (String symbol : request.getSymbols()) {
-                if (priceData.containsKey(symbol) && priceData.get(symbol).containsKey(date)) {
-                    dailyPrices.put(symbol, priceData.get(symbol).get(date));
-                }
+        PortfolioLedger ledger = PortfolioLedger.create(precisionMode, request.getInitialCapital(), slotCount);
+        OrderExecutor executor = new OrderExecutor(ledger, priceMatrix, columns, request.getFillPrice(),
+                request.getMaxVolumeParticipation() == null ? 0.0 : request.getMaxVolumeParticipation().doubleValue(),
+                sharesPerVolumeUnit, resolveCostModel(request.getTradingCosts()));
+        CompactHistoryRecorder compactRecorder = historyFormat == HistoryFormat.COMPACT
+                ? new CompactHistoryRecorder(slotSymbols, tradingDayCount) : null;
+        PerformanceAccumulator performance = new PerformanceAccumulator();
+        long previousClose = ledger.getTotalValueScaled();
+        long dayTradedValue = 0;
+        int tradingDay = 0;
+
+        for (int day = fromDay; day < toDay; day++) {
+            if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("回測已取消");
             }
 
+            // 設定當日成交價與成交量上限
+            executor.beginDay(day);
+
             // 執行當日交易
-            if (tradesByDate.containsKey(date)) {
-                for (TradeAction trade : tradesByDate.get(date)) {
-                    cash = executeTrade(trade, cash, holdings, dailyPrices);
+            for (int i = schedule.getStart(day); i < schedule.getEnd(day); i++) {
+                executeTrade(schedule, i, executor);
+            }
+            if (strategy != null) {
+                strategy.execute(day, day - fromDay, executor);
+            }
+            if (liquidateAtEnd && day == toDay - 1) {
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (ledger.getShares(slot) > 0) {
+                        executor.sell(slot, ledger.getShares(slot));
+                    }
                 }
             }
+            dayTradedValue += executor.endDay(day);
 
-            // 計算當日投資組合價值
-            BigDecimal totalValue = calculatePortfolioValue(cash, holdings, dailyPrices);
-            
-            // 計算當日報酬率
-            BigDecimal dailyReturn = BigDecimal.ZERO;
-            if (previousValue.compareTo(BigDecimal.ZERO) > 0) {
-                dailyReturn = totalValue.subtract(previousValue)
-                                      .divide(previousValue, 6, RoundingMode.HALF_UP);
+            // 計算當日投資組合價值與報酬率（分 K 為相對前一交易日收盤的當日報酬）
+            ledger.closeDay();
+            long totalValue = ledger.getTotalValueScaled();
+            double dailyReturn = intraday
+                    ? (previousClose > 0 ? (double) (totalValue - previousClose) / previousClose : 0.0)
+                    : ledger.getDailyReturnAsDouble();
+            boolean closesTradingDay = priceMatrix.isLastOfTradingDay(day);
+            if (closesTradingDay) {
+                totalValues[tradingDay] = totalValue;
+                dailyReturns[tradingDay] = dailyReturn;
+                tradedValues[tradingDay] = dayTradedValue;
+                performance.add(totalValue, dailyReturn);
+                previousClose = totalValue;
+                dayTradedValue = 0;
+                tradingDay++;
             }
 
-            // 建立投資組合快照
-            PortfolioSnapshot snapshot = new PortfolioSnapshot();
-            snapshot.setDate(date);
-            snapshot.setCash(cash);
-            snapshot.setHoldings(new HashMap<>(holdings));
-            snapshot.setPrices(new HashMap<>(dailyPrices));
-            snapshot.setTotalValue(totalValue);
-            snapshot.setDailyReturn(dailyReturn);
+            // 建立投資組合快照（依快照間隔抽樣，分 K 一律包含每日最後一根）
+            boolean sampled = day == toDay - 1 || (intraday && closesTradingDay)
+                    || (snapshotInterval > 0 && (day + 1 - fromDay) % snapshotInterval == 0);
+            if (sampled && (recordHistory || emitSnapshots || compactRecorder != null)) {
+                BigDecimal snapshotReturn = intraday
+                        ? BigDecimal.valueOf(dailyReturn).setScale(6, RoundingMode.HALF_UP)
+                        : ledger.getDailyReturn();
+                if (recordHistory || emitSnapshots) {
+                    PortfolioSnapshot snapshot = new PortfolioSnapshot();
+                    snapshot.setDate(priceMatrix.getDate(day));
+                    snapshot.setCash(ledger.getCash());
+                    snapshot.setHoldings(toHoldingsMap(slotSymbols, ledger));
+                    snapshot.setPrices(toPriceMap(slotSymbols, ledger));
+                    snapshot.setTotalValue(ledger.getTotalValue());
+                    snapshot.setDailyReturn(snapshotReturn);
 
-            portfolioHistory.add(snapshot);
-            previousValue = totalValue;
+                    if (recordHistory) {
+                        portfolioHistory.add(snapshot);
+                    }
+                    if (emitSnapshots) {
+                        listener.onSnapshot(snapshot);
+                    }
+                }
+                if (compactRecorder != null) {
+                    compactRecorder.record(priceMatrix.getDate(day), ledger, snapshotReturn);
+                }
+            }
+            listener.onProgress(day + 1 - fromDay, dayCount);
         }
 
-        return portfolioHistory;
+        return new SimulationResult(portfolioHistory,
+                compactRecorder == null ? null : compactRecorder.build(), totalValues, dailyReturns, tradedValues,
+                performance, ledger.getTotalCostsScaled());
     }
 
     /**
-     * 執行交易
+     * [fromDay, toDay) 區間內結束的交易日數
      */
-    private BigDecimal executeTrade(TradeAction trade, BigDecimal cash, 
-                                   Map<String, Integer> holdings, 
-                                   Map<String, BigDecimal> dailyPrices) {
-        
-        if (!dailyPrices.containsKey(trade.getSymbol())) {
-            log.warn("無法取得股票 {} 在 {} 的價格，交易取消", trade.getSymbol(), trade.getDate());
-            return cash;
+    private static int countTradingDays(PriceMatrix priceMatrix, int fromDay, int toDay) {
+        int count = 0;
+        for (int day = fromDay; day < toDay; day++) {
+            if (priceMatrix.isLastOfTradingDay(day)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 是否可使用靜態配置的向量化路徑：定點數日 K、無策略、以收盤價成交、無成交量上限與交易成本
+     * 每筆交易是否都能成交由 StaticAllocationSimulator 檢查
+     */
+    private boolean isStaticAllocation(BacktestRequestDto request, PriceMatrix priceMatrix, PrecisionMode precisionMode) {
+        return precisionMode == PrecisionMode.FIXED_POINT
+                && !priceMatrix.isIntraday()
+                && request.getStrategy() == null
+                && (request.getFillPrice() == null || request.getFillPrice() == BacktestRequestDto.FillPrice.CLOSE)
+                && request.getMaxVolumeParticipation() == null
+                && request.getTradingCosts() == null;
+    }
+
+    /**
+     * 將請求的交易成本轉為回測迴圈使用的成本模型，未指定時不計成本
+     * 未指定的項目使用台股預設值：手續費 0.1425%、最低 20 元、證交稅 0.3%、無滑價、零股交易
+     */
+    CostModel resolveCostModel(BacktestRequestDto.TradingCosts costs) {
+        if (costs == null) {
+            return CostModel.NONE;
+        }
+        double commissionRate = valueOrDefault(costs.getCommissionRate(), 0.001425);
+        double discount = valueOrDefault(costs.getCommissionDiscount(), 1.0);
+        double minimumCommission = valueOrDefault(costs.getMinimumCommission(), 20.0);
+        double taxRate = valueOrDefault(costs.getTransactionTaxRate(), 0.003);
+        double slippageBps = valueOrDefault(costs.getSlippageBps(), 0.0);
+        int lotSize = costs.getLotSize() == null ? 1 : costs.getLotSize();
+        if (commissionRate < 0 || discount < 0 || minimumCommission < 0 || taxRate < 0 || slippageBps < 0) {
+            throw new IllegalArgumentException("交易成本參數不可為負數");
         }
+        if (lotSize < 1) {
+            throw new IllegalArgumentException("交易單位股數至少為 1");
+        }
+        return new CostModel(commissionRate * discount, FixedPoint.fromDouble(minimumCommission), taxRate,
+                slippageBps / 10_000.0, lotSize);
+    }
 
-        BigDecimal price = dailyPrices.get(trade.getSymbol());
-        BigDecimal tradeValue = price.multiply(BigDecimal.valueOf(trade.getShares()));
+    private static double valueOrDefault(BigDecimal value, double defaultValue) {
+        return value == null ? defaultValue : value.doubleValue();
+    }
 
-        if (trade.getAction() == TradeAction.TradeType.BUY) {
-            if (cash.compareTo(tradeValue) >= 0) {
-                cash = cash.subtract(tradeValue);
-                holdings.put(trade.getSymbol(), 
-                           holdings.getOrDefault(trade.getSymbol(), 0) + trade.getShares());
-                log.debug("買入 {} 股 {}，價格: {}，總金額: {}", 
-                         trade.getShares(), trade.getSymbol(), price, tradeValue);
-            } else {
-                log.warn("資金不足，無法買入 {} 股 {}", trade.getShares(), trade.getSymbol());
-            }
-        } else if (trade.getAction() == TradeAction.TradeType.SELL) {
-            int currentHolding = holdings.getOrDefault(trade.getSymbol(), 0);
-            if (currentHolding >= trade.getShares()) {
-                cash = cash.add(tradeValue);
-                holdings.put(trade.getSymbol(), currentHolding - trade.getShares());
-                log.debug("賣出 {} 股 {}，價格: {}，總金額: {}", 
-                         trade.getShares(), trade.getSymbol(), price, tradeValue);
-            } else {
-                log.warn("持股不足，無法賣出 {} 股 {}", trade.getShares(), trade.getSymbol());
-            }
+    /**
+     * 找出請求中無法取得歷史資料、未納入股價矩陣的股票
+     */
+    List<String> findMissingSymbols(List<String> symbols, PriceMatrix priceMatrix) {
+        if (symbols == null) {
+            return Collections.emptyList();
+        }
+        List<String> missing = symbols.stream()
+                .distinct()
+                .filter(symbol -> priceMatrix.indexOfSymbol(symbol) < 0)
+                .toList();
+        if (!missing.isEmpty()) {
+            log.warn("以下股票無法取得歷史資料，未納入回測: {}", missing);
         }
+        return missing;
+    }
 
-        return cash;
+    /**
+     * 取得請求中有股價資料的股票（去除重複並保留原始順序）
+     */
+    String[] resolveSlotSymbols(List<String> symbols, PriceMatrix priceMatrix) {
+        if (symbols == null) {
+            return new String[0];
+        }
+        return symbols.stream()
+                .distinct()
+                .filter(symbol -> priceMatrix.indexOfSymbol(symbol) >= 0)
+                .toArray(String[]::new);
     }
 
     /**
-     * 計算投資組合總價值
+     * 執行交易，超過當日成交量上限或不足一個交易單位的部分不成交
      */
-    private BigDecimal calculatePortfolioValue(BigDecimal cash, 
-                                              Map<String, Integer> holdings, 
-                                              Map<String, BigDecimal> dailyPrices) {
-        BigDecimal totalValue = cash;
-        
-        for (Map.Entry<String, Integer> holding : holdings.entrySet()) {
-            String symbol = holding.getKey();
-            Integer shares = holding.getValue();
-            
-            if (shares > 0 && dailyPrices.containsKey(symbol)) {
-                BigDecimal stockValue = dailyPrices.get(symbol)
-                                                  .multiply(BigDecimal.valueOf(shares));
-                totalValue = totalValue.add(stockValue);
+    private void executeTrade(TradeSchedule schedule, int index, OrderExecutor executor) {
+        TradeAction trade = schedule.getTrade(index);
+        int slot = schedule.getSlot(index);
+        PortfolioLedger ledger = executor.getLedger();
+        if (slot < 0 || !ledger.hasPrice(slot)) {
+            log.warn("無法取得股票 {} 在 {} 的價格，交易取消", trade.getSymbol(), trade.getDate());
+            return;
+        }
+
+        int tradeShares = schedule.getShares(index);
+        boolean buy = schedule.isBuy(index);
+        if (!buy && !schedule.isSell(index)) {
+            return;
+        }
+        int filled = buy ? executor.buy(slot, tradeShares) : executor.sell(slot, tradeShares);
+        if (filled > 0) {
+            log.debug("{} {} 股 {}，價格: {}，總金額: {}", buy ? "買入" : "賣出",
+                     filled, trade.getSymbol(), ledger.getPrice(slot), ledger.getLastTradeValue());
+            if (filled < tradeShares) {
+                log.warn("超過成交量上限或不足一個交易單位，{} {} 股 {} 只成交 {} 股", buy ? "買入" : "賣出",
+                         tradeShares, trade.getSymbol(), filled);
+            }
+        } else if (executor.getRemainingCapacity(slot) == 0) {
+            log.warn("已達成交量上限，無法{} {} 股 {}", buy ? "買入" : "賣出", tradeShares, trade.getSymbol());
+        } else if (executor.isBelowLotSize(tradeShares)) {
+            log.warn("{} 股不足一個交易單位，無法{} {}", tradeShares, buy ? "買入" : "賣出", trade.getSymbol());
+        } else if (buy) {
+            log.warn("資金不足，無法買入 {} 股 {}", tradeShares, trade.getSymbol());
+        } else {
+            log.warn("持股不足，無法賣出 {} 股 {}", tradeShares, trade.getSymbol());
+        }
+    }
+
+    private Map<String, Integer> toHoldingsMap(String[] slotSymbols, PortfolioLedger ledger) {
+        Map<String, Integer> holdings = new HashMap<>();
+        for (int slot = 0; slot < slotSymbols.length; slot++) {
+            if (ledger.isTraded(slot)) {
+                holdings.put(slotSymbols[slot], ledger.getShares(slot));
+            }
+        }
+        return holdings;
+    }
+
+    private Map<String, BigDecimal> toPriceMap(String[] slotSymbols, PortfolioLedger ledger) {
+        Map<String, BigDecimal> prices = new HashMap<>(slotSymbols.length * 2);
+        for (int slot = 0; slot < slotSymbols.length; slot++) {
+            if (ledger.hasPrice(slot)) {
+                prices.put(slotSymbols[slot], ledger.getPrice(slot));
             }
         }
-        
-        return totalValue;
+        return prices;
     }
 }
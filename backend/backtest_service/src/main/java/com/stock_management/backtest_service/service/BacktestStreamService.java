@@ -0,0 +1,77 @@
+package com.stock_management.backtest_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.BacktestStreamEvent;
+import com.stock_management.backtest_service.dto.BacktestStreamEvent.EventType;
+import com.stock_management.backtest_service.dto.PortfolioSnapshot;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 以 NDJSON 串流輸出回測結果
+ * 每個交易日（分 K 模式為每根抽樣的 K 棒）結算後立即寫出一行快照，最後一行為績效摘要（或錯誤），
+ * 快照寫出後即不再保留，伺服器記憶體用量與回測期間長度無關。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BacktestStreamService {
+
+    private final BacktestService backtestService;
+    private final ObjectMapper objectMapper;
+
+    public void streamBacktest(BacktestRequestDto request, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        // 逐日快照由監聽者直接寫出，回測本身不保留逐日資料
+        request.setHistoryFormat(HistoryFormat.NONE);
+        BacktestProgressListener listener = new BacktestProgressListener() {
+            @Override
+            public boolean wantsSnapshots() {
+                return true;
+            }
+
+            @Override
+            public void onSnapshot(PortfolioSnapshot snapshot) {
+                try {
+                    writeEvent(generator, new BacktestStreamEvent(EventType.SNAPSHOT, snapshot, null));
+                } catch (IOException e) {
+                    // 用戶端中斷連線時結束回測
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        BacktestStreamEvent last;
+        try {
+            BacktestResponseDto summary = backtestService.runBacktest(request, listener);
+            last = new BacktestStreamEvent(EventType.SUMMARY, summary, null);
+        } catch (UncheckedIOException e) {
+            log.warn("串流回測輸出中斷: {}", e.getCause().getMessage());
+            throw e.getCause();
+        } catch (Exception e) {
+            log.error("串流回測時發生錯誤: {}", e.getMessage(), e);
+            last = new BacktestStreamEvent(EventType.ERROR, null, "回測執行失敗: " + e.getMessage());
+        }
+
+        writeEvent(generator, last);
+        generator.close();
+    }
+
+    private void writeEvent(JsonGenerator generator, BacktestStreamEvent event) throws IOException {
+        generator.writeObject(event);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+}
@@ -0,0 +1,284 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarLookup;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 磁碟上的歷史 K 棒封存，服務重啟後不需重新向 Data Provider 取得資料
+ * 每支股票一個檔案（{dir}/{symbol}.bars），由固定長度的檔頭與依交易日遞增排列的固定長度記錄組成，
+ * 讀取時以 MappedByteBuffer 對應檔案，多個 Pod 掛載同一目錄時可共用作業系統的 page cache。
+ * 檔頭記錄已封存的連續交易日區間；只封存今日（台北時區）以前、不會再變動的資料。
+ *
+ * <pre>
+ * 檔頭 32 bytes : int magic | int version | int coveredFrom | int coveredTo | 16 bytes 保留
+ * 記錄 56 bytes : int day | int 保留 | long ts | double open | double high | double low | double close | long volume
+ * </pre>
+ *
+ * 區間往後延伸時直接附加記錄再更新檔頭；往前延伸或需要清除中斷寫入留下的記錄時，
+ * 寫入暫存檔後以 atomic move 取代原檔，已對應舊檔的讀取者不受影響，檔案也不會被截斷。與既有區間不相鄰的資料不寫入，以維持封存區間連續。
+ * 寫入者鎖定不會被取代的 {symbol}.bars.lock，因此同一主機上共用目錄的多個 Pod 也會依序寫入；
+ * 不支援 POSIX 檔案鎖的網路檔案系統（例如部分 NFS 設定）上不保證寫入互斥。
+ */
+@Component
+@Slf4j
+public class BarArchive {
+
+    static final int MAGIC = 0x42415253; // "BARS"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 56;
+
+    private static final Pattern SAFE_SYMBOL = Pattern.compile("[A-Za-z0-9._-]+");
+
+    @Value("${backtest.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${backtest.archive.dir:data/bars}")
+    private String directory;
+
+    private Path root;
+    private final ConcurrentHashMap<String, Object> symbolLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            root = Files.createDirectories(Paths.get(directory));
+            log.info("K 棒封存目錄: {}", root.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("無法建立 K 棒封存目錄 {}，停用封存: {}", directory, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查詢封存：回傳區間內已封存的 K 棒，以及封存區間以外的交易日區間
+     */
+    public BarLookup lookup(String symbol, int fromDay, int toDay) {
+        Path file = enabled ? resolve(symbol) : null;
+        if (file == null || !Files.exists(file)) {
+            return new BarLookup(BarSeries.EMPTY, Collections.singletonList(new int[]{fromDay, toDay}));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                return new BarLookup(BarSeries.EMPTY, Collections.singletonList(new int[]{fromDay, toDay}));
+            }
+            // 對應在 channel 關閉後仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                log.warn("K 棒封存檔格式不符，略過: {}", file);
+                return new BarLookup(BarSeries.EMPTY, Collections.singletonList(new int[]{fromDay, toDay}));
+            }
+            int coveredFrom = buffer.getInt(8);
+            int coveredTo = buffer.getInt(12);
+            int recordCount = (int) ((fileSize - HEADER_BYTES) / RECORD_BYTES);
+
+            List<int[]> missing = new ArrayList<>(2);
+            if (fromDay < coveredFrom) {
+                missing.add(new int[]{fromDay, Math.min(toDay, coveredFrom - 1)});
+            }
+            if (toDay > coveredTo) {
+                missing.add(new int[]{Math.max(fromDay, coveredTo + 1), toDay});
+            }
+            int readFrom = Math.max(fromDay, coveredFrom);
+            int readTo = Math.min(toDay, coveredTo);
+            if (readFrom > readTo) {
+                return new BarLookup(BarSeries.EMPTY, missing);
+            }
+            return new BarLookup(readRecords(buffer, recordCount, readFrom, readTo), missing);
+
+        } catch (IOException e) {
+            log.warn("讀取 K 棒封存 {} 失敗: {}", symbol, e.getMessage());
+            return new BarLookup(BarSeries.EMPTY, Collections.singletonList(new int[]{fromDay, toDay}));
+        }
+    }
+
+    /**
+     * 寫入向 Data Provider 取得的 [fromDay, toDay] 區間資料，今日（含）之後的部分不封存
+     */
+    public void store(String symbol, int fromDay, int toDay, BarSeries fetched) {
+        store(symbol, fromDay, toDay, fetched, false);
+    }
+
+    /**
+     * 寫入向 Data Provider 取得的 [fromDay, toDay] 區間資料，今日（含）之後的部分不封存。
+     * 與封存區間不相鄰的資料不寫入（只留在記憶體快取）：中間的空缺無法確認是否有交易，
+     * 之後的請求補齊空缺後，再次取得這段資料時才會封存
+     *
+     * @param retriesExhausted 重試次數已用完，空結果視為區間內確實沒有交易
+     */
+    public void store(String symbol, int fromDay, int toDay, BarSeries fetched, boolean retriesExhausted) {
+        Path file = enabled ? resolve(symbol) : null;
+        if (file == null) {
+            return;
+        }
+        int archiveTo = Math.min(toDay, TradingCalendar.today() - 1);
+        if (fromDay > archiveTo) {
+            return;
+        }
+        BarSeries bars = fetched.slice(fromDay, archiveTo);
+        // 與快取相同：空結果可能是 Data Provider 的失敗回應，只在區間完全落在週末或重試用完時封存
+        if (bars.isEmpty() && !retriesExhausted && !TradingCalendar.isWeekendOnly(fromDay, archiveTo)) {
+            return;
+        }
+
+        // 往前延伸會以新檔取代原檔，鎖定資料檔本身時後到的 Pod 會鎖到已被取代的舊檔，因此鎖定獨立的鎖定檔
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        synchronized (symbolLocks.computeIfAbsent(symbol, key -> new Object())) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock();
+                 FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                write(file, channel, fromDay, archiveTo, bars);
+            } catch (IOException e) {
+                log.warn("寫入 K 棒封存 {} 失敗: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    private void write(Path file, FileChannel channel, int fromDay, int toDay, BarSeries bars) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.size() < HEADER_BYTES || channel.read(header, 0) < HEADER_BYTES
+                || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            rewrite(file, fromDay, toDay, bars);
+            return;
+        }
+        int coveredFrom = header.getInt(8);
+        int coveredTo = header.getInt(12);
+
+        if (fromDay >= coveredFrom && toDay <= coveredTo) {
+            return;
+        }
+        if (fromDay > coveredTo + 1 || toDay < coveredFrom - 1) {
+            log.debug("K 棒區間 [{}, {}] 與封存區間 [{}, {}] 不相鄰，略過封存", fromDay, toDay, coveredFrom, coveredTo);
+            return;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        int recordCount = (int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        if (fromDay >= coveredFrom) {
+            // 只往後延伸：先附加記錄，再更新檔頭，讀取者永遠看到一致的區間
+            BarSeries appended = bars.slice(coveredTo + 1, toDay);
+            long offset = HEADER_BYTES + (long) lowerBound(buffer, recordCount, coveredTo + 1) * RECORD_BYTES;
+            if (offset == channel.size()) {
+                channel.write(encodeRecords(appended), offset);
+                channel.force(false);
+                channel.write(encodeHeader(coveredFrom, toDay), 0);
+                channel.force(false);
+                return;
+            }
+            // 先前寫入記錄後、更新檔頭前中斷時會留下區間外的記錄。讀取者未加鎖地對應整個檔案，
+            // 截斷會讓讀取者存取到檔案結尾之外，因此與往前延伸相同改以暫存檔整檔重寫
+            BarSeries existing = readRecords(buffer, recordCount, coveredFrom, coveredTo);
+            rewrite(file, coveredFrom, toDay, BarSeries.merge(existing, appended));
+            return;
+        }
+
+        // 往前延伸：合併既有記錄後整檔重寫
+        BarSeries existing = readRecords(buffer, recordCount, coveredFrom, coveredTo);
+        rewrite(file, Math.min(fromDay, coveredFrom), Math.max(toDay, coveredTo), BarSeries.merge(existing, bars));
+    }
+
+    private void rewrite(Path file, int coveredFrom, int coveredTo, BarSeries bars) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(encodeHeader(coveredFrom, coveredTo), 0);
+                channel.write(encodeRecords(bars), HEADER_BYTES);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static BarSeries readRecords(ByteBuffer buffer, int recordCount, int fromDay, int toDay) {
+        int first = lowerBound(buffer, recordCount, fromDay);
+        int last = lowerBound(buffer, recordCount, toDay + 1);
+        BarSeries.Builder builder = BarSeries.builder(last - first);
+        for (int i = first; i < last; i++) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            builder.add(buffer.getInt(offset),
+                        buffer.getLong(offset + 8),
+                        buffer.getDouble(offset + 16),
+                        buffer.getDouble(offset + 24),
+                        buffer.getDouble(offset + 32),
+                        buffer.getDouble(offset + 40),
+                        buffer.getLong(offset + 48));
+        }
+        return builder.build();
+    }
+
+    private static int lowerBound(ByteBuffer buffer, int recordCount, int day) {
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(HEADER_BYTES + mid * RECORD_BYTES) < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static ByteBuffer encodeHeader(int coveredFrom, int coveredTo) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(coveredFrom).putInt(coveredTo);
+        header.clear();
+        return header;
+    }
+
+    private static ByteBuffer encodeRecords(BarSeries bars) {
+        ByteBuffer records = ByteBuffer.allocate(bars.size() * RECORD_BYTES);
+        for (int i = 0; i < bars.size(); i++) {
+            records.putInt(bars.getDay(i))
+                   .putInt(0)
+                   .putLong(bars.getTimestamp(i))
+                   .putDouble(bars.getOpen(i))
+                   .putDouble(bars.getHigh(i))
+                   .putDouble(bars.getLow(i))
+                   .putDouble(bars.getClose(i))
+                   .putLong(bars.getVolume(i));
+        }
+        records.flip();
+        return records;
+    }
+
+    private Path resolve(String symbol) {
+        if (symbol == null || !SAFE_SYMBOL.matcher(symbol).matches()) {
+            return null;
+        }
+        return root.resolve(symbol + ".bars");
+    }
+}
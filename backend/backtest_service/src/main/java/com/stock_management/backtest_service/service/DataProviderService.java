@@ -1,17 +1,24 @@
 package com.stock_management.backtest_service.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stock_management.backtest_service.engine.BarLookup;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import com.stock_management.backtest_service.service.HistoricalFetchPlanner.FetchChunk;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
@@ -21,64 +28,405 @@ public class DataProviderService {
     @Value("${data.provider.url}")
     private String dataProviderUrl;
 
+    @Value("${data.provider.fetch.max-symbols-per-chunk:20}")
+    private int maxSymbolsPerChunk = 20;
+
+    @Value("${data.provider.fetch.max-days-per-chunk:366}")
+    private int maxDaysPerChunk = 366;
+
+    @Value("${data.provider.fetch.max-days-per-intraday-chunk:31}")
+    private int maxDaysPerIntradayChunk = 31;
+
+    @Value("${data.provider.fetch.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${data.provider.fetch.retry-backoff-millis:500}")
+    private long retryBackoffMillis = 500;
+
+    // 等待其他請求進行中區間的時間上限，逾時後自行請求，避免單一卡住的請求拖住其他回測
+    @Value("${data.provider.fetch.await-timeout-millis:60000}")
+    private long awaitTimeoutMillis = 60_000;
+
+    private final HistoricalBarCache historicalBarCache;
+    private final BarArchive barArchive;
+    private final ThreadPoolTaskExecutor historicalFetchExecutor;
+
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * 向 Data Provider 請求多支股票的歷史資料（使用non-blocking kbar API）
+     * 進行中的 Data Provider 請求：股票代號 -> 正在請求的交易日區間（同一支股票的區間互不重疊）
+     */
+    private final Map<String, List<InFlightRange>> inFlightRanges = new HashMap<>();
+
+    /**
+     * 取得多支股票的歷史 K 棒
+     * 依序查詢記憶體快取、磁碟封存，只向 Data Provider 請求兩者都沒有的交易日區間，
+     * 取得的資料回寫快取與封存。
+     * 缺少的區間切成有上限的區塊平行請求，失敗的區塊會重試；重試後仍無法取得的股票不放入結果，
+     * 由呼叫端依結果中缺少的股票回報，只有所有股票都失敗時才拋出例外。
+     * <p>
+     * 同時開啟的多個請求不重複向 Data Provider 請求相同的資料：與其他請求進行中的區間重疊的部分
+     * 等待其結果，只請求其餘的區間；對方失敗時再自行請求重疊的部分。
+     * 先完成自己的請求、再等待他人，因此不會互相等待。
      */
-    public Map<String, List<Map<String, Object>>> getHistoricalData(List<String> symbols, String startDate, String endDate) {
+    public Map<String, BarSeries> getHistoricalBars(List<String> symbols, String startDate, String endDate) {
         try {
-            // 建立請求體
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("symbols", symbols);
-            requestBody.put("start_date", startDate);
-            requestBody.put("end_date", endDate);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            // 使用新的歷史資料端點
-            String url = dataProviderUrl + "/api/historical";
-            log.info("向 Data Provider 請求歷史資料: {}", url);
-            log.debug("請求參數: symbols={}, start_date={}, end_date={}", symbols, startDate, endDate);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.POST, entity, String.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                // 解析回應
-                JsonNode jsonNode = objectMapper.readTree(response.getBody());
-                Map<String, List<Map<String, Object>>> result = new HashMap<>();
-                
+            int fromDay = TradingCalendar.toEpochDay(startDate);
+            int toDay = TradingCalendar.toEpochDay(endDate);
+
+            // 查詢快取與封存，缺少的區間扣除其他請求進行中的部分後登記為本請求負責的區間
+            Map<String, BarSeries> bars = new LinkedHashMap<>();
+            List<InFlightRange> claimed = new ArrayList<>();
+            List<AwaitedRange> awaited = new ArrayList<>();
+            List<FetchChunk> chunks;
+            Set<String> failedSymbols = null;
+            // 一登記區間就進入 try，任何例外都會移除已登記的區間並通知等待者
+            try {
                 for (String symbol : symbols) {
-                    List<Map<String, Object>> stockData = new ArrayList<>();
-                    JsonNode symbolData = jsonNode.get(symbol);
-                    
-                    if (symbolData != null && symbolData.isArray()) {
-                        for (JsonNode dataPoint : symbolData) {
-                            Map<String, Object> point = new HashMap<>();
-                            point.put("date", dataPoint.get("date").asText());
-                            point.put("close", dataPoint.get("close").asDouble());
-                            point.put("ts", dataPoint.get("ts").asLong());
-                            stockData.add(point);
+                    BarLookup lookup = historicalBarCache.lookup(symbol, fromDay, toDay);
+                    BarSeries series = lookup.getBars();
+                    for (int[] range : lookup.getMissingRanges()) {
+                        BarLookup archived = barArchive.lookup(symbol, range[0], range[1]);
+                        // 封存涵蓋的區間即使沒有 K 棒（連假、上市前）也已確認，一併記錄到快取
+                        for (int[] covered : complement(range, archived.getMissingRanges())) {
+                            historicalBarCache.store(symbol, covered[0], covered[1], archived.getBars(), true);
+                        }
+                        series = BarSeries.merge(series, archived.getBars());
+                        for (int[] missing : archived.getMissingRanges()) {
+                            claimRange(symbol, missing[0], missing[1], claimed, awaited);
                         }
                     }
-                    result.put(symbol, stockData);
+                    bars.put(symbol, series);
+                }
+
+                // 相同區間的股票合併成一次請求
+                Map<Long, List<String>> symbolsByMissingRange = new LinkedHashMap<>();
+                for (InFlightRange range : claimed) {
+                    symbolsByMissingRange.computeIfAbsent(
+                            HistoricalFetchPlanner.rangeKey(range.fromDay, range.toDay), key -> new ArrayList<>())
+                            .add(range.symbol);
+                }
+                chunks = HistoricalFetchPlanner.plan(symbolsByMissingRange, maxSymbolsPerChunk, maxDaysPerChunk);
+                failedSymbols = fetchChunks(chunks, bars, false);
+            } finally {
+                releaseRanges(claimed, bars, failedSymbols);
+            }
+
+            // 等待其他請求進行中的區間，對方失敗或逾時的部分自行請求
+            if (!awaited.isEmpty()) {
+                log.info("與進行中的請求共用 {} 個股票區間的歷史資料", awaited.size());
+                Map<Long, List<String>> symbolsByFailedRange = new LinkedHashMap<>();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTimeoutMillis);
+                for (AwaitedRange range : awaited) {
+                    String symbol = range.source.symbol;
+                    BarSeries shared;
+                    try {
+                        long remaining = Math.max(0, deadline - System.nanoTime());
+                        shared = range.source.result.get(remaining, TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException e) {
+                        log.warn("等待進行中的請求取得 {} 的歷史資料逾時，改為自行請求", symbol);
+                        shared = null;
+                    }
+                    if (shared == null) {
+                        long rangeKey = HistoricalFetchPlanner.rangeKey(range.fromDay, range.toDay);
+                        symbolsByFailedRange.computeIfAbsent(rangeKey, key -> new ArrayList<>()).add(symbol);
+                    } else {
+                        bars.put(symbol, BarSeries.merge(bars.get(symbol), shared.slice(range.fromDay, range.toDay)));
+                    }
+                }
+                if (!symbolsByFailedRange.isEmpty()) {
+                    List<FetchChunk> retryChunks = HistoricalFetchPlanner.plan(
+                            symbolsByFailedRange, maxSymbolsPerChunk, maxDaysPerChunk);
+                    failedSymbols = new LinkedHashSet<>(failedSymbols);
+                    failedSymbols.addAll(fetchChunks(retryChunks, bars, false));
+                    chunks = new ArrayList<>(chunks);
+                    chunks.addAll(retryChunks);
                 }
-                
-                log.info("成功從 Data Provider 取得資料，股票數量: {}", symbols.size());
-                return result;
-            } else {
-                log.error("Data Provider 回應錯誤，狀態碼: {}", response.getStatusCode());
-                throw new RuntimeException("Data Provider 回應錯誤: " + response.getStatusCode());
             }
 
+            if (!failedSymbols.isEmpty()) {
+                bars.keySet().removeAll(failedSymbols);
+                log.warn("無法取得部分股票的歷史資料: {}", failedSymbols);
+                if (bars.isEmpty()) {
+                    throw new RuntimeException("所有股票皆無法取得歷史資料: " + failedSymbols);
+                }
+            }
+
+            log.info("取得歷史資料完成，股票數量: {}，向 Data Provider 請求區塊數: {}",
+                     bars.size(), chunks.size());
+            return bars;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("取得歷史資料失敗: 已中斷");
         } catch (Exception e) {
             log.error("從 Data Provider 取得資料時發生錯誤: {}", e.getMessage(), e);
             throw new RuntimeException("取得歷史資料失敗: " + e.getMessage());
         }
     }
+
+    /**
+     * 取得多支股票的分 K（每分鐘一根）
+     * 資料量約為日 K 的 270 倍，不經過以交易日為單位的記憶體快取與磁碟封存，避免擠掉日 K；
+     * 請求以較短的日曆天數分塊，失敗處理與 {@link #getHistoricalBars} 相同。
+     */
+    public Map<String, BarSeries> getIntradayBars(List<String> symbols, String startDate, String endDate) {
+        try {
+            int fromDay = TradingCalendar.toEpochDay(startDate);
+            int toDay = TradingCalendar.toEpochDay(endDate);
+
+            Map<String, BarSeries> bars = new LinkedHashMap<>();
+            for (String symbol : symbols) {
+                bars.put(symbol, BarSeries.EMPTY);
+            }
+            Map<Long, List<String>> symbolsByRange = new LinkedHashMap<>();
+            symbolsByRange.put(HistoricalFetchPlanner.rangeKey(fromDay, toDay), new ArrayList<>(bars.keySet()));
+
+            List<FetchChunk> chunks = HistoricalFetchPlanner.plan(
+                    symbolsByRange, maxSymbolsPerChunk, maxDaysPerIntradayChunk);
+            Set<String> failedSymbols = fetchChunks(chunks, bars, true);
+            if (!failedSymbols.isEmpty()) {
+                bars.keySet().removeAll(failedSymbols);
+                log.warn("無法取得部分股票的分 K 資料: {}", failedSymbols);
+                if (bars.isEmpty()) {
+                    throw new RuntimeException("所有股票皆無法取得分 K 資料: " + failedSymbols);
+                }
+            }
+
+            log.info("取得分 K 資料完成，股票數量: {}，向 Data Provider 請求區塊數: {}",
+                     bars.size(), chunks.size());
+            return bars;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("取得分 K 資料失敗: 已中斷");
+        } catch (Exception e) {
+            log.error("從 Data Provider 取得分 K 資料時發生錯誤: {}", e.getMessage(), e);
+            throw new RuntimeException("取得分 K 資料失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 在專用執行緒池上平行請求各區塊，成功的結果寫入快取、封存與 bars（分 K 只寫入 bars）；
+     * 失敗、或回應中缺少的股票只重試該部分，回傳重試後仍無法取得的股票
+     */
+    private Set<String> fetchChunks(List<FetchChunk> chunks, Map<String, BarSeries> bars, boolean intraday)
+            throws InterruptedException {
+        List<FetchChunk> pending = chunks;
+        // Data Provider 對失敗的股票回傳空陣列，最後一次仍為空時只在整支股票都沒有資料時視為缺少
+        Set<String> emptySymbols = new LinkedHashSet<>();
+        for (int attempt = 1; attempt <= maxAttempts && !pending.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                log.info("重試 {} 個歷史資料區塊（第 {} 次）", pending.size(), attempt);
+                Thread.sleep(retryBackoffMillis * (attempt - 1));
+            }
+
+            List<Future<Map<String, BarSeries>>> futures = new ArrayList<>(pending.size());
+            try {
+                for (FetchChunk chunk : pending) {
+                    String from = TradingCalendar.toDateString(chunk.getFromDay());
+                    String to = TradingCalendar.toDateString(chunk.getToDay());
+                    futures.add(historicalFetchExecutor.submit(() -> intraday
+                            ? fetchIntradayBars(chunk.getSymbols(), from, to)
+                            : fetchHistoricalBars(chunk.getSymbols(), from, to)));
+                }
+
+                List<FetchChunk> failed = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    FetchChunk chunk = pending.get(i);
+                    Map<String, BarSeries> fetched;
+                    try {
+                        fetched = futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause() == null ? e : e.getCause();
+                        log.warn("取得歷史資料區塊 {} 失敗: {}", chunk, cause.getMessage());
+                        failed.add(chunk);
+                        continue;
+                    }
+
+                    List<String> retry = new ArrayList<>();
+                    for (String symbol : chunk.getSymbols()) {
+                        BarSeries series = fetched.get(symbol);
+                        boolean suspect = series != null && series.isEmpty()
+                                && !TradingCalendar.isWeekendOnly(chunk.getFromDay(), chunk.getToDay());
+                        if (series == null || (suspect && attempt < maxAttempts)) {
+                            retry.add(symbol);
+                            continue;
+                        }
+                        if (suspect) {
+                            emptySymbols.add(symbol);
+                        }
+                        if (!intraday) {
+                            // 重試用完仍為空的過去區間（連假、上市前）也記錄為已查詢，之後的請求不再重抓
+                            historicalBarCache.store(symbol, chunk.getFromDay(), chunk.getToDay(), series, suspect);
+                            barArchive.store(symbol, chunk.getFromDay(), chunk.getToDay(), series, suspect);
+                        }
+                        bars.put(symbol, BarSeries.merge(bars.get(symbol), series));
+                    }
+                    if (!retry.isEmpty()) {
+                        failed.add(chunk.withSymbols(retry));
+                    }
+                }
+                pending = failed;
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e;
+            }
+        }
+
+        Set<String> missing = new LinkedHashSet<>();
+        for (FetchChunk chunk : pending) {
+            missing.addAll(chunk.getSymbols());
+        }
+        for (String symbol : emptySymbols) {
+            if (bars.get(symbol).isEmpty()) {
+                missing.add(symbol);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 向 Data Provider 請求多支股票的歷史資料（使用non-blocking kbar API）
+     * 回應以串流方式解析，不先讀成字串或 JsonNode 樹
+     */
+    Map<String, BarSeries> fetchHistoricalBars(List<String> symbols, String startDate, String endDate) {
+        return fetchBars(symbols, startDate, endDate, false);
+    }
+
+    /**
+     * 向 Data Provider 請求多支股票的分 K（resolution = "1Min"）
+     */
+    Map<String, BarSeries> fetchIntradayBars(List<String> symbols, String startDate, String endDate) {
+        return fetchBars(symbols, startDate, endDate, true);
+    }
+
+    private Map<String, BarSeries> fetchBars(List<String> symbols, String startDate, String endDate,
+                                             boolean intraday) {
+        // 建立請求體
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("symbols", symbols);
+        requestBody.put("start_date", startDate);
+        requestBody.put("end_date", endDate);
+        if (intraday) {
+            requestBody.put("resolution", "1Min");
+        }
+
+        // 使用新的歷史資料端點
+        String url = dataProviderUrl + "/api/historical";
+        log.info("向 Data Provider 請求歷史資料: {}", url);
+        log.debug("請求參數: symbols={}, start_date={}, end_date={}", symbols, startDate, endDate);
+
+        Map<String, BarSeries> result = restTemplate.execute(url, HttpMethod.POST,
+            request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                objectMapper.writeValue(request.getBody(), requestBody);
+            },
+            response -> {
+                if (response.getStatusCode() != HttpStatus.OK) {
+                    log.error("Data Provider 回應錯誤，狀態碼: {}", response.getStatusCode());
+                    throw new RuntimeException("Data Provider 回應錯誤: " + response.getStatusCode());
+                }
+                return HistoricalBarParser.parse(objectMapper.getFactory(), response.getBody(), symbols, intraday);
+            });
+
+        log.info("成功從 Data Provider 取得資料，股票數量: {}", symbols.size());
+        return result == null ? Collections.emptyMap() : result;
+    }
+
+    /**
+     * 登記 [fromDay, toDay]：與進行中區間重疊的部分加入 awaited，其餘部分登記為本請求負責並加入 claimed
+     */
+    private void claimRange(String symbol, int fromDay, int toDay,
+                            List<InFlightRange> claimed, List<AwaitedRange> awaited) {
+        synchronized (inFlightRanges) {
+            List<InFlightRange> active = inFlightRanges.computeIfAbsent(symbol, key -> new ArrayList<>());
+            List<int[]> overlaps = new ArrayList<>();
+            for (InFlightRange range : active) {
+                int from = Math.max(fromDay, range.fromDay);
+                int to = Math.min(toDay, range.toDay);
+                if (from <= to) {
+                    overlaps.add(new int[]{from, to});
+                    awaited.add(new AwaitedRange(range, from, to));
+                }
+            }
+            overlaps.sort(Comparator.comparingInt(overlap -> overlap[0]));
+            for (int[] gap : complement(new int[]{fromDay, toDay}, overlaps)) {
+                InFlightRange range = new InFlightRange(symbol, gap[0], gap[1]);
+                active.add(range);
+                claimed.add(range);
+            }
+        }
+    }
+
+    /**
+     * 移除本請求負責的區間並通知等待者；失敗的股票通知 null，由等待者自行請求
+     * failedSymbols 為 null 表示請求中途拋出例外（bars 不完整），所有區間皆通知 null
+     * 成功的資料已先寫入快取，移除後才開始的請求可直接由快取取得
+     */
+    private void releaseRanges(List<InFlightRange> claimed, Map<String, BarSeries> bars, Set<String> failedSymbols) {
+        synchronized (inFlightRanges) {
+            for (InFlightRange range : claimed) {
+                List<InFlightRange> active = inFlightRanges.get(range.symbol);
+                if (active != null && active.remove(range) && active.isEmpty()) {
+                    inFlightRanges.remove(range.symbol);
+                }
+            }
+        }
+        for (InFlightRange range : claimed) {
+            BarSeries series = failedSymbols == null || failedSymbols.contains(range.symbol)
+                    ? null : bars.get(range.symbol);
+            range.result.complete(series == null ? null : series.slice(range.fromDay, range.toDay));
+        }
+    }
+
+    /**
+     * range 扣除 missing 後剩下的區間（missing 需已排序且落在 range 內）
+     */
+    private static List<int[]> complement(int[] range, List<int[]> missing) {
+        List<int[]> covered = new ArrayList<>();
+        int cursor = range[0];
+        for (int[] gap : missing) {
+            if (gap[0] > cursor) {
+                covered.add(new int[]{cursor, gap[0] - 1});
+            }
+            cursor = Math.max(cursor, gap[1] + 1);
+        }
+        if (cursor <= range[1]) {
+            covered.add(new int[]{cursor, range[1]});
+        }
+        return covered;
+    }
+
+    /**
+     * 某個請求負責向 Data Provider 取得的股票區間，完成時以該區間的 K 棒（失敗時為 null）通知等待者
+     */
+    private static final class InFlightRange {
+        private final String symbol;
+        private final int fromDay;
+        private final int toDay;
+        private final CompletableFuture<BarSeries> result = new CompletableFuture<>();
+
+        private InFlightRange(String symbol, int fromDay, int toDay) {
+            this.symbol = symbol;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+    }
+
+    /**
+     * 等待其他請求的區間中與本請求重疊的部分
+     */
+    private static final class AwaitedRange {
+        private final InFlightRange source;
+        private final int fromDay;
+        private final int toDay;
+
+        private AwaitedRange(InFlightRange source, int fromDay, int toDay) {
+            this.source = source;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+    }
 }
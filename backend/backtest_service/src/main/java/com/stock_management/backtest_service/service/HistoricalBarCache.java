@@ -0,0 +1,235 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarLookup;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 歷史 K 棒快取，以股票代號與交易日為鍵
+ * 每支股票記錄已向 Data Provider 查詢過的交易日區間，只補抓缺少的區間。
+ * 今日（台北時區）以前的交易日資料不會再變動，查詢過即永久有效；今日（含）之後的資料在 TTL 後失效。
+ * 總 K 棒數超過上限時依 LRU 淘汰整支股票。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HistoricalBarCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${backtest.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${backtest.cache.max-bars:2000000}")
+    private long maxBars;
+
+    @Value("${backtest.cache.volatile-ttl-seconds:300}")
+    private long volatileTtlSeconds;
+
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBars;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("backtest.bar.cache.bars", this, cache -> cache.totalBars)
+                .description("快取中的 K 棒數量")
+                .register(meterRegistry);
+        Gauge.builder("backtest.bar.cache.symbols", this, cache -> cache.entries.size())
+                .description("快取中的股票數量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查詢快取：回傳區間內已快取的 K 棒，以及尚未查詢過的交易日區間
+     */
+    public synchronized BarLookup lookup(String symbol, int fromDay, int toDay) {
+        CacheEntry entry = enabled ? entries.get(symbol) : null;
+        if (entry != null) {
+            expireVolatileRange(entry);
+        }
+
+        List<int[]> missing = entry == null
+                ? Collections.singletonList(new int[]{fromDay, toDay})
+                : entry.coverage.missing(fromDay, toDay);
+        BarSeries cached = entry == null ? BarSeries.EMPTY : entry.bars.slice(fromDay, toDay);
+
+        meterRegistry.counter("backtest.bar.cache.requests", "result", missing.isEmpty() ? "hit" : "miss")
+                .increment();
+        return new BarLookup(cached, missing);
+    }
+
+    /**
+     * 寫入向 Data Provider 取得的 [fromDay, toDay] 區間資料
+     */
+    public void store(String symbol, int fromDay, int toDay, BarSeries fetched) {
+        store(symbol, fromDay, toDay, fetched, false);
+    }
+
+    /**
+     * 寫入向 Data Provider 取得的 [fromDay, toDay] 區間資料
+     *
+     * @param retriesExhausted 重試次數已用完，空結果視為區間內確實沒有交易
+     */
+    public synchronized void store(String symbol, int fromDay, int toDay, BarSeries fetched,
+                                   boolean retriesExhausted) {
+        if (!enabled) {
+            return;
+        }
+        // Data Provider 對失敗的股票回傳空陣列，無法與「區間內沒有交易」區分；
+        // 因此空結果只在區間完全落在週末、或重試用完仍為空時才記錄為已查詢。
+        // 後者多為連假或上市前的區間，只記錄今日以前的部分，今日以後仍可能補上資料
+        if (fetched.isEmpty() && !TradingCalendar.isWeekendOnly(fromDay, toDay)) {
+            if (!retriesExhausted) {
+                return;
+            }
+            toDay = Math.min(toDay, TradingCalendar.today() - 1);
+            if (fromDay > toDay) {
+                return;
+            }
+        }
+
+        CacheEntry entry = entries.get(symbol);
+        if (entry == null) {
+            entry = new CacheEntry();
+            entries.put(symbol, entry);
+        }
+
+        int today = TradingCalendar.today();
+        long before = entry.bars.size();
+        entry.bars = BarSeries.merge(entry.bars, fetched.slice(fromDay, toDay));
+        totalBars += entry.bars.size() - before;
+
+        if (fromDay < today) {
+            entry.coverage.add(fromDay, Math.min(toDay, today - 1));
+        }
+        if (toDay >= today) {
+            // 今日（含）之後的資料仍可能變動，只在 TTL 內有效
+            int volatileFrom = Math.max(fromDay, today);
+            entry.coverage.add(volatileFrom, toDay);
+            if (entry.volatileCoverage == null) {
+                entry.volatileCoverage = new int[]{volatileFrom, toDay};
+                entry.volatileExpiresAt = System.currentTimeMillis() + volatileTtlSeconds * 1000;
+            } else {
+                // 保留較早的到期時間，避免延長既有資料的有效期
+                entry.volatileCoverage[0] = Math.min(entry.volatileCoverage[0], volatileFrom);
+                entry.volatileCoverage[1] = Math.max(entry.volatileCoverage[1], toDay);
+            }
+        }
+
+        evictIfNecessary();
+    }
+
+    public synchronized long getTotalBars() {
+        return totalBars;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBars = 0;
+    }
+
+    private void expireVolatileRange(CacheEntry entry) {
+        if (entry.volatileCoverage == null || System.currentTimeMillis() < entry.volatileExpiresAt) {
+            return;
+        }
+        int volatileFrom = entry.volatileCoverage[0];
+        long before = entry.bars.size();
+        entry.bars = entry.bars.truncateFrom(volatileFrom);
+        totalBars -= before - entry.bars.size();
+        entry.coverage.remove(volatileFrom, entry.volatileCoverage[1]);
+        entry.volatileCoverage = null;
+    }
+
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (totalBars > maxBars && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iterator.next();
+            totalBars -= eldest.getValue().bars.size();
+            iterator.remove();
+            meterRegistry.counter("backtest.bar.cache.evictions").increment();
+            log.debug("K 棒快取超過上限，淘汰股票 {}", eldest.getKey());
+        }
+    }
+
+    private static final class CacheEntry {
+        private BarSeries bars = BarSeries.EMPTY;
+        private final DayCoverage coverage = new DayCoverage();
+        private int[] volatileCoverage;
+        private long volatileExpiresAt;
+    }
+
+    /**
+     * 已查詢交易日區間的集合，以排序且不重疊的閉區間表示
+     */
+    private static final class DayCoverage {
+
+        private final TreeMap<Integer, Integer> ranges = new TreeMap<>();
+
+        void add(int from, int to) {
+            Map.Entry<Integer, Integer> floor = ranges.floorEntry(from);
+            if (floor != null && floor.getValue() >= from - 1) {
+                from = floor.getKey();
+                to = Math.max(to, floor.getValue());
+            }
+            Map.Entry<Integer, Integer> next = ranges.ceilingEntry(from);
+            while (next != null && next.getKey() <= to + 1) {
+                to = Math.max(to, next.getValue());
+                ranges.remove(next.getKey());
+                next = ranges.ceilingEntry(from);
+            }
+            ranges.put(from, to);
+        }
+
+        void remove(int from, int to) {
+            List<int[]> kept = new ArrayList<>();
+            Iterator<Map.Entry<Integer, Integer>> iterator = ranges.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, Integer> range = iterator.next();
+                if (range.getValue() < from || range.getKey() > to) {
+                    continue;
+                }
+                iterator.remove();
+                if (range.getKey() < from) {
+                    kept.add(new int[]{range.getKey(), from - 1});
+                }
+                if (range.getValue() > to) {
+                    kept.add(new int[]{to + 1, range.getValue()});
+                }
+            }
+            for (int[] range : kept) {
+                ranges.put(range[0], range[1]);
+            }
+        }
+
+        List<int[]> missing(int from, int to) {
+            List<int[]> missing = new ArrayList<>();
+            int cursor = from;
+            Map.Entry<Integer, Integer> floor = ranges.floorEntry(from);
+            if (floor != null && floor.getValue() >= from) {
+                cursor = floor.getValue() + 1;
+            }
+            for (Map.Entry<Integer, Integer> range : ranges.tailMap(from, false).entrySet()) {
+                if (cursor > to || range.getKey() > to) {
+                    break;
+                }
+                if (range.getKey() > cursor) {
+                    missing.add(new int[]{cursor, range.getKey() - 1});
+                }
+                cursor = Math.max(cursor, range.getValue() + 1);
+            }
+            if (cursor <= to) {
+                missing.add(new int[]{cursor, to});
+            }
+            return missing;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.stock_management.backtest_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * 以串流方式解析 Data Provider /api/historical 的回應
+ * 逐個 token 讀取並直接寫入每支股票的 BarSeries，不建立 JsonNode 樹或逐筆的 Map，
+ * 記憶體用量只與輸出的欄位陣列成正比。
+ *
+ * <pre>
+ * { "2330": [ { "date": "2025-07-01", "ts": 1751328000, "open": 1000.0, "high": 1010.0,
+ *               "low": 995.0, "close": 1005.0, "volume": 25000 }, ... ], ... }
+ * </pre>
+ *
+ * 分 K 回應格式相同，每個交易日有多筆資料，以 ts 排序與去除重複。
+ */
+final class HistoricalBarParser {
+
+    private HistoricalBarParser() {
+    }
+
+    /**
+     * 解析回應串流，只保留請求的股票；不在請求中的股票與未知欄位直接略過
+     */
+    static Map<String, BarSeries> parse(JsonFactory jsonFactory, InputStream body,
+                                        Collection<String> symbols) throws IOException {
+        return parse(jsonFactory, body, symbols, false);
+    }
+
+    /**
+     * @param intraday 是否為分 K 回應（同一交易日保留每一根 K 棒）
+     */
+    static Map<String, BarSeries> parse(JsonFactory jsonFactory, InputStream body,
+                                        Collection<String> symbols, boolean intraday) throws IOException {
+        Set<String> requested = new HashSet<>(symbols);
+        Map<String, BarSeries> result = new HashMap<>();
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Data Provider 回應格式錯誤，預期為 JSON 物件");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String symbol = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value != JsonToken.START_ARRAY || !requested.contains(symbol)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                result.put(symbol, parseBars(parser, intraday));
+            }
+        }
+        return result;
+    }
+
+    private static BarSeries parseBars(JsonParser parser, boolean intraday) throws IOException {
+        BarSeries.Builder builder = intraday ? BarSeries.intradayBuilder(4096) : BarSeries.builder(256);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String date = null;
+            long timestamp = 0;
+            long volume = 0;
+            double open = Double.NaN;
+            double high = Double.NaN;
+            double low = Double.NaN;
+            double close = Double.NaN;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "date" -> date = parser.getValueAsString();
+                    case "ts" -> timestamp = parser.getValueAsLong();
+                    case "open" -> open = numberOf(parser, token);
+                    case "high" -> high = numberOf(parser, token);
+                    case "low" -> low = numberOf(parser, token);
+                    case "close" -> close = numberOf(parser, token);
+                    case "volume" -> volume = parser.getValueAsLong();
+                    default -> parser.skipChildren();
+                }
+            }
+
+            // 缺少日期或收盤價的資料點無法放上日期軸，直接略過
+            if (date != null && !Double.isNaN(close)) {
+                builder.add(TradingCalendar.toEpochDay(date), timestamp, open, high, low, close, volume);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Data Provider 在缺少價格時回傳 null，以 NaN 表示
+     */
+    private static double numberOf(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? Double.NaN : parser.getValueAsDouble(Double.NaN);
+    }
+}
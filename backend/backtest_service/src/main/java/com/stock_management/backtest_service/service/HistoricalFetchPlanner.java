@@ -0,0 +1,88 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.TradingCalendar;
+
+import java.util.*;
+
+/**
+ * 將向 Data Provider 的歷史資料請求切成有上限的區塊
+ * 每個區塊的股票數與交易日跨度都不超過設定值，讓單一慢速或失敗的股票只影響所在的區塊，
+ * 區塊可平行請求、失敗時只需重試該區塊。
+ */
+final class HistoricalFetchPlanner {
+
+    private HistoricalFetchPlanner() {
+    }
+
+    /**
+     * @param symbolsByRange 各交易日區間需要請求的股票，鍵值由 {@link #rangeKey(int, int)} 產生
+     * @param maxSymbols     每個區塊的股票數上限
+     * @param maxDays        每個區塊的日曆天數上限
+     */
+    static List<FetchChunk> plan(Map<Long, List<String>> symbolsByRange, int maxSymbols, int maxDays) {
+        int symbolLimit = Math.max(1, maxSymbols);
+        int dayLimit = Math.max(1, maxDays);
+
+        List<FetchChunk> chunks = new ArrayList<>();
+        for (Map.Entry<Long, List<String>> entry : symbolsByRange.entrySet()) {
+            int fromDay = (int) (entry.getKey() >> 32);
+            int toDay = (int) (long) entry.getKey();
+            List<String> symbols = entry.getValue();
+            for (int windowFrom = fromDay; windowFrom <= toDay; windowFrom += dayLimit) {
+                int windowTo = (int) Math.min((long) windowFrom + dayLimit - 1, toDay);
+                for (int start = 0; start < symbols.size(); start += symbolLimit) {
+                    List<String> group = symbols.subList(start, Math.min(start + symbolLimit, symbols.size()));
+                    chunks.add(new FetchChunk(new ArrayList<>(group), windowFrom, windowTo));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 交易日區間 [fromDay, toDay] 的分組鍵值
+     */
+    static long rangeKey(int fromDay, int toDay) {
+        return ((long) fromDay << 32) | (toDay & 0xffffffffL);
+    }
+
+    /**
+     * 一次向 Data Provider 請求的股票與交易日區間
+     */
+    static final class FetchChunk {
+
+        private final List<String> symbols;
+        private final int fromDay;
+        private final int toDay;
+
+        FetchChunk(List<String> symbols, int fromDay, int toDay) {
+            this.symbols = symbols;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        List<String> getSymbols() {
+            return symbols;
+        }
+
+        int getFromDay() {
+            return fromDay;
+        }
+
+        int getToDay() {
+            return toDay;
+        }
+
+        /**
+         * 相同區間、只包含部分股票的區塊（用於重試）
+         */
+        FetchChunk withSymbols(List<String> retained) {
+            return new FetchChunk(retained, fromDay, toDay);
+        }
+
+        @Override
+        public String toString() {
+            return symbols + " " + TradingCalendar.toDateString(fromDay) + "~" + TradingCalendar.toDateString(toDay);
+        }
+    }
+}
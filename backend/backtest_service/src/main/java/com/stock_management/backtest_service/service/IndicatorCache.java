@@ -0,0 +1,89 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.IndicatorMemo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 技術指標序列快取，以 (股票, 指標, 參數, K 棒區間) 為鍵
+ * 批次回測的參數掃描與不同請求之間共用已計算的序列；總數值個數超過上限時依 LRU 淘汰。
+ * 計算期間不持有鎖，組合指標可在計算中再查詢組成序列；同一個鍵同時計算時保留先完成的結果。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndicatorCache implements IndicatorMemo {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${backtest.indicator-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${backtest.indicator-cache.max-values:5000000}")
+    private long maxValues = 5_000_000;
+
+    private final LinkedHashMap<String, double[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalValues;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("backtest.indicator.cache.values", this, IndicatorCache::getTotalValues)
+                .description("快取中的指標數值個數")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public double[] get(String key, Supplier<double[]> compute) {
+        if (!enabled) {
+            return compute.get();
+        }
+        synchronized (this) {
+            double[] cached = entries.get(key);
+            if (cached != null) {
+                meterRegistry.counter("backtest.indicator.cache.requests", "result", "hit").increment();
+                return cached;
+            }
+        }
+        meterRegistry.counter("backtest.indicator.cache.requests", "result", "miss").increment();
+
+        double[] values = compute.get();
+        synchronized (this) {
+            double[] existing = entries.putIfAbsent(key, values);
+            if (existing != null) {
+                return existing;
+            }
+            totalValues += values.length;
+            evictIfNecessary();
+        }
+        return values;
+    }
+
+    public synchronized long getTotalValues() {
+        return totalValues;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalValues = 0;
+    }
+
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, double[]>> iterator = entries.entrySet().iterator();
+        while (totalValues > maxValues && iterator.hasNext()) {
+            Map.Entry<String, double[]> eldest = iterator.next();
+            totalValues -= eldest.getValue().length;
+            iterator.remove();
+            log.debug("指標快取超過上限，淘汰 {}", eldest.getKey());
+        }
+    }
+}
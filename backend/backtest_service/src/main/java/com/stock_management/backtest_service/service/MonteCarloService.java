@@ -0,0 +1,170 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto;
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto.ResamplingMethod;
+import com.stock_management.backtest_service.dto.MonteCarloResponseDto;
+import com.stock_management.backtest_service.dto.MonteCarloResponseDto.Distribution;
+import com.stock_management.backtest_service.engine.FixedPoint;
+import com.stock_management.backtest_service.engine.MonteCarloSimulator;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.TradeSchedule;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MonteCarloService {
+
+    static final int DEFAULT_PATHS = 1000;
+    static final int DEFAULT_BLOCK_SIZE = 20;
+    // 每個平行工作負責的路徑數；固定值讓同一個種子在不同核心數下得到相同結果
+    private static final int PATHS_PER_TASK = 256;
+
+    private final BacktestService backtestService;
+    private final ForkJoinPool backtestBatchPool;
+
+    /**
+     * 執行蒙地卡羅重抽樣回測
+     * 股價資料只取得一次，路徑分段後在 ForkJoinPool 上平行模擬，每段使用獨立分出的亂數產生器
+     */
+    public MonteCarloResponseDto performMonteCarlo(MonteCarloRequestDto request) {
+        try {
+            ResamplingMethod method = request.getMethod() != null ? request.getMethod() : ResamplingMethod.BLOCK_BOOTSTRAP;
+            int paths = request.getPaths() != null ? request.getPaths() : DEFAULT_PATHS;
+            int blockSize = request.getBlockSize() != null ? request.getBlockSize() : DEFAULT_BLOCK_SIZE;
+            long seed = request.getSeed() != null ? request.getSeed() : ThreadLocalRandom.current().nextLong();
+            if (paths < 1) {
+                throw new IllegalArgumentException("模擬路徑數至少為 1");
+            }
+            if (blockSize < 1) {
+                throw new IllegalArgumentException("區塊長度至少為 1");
+            }
+            log.info("開始執行蒙地卡羅回測，股票: {}, 期間: {} 到 {}, 方法: {}, 路徑數: {}",
+                     request.getSymbols(), request.getStartDate(), request.getEndDate(), method, paths);
+
+            PriceMatrix priceMatrix = backtestService.loadPriceMatrix(
+                    request.getSymbols(), request.getStartDate(), request.getEndDate());
+            if (priceMatrix.getDayCount() == 0) {
+                throw new IllegalStateException("查詢期間內沒有股價資料");
+            }
+
+            String[] slotSymbols = backtestService.resolveSlotSymbols(request.getSymbols(), priceMatrix);
+            int[] columns = new int[slotSymbols.length];
+            Map<String, Integer> slotIndex = new HashMap<>(slotSymbols.length * 2);
+            for (int slot = 0; slot < slotSymbols.length; slot++) {
+                columns[slot] = priceMatrix.indexOfSymbol(slotSymbols[slot]);
+                slotIndex.put(slotSymbols[slot], slot);
+            }
+            TradeSchedule schedule = TradeSchedule.compile(request.getTradeActions(), priceMatrix, slotIndex);
+            MonteCarloSimulator simulator = new MonteCarloSimulator(priceMatrix, columns, schedule,
+                    FixedPoint.fromBigDecimal(request.getInitialCapital()),
+                    backtestService.resolveCostModel(request.getTradingCosts()), method, blockSize);
+
+            double[] finalValues = new double[paths];
+            double[] sharpeRatios = new double[paths];
+            double[] maxDrawdowns = new double[paths];
+            SplittableRandom root = new SplittableRandom(seed);
+            List<Callable<Void>> tasks = new ArrayList<>(paths / PATHS_PER_TASK + 1);
+            for (int from = 0; from < paths; from += PATHS_PER_TASK) {
+                int fromPath = from;
+                int toPath = Math.min(paths, from + PATHS_PER_TASK);
+                SplittableRandom random = root.split();
+                tasks.add(() -> {
+                    simulator.simulate(fromPath, toPath, random, simulator.newWorkspace(),
+                            finalValues, sharpeRatios, maxDrawdowns);
+                    return null;
+                });
+            }
+            for (Future<Void> future : backtestBatchPool.invokeAll(tasks)) {
+                future.get();
+            }
+
+            BigDecimal initialCapital = request.getInitialCapital();
+            double initial = initialCapital.doubleValue();
+            long losses = Arrays.stream(finalValues).filter(value -> value < initial).count();
+            for (int path = 0; path < paths; path++) {
+                maxDrawdowns[path] *= 100;
+            }
+
+            MonteCarloResponseDto response = new MonteCarloResponseDto();
+            response.setMethod(method);
+            response.setPaths(paths);
+            response.setSeed(seed);
+            response.setTradingDays(simulator.getDayCount());
+            response.setInitialCapital(initialCapital);
+            response.setFinalValue(summarize(finalValues, 2));
+            response.setAnnualizedSharpeRatio(summarize(sharpeRatios, 4));
+            response.setMaxDrawdown(summarize(maxDrawdowns, 4));
+            response.setProbabilityOfLoss(BigDecimal.valueOf(losses * 100.0 / paths).setScale(2, RoundingMode.HALF_UP));
+            response.setMissingSymbols(backtestService.findMissingSymbols(request.getSymbols(), priceMatrix));
+            response.setTimestamp(LocalDateTime.now());
+            response.setMessage("蒙地卡羅回測執行成功");
+
+            log.info("蒙地卡羅回測執行完成，路徑數: {}, 最終價值中位數: {}", paths, response.getFinalValue().getMedian());
+            return response;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse(e);
+        } catch (Exception e) {
+            log.error("執行蒙地卡羅回測時發生錯誤: {}", e.getMessage(), e);
+            return errorResponse(e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * 計算平均、標準差與最近秩百分位數
+     */
+    static Distribution summarize(double[] values, int scale) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        double mean = 0.0;
+        double m2 = 0.0;
+        for (int i = 0; i < n; i++) {
+            double delta = sorted[i] - mean;
+            mean += delta / (i + 1);
+            m2 += delta * (sorted[i] - mean);
+        }
+
+        Distribution distribution = new Distribution();
+        distribution.setMean(round(mean, scale));
+        distribution.setStdDev(round(n > 1 ? Math.sqrt(m2 / (n - 1)) : 0.0, scale));
+        distribution.setMin(round(sorted[0], scale));
+        distribution.setPercentile5(round(percentile(sorted, 0.05), scale));
+        distribution.setPercentile25(round(percentile(sorted, 0.25), scale));
+        distribution.setMedian(round(percentile(sorted, 0.50), scale));
+        distribution.setPercentile75(round(percentile(sorted, 0.75), scale));
+        distribution.setPercentile95(round(percentile(sorted, 0.95), scale));
+        distribution.setMax(round(sorted[n - 1], scale));
+        return distribution;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    private static BigDecimal round(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    private MonteCarloResponseDto errorResponse(Throwable e) {
+        MonteCarloResponseDto errorResponse = new MonteCarloResponseDto();
+        errorResponse.setTimestamp(LocalDateTime.now());
+        errorResponse.setMessage("蒙地卡羅回測執行失敗: " + e.getMessage());
+        return errorResponse;
+    }
+}
@@ -1,6 +1,11 @@
 package com.stock_management.backtest_service.service;
 
 import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.RiskMetric;
+import com.stock_management.backtest_service.engine.FixedPoint;
+import com.stock_management.backtest_service.engine.PerformanceAccumulator;
+import com.stock_management.backtest_service.engine.RollingWindowStatistics;
+import com.stock_management.backtest_service.engine.SimulationResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -47,6 +52,241 @@ public class PortfolioCalculationService {
         response.setMaxDrawdown(calculateMaxDrawdown(portfolioHistory));
     }
 
+    /**
+     * 計算投資組合回測結果（定點數模式）
+     * 直接使用模擬迴圈產生的原始陣列，不需再走訪 BigDecimal 快照
+     *
+     * @param totalValues  每日總價值（定點數，單位為萬分之一元）
+     * @param dailyReturns 每日報酬率
+     */
+    public void calculateBacktestResult(
+            BacktestResponseDto response,
+            long[] totalValues,
+            double[] dailyReturns,
+            BigDecimal initialCapital) {
+        calculateBacktestResult(response, PerformanceAccumulator.of(totalValues, dailyReturns), initialCapital);
+    }
+
+    /**
+     * 計算投資組合回測結果（使用模擬過程中逐日累加的統計值）
+     * 統計值在最後一個交易日結算時即已完成，這裡只做格式轉換
+     */
+    public void calculateBacktestResult(
+            BacktestResponseDto response,
+            PerformanceAccumulator performance,
+            BigDecimal initialCapital) {
+
+        if (performance.getCount() == 0) {
+            throw new IllegalArgumentException("投資組合歷史資料為空");
+        }
+
+        response.setInitialCapital(initialCapital);
+
+        // 最終價值
+        BigDecimal finalValue = FixedPoint.toBigDecimal(performance.getLastValue());
+        response.setFinalValue(finalValue);
+
+        // 總報酬和報酬率
+        BigDecimal totalReturn = finalValue.subtract(initialCapital);
+        response.setTotalReturn(totalReturn);
+        response.setReturnRate(totalReturn.divide(initialCapital, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+
+        // 交易天數
+        response.setTradingDays(performance.getCount());
+
+        // 年化 Sharpe Ratio
+        response.setAnnualizedSharpeRatio(
+                BigDecimal.valueOf(performance.getAnnualizedSharpeRatio()).setScale(4, RoundingMode.HALF_UP));
+
+        // 最大回撤
+        response.setMaxDrawdown(BigDecimal.valueOf(performance.getMaxDrawdown()).setScale(4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+    }
+
+    /**
+     * 計算額外風險指標
+     * 所有請求的指標在同一個迴圈中對原始陣列走訪一次完成，未請求的指標不計算；
+     * 平均、變異數與最大回撤直接沿用模擬過程中累加的統計值。VaR/CVaR 需要報酬率的分位數，
+     * 只在請求時另外排序一份報酬率複本。
+     *
+     * @param benchmarkReturns 與模擬交易日對齊的基準日報酬率，未請求 Beta 或無法取得時為 null
+     * @param confidenceLevel  VaR/CVaR 信賴水準（0 到 1 之間）
+     */
+    public RiskMetricsDto calculateRiskMetrics(
+            SimulationResult result,
+            Set<RiskMetric> metrics,
+            BigDecimal initialCapital,
+            double[] benchmarkReturns,
+            double confidenceLevel) {
+
+        double[] dailyReturns = result.getDailyReturns();
+        long[] totalValues = result.getTotalValues();
+        long[] tradedValues = result.getTradedValues();
+        PerformanceAccumulator performance = result.getPerformance();
+        int n = dailyReturns.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("投資組合歷史資料為空");
+        }
+
+        boolean sortino = metrics.contains(RiskMetric.SORTINO);
+        boolean drawdownDuration = metrics.contains(RiskMetric.DRAWDOWN_DURATION);
+        boolean winRate = metrics.contains(RiskMetric.WIN_RATE);
+        boolean turnover = metrics.contains(RiskMetric.TURNOVER);
+        boolean beta = metrics.contains(RiskMetric.BETA) && benchmarkReturns != null;
+
+        double downsideSquares = 0.0;
+        int winningDays = 0;
+        long peakValue = 0;
+        int peakDay = 0;
+        int longestDrawdown = 0;
+        double tradedSum = 0.0;
+        double valueSum = 0.0;
+        double benchmarkMean = 0.0;
+        double returnMean = 0.0;
+        double comoment = 0.0;
+        double benchmarkM2 = 0.0;
+
+        for (int day = 0; day < n; day++) {
+            double dailyReturn = dailyReturns[day];
+            if (sortino && dailyReturn < 0) {
+                downsideSquares += dailyReturn * dailyReturn;
+            }
+            if (winRate && dailyReturn > 0) {
+                winningDays++;
+            }
+            if (drawdownDuration) {
+                if (totalValues[day] >= peakValue) {
+                    peakValue = totalValues[day];
+                    peakDay = day;
+                } else {
+                    longestDrawdown = Math.max(longestDrawdown, day - peakDay);
+                }
+            }
+            if (turnover) {
+                tradedSum += tradedValues[day];
+                valueSum += totalValues[day];
+            }
+            if (beta) {
+                // 共變異數與基準變異數的單次更新（Welford）
+                int count = day + 1;
+                double benchmarkReturn = benchmarkReturns[day];
+                double benchmarkDelta = benchmarkReturn - benchmarkMean;
+                benchmarkMean += benchmarkDelta / count;
+                returnMean += (dailyReturn - returnMean) / count;
+                comoment += benchmarkDelta * (dailyReturn - returnMean);
+                benchmarkM2 += benchmarkDelta * (benchmarkReturn - benchmarkMean);
+            }
+        }
+
+        double sqrtYear = Math.sqrt(PerformanceAccumulator.TRADING_DAYS_PER_YEAR);
+        RiskMetricsDto riskMetrics = new RiskMetricsDto();
+
+        if (sortino) {
+            double downsideDeviation = Math.sqrt(downsideSquares / n);
+            double ratio = n < 2 || downsideDeviation == 0.0 ? 0.0
+                    : performance.getMeanReturn() * PerformanceAccumulator.TRADING_DAYS_PER_YEAR
+                      / (downsideDeviation * sqrtYear);
+            riskMetrics.setSortinoRatio(ratio(ratio));
+        }
+        if (metrics.contains(RiskMetric.CALMAR)) {
+            long capital = FixedPoint.fromBigDecimal(initialCapital);
+            double maxDrawdown = performance.getMaxDrawdown();
+            double calmar = 0.0;
+            // 初始資金非正數時無法計算成長倍數，與回撤為 0 一樣回報 0
+            if (capital > 0 && maxDrawdown != 0.0) {
+                double growth = (double) performance.getLastValue() / capital;
+                double annualizedReturn = Math.pow(growth, (double) PerformanceAccumulator.TRADING_DAYS_PER_YEAR / n) - 1;
+                calmar = annualizedReturn / maxDrawdown;
+            }
+            riskMetrics.setCalmarRatio(ratio(calmar));
+        }
+        if (metrics.contains(RiskMetric.VOLATILITY)) {
+            riskMetrics.setAnnualizedVolatility(percent(performance.getStdDev() * sqrtYear));
+        }
+        if (drawdownDuration) {
+            riskMetrics.setMaxDrawdownDuration(longestDrawdown);
+        }
+        if (metrics.contains(RiskMetric.VAR) || metrics.contains(RiskMetric.CVAR)) {
+            double[] sorted = Arrays.copyOf(dailyReturns, n);
+            Arrays.sort(sorted);
+            // 最差的 (1 - 信賴水準) 比例交易日
+            int tail = Math.max(1, (int) Math.ceil((1 - confidenceLevel) * n));
+            if (metrics.contains(RiskMetric.VAR)) {
+                riskMetrics.setValueAtRisk(percent(-sorted[tail - 1]));
+            }
+            if (metrics.contains(RiskMetric.CVAR)) {
+                double tailSum = 0.0;
+                for (int i = 0; i < tail; i++) {
+                    tailSum += sorted[i];
+                }
+                riskMetrics.setConditionalValueAtRisk(percent(-tailSum / tail));
+            }
+        }
+        if (winRate) {
+            riskMetrics.setWinRate(percent((double) winningDays / n));
+        }
+        if (turnover) {
+            double averageValue = valueSum / n;
+            double annualized = averageValue == 0.0 ? 0.0
+                    : tradedSum / averageValue * PerformanceAccumulator.TRADING_DAYS_PER_YEAR / n;
+            riskMetrics.setAnnualizedTurnover(percent(annualized));
+        }
+        if (beta) {
+            riskMetrics.setBeta(ratio(benchmarkM2 == 0.0 ? 0.0 : comoment / benchmarkM2));
+        }
+
+        return riskMetrics;
+    }
+
+    /**
+     * 計算滑動視窗績效序列
+     * 所有視窗在同一次逐日走訪中更新，每個視窗每日的更新成本為攤銷 O(1)，與視窗長度無關
+     *
+     * @param windows 視窗長度（交易日），重複的長度只計算一次
+     */
+    public List<RollingMetricsDto> calculateRollingMetrics(SimulationResult result, List<Integer> windows) {
+        double[] dailyReturns = result.getDailyReturns();
+        long[] totalValues = result.getTotalValues();
+        int n = dailyReturns.length;
+
+        RollingWindowStatistics[] statistics = windows.stream()
+                .distinct()
+                .map(RollingWindowStatistics::new)
+                .toArray(RollingWindowStatistics[]::new);
+        List<RollingMetricsDto> series = new ArrayList<>(statistics.length);
+        for (RollingWindowStatistics window : statistics) {
+            series.add(new RollingMetricsDto(window.getWindow(),
+                    new ArrayList<>(n), new ArrayList<>(n), new ArrayList<>(n)));
+        }
+
+        for (int day = 0; day < n; day++) {
+            for (int i = 0; i < statistics.length; i++) {
+                RollingWindowStatistics window = statistics[i];
+                window.add(totalValues[day], dailyReturns[day]);
+                RollingMetricsDto metrics = series.get(i);
+                if (window.isFull()) {
+                    metrics.getSharpeRatio().add(ratio(window.getAnnualizedSharpeRatio()));
+                    metrics.getVolatility().add(percent(window.getAnnualizedVolatility()));
+                    metrics.getDrawdown().add(percent(window.getDrawdown(totalValues[day])));
+                } else {
+                    metrics.getSharpeRatio().add(null);
+                    metrics.getVolatility().add(null);
+                    metrics.getDrawdown().add(null);
+                }
+            }
+        }
+        return series;
+    }
+
+    private static BigDecimal ratio(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal percent(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+    }
+
     /**
      * 計算年化 Sharpe Ratio
      */
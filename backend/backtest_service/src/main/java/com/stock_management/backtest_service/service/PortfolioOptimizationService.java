@@ -0,0 +1,222 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.PortfolioOptimizationRequestDto;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationRequestDto.OptimizationMethod;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationResponseDto;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationResponseDto.OptimizedPortfolio;
+import com.stock_management.backtest_service.engine.CovarianceEstimator;
+import com.stock_management.backtest_service.engine.PerformanceAccumulator;
+import com.stock_management.backtest_service.engine.PortfolioOptimizer;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioOptimizationService {
+
+    // 權重小於此值視為 0，不列入回應
+    private static final double MIN_REPORTED_WEIGHT = 1e-6;
+
+    private final BacktestService backtestService;
+    private final ForkJoinPool backtestBatchPool;
+
+    @Value("${backtest.optimizer.cache-size:16}")
+    private int cacheSize = 16;
+
+    // 有效日報酬占期間交易日的最低比例，較低的股票（例如期間中途才上市）不納入最佳化
+    @Value("${backtest.optimizer.min-coverage:0.5}")
+    private double minCoverage = 0.5;
+
+    /**
+     * 共變異數估計快取，以 (排序後的股票池, 期間) 為鍵，依 LRU 淘汰
+     * 只快取結束日期在今日以前的期間，今日的股價可能仍在變動
+     */
+    private final LinkedHashMap<String, CachedEstimate> estimates = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 計算股票池的最小變異數、最大 Sharpe 與風險平價權重
+     */
+    public PortfolioOptimizationResponseDto optimize(PortfolioOptimizationRequestDto request) {
+        try {
+            Set<OptimizationMethod> methods = request.getMethods() == null || request.getMethods().isEmpty()
+                    ? EnumSet.allOf(OptimizationMethod.class) : EnumSet.copyOf(request.getMethods());
+            double riskFreeRate = request.getRiskFreeRate() == null ? 0.0 : request.getRiskFreeRate().doubleValue();
+            List<String> universe = request.getSymbols().stream().distinct().sorted().toList();
+            log.info("開始計算投資組合最佳化，股票數: {}, 期間: {} 到 {}, 方法: {}",
+                     universe.size(), request.getStartDate(), request.getEndDate(), methods);
+
+            String key = String.join(",", universe) + "|" + request.getStartDate() + "|" + request.getEndDate();
+            CachedEstimate cachedEstimate = lookup(key);
+            boolean cached = cachedEstimate != null;
+            if (!cached) {
+                cachedEstimate = estimate(universe, request.getStartDate(), request.getEndDate());
+                if (TradingCalendar.toEpochDay(request.getEndDate()) < TradingCalendar.today()) {
+                    store(key, cachedEstimate);
+                }
+            }
+            CovarianceEstimator.Estimate estimate = cachedEstimate.estimate;
+            if (estimate.size() < 2) {
+                throw new IllegalStateException("可估計共變異數的股票少於 2 檔");
+            }
+
+            List<OptimizedPortfolio> portfolios = new ArrayList<>(methods.size());
+            for (OptimizationMethod method : methods) {
+                double[] weights = switch (method) {
+                    case MINIMUM_VARIANCE -> PortfolioOptimizer.minimumVariance(estimate);
+                    case MAXIMUM_SHARPE -> PortfolioOptimizer.maximumSharpe(estimate,
+                            riskFreeRate / PerformanceAccumulator.TRADING_DAYS_PER_YEAR);
+                    case RISK_PARITY -> PortfolioOptimizer.riskParity(estimate);
+                };
+                portfolios.add(toPortfolio(method, estimate, weights, riskFreeRate));
+            }
+
+            PortfolioOptimizationResponseDto response = new PortfolioOptimizationResponseDto();
+            response.setUniverseSize(estimate.size());
+            response.setObservations(estimate.getObservations());
+            response.setPortfolios(portfolios);
+            response.setMissingSymbols(cachedEstimate.missingSymbols);
+            response.setExcludedSymbols(cachedEstimate.excludedSymbols);
+            response.setCached(cached);
+            response.setTimestamp(LocalDateTime.now());
+            response.setMessage("投資組合最佳化執行成功");
+
+            log.info("投資組合最佳化完成，股票數: {}, 共變異數{}", estimate.size(), cached ? "取自快取" : "重新計算");
+            return response;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse(e);
+        } catch (Exception e) {
+            log.error("執行投資組合最佳化時發生錯誤: {}", e.getMessage(), e);
+            return errorResponse(e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * 載入股價並估計共變異數，報酬資料不足（少於 2 個或低於最低比例）或變異數為 0 的股票不納入
+     */
+    private CachedEstimate estimate(List<String> universe, String startDate, String endDate)
+            throws InterruptedException, ExecutionException {
+        PriceMatrix priceMatrix = backtestService.loadPriceMatrix(universe, startDate, endDate);
+        List<String> missingSymbols = backtestService.findMissingSymbols(universe, priceMatrix);
+
+        List<String> included = new ArrayList<>(universe.size());
+        List<String> excluded = new ArrayList<>();
+        // 共變異數逐對以共同交易日計算，有效報酬過少的股票會讓矩陣偏離半正定
+        int minReturns = Math.max(2, (int) Math.ceil(minCoverage * (priceMatrix.getDayCount() - 1)));
+        for (String symbol : universe) {
+            int column = priceMatrix.indexOfSymbol(symbol);
+            if (column < 0) {
+                continue;
+            }
+            if (CovarianceEstimator.countReturns(priceMatrix, column) < minReturns) {
+                excluded.add(symbol);
+            } else {
+                included.add(symbol);
+            }
+        }
+        CovarianceEstimator.Estimate estimate = estimate(priceMatrix, included);
+
+        // 價格從未變動的股票變異數為 0，無法計算風險平價，排除後重新估計
+        List<String> constant = new ArrayList<>();
+        for (int i = 0; i < estimate.size(); i++) {
+            if (!(estimate.getCovariance(i, i) > 0.0)) {
+                constant.add(estimate.getSymbol(i));
+            }
+        }
+        if (!constant.isEmpty()) {
+            excluded.addAll(constant);
+            included.removeAll(constant);
+            estimate = estimate(priceMatrix, included);
+        }
+        if (!excluded.isEmpty()) {
+            log.warn("以下股票報酬資料不足（有效比例低於 {}）或價格無變動，未納入最佳化: {}", minCoverage, excluded);
+        }
+        return new CachedEstimate(estimate, missingSymbols, excluded);
+    }
+
+    private CovarianceEstimator.Estimate estimate(PriceMatrix priceMatrix, List<String> symbols)
+            throws InterruptedException, ExecutionException {
+        int[] columns = symbols.stream().mapToInt(priceMatrix::indexOfSymbol).toArray();
+        return CovarianceEstimator.estimate(priceMatrix, symbols.toArray(new String[0]), columns, backtestBatchPool);
+    }
+
+    private OptimizedPortfolio toPortfolio(OptimizationMethod method, CovarianceEstimator.Estimate estimate,
+                                           double[] weights, double riskFreeRate) {
+        OptimizedPortfolio portfolio = new OptimizedPortfolio();
+        portfolio.setMethod(method);
+        if (weights == null) {
+            portfolio.setMessage("沒有平均報酬高於無風險利率的股票，無法求解最大 Sharpe 投資組合");
+            return portfolio;
+        }
+
+        Integer[] order = new Integer[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(weights[right], weights[left]));
+        Map<String, BigDecimal> weightMap = new LinkedHashMap<>();
+        for (int i : order) {
+            if (weights[i] >= MIN_REPORTED_WEIGHT) {
+                weightMap.put(estimate.getSymbol(i), BigDecimal.valueOf(weights[i]).setScale(6, RoundingMode.HALF_UP));
+            }
+        }
+
+        double[] returnAndVolatility = PortfolioOptimizer.annualizedReturnAndVolatility(estimate, weights);
+        double sharpe = returnAndVolatility[1] > 0.0 ? (returnAndVolatility[0] - riskFreeRate) / returnAndVolatility[1] : 0.0;
+        portfolio.setWeights(weightMap);
+        portfolio.setExpectedReturn(percent(returnAndVolatility[0]));
+        portfolio.setVolatility(percent(returnAndVolatility[1]));
+        portfolio.setSharpeRatio(BigDecimal.valueOf(sharpe).setScale(4, RoundingMode.HALF_UP));
+        return portfolio;
+    }
+
+    private static BigDecimal percent(double ratio) {
+        return BigDecimal.valueOf(ratio * 100).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private synchronized CachedEstimate lookup(String key) {
+        return estimates.get(key);
+    }
+
+    private synchronized void store(String key, CachedEstimate estimate) {
+        estimates.put(key, estimate);
+        Iterator<String> iterator = estimates.keySet().iterator();
+        while (estimates.size() > cacheSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private PortfolioOptimizationResponseDto errorResponse(Throwable e) {
+        PortfolioOptimizationResponseDto errorResponse = new PortfolioOptimizationResponseDto();
+        errorResponse.setTimestamp(LocalDateTime.now());
+        errorResponse.setMessage("投資組合最佳化執行失敗: " + e.getMessage());
+        return errorResponse;
+    }
+
+    private static final class CachedEstimate {
+        private final CovarianceEstimator.Estimate estimate;
+        private final List<String> missingSymbols;
+        private final List<String> excludedSymbols;
+
+        private CachedEstimate(CovarianceEstimator.Estimate estimate, List<String> missingSymbols,
+                               List<String> excludedSymbols) {
+            this.estimate = estimate;
+            this.missingSymbols = missingSymbols;
+            this.excludedSymbols = excludedSymbols;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto.StrategyVariant;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.WalkForwardRequestDto;
+import com.stock_management.backtest_service.dto.WalkForwardRequestDto.Objective;
+import com.stock_management.backtest_service.dto.WalkForwardResponseDto;
+import com.stock_management.backtest_service.dto.WalkForwardResponseDto.EquityPoint;
+import com.stock_management.backtest_service.dto.WalkForwardResponseDto.Window;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import com.stock_management.backtest_service.engine.FixedPoint;
+import com.stock_management.backtest_service.engine.PerformanceAccumulator;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalkForwardService {
+
+    private final BacktestService backtestService;
+    private final PortfolioCalculationService portfolioCalculationService;
+    private final ForkJoinPool backtestBatchPool;
+
+    /**
+     * 執行 Walk-forward 分析
+     * 整段期間的股價矩陣只載入一次，所有視窗共用（策略指標也經由 IndicatorCache 共用）；
+     * 所有視窗 × 候選策略的樣本內模擬一次送入 ForkJoinPool 平行執行，
+     * 樣本外視窗再依序以前一個視窗的最終價值為起始資金模擬並串接權益曲線。
+     * 各視窗選出的策略不同，持股不跨視窗延續：除最後一個視窗外，樣本外視窗最後一日透過成交模型
+     * 賣出所有持股，賣出的手續費、交易稅與滑價依請求的交易成本計入該視窗，下一個視窗以賣出後的現金開始。
+     */
+    public WalkForwardResponseDto performWalkForward(WalkForwardRequestDto request) {
+        try {
+            List<StrategyVariant> candidates = request.getCandidates();
+            if (candidates == null || candidates.isEmpty()) {
+                throw new IllegalArgumentException("至少需要一個候選策略");
+            }
+            if (request.getInSampleDays() == null || request.getInSampleDays() < 2) {
+                throw new IllegalArgumentException("樣本內視窗至少為 2 個交易日");
+            }
+            if (request.getOutOfSampleDays() == null || request.getOutOfSampleDays() < 1) {
+                throw new IllegalArgumentException("樣本外視窗至少為 1 個交易日");
+            }
+            Objective objective = request.getObjective() != null ? request.getObjective() : Objective.SHARPE_RATIO;
+            log.info("開始執行 Walk-forward 分析，股票: {}, 期間: {} 到 {}, 候選策略: {}, 樣本內/外: {}/{} 日",
+                     request.getSymbols(), request.getStartDate(), request.getEndDate(), candidates.size(),
+                     request.getInSampleDays(), request.getOutOfSampleDays());
+
+            PriceMatrix priceMatrix = backtestService.loadPriceMatrix(
+                    request.getSymbols(), request.getStartDate(), request.getEndDate());
+            PrecisionMode precisionMode = backtestService.resolvePrecisionMode(request.getPrecisionMode());
+
+            // 視窗切分：樣本內 [from, from + IS)，樣本外緊接其後，每次前進一個樣本外長度
+            int dayCount = priceMatrix.getDayCount();
+            int inSampleDays = request.getInSampleDays();
+            int outOfSampleDays = request.getOutOfSampleDays();
+            List<int[]> windows = new ArrayList<>();
+            for (int from = 0; from + inSampleDays < dayCount; from += outOfSampleDays) {
+                windows.add(new int[]{from, from + inSampleDays, Math.min(dayCount, from + inSampleDays + outOfSampleDays)});
+            }
+            if (windows.isEmpty()) {
+                throw new IllegalArgumentException("資料期間不足一個樣本內加樣本外視窗，交易日數: " + dayCount);
+            }
+
+            // 樣本內最佳化：所有視窗的參數網格一起平行執行
+            BigDecimal initialCapital = request.getInitialCapital();
+            List<Callable<Double>> tasks = new ArrayList<>(windows.size() * candidates.size());
+            for (int[] window : windows) {
+                for (StrategyVariant candidate : candidates) {
+                    tasks.add(() -> score(request, candidate, priceMatrix, window[0], window[1], precisionMode,
+                            initialCapital, objective));
+                }
+            }
+            List<Future<Double>> scores = backtestBatchPool.invokeAll(tasks);
+
+            // 樣本外評估：依序串接，起始資金為前一個視窗的最終價值
+            List<Window> windowResults = new ArrayList<>(windows.size());
+            List<EquityPoint> equityCurve = new ArrayList<>();
+            long[] totalValues = new long[dayCount];
+            double[] dailyReturns = new double[dayCount];
+            int stitched = 0;
+            BigDecimal capital = initialCapital;
+            for (int w = 0; w < windows.size(); w++) {
+                int[] window = windows.get(w);
+                int best = -1;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int c = 0; c < candidates.size(); c++) {
+                    double candidateScore = scores.get(w * candidates.size() + c).get();
+                    if (candidateScore > bestScore) {
+                        best = c;
+                        bestScore = candidateScore;
+                    }
+                }
+                if (best < 0) {
+                    throw new IllegalStateException("視窗 " + priceMatrix.getDate(window[0]) + " 沒有可執行的候選策略");
+                }
+
+                boolean liquidate = w < windows.size() - 1;
+                SimulationResult outOfSample = backtestService.simulateBacktest(
+                        toBacktestRequest(request, candidates.get(best), capital), priceMatrix, window[1], window[2],
+                        precisionMode, BacktestProgressListener.NONE, HistoryFormat.NONE, liquidate);
+                BacktestResponseDto summary = new BacktestResponseDto();
+                portfolioCalculationService.calculateBacktestResult(summary, outOfSample.getPerformance(), capital);
+
+                Window result = new Window();
+                result.setInSampleStart(priceMatrix.getDate(window[0]));
+                result.setInSampleEnd(priceMatrix.getDate(window[1] - 1));
+                result.setOutOfSampleStart(priceMatrix.getDate(window[1]));
+                result.setOutOfSampleEnd(priceMatrix.getDate(window[2] - 1));
+                result.setSelectedCandidate(candidates.get(best).getName());
+                result.setInSampleScore(BigDecimal.valueOf(bestScore).setScale(4, RoundingMode.HALF_UP));
+                result.setOutOfSampleReturnRate(summary.getReturnRate());
+                result.setOutOfSampleSharpeRatio(summary.getAnnualizedSharpeRatio());
+                result.setOutOfSampleMaxDrawdown(summary.getMaxDrawdown());
+                windowResults.add(result);
+
+                long[] values = outOfSample.getTotalValues();
+                System.arraycopy(values, 0, totalValues, stitched, values.length);
+                System.arraycopy(outOfSample.getDailyReturns(), 0, dailyReturns, stitched, values.length);
+                for (int i = 0; i < values.length; i++) {
+                    equityCurve.add(new EquityPoint(priceMatrix.getDate(window[1] + i), FixedPoint.toBigDecimal(values[i])));
+                }
+                stitched += values.length;
+                capital = summary.getFinalValue();
+            }
+
+            WalkForwardResponseDto response = new WalkForwardResponseDto();
+            BacktestResponseDto overall = new BacktestResponseDto();
+            portfolioCalculationService.calculateBacktestResult(overall, PerformanceAccumulator.of(
+                    Arrays.copyOf(totalValues, stitched), Arrays.copyOf(dailyReturns, stitched)), initialCapital);
+            response.setObjective(objective);
+            response.setInitialCapital(initialCapital);
+            response.setFinalValue(overall.getFinalValue());
+            response.setTotalReturn(overall.getTotalReturn());
+            response.setReturnRate(overall.getReturnRate());
+            response.setAnnualizedSharpeRatio(overall.getAnnualizedSharpeRatio());
+            response.setMaxDrawdown(overall.getMaxDrawdown());
+            response.setTradingDays(overall.getTradingDays());
+            response.setWindows(windowResults);
+            response.setEquityCurve(equityCurve);
+            response.setMissingSymbols(backtestService.findMissingSymbols(request.getSymbols(), priceMatrix));
+            response.setTimestamp(LocalDateTime.now());
+            response.setMessage("Walk-forward 分析執行成功");
+
+            log.info("Walk-forward 分析執行完成，視窗數: {}, 樣本外報酬率: {}%", windowResults.size(), response.getReturnRate());
+            return response;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse(e);
+        } catch (Exception e) {
+            log.error("執行 Walk-forward 分析時發生錯誤: {}", e.getMessage(), e);
+            return errorResponse(e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * 模擬候選策略的樣本內視窗並計算目標值，執行失敗的候選策略不會被選中
+     */
+    private double score(WalkForwardRequestDto walkForward, StrategyVariant candidate, PriceMatrix priceMatrix,
+                         int fromDay, int toDay, PrecisionMode precisionMode, BigDecimal initialCapital,
+                         Objective objective) {
+        try {
+            SimulationResult result = backtestService.simulateBacktest(
+                    toBacktestRequest(walkForward, candidate, initialCapital), priceMatrix, fromDay, toDay,
+                    precisionMode, BacktestProgressListener.NONE, HistoryFormat.NONE);
+            PerformanceAccumulator performance = result.getPerformance();
+            double returnRate = (double) performance.getLastValue() / FixedPoint.fromBigDecimal(initialCapital) - 1.0;
+            return switch (objective) {
+                case SHARPE_RATIO -> performance.getAnnualizedSharpeRatio();
+                case RETURN_RATE -> returnRate;
+                // 沒有回撤時以 0.01% 計算，避免除以零
+                case RETURN_OVER_DRAWDOWN -> returnRate / Math.max(performance.getMaxDrawdown(), 0.0001);
+            };
+        } catch (RuntimeException e) {
+            log.warn("候選策略 {} 在 {} 起的樣本內視窗執行失敗: {}",
+                     candidate.getName(), priceMatrix.getDate(fromDay), e.getMessage());
+            return Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    private BacktestRequestDto toBacktestRequest(WalkForwardRequestDto walkForward, StrategyVariant candidate,
+                                                 BigDecimal initialCapital) {
+        BacktestRequestDto request = new BacktestRequestDto();
+        request.setSymbols(walkForward.getSymbols());
+        request.setStartDate(walkForward.getStartDate());
+        request.setEndDate(walkForward.getEndDate());
+        request.setInitialCapital(initialCapital);
+        request.setTradeActions(candidate.getTradeActions());
+        request.setStrategy(candidate.getStrategy());
+        request.setFillPrice(walkForward.getFillPrice());
+        request.setMaxVolumeParticipation(walkForward.getMaxVolumeParticipation());
+        request.setTradingCosts(walkForward.getTradingCosts());
+        return request;
+    }
+
+    private WalkForwardResponseDto errorResponse(Throwable e) {
+        WalkForwardResponseDto errorResponse = new WalkForwardResponseDto();
+        errorResponse.setTimestamp(LocalDateTime.now());
+        errorResponse.setMessage("Walk-forward 分析執行失敗: " + e.getMessage());
+        return errorResponse;
+    }
+}
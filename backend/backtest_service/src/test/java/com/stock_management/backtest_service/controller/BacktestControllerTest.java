@@ -1,10 +1,18 @@
 package com.stock_management.backtest_service.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto;
+import com.stock_management.backtest_service.dto.BacktestBatchResponseDto;
 import com.stock_management.backtest_service.dto.BacktestRequestDto;
 import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto;
 import com.stock_management.backtest_service.dto.TradeAction;
+import com.stock_management.backtest_service.service.BacktestBatchService;
 import com.stock_management.backtest_service.service.BacktestService;
+import com.stock_management.backtest_service.service.BacktestStreamService;
+import com.stock_management.backtest_service.service.MonteCarloService;
+import com.stock_management.backtest_service.service.PortfolioOptimizationService;
+import com.stock_management.backtest_service.service.WalkForwardService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,14 +22,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +47,21 @@ class BacktestControllerTest {
     @Mock
     private BacktestService backtestService;
 
+    @Mock
+    private BacktestBatchService backtestBatchService;
+
+    @Mock
+    private BacktestStreamService backtestStreamService;
+
+    @Mock
+    private MonteCarloService monteCarloService;
+
+    @Mock
+    private WalkForwardService walkForwardService;
+
+    @Mock
+    private PortfolioOptimizationService portfolioOptimizationService;
+
     @InjectMocks
     private BacktestController backtestController;
 
@@ -181,4 +208,103 @@ class BacktestControllerTest {
                         .content(objectMapper.writeValueAsString(validRequest)))
                 .andExpect(status().isUnsupportedMediaType());
     }
+
+    @Test
+    @DisplayName("批次回測成功 - 應該返回200狀態碼和各變體結果")
+    void shouldPerformBatchBacktestSuccessfully() throws Exception {
+        // given
+        BacktestBatchRequestDto batchRequest = new BacktestBatchRequestDto();
+        batchRequest.setSymbols(validRequest.getSymbols());
+        batchRequest.setStartDate(validRequest.getStartDate());
+        batchRequest.setEndDate(validRequest.getEndDate());
+        batchRequest.setInitialCapital(validRequest.getInitialCapital());
+        batchRequest.setVariants(Collections.singletonList(
+                new BacktestBatchRequestDto.StrategyVariant("base", null, validRequest.getTradeActions(), null)));
+
+        BacktestBatchResponseDto batchResponse = new BacktestBatchResponseDto();
+        batchResponse.setTradingDays(31);
+        batchResponse.setMessage("批次回測執行成功");
+        when(backtestBatchService.performBatchBacktest(any(BacktestBatchRequestDto.class)))
+                .thenReturn(batchResponse);
+
+        // when & then
+        mockMvc.perform(post("/api/backtest/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tradingDays").value(31))
+                .andExpect(jsonPath("$.message").value("批次回測執行成功"));
+    }
+
+    @Test
+    @DisplayName("批次回測 - 缺少策略變體應返回400")
+    void shouldFailBatchWhenVariantsAreMissing() throws Exception {
+        // given
+        BacktestBatchRequestDto batchRequest = new BacktestBatchRequestDto();
+        batchRequest.setSymbols(validRequest.getSymbols());
+        batchRequest.setStartDate(validRequest.getStartDate());
+        batchRequest.setEndDate(validRequest.getEndDate());
+
+        // when & then
+        mockMvc.perform(post("/api/backtest/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("蒙地卡羅回測 - 路徑數超過上限應返回400")
+    void shouldFailMonteCarloWhenPathsExceedLimit() throws Exception {
+        // given
+        MonteCarloRequestDto monteCarloRequest = new MonteCarloRequestDto();
+        monteCarloRequest.setSymbols(validRequest.getSymbols());
+        monteCarloRequest.setStartDate(validRequest.getStartDate());
+        monteCarloRequest.setEndDate(validRequest.getEndDate());
+        monteCarloRequest.setInitialCapital(validRequest.getInitialCapital());
+        monteCarloRequest.setTradeActions(validRequest.getTradeActions());
+        monteCarloRequest.setPaths(1_000_000);
+
+        // when & then
+        mockMvc.perform(post("/api/backtest/monte-carlo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(monteCarloRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("串流回測 - 應以 NDJSON 輸出串流內容")
+    void shouldStreamBacktestAsNdjson() throws Exception {
+        // given
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("{\"type\":\"SUMMARY\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(backtestStreamService).streamBacktest(any(BacktestRequestDto.class), any(OutputStream.class));
+
+        // when
+        MvcResult result = mockMvc.perform(post("/api/backtest/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"type\":\"SUMMARY\"}\n"));
+    }
+
+    @Test
+    @DisplayName("串流回測 - 缺少日期應返回400")
+    void shouldFailStreamWhenDatesAreMissing() throws Exception {
+        // given
+        validRequest.setStartDate(null);
+
+        // when & then
+        mockMvc.perform(post("/api/backtest/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validRequest)))
+                .andExpect(status().isBadRequest());
+    }
 }
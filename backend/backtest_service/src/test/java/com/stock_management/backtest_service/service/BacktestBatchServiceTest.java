@@ -0,0 +1,121 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto.StrategyVariant;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.createBars;
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.newBacktestService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Backtest Batch Service Tests")
+class BacktestBatchServiceTest {
+
+    @Mock
+    private DataProviderService dataProviderService;
+
+    private ForkJoinPool pool;
+    private BacktestService backtestService;
+    private BacktestBatchService backtestBatchService;
+    private BacktestBatchRequestDto batchRequest;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        backtestService = newBacktestService(dataProviderService);
+        backtestBatchService = new BacktestBatchService(backtestService, pool);
+
+        Map<String, BarSeries> historicalData = new HashMap<>();
+        historicalData.put("2330", createBars("2025-07-01", 1000.0, 1010.0, 990.0, 1030.0));
+        historicalData.put("2317", createBars("2025-07-01", 150.0, 148.5, 152.0, 151.0));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(historicalData);
+
+        List<StrategyVariant> variants = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            variants.add(new StrategyVariant("variant-" + i, null, Arrays.asList(
+                    new TradeAction("2025-07-01", "2330", TradeAction.TradeType.BUY, i * 10),
+                    new TradeAction("2025-07-03", "2317", TradeAction.TradeType.BUY, i * 50)), null));
+        }
+        variants.add(new StrategyVariant("rich", BigDecimal.valueOf(5_000_000), Collections.singletonList(
+                new TradeAction("2025-07-02", "2330", TradeAction.TradeType.BUY, 1000)), null));
+
+        batchRequest = new BacktestBatchRequestDto();
+        batchRequest.setSymbols(Arrays.asList("2330", "2317"));
+        batchRequest.setStartDate("2025-07-01");
+        batchRequest.setEndDate("2025-07-04");
+        batchRequest.setInitialCapital(BigDecimal.valueOf(1_000_000));
+        batchRequest.setPrecisionMode(PrecisionMode.FIXED_POINT);
+        batchRequest.setVariants(variants);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("批次回測 - 只取得一次股價資料且結果與單次回測一致")
+    void shouldLoadPricesOnceAndMatchSingleBacktests() {
+        // when
+        BacktestBatchResponseDto response = backtestBatchService.performBatchBacktest(batchRequest);
+
+        // then
+        verify(dataProviderService, times(1)).getHistoricalBars(anyList(), anyString(), anyString());
+        assertThat(response.getMessage()).isEqualTo("批次回測執行成功");
+        assertThat(response.getTradingDays()).isEqualTo(4);
+        assertThat(response.getResults()).extracting(VariantResultDto::getName)
+                .containsExactly("variant-1", "variant-2", "variant-3", "variant-4",
+                        "variant-5", "variant-6", "variant-7", "variant-8", "rich");
+
+        for (int i = 0; i < batchRequest.getVariants().size(); i++) {
+            StrategyVariant variant = batchRequest.getVariants().get(i);
+            BacktestRequestDto single = new BacktestRequestDto();
+            single.setSymbols(batchRequest.getSymbols());
+            single.setStartDate(batchRequest.getStartDate());
+            single.setEndDate(batchRequest.getEndDate());
+            single.setInitialCapital(variant.getInitialCapital() != null
+                    ? variant.getInitialCapital() : batchRequest.getInitialCapital());
+            single.setTradeActions(variant.getTradeActions());
+            single.setPrecisionMode(PrecisionMode.FIXED_POINT);
+            BacktestResponseDto expected = backtestService.performBacktest(single);
+            VariantResultDto actual = response.getResults().get(i);
+
+            assertThat(actual.getFinalValue()).isEqualByComparingTo(expected.getFinalValue());
+            assertThat(actual.getReturnRate()).isEqualByComparingTo(expected.getReturnRate());
+            assertThat(actual.getAnnualizedSharpeRatio()).isEqualByComparingTo(expected.getAnnualizedSharpeRatio());
+            assertThat(actual.getMaxDrawdown()).isEqualByComparingTo(expected.getMaxDrawdown());
+            assertThat(actual.getPortfolioHistory()).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("批次回測 - 要求時回傳完整投資組合歷史")
+    void shouldIncludeHistoryWhenRequested() {
+        // given
+        batchRequest.setIncludeHistory(true);
+
+        // when
+        BacktestBatchResponseDto response = backtestBatchService.performBatchBacktest(batchRequest);
+
+        // then
+        assertThat(response.getResults())
+                .allSatisfy(result -> assertThat(result.getPortfolioHistory()).hasSize(4));
+    }
+}
@@ -0,0 +1,164 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.BacktestJobStatusDto;
+import com.stock_management.backtest_service.dto.BacktestJobStatusDto.JobStatus;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Backtest Job Service Tests")
+class BacktestJobServiceTest {
+
+    @Mock
+    private BacktestService backtestService;
+
+    private ThreadPoolTaskExecutor executor;
+    private BacktestJobService backtestJobService;
+    private BacktestRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        backtestJobService = new BacktestJobService(backtestService, executor);
+
+        request = new BacktestRequestDto();
+        request.setSymbols(Arrays.asList("2330"));
+        request.setStartDate("2025-07-01");
+        request.setEndDate("2025-07-31");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("提交工作 - 完成後可取得進度與結果")
+    void shouldCompleteJobAndExposeResult() throws Exception {
+        // given
+        BacktestResponseDto response = new BacktestResponseDto();
+        response.setMessage("回測執行成功");
+        when(backtestService.runBacktest(eq(request), any())).thenAnswer(invocation -> {
+            BacktestProgressListener listener = invocation.getArgument(1);
+            listener.onProgress(5, 10);
+            listener.onProgress(10, 10);
+            return response;
+        });
+
+        // when
+        BacktestJobStatusDto submitted = backtestJobService.submit(request);
+        BacktestJobStatusDto finished = awaitStatus(submitted.getJobId(), JobStatus.COMPLETED);
+
+        // then
+        assertThat(finished.getCompletedDays()).isEqualTo(10);
+        assertThat(finished.getProgress()).isEqualTo(100.0);
+        assertThat(backtestJobService.getResult(submitted.getJobId())).contains(response);
+    }
+
+    @Test
+    @DisplayName("提交工作 - 執行失敗時狀態為 FAILED")
+    void shouldMarkJobFailedWhenBacktestThrows() throws Exception {
+        // given
+        when(backtestService.runBacktest(eq(request), any()))
+                .thenThrow(new RuntimeException("Data provider connection failed"));
+
+        // when
+        BacktestJobStatusDto submitted = backtestJobService.submit(request);
+        BacktestJobStatusDto finished = awaitStatus(submitted.getJobId(), JobStatus.FAILED);
+
+        // then
+        assertThat(finished.getMessage()).contains("Data provider connection failed");
+        assertThat(backtestJobService.getResult(submitted.getJobId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("佇列已滿 - 拒絕新工作，取消排隊中的工作後不會執行")
+    void shouldRejectWhenQueueIsFullAndCancelQueuedJob() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        when(backtestService.runBacktest(eq(request), any())).thenAnswer(invocation -> {
+            BacktestProgressListener listener = invocation.getArgument(1);
+            started.countDown();
+            while (!listener.isCancelled()) {
+                Thread.sleep(5);
+            }
+            throw new CancellationException("回測已取消");
+        });
+
+        BacktestJobStatusDto running = backtestJobService.submit(request);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        BacktestJobStatusDto queued = backtestJobService.submit(request);
+
+        // when & then
+        assertThatThrownBy(() -> backtestJobService.submit(request))
+                .isInstanceOf(TaskRejectedException.class);
+
+        assertThat(backtestJobService.cancel(queued.getJobId()))
+                .hasValueSatisfying(status -> assertThat(status.getStatus()).isEqualTo(JobStatus.CANCELLED));
+        assertThat(backtestJobService.cancel(running.getJobId()))
+                .hasValueSatisfying(status -> assertThat(status.getStatus()).isEqualTo(JobStatus.CANCELLED));
+
+        executor.shutdown();
+        assertThat(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        verify(backtestService, times(1)).runBacktest(eq(request), any());
+    }
+
+    @Test
+    @DisplayName("保留時間 - 結束超過保留時間的工作在查詢時即被移除")
+    void shouldPurgeExpiredJobsOnLookup() throws Exception {
+        // given
+        when(backtestService.runBacktest(eq(request), any())).thenReturn(new BacktestResponseDto());
+        BacktestJobStatusDto submitted = backtestJobService.submit(request);
+        awaitStatus(submitted.getJobId(), JobStatus.COMPLETED);
+
+        // when
+        ReflectionTestUtils.setField(backtestJobService, "retentionMinutes", -1L);
+
+        // then：未再提交新工作，查詢結果時即釋放
+        assertThat(backtestJobService.getResult(submitted.getJobId())).isEmpty();
+        assertThat(backtestJobService.getStatus(submitted.getJobId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("查詢不存在的工作 - 應回傳空值")
+    void shouldReturnEmptyForUnknownJob() {
+        assertThat(backtestJobService.getStatus("unknown")).isEmpty();
+        assertThat(backtestJobService.cancel("unknown")).isEmpty();
+    }
+
+    private BacktestJobStatusDto awaitStatus(String jobId, JobStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        BacktestJobStatusDto status = backtestJobService.getStatus(jobId).orElseThrow();
+        while (status.getStatus() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = backtestJobService.getStatus(jobId).orElseThrow();
+        }
+        assertThat(status.getStatus()).isEqualTo(expected);
+        return status;
+    }
+}
@@ -0,0 +1,171 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.HistoryFormat;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.engine.BacktestProgressListener;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.FixedPoint;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import com.stock_management.backtest_service.engine.StaticAllocationSimulator;
+import com.stock_management.backtest_service.engine.TradeSchedule;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.newBacktestService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.Assertions.withinPercentage;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 定點數模式與 BigDecimal 參考模式的交叉驗證
+ * 容許誤差：股價為兩位小數（台股最小跳動單位）時金額必須完全一致；
+ * 每日報酬率差異不超過 1e-6，最大回撤差異不超過 0.01 個百分點；
+ * 參考模式將日報酬變異數四捨五入到小數六位，因此 Sharpe Ratio 容許 3% 的相對誤差。
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Backtest Precision Cross-Check Tests")
+class BacktestPrecisionCrossCheckTest {
+
+    private static final List<String> SYMBOLS = Arrays.asList("2330", "2317", "0050");
+    private static final int DAYS = 250;
+
+    @Mock
+    private DataProviderService dataProviderService;
+
+    private BacktestService backtestService;
+    private BacktestRequestDto request;
+    private List<TradeAction> randomTrades;
+
+    @BeforeEach
+    void setUp() {
+        backtestService = newBacktestService(dataProviderService);
+
+        Random random = new Random(42);
+        Map<String, BarSeries> historicalData = new HashMap<>();
+        List<String> dates = new ArrayList<>();
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        for (int day = 0; day < DAYS; day++) {
+            dates.add(date.toString());
+            date = date.plusDays(1);
+        }
+        for (String symbol : SYMBOLS) {
+            BarSeries.Builder bars = BarSeries.builder(DAYS);
+            double price = 50 + random.nextInt(500);
+            for (String day : dates) {
+                price = Math.max(1.0, price * (1 + random.nextGaussian() * 0.02));
+                double close = Math.round(price * 100) / 100.0;
+                bars.add(TradingCalendar.toEpochDay(day), 0L, close, close, close, close, 0L);
+            }
+            historicalData.put(symbol, bars.build());
+        }
+
+        List<TradeAction> tradeActions = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            String symbol = SYMBOLS.get(random.nextInt(SYMBOLS.size()));
+            TradeAction.TradeType type = random.nextBoolean() ? TradeAction.TradeType.BUY : TradeAction.TradeType.SELL;
+            tradeActions.add(new TradeAction(dates.get(random.nextInt(DAYS)), symbol, type, 1 + random.nextInt(300)));
+        }
+
+        request = new BacktestRequestDto();
+        request.setSymbols(SYMBOLS);
+        request.setStartDate(dates.get(0));
+        request.setEndDate(dates.get(DAYS - 1));
+        request.setInitialCapital(new BigDecimal("1000000.00"));
+        request.setTradeActions(tradeActions);
+        randomTrades = tradeActions;
+
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(historicalData);
+    }
+
+    @Test
+    @DisplayName("定點數模式與 BigDecimal 模式的結果應在容許誤差內一致")
+    void fixedPointShouldAgreeWithBigDecimalReference() {
+        // when
+        request.setPrecisionMode(PrecisionMode.BIG_DECIMAL);
+        BacktestResponseDto reference = backtestService.performBacktest(request);
+        request.setPrecisionMode(PrecisionMode.FIXED_POINT);
+        BacktestResponseDto fixedPoint = backtestService.performBacktest(request);
+
+        // then
+        assertThat(fixedPoint.getMessage()).isEqualTo("回測執行成功");
+        assertThat(fixedPoint.getTradingDays()).isEqualTo(reference.getTradingDays());
+        assertThat(fixedPoint.getFinalValue()).isEqualByComparingTo(reference.getFinalValue());
+        assertThat(fixedPoint.getTotalReturn()).isEqualByComparingTo(reference.getTotalReturn());
+        assertThat(fixedPoint.getReturnRate()).isEqualByComparingTo(reference.getReturnRate());
+        assertThat(fixedPoint.getAnnualizedSharpeRatio().doubleValue())
+                .isCloseTo(reference.getAnnualizedSharpeRatio().doubleValue(), withinPercentage(3));
+        assertThat(fixedPoint.getMaxDrawdown().doubleValue())
+                .isCloseTo(reference.getMaxDrawdown().doubleValue(), within(0.01));
+
+        for (int day = 0; day < DAYS; day++) {
+            PortfolioSnapshot expected = reference.getPortfolioHistory().get(day);
+            PortfolioSnapshot actual = fixedPoint.getPortfolioHistory().get(day);
+            assertThat(actual.getDate()).isEqualTo(expected.getDate());
+            assertThat(actual.getHoldings()).isEqualTo(expected.getHoldings());
+            assertThat(actual.getCash()).isEqualByComparingTo(expected.getCash());
+            assertThat(actual.getTotalValue()).isEqualByComparingTo(expected.getTotalValue());
+            assertThat(actual.getDailyReturn().doubleValue())
+                    .isCloseTo(expected.getDailyReturn().doubleValue(), within(1e-6));
+        }
+    }
+
+    @Test
+    @DisplayName("靜態配置的向量化路徑應與逐日模擬逐位相同，含無法成交的交易時應退回逐日模擬")
+    void staticAllocationShouldMatchEventLoop() {
+        // given：期初買進後每 20 個交易日小幅調整持股，每筆交易都能成交
+        PriceMatrix priceMatrix = backtestService.loadPriceMatrix(SYMBOLS, request.getStartDate(), request.getEndDate());
+        List<TradeAction> rebalances = new ArrayList<>();
+        for (String symbol : SYMBOLS) {
+            rebalances.add(new TradeAction(priceMatrix.getDate(0), symbol, TradeAction.TradeType.BUY, 500));
+        }
+        for (int day = 20; day < DAYS; day += 20) {
+            String symbol = SYMBOLS.get(day / 20 % SYMBOLS.size());
+            rebalances.add(new TradeAction(priceMatrix.getDate(day), symbol, TradeAction.TradeType.SELL, 100));
+            rebalances.add(new TradeAction(priceMatrix.getDate(day), "0050", TradeAction.TradeType.BUY, 10));
+        }
+        request.setTradeActions(rebalances);
+
+        // when
+        SimulationResult vectorized = backtestService.simulateBacktest(request, priceMatrix,
+                PrecisionMode.FIXED_POINT, BacktestProgressListener.NONE, HistoryFormat.NONE);
+        SimulationResult eventLoop = backtestService.simulateBacktest(request, priceMatrix,
+                PrecisionMode.FIXED_POINT, BacktestProgressListener.NONE, HistoryFormat.COMPACT);
+
+        // then
+        assertThat(staticAllocation(rebalances, priceMatrix)).isNotNull();
+        assertThat(vectorized.getTotalValues()).containsExactly(eventLoop.getTotalValues());
+        assertThat(vectorized.getDailyReturns()).containsExactly(eventLoop.getDailyReturns());
+        assertThat(vectorized.getTradedValues()).containsExactly(eventLoop.getTradedValues());
+        assertThat(vectorized.getPerformance().getAnnualizedSharpeRatio())
+                .isEqualTo(eventLoop.getPerformance().getAnnualizedSharpeRatio());
+
+        // 隨機交易中有持股不足的賣出，不適用向量化路徑
+        assertThat(staticAllocation(randomTrades, priceMatrix)).isNull();
+    }
+
+    private SimulationResult staticAllocation(List<TradeAction> trades, PriceMatrix priceMatrix) {
+        Map<String, Integer> slotIndex = new HashMap<>();
+        int[] columns = new int[SYMBOLS.size()];
+        for (int slot = 0; slot < SYMBOLS.size(); slot++) {
+            slotIndex.put(SYMBOLS.get(slot), slot);
+            columns[slot] = priceMatrix.indexOfSymbol(SYMBOLS.get(slot));
+        }
+        return StaticAllocationSimulator.simulate(TradeSchedule.compile(trades, priceMatrix, slotIndex),
+                priceMatrix, columns, FixedPoint.fromBigDecimal(request.getInitialCapital()));
+    }
+}
@@ -0,0 +1,238 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.RiskMetric;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.CompactPortfolioHistory;
+import com.stock_management.backtest_service.dto.PortfolioSnapshot;
+import com.stock_management.backtest_service.dto.RollingMetricsDto;
+import com.stock_management.backtest_service.dto.TradeAction;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Backtest Result Cache Tests")
+class BacktestResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private BacktestResultCache cache;
+    private BacktestRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BacktestResultCache(new SimpleMeterRegistry());
+
+        request = new BacktestRequestDto();
+        request.setSymbols(Arrays.asList("2330", "2317"));
+        request.setStartDate("2025-07-01");
+        request.setEndDate("2025-07-31");
+        request.setInitialCapital(new BigDecimal("100000"));
+        request.setTradeActions(Arrays.asList(
+                new TradeAction("2025-07-02", "2330", TradeAction.TradeType.SELL, 100),
+                new TradeAction("2025-07-02", "2317", TradeAction.TradeType.BUY, 200),
+                new TradeAction("2025-07-01", "2330", TradeAction.TradeType.BUY, 100)));
+        request.setRiskMetrics(EnumSet.of(RiskMetric.SORTINO, RiskMetric.VAR));
+    }
+
+    private BacktestResultCache newSpillingCache(long maxValues, int spillMaxEntries) {
+        BacktestResultCache spillingCache = new BacktestResultCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(spillingCache, "maxValues", maxValues);
+        ReflectionTestUtils.setField(spillingCache, "spillEnabled", true);
+        ReflectionTestUtils.setField(spillingCache, "spillDirectory", directory.toString());
+        ReflectionTestUtils.setField(spillingCache, "spillMaxEntries", spillMaxEntries);
+        spillingCache.init();
+        return spillingCache;
+    }
+
+    private BacktestResponseDto response(int tradingDays, String finalValue) {
+        BacktestResponseDto response = new BacktestResponseDto();
+        response.setTradingDays(tradingDays);
+        response.setFinalValue(new BigDecimal(finalValue));
+        // 每日一筆快照，各含一檔持股與一檔股價（權重 4 + 2）
+        List<PortfolioSnapshot> history = new ArrayList<>();
+        for (int day = 0; day < tradingDays; day++) {
+            history.add(new PortfolioSnapshot(
+                    "2025-07-01", new BigDecimal("1000"), Map.of("2330", 2), Map.of("2330", new BigDecimal("50")),
+                    new BigDecimal(finalValue), BigDecimal.ZERO));
+        }
+        response.setPortfolioHistory(history);
+        response.setTimestamp(LocalDateTime.of(2025, 8, 1, 9, 0));
+        response.setMessage("回測執行成功");
+        return response;
+    }
+
+    private long spilledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".json.gz")).count();
+        }
+    }
+
+    @Test
+    @DisplayName("快取鍵 - 內容相同但寫法不同的請求應得到相同的鍵")
+    void shouldProduceSameKeyForEquivalentRequests() {
+        // given：重複的股票代號、金額尾端的 0、不同日期的交易順序、風險指標順序、預設精度模式
+        BacktestRequestDto equivalent = new BacktestRequestDto();
+        equivalent.setSymbols(Arrays.asList("2330", "2317", "2330"));
+        equivalent.setStartDate("2025-07-01");
+        equivalent.setEndDate("2025-07-31");
+        equivalent.setInitialCapital(new BigDecimal("100000.00"));
+        equivalent.setTradeActions(Arrays.asList(
+                new TradeAction("2025-07-01", "2330", TradeAction.TradeType.BUY, 100),
+                new TradeAction("2025-07-02", "2330", TradeAction.TradeType.SELL, 100),
+                new TradeAction("2025-07-02", "2317", TradeAction.TradeType.BUY, 200)));
+        equivalent.setRiskMetrics(new LinkedHashSet<>(List.of(RiskMetric.VAR, RiskMetric.SORTINO)));
+        equivalent.setPrecisionMode(PrecisionMode.FIXED_POINT);
+
+        // when
+        String key = cache.keyOf(request, PrecisionMode.FIXED_POINT);
+
+        // then
+        assertThat(key).hasSize(64).isEqualTo(cache.keyOf(equivalent, PrecisionMode.FIXED_POINT));
+        assertThat(cache.keyOf(request, PrecisionMode.BIG_DECIMAL)).isNotEqualTo(key);
+        assertThat(request.getSymbols()).containsExactly("2330", "2317");
+    }
+
+    @Test
+    @DisplayName("快取鍵 - 股票順序、同日交易順序或交易成本不同時應得到不同的鍵")
+    void shouldDistinguishRequestsWithDifferentOutcomes() {
+        // given：同一日先買後賣與先賣後買的成交結果不同
+        BacktestRequestDto reordered = new BacktestRequestDto();
+        reordered.setSymbols(request.getSymbols());
+        reordered.setStartDate(request.getStartDate());
+        reordered.setEndDate(request.getEndDate());
+        reordered.setInitialCapital(request.getInitialCapital());
+        reordered.setTradeActions(Arrays.asList(
+                request.getTradeActions().get(1), request.getTradeActions().get(0), request.getTradeActions().get(2)));
+        reordered.setRiskMetrics(request.getRiskMetrics());
+
+        BacktestRequestDto withCosts = new BacktestRequestDto();
+        withCosts.setSymbols(request.getSymbols());
+        withCosts.setStartDate(request.getStartDate());
+        withCosts.setEndDate(request.getEndDate());
+        withCosts.setInitialCapital(request.getInitialCapital());
+        withCosts.setTradeActions(request.getTradeActions());
+        withCosts.setRiskMetrics(request.getRiskMetrics());
+        withCosts.setTradingCosts(
+                new BacktestRequestDto.TradingCosts(null, new BigDecimal("0.6"), null, null, null, 1000));
+
+        // 股票順序決定持股欄位順序，不指定股票的策略規則依此順序下單
+        BacktestRequestDto permuted = new BacktestRequestDto();
+        permuted.setSymbols(Arrays.asList("2317", "2330"));
+        permuted.setStartDate(request.getStartDate());
+        permuted.setEndDate(request.getEndDate());
+        permuted.setInitialCapital(request.getInitialCapital());
+        permuted.setTradeActions(request.getTradeActions());
+        permuted.setRiskMetrics(request.getRiskMetrics());
+
+        // when
+        String key = cache.keyOf(request, PrecisionMode.FIXED_POINT);
+
+        // then
+        assertThat(cache.keyOf(permuted, PrecisionMode.FIXED_POINT)).isNotEqualTo(key);
+        assertThat(cache.keyOf(reordered, PrecisionMode.FIXED_POINT)).isNotEqualTo(key);
+        assertThat(cache.keyOf(withCosts, PrecisionMode.FIXED_POINT)).isNotEqualTo(key);
+    }
+
+    @Test
+    @DisplayName("快取鍵 - 結束日期在今日（含）以後或停用快取時不快取")
+    void shouldNotCacheUnsettledRanges() {
+        // given
+        request.setEndDate(TradingCalendar.toDateString(TradingCalendar.today()));
+        BacktestRequestDto minuteRequest = new BacktestRequestDto();
+        minuteRequest.setSymbols(List.of("2330"));
+        minuteRequest.setStartDate("2025-07-01 09:00");
+        minuteRequest.setEndDate("2025-07-01 13:30");
+        BacktestResultCache disabled = new BacktestResultCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+
+        // when & then：不可快取的請求仍有鍵，用於合併同時進行的相同請求
+        assertThat(cache.isCacheable(request)).isFalse();
+        assertThat(cache.keyOf(request, PrecisionMode.FIXED_POINT)).isNotNull();
+        assertThat(cache.isCacheable(minuteRequest)).isTrue();
+        assertThat(disabled.isCacheable(minuteRequest)).isFalse();
+    }
+
+    @Test
+    @DisplayName("淘汰 - 超過保留數值總數上限時依 LRU 淘汰並溢寫到磁碟，重新建立後仍可讀回")
+    void shouldSpillEvictedResultsAndReloadAfterRestart() throws IOException {
+        // given：上限 500 個數值，每筆 40 個交易日（權重 1 + 40 × 6 = 241）
+        BacktestResultCache spillingCache = newSpillingCache(500, 10);
+        spillingCache.put("a", response(40, "1100"));
+        spillingCache.put("b", response(40, "1200"));
+        assertThat(spillingCache.get("a")).isNotNull(); // a 變為最近使用
+
+        // when
+        spillingCache.put("c", response(40, "1300"));
+
+        // then：b 被淘汰並寫入磁碟，a 與 c 仍在記憶體
+        assertThat(spillingCache.size()).isEqualTo(2);
+        assertThat(spillingCache.getTotalValues()).isEqualTo(482);
+        assertThat(spilledFiles()).isEqualTo(1);
+        BacktestResponseDto reloaded = newSpillingCache(500, 10).get("b");
+        assertThat(reloaded).isNotNull();
+        assertThat(reloaded.getFinalValue()).isEqualByComparingTo("1200");
+        assertThat(reloaded.getTradingDays()).isEqualTo(40);
+        assertThat(reloaded.getTimestamp()).isEqualTo(LocalDateTime.of(2025, 8, 1, 9, 0));
+        assertThat(reloaded.getPortfolioHistory().get(0).getHoldings()).containsEntry("2330", 2);
+        assertThat(spillingCache.get("missing")).isNull();
+    }
+
+    @Test
+    @DisplayName("權重 - 依保留的快照、精簡格式陣列與滑動視窗序列計算，與股票數成正比")
+    void shouldWeighRetainedPayload() {
+        // given：3 日、2 檔股票
+        BacktestResponseDto response = new BacktestResponseDto();
+        response.setTradingDays(3);
+        List<BigDecimal> series = List.of(BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE);
+        response.setPortfolioHistory(Collections.nCopies(3, new PortfolioSnapshot("2025-07-01", BigDecimal.ONE,
+                Map.of("2330", 1, "2317", 1), Map.of("2330", BigDecimal.ONE, "2317", BigDecimal.ONE),
+                BigDecimal.ONE, BigDecimal.ZERO)));
+        CompactPortfolioHistory compact = new CompactPortfolioHistory();
+        compact.setDates(List.of("2025-07-01", "2025-07-02", "2025-07-03"));
+        compact.setPrices(Map.of("2330", series, "2317", series));
+        compact.setHoldingsChanges(List.of(new CompactPortfolioHistory.HoldingsChange(0, Map.of("2330", 1, "2317", 1))));
+        compact.setCash(series);
+        compact.setTotalValue(series);
+        compact.setDailyReturn(series);
+        response.setCompactHistory(compact);
+        response.setRollingMetrics(List.of(new RollingMetricsDto(2, series, series, series)));
+
+        // when & then：1 + 快照 3 × (4 + 2 + 2) + 精簡 (4 × 3 + 2 × 3 + 1 + 2) + 滑動視窗 3 × 3
+        assertThat(BacktestResultCache.weightOf(response)).isEqualTo(1 + 24 + 21 + 9);
+    }
+
+    @Test
+    @DisplayName("淘汰 - 溢寫檔案數超過上限時刪除最久未使用的檔案")
+    void shouldBoundSpilledFiles() throws IOException {
+        // given：記憶體只容納一筆，磁碟最多兩個檔案
+        BacktestResultCache spillingCache = newSpillingCache(300, 2);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            spillingCache.put("k" + i, response(40, String.valueOf(1000 + i)));
+        }
+
+        // then：k0..k3 依序溢寫，只保留最新的 k2、k3
+        assertThat(spilledFiles()).isEqualTo(2);
+        assertThat(spillingCache.get("k0")).isNull();
+        assertThat(spillingCache.get("k2").getFinalValue()).isEqualByComparingTo("1002");
+        assertThat(spillingCache.get("k4").getFinalValue()).isEqualByComparingTo("1004");
+    }
+}
@@ -1,21 +1,30 @@
 package com.stock_management.backtest_service.service;
 
 import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.createBars;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("Backtest Service Tests")
@@ -27,11 +36,17 @@ class BacktestServiceTest {
     @Mock
     private PortfolioCalculationService portfolioCalculationService;
 
+    @Spy
+    private IndicatorCache indicatorCache = new IndicatorCache(new SimpleMeterRegistry());
+
+    @Spy
+    private BacktestResultCache resultCache = new BacktestResultCache(new SimpleMeterRegistry());
+
     @InjectMocks
     private BacktestService backtestService;
 
     private BacktestRequestDto backtestRequest;
-    private Map<String, List<Map<String, Object>>> mockHistoricalData;
+    private Map<String, BarSeries> mockHistoricalData;
 
     @BeforeEach
     void setUp() {
@@ -58,35 +73,17 @@ class BacktestServiceTest {
         mockHistoricalData = new HashMap<>();
         
         // AAPL歷史數據
-        List<Map<String, Object>> aaplData = Arrays.asList(
-            createDataPoint("2025-07-01", "150.00"),
-            createDataPoint("2025-07-02", "152.00"),
-            createDataPoint("2025-07-03", "155.00")
-        );
-        
-        // GOOGL歷史數據
-        List<Map<String, Object>> googlData = Arrays.asList(
-            createDataPoint("2025-07-01", "2500.00"),
-            createDataPoint("2025-07-02", "2520.00"),
-            createDataPoint("2025-07-03", "2550.00")
-        );
-        
-        mockHistoricalData.put("AAPL", aaplData);
-        mockHistoricalData.put("GOOGL", googlData);
-    }
+        mockHistoricalData.put("AAPL", createBars("2025-07-01", 150.00, 152.00, 155.00));
 
-    private Map<String, Object> createDataPoint(String date, String price) {
-        Map<String, Object> dataPoint = new HashMap<>();
-        dataPoint.put("date", date);
-        dataPoint.put("close", Double.valueOf(price));  // 使用Double而不是String
-        return dataPoint;
+        // GOOGL歷史數據
+        mockHistoricalData.put("GOOGL", createBars("2025-07-01", 2500.00, 2520.00, 2550.00));
     }
 
     @Test
     @DisplayName("執行回測成功 - 應該返回正確的回測結果")
     void shouldPerformBacktestSuccessfully() {
         // given
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenReturn(mockHistoricalData);
 
         // when
@@ -100,12 +97,75 @@ class BacktestServiceTest {
         assertThat(result.getPortfolioHistory()).isNotNull();
     }
 
+    @Test
+    @DisplayName("執行回測 - 相同的請求應直接回傳快取的結果，不再取得股價")
+    void shouldReturnCachedResultForIdenticalRequest() {
+        // given
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+        BacktestRequestDto reloaded = new BacktestRequestDto();
+        reloaded.setSymbols(Arrays.asList("AAPL", "GOOGL", "AAPL"));
+        reloaded.setStartDate("2025-07-01");
+        reloaded.setEndDate("2025-07-31");
+        reloaded.setInitialCapital(new BigDecimal("100000.0"));
+        reloaded.setTradeActions(backtestRequest.getTradeActions());
+
+        // when
+        BacktestResponseDto first = backtestService.performBacktest(backtestRequest);
+        BacktestResponseDto second = backtestService.performBacktest(reloaded);
+
+        // then
+        assertThat(first.getMessage()).isEqualTo("回測執行成功");
+        assertThat(second).isSameAs(first);
+        verify(dataProviderService, times(1)).getHistoricalBars(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("執行回測 - 同時進行的相同請求只執行一次並共用結果")
+    void shouldCoalesceConcurrentIdenticalRequests() throws Exception {
+        // given：結束日期為今日，結果不可快取；第一個請求在取得股價時暫停，直到第二個請求開始等待
+        backtestRequest.setEndDate(TradingCalendar.toDateString(TradingCalendar.today()));
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString())).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return mockHistoricalData;
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try {
+            // when
+            Future<BacktestResponseDto> first = callers.submit(() -> backtestService.performBacktest(backtestRequest));
+            assertThat(fetching.await(10, TimeUnit.SECONDS)).isTrue();
+            AtomicReference<Thread> secondThread = new AtomicReference<>();
+            Future<BacktestResponseDto> second = callers.submit(() -> {
+                secondThread.set(Thread.currentThread());
+                return backtestService.performBacktest(backtestRequest);
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((secondThread.get() == null || secondThread.get().getState() != Thread.State.WAITING)
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // then
+            assertThat(first.get(10, TimeUnit.SECONDS).getMessage()).isEqualTo("回測執行成功");
+            assertThat(second.get(10, TimeUnit.SECONDS)).isSameAs(first.get());
+            verify(dataProviderService, times(1)).getHistoricalBars(anyList(), anyString(), anyString());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
     @Test
     @DisplayName("執行回測 - 空的股票代號列表")
     void shouldHandleEmptySymbolsList() {
         // given
         backtestRequest.setSymbols(Collections.emptyList());
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenReturn(Collections.emptyMap());
 
         // when
@@ -135,7 +195,7 @@ class BacktestServiceTest {
     @DisplayName("執行回測 - 資料提供者服務異常")
     void shouldHandleDataProviderServiceException() {
         // given
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenThrow(new RuntimeException("Data provider connection failed"));
 
         // when
@@ -154,7 +214,7 @@ class BacktestServiceTest {
         backtestRequest.setStartDate("invalid-date");
         backtestRequest.setEndDate("2025-07-31");
 
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenReturn(mockHistoricalData);
 
         // when
@@ -171,7 +231,7 @@ class BacktestServiceTest {
         // given
         backtestRequest.setInitialCapital(BigDecimal.valueOf(-1000.00));
 
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenReturn(mockHistoricalData);
 
         // when
@@ -189,7 +249,7 @@ class BacktestServiceTest {
         // given
         backtestRequest.setTradeActions(Collections.emptyList());
 
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenReturn(mockHistoricalData);
 
         // when
@@ -211,7 +271,7 @@ class BacktestServiceTest {
 
         backtestRequest.setTradeActions(Arrays.asList(buyAction1, buyAction2, sellAction));
 
-        when(dataProviderService.getHistoricalData(anyList(), anyString(), anyString()))
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
                 .thenReturn(mockHistoricalData);
 
         // when
@@ -223,4 +283,363 @@ class BacktestServiceTest {
         assertThat(result.getPortfolioHistory()).isNotNull();
         assertThat(result.getPortfolioHistory()).hasSizeGreaterThan(0);
     }
+
+    @Test
+    @DisplayName("執行回測 - 逐日快照的現金、持股與價值應正確")
+    void shouldProduceCorrectDailySnapshots() {
+        // given
+        TradeAction buyAction = new TradeAction("2025-07-01", "AAPL", TradeAction.TradeType.BUY, 100);
+        TradeAction sellAction = new TradeAction("2025-07-03", "AAPL", TradeAction.TradeType.SELL, 40);
+        TradeAction unknownAction = new TradeAction("2025-07-02", "MSFT", TradeAction.TradeType.BUY, 10);
+        backtestRequest.setTradeActions(Arrays.asList(sellAction, unknownAction, buyAction));
+        // BigDecimal 參考模式的股價保留原始精度（定點數模式為 4 位小數）
+        backtestRequest.setPrecisionMode(BacktestRequestDto.PrecisionMode.BIG_DECIMAL);
+
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        List<PortfolioSnapshot> history = result.getPortfolioHistory();
+        assertThat(history).extracting(PortfolioSnapshot::getDate)
+                .containsExactly("2025-07-01", "2025-07-02", "2025-07-03");
+
+        PortfolioSnapshot firstDay = history.get(0);
+        assertThat(firstDay.getCash()).isEqualByComparingTo("85000");
+        assertThat(firstDay.getHoldings()).containsEntry("AAPL", 100).doesNotContainKey("GOOGL");
+        assertThat(firstDay.getPrices()).containsEntry("GOOGL", BigDecimal.valueOf(2500.0));
+        assertThat(firstDay.getTotalValue()).isEqualByComparingTo("100000");
+
+        PortfolioSnapshot lastDay = history.get(2);
+        assertThat(lastDay.getCash()).isEqualByComparingTo("91200");
+        assertThat(lastDay.getHoldings()).containsEntry("AAPL", 60);
+        assertThat(lastDay.getTotalValue()).isEqualByComparingTo("100500");
+        assertThat(lastDay.getDailyReturn()).isEqualByComparingTo("0.002994");
+    }
+
+    @Test
+    @DisplayName("執行回測 - 無法取得資料的股票應列於 missingSymbols")
+    void shouldReportMissingSymbols() {
+        // given
+        mockHistoricalData.remove("GOOGL");
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        assertThat(result.getMessage()).isEqualTo("回測執行成功");
+        assertThat(result.getMissingSymbols()).containsExactly("GOOGL");
+        assertThat(result.getPortfolioHistory()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("執行回測 - 精簡格式應能還原為與完整快照相同的逐日資料")
+    void shouldRebuildFullHistoryFromCompactHistory() {
+        // given
+        TradeAction buyAction = new TradeAction("2025-07-01", "AAPL", TradeAction.TradeType.BUY, 100);
+        TradeAction sellAction = new TradeAction("2025-07-03", "AAPL", TradeAction.TradeType.SELL, 40);
+        backtestRequest.setTradeActions(Arrays.asList(buyAction, sellAction));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+        List<PortfolioSnapshot> fullHistory = backtestService.performBacktest(backtestRequest).getPortfolioHistory();
+
+        // when
+        backtestRequest.setHistoryFormat(BacktestRequestDto.HistoryFormat.COMPACT);
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        assertThat(result.getPortfolioHistory()).isNull();
+        CompactPortfolioHistory compact = result.getCompactHistory();
+        assertThat(compact.getDates()).containsExactly("2025-07-01", "2025-07-02", "2025-07-03");
+        // 持股只在第 0 天與第 2 天變動
+        assertThat(compact.getHoldingsChanges()).extracting(CompactPortfolioHistory.HoldingsChange::getDay)
+                .containsExactly(0, 2);
+
+        Map<String, Integer> holdings = new HashMap<>();
+        int nextChange = 0;
+        for (int day = 0; day < compact.getDates().size(); day++) {
+            if (nextChange < compact.getHoldingsChanges().size()
+                    && compact.getHoldingsChanges().get(nextChange).getDay() == day) {
+                holdings.putAll(compact.getHoldingsChanges().get(nextChange++).getHoldings());
+            }
+            PortfolioSnapshot expected = fullHistory.get(day);
+            assertThat(compact.getDates().get(day)).isEqualTo(expected.getDate());
+            assertThat(holdings).isEqualTo(expected.getHoldings());
+            assertThat(compact.getCash().get(day)).isEqualByComparingTo(expected.getCash());
+            assertThat(compact.getTotalValue().get(day)).isEqualByComparingTo(expected.getTotalValue());
+            assertThat(compact.getDailyReturn().get(day)).isEqualByComparingTo(expected.getDailyReturn());
+            for (Map.Entry<String, BigDecimal> price : expected.getPrices().entrySet()) {
+                assertThat(compact.getPrices().get(price.getKey()).get(day)).isEqualByComparingTo(price.getValue());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("基準日報酬率應對齊日期軸，基準缺資料的交易日報酬率為 0")
+    void shouldAlignBenchmarkReturnsToMatrixDates() {
+        // given
+        BarSeries.Builder benchmark = BarSeries.builder(2);
+        benchmark.add(TradingCalendar.toEpochDay("2025-07-01"), 0L, 100.0, 100.0, 100.0, 100.0, 0L);
+        benchmark.add(TradingCalendar.toEpochDay("2025-07-03"), 0L, 110.0, 110.0, 110.0, 110.0, 0L);
+        when(dataProviderService.getHistoricalBars(List.of("0050"), "2025-07-01", "2025-07-31"))
+                .thenReturn(Map.of("0050", benchmark.build()));
+        PriceMatrix matrix = PriceMatrix.fromBars(mockHistoricalData);
+
+        // when
+        double[] returns = backtestService.loadBenchmarkReturns("0050", "2025-07-01", "2025-07-31", matrix);
+
+        // then
+        assertThat(returns).containsExactly(new double[]{0.0, 0.0, 0.1}, within(1e-12));
+    }
+
+    @Test
+    @DisplayName("請求 Beta 但未指定基準時應回傳錯誤")
+    void shouldRejectBetaWithoutBenchmark() {
+        // given
+        backtestRequest.setRiskMetrics(EnumSet.of(BacktestRequestDto.RiskMetric.BETA));
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        assertThat(result.getMessage()).contains("benchmarkSymbol");
+    }
+
+    @Test
+    @DisplayName("伺服器端策略應在均線交叉時買入與賣出")
+    void shouldExecuteCrossoverStrategy() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.setTradeActions(null);
+        backtestRequest.setStrategy(new StrategyDefinition(List.of(
+                crossoverRule(StrategyDefinition.ConditionType.CROSS_ABOVE, TradeAction.TradeType.BUY),
+                crossoverRule(StrategyDefinition.ConditionType.CROSS_BELOW, TradeAction.TradeType.SELL)), null));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(Map.of("AAPL", createBars("2025-07-01", 10, 10, 10, 12, 14, 9, 8)));
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        assertThat(result.getPortfolioHistory()).extracting(snapshot -> snapshot.getHoldings().get("AAPL"))
+                .containsExactly(null, null, null, 8333, 8333, 0, 0);
+    }
+
+    @Test
+    @DisplayName("伺服器端策略應依目標權重定期再平衡")
+    void shouldRebalanceToTargetWeights() {
+        // given
+        backtestRequest.setTradeActions(null);
+        backtestRequest.setStrategy(new StrategyDefinition(null, new StrategyDefinition.Rebalance(2,
+                Map.of("AAPL", new BigDecimal("0.5"), "GOOGL", new BigDecimal("0.5")))));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        PortfolioSnapshot first = result.getPortfolioHistory().get(0);
+        assertThat(first.getHoldings()).containsEntry("AAPL", 333).containsEntry("GOOGL", 20);
+        // 第 1 天不在再平衡排程內
+        assertThat(result.getPortfolioHistory().get(1).getHoldings()).isEqualTo(first.getHoldings());
+    }
+
+    @Test
+    @DisplayName("策略定義不完整時應回傳錯誤")
+    void shouldRejectInvalidStrategy() {
+        // given
+        StrategyDefinition.Rule rule = crossoverRule(StrategyDefinition.ConditionType.CROSS_ABOVE,
+                TradeAction.TradeType.BUY);
+        rule.getWhen().getRight().setPeriod(null);
+        backtestRequest.setStrategy(new StrategyDefinition(List.of(rule), null));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        assertThat(result.getMessage()).contains("period");
+    }
+
+    private StrategyDefinition.Rule crossoverRule(StrategyDefinition.ConditionType type,
+                                                  TradeAction.TradeType action) {
+        StrategyDefinition.Condition condition = new StrategyDefinition.Condition(type,
+                new StrategyDefinition.Operand(StrategyDefinition.OperandType.PRICE, null, null, null, null, null),
+                new StrategyDefinition.Operand(StrategyDefinition.OperandType.SMA, 3, null, null, null, null), null);
+        return new StrategyDefinition.Rule("AAPL", condition, action,
+                new StrategyDefinition.Sizing(StrategyDefinition.SizingType.ALL, null));
+    }
+
+    @Test
+    @DisplayName("以開盤價成交時應以開盤價扣款、以收盤價結算市值")
+    void shouldFillAtOpenAndValueAtClose() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.setFillPrice(BacktestRequestDto.FillPrice.OPEN);
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(Map.of("AAPL", createOhlcvBars(148.0, 150.0, 2L)));
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        PortfolioSnapshot first = result.getPortfolioHistory().get(0);
+        assertThat(first.getCash()).isEqualByComparingTo("85200");
+        assertThat(first.getPrices().get("AAPL")).isEqualByComparingTo("150");
+        assertThat(first.getTotalValue()).isEqualByComparingTo("100200");
+    }
+
+    @Test
+    @DisplayName("超過成交量比例上限的部分不應成交")
+    void shouldCapFillsByVolumeParticipation() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.getTradeActions().get(0).setShares(500);
+        backtestRequest.setMaxVolumeParticipation(new BigDecimal("0.1"));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(Map.of("AAPL", createOhlcvBars(148.0, 150.0, 2L)));
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then：成交量 2 張 × 1000 股 × 10% = 200 股
+        assertThat(result.getPortfolioHistory().get(0).getHoldings()).containsEntry("AAPL", 200);
+    }
+
+    @Test
+    @DisplayName("交易成本應扣除手續費（最低 20 元）與賣出時的證券交易稅")
+    void shouldChargeCommissionAndTransactionTax() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.setTradeActions(List.of(
+                new TradeAction("2025-07-01", "AAPL", TradeAction.TradeType.BUY, 100),
+                new TradeAction("2025-07-03", "AAPL", TradeAction.TradeType.SELL, 100)));
+        backtestRequest.setTradingCosts(new BacktestRequestDto.TradingCosts());
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then：買入 15000 手續費 21；賣出 15500 手續費 22、證交稅 46
+        List<PortfolioSnapshot> history = result.getPortfolioHistory();
+        assertThat(history.get(0).getCash()).isEqualByComparingTo("84979");
+        assertThat(history.get(2).getCash()).isEqualByComparingTo("100411");
+        assertThat(result.getTotalTradingCosts()).isEqualByComparingTo("89");
+    }
+
+    @Test
+    @DisplayName("依權益比例下單時，同日前一筆成交的交易成本應反映在後續規則的權益中")
+    void shouldRecomputeEquityAfterCostlyFill() {
+        // given：每日各以 30% 權益買入 AAPL 與 GOOGL，計入預設交易成本
+        backtestRequest.setTradeActions(null);
+        StrategyDefinition.Sizing sizing = new StrategyDefinition.Sizing(
+                StrategyDefinition.SizingType.PERCENT_OF_EQUITY, new BigDecimal("0.3"));
+        backtestRequest.setStrategy(new StrategyDefinition(List.of(
+                new StrategyDefinition.Rule("AAPL", null, TradeAction.TradeType.BUY, sizing),
+                new StrategyDefinition.Rule("GOOGL", null, TradeAction.TradeType.BUY, sizing)), null));
+        backtestRequest.setTradingCosts(new BacktestRequestDto.TradingCosts());
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then：買入 200 股 AAPL 的手續費使權益低於 100000，30% 不足 12 股 GOOGL
+        assertThat(result.getPortfolioHistory().get(0).getHoldings())
+                .containsEntry("AAPL", 200).containsEntry("GOOGL", 11);
+    }
+
+    @Test
+    @DisplayName("整股交易應捨去至 1000 股的倍數，滑價應提高買入成交價")
+    void shouldRoundToBoardLotsAndApplySlippage() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.setPrecisionMode(BacktestRequestDto.PrecisionMode.FIXED_POINT);
+        backtestRequest.setInitialCapital(BigDecimal.valueOf(200000));
+        backtestRequest.getTradeActions().get(0).setShares(1500);
+        backtestRequest.setTradingCosts(new BacktestRequestDto.TradingCosts(
+                null, new BigDecimal("0.6"), BigDecimal.ZERO, null, BigDecimal.TEN, 1000));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(mockHistoricalData);
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then：1000 股 × 150.15 = 150150，手續費 150150 × 0.1425% × 0.6 = 128.38 → 128
+        PortfolioSnapshot first = result.getPortfolioHistory().get(0);
+        assertThat(first.getHoldings()).containsEntry("AAPL", 1000);
+        assertThat(first.getCash()).isEqualByComparingTo("49722");
+    }
+
+    @Test
+    @DisplayName("分 K 模式應逐分鐘交易，預設只輸出每日最後一根 K 棒的快照")
+    void shouldTradeOnMinuteBarsAndSampleDayEnds() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.setResolution(BacktestRequestDto.BarResolution.MINUTE);
+        backtestRequest.setTradeActions(List.of(
+                new TradeAction("2025-07-01 09:02", "AAPL", TradeAction.TradeType.BUY, 100),
+                new TradeAction("2025-07-02", "AAPL", TradeAction.TradeType.SELL, 100)));
+        when(dataProviderService.getIntradayBars(anyList(), anyString(), anyString()))
+                .thenReturn(Map.of("AAPL", createMinuteBars(100.0, 101.0, 102.0, 103.0, 104.0, 105.0)));
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then：09:02 以 101 買入，隔日第一根 K 棒以 103 賣出
+        List<PortfolioSnapshot> history = result.getPortfolioHistory();
+        assertThat(history).extracting(PortfolioSnapshot::getDate)
+                .containsExactly("2025-07-01 09:03", "2025-07-02 09:03");
+        assertThat(history.get(0).getCash()).isEqualByComparingTo("89900");
+        assertThat(history.get(0).getTotalValue()).isEqualByComparingTo("100100");
+        assertThat(history.get(0).getDailyReturn()).isEqualByComparingTo("0.001");
+        assertThat(history.get(1).getHoldings()).containsEntry("AAPL", 0);
+        assertThat(history.get(1).getTotalValue()).isEqualByComparingTo("100200");
+        assertThat(history.get(1).getDailyReturn()).isEqualByComparingTo("0.000999");
+    }
+
+    @Test
+    @DisplayName("分 K 模式的快照間隔應抽樣輸出，並保留每日最後一根 K 棒")
+    void shouldDownsampleMinuteSnapshots() {
+        // given
+        backtestRequest.setSymbols(List.of("AAPL"));
+        backtestRequest.setResolution(BacktestRequestDto.BarResolution.MINUTE);
+        backtestRequest.setSnapshotInterval(2);
+        when(dataProviderService.getIntradayBars(anyList(), anyString(), anyString()))
+                .thenReturn(Map.of("AAPL", createMinuteBars(100.0, 101.0, 102.0, 103.0, 104.0, 105.0)));
+
+        // when
+        BacktestResponseDto result = backtestService.performBacktest(backtestRequest);
+
+        // then
+        assertThat(result.getPortfolioHistory()).extracting(PortfolioSnapshot::getDate)
+                .containsExactly("2025-07-01 09:02", "2025-07-01 09:03", "2025-07-02 09:01", "2025-07-02 09:03");
+    }
+
+    /**
+     * 2025-07-01 與 2025-07-02 各三根 1 分 K（09:01 ~ 09:03）
+     */
+    private BarSeries createMinuteBars(double... closes) {
+        int firstDay = TradingCalendar.toEpochDay("2025-07-01");
+        BarSeries.Builder builder = BarSeries.intradayBuilder(closes.length);
+        for (int i = 0; i < closes.length; i++) {
+            int day = firstDay + i / 3;
+            long timestamp = day * 86_400L + 9 * 3_600L + (i % 3 + 1) * 60L;
+            builder.add(day, timestamp, closes[i], closes[i], closes[i], closes[i], 1000L);
+        }
+        return builder.build();
+    }
+
+    private BarSeries createOhlcvBars(double open, double close, long volume) {
+        BarSeries.Builder builder = BarSeries.builder(1);
+        builder.add(TradingCalendar.toEpochDay("2025-07-01"), 0L, open, close + 1, open - 1, close, volume);
+        return builder.build();
+    }
 }
@@ -0,0 +1,107 @@
+package com.stock_management.backtest_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stock_management.backtest_service.dto.BacktestRequestDto;
+import com.stock_management.backtest_service.dto.TradeAction;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.newBacktestService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Backtest Stream Service Tests")
+class BacktestStreamServiceTest {
+
+    @Mock
+    private DataProviderService dataProviderService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private BacktestStreamService backtestStreamService;
+    private BacktestRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        BacktestService backtestService = newBacktestService(dataProviderService);
+        backtestStreamService = new BacktestStreamService(backtestService, objectMapper);
+
+        request = new BacktestRequestDto();
+        request.setSymbols(Collections.singletonList("2330"));
+        request.setStartDate("2025-07-01");
+        request.setEndDate("2025-07-03");
+        request.setInitialCapital(BigDecimal.valueOf(100000));
+        request.setTradeActions(Collections.singletonList(
+                new TradeAction("2025-07-01", "2330", TradeAction.TradeType.BUY, 10)));
+    }
+
+    private List<JsonNode> stream() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        backtestStreamService.streamBacktest(request, outputStream);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : outputStream.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    @DisplayName("應逐日輸出快照，最後一行為不含逐日資料的績效摘要")
+    void shouldStreamSnapshotsThenSummary() throws Exception {
+        // given
+        int firstDay = TradingCalendar.toEpochDay("2025-07-01");
+        BarSeries.Builder bars = BarSeries.builder(3);
+        double[] closes = {1000.0, 1010.0, 990.0};
+        for (int i = 0; i < closes.length; i++) {
+            bars.add(firstDay + i, 0L, closes[i], closes[i], closes[i], closes[i], 0L);
+        }
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(Map.of("2330", bars.build()));
+
+        // when
+        List<JsonNode> lines = stream();
+
+        // then
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0).get("type").asText()).isEqualTo("SNAPSHOT");
+        assertThat(lines.get(0).at("/data/date").asText()).isEqualTo("2025-07-01");
+        assertThat(lines.get(0).at("/data/holdings/2330").asInt()).isEqualTo(10);
+        assertThat(lines.get(2).at("/data/date").asText()).isEqualTo("2025-07-03");
+
+        JsonNode summary = lines.get(3);
+        assertThat(summary.get("type").asText()).isEqualTo("SUMMARY");
+        assertThat(summary.at("/data/tradingDays").asInt()).isEqualTo(3);
+        assertThat(summary.at("/data/finalValue").decimalValue()).isEqualByComparingTo("99900");
+        assertThat(summary.at("/data/portfolioHistory").isNull()).isTrue();
+    }
+
+    @Test
+    @DisplayName("回測失敗時最後一行應為錯誤事件")
+    void shouldStreamErrorEvent() throws Exception {
+        // given
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("Data provider connection failed"));
+
+        // when
+        List<JsonNode> lines = stream();
+
+        // then
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0).get("type").asText()).isEqualTo("ERROR");
+        assertThat(lines.get(0).get("message").asText()).contains("Data provider connection failed");
+    }
+}
@@ -0,0 +1,39 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 服務測試共用的測試資料與服務組裝
+ */
+final class BacktestTestFixtures {
+
+    private BacktestTestFixtures() {
+    }
+
+    /**
+     * 自 firstDate 起逐日（含週末）的日 K，開高低收皆為收盤價、成交量為 0
+     */
+    static BarSeries createBars(String firstDate, double... closes) {
+        int firstDay = TradingCalendar.toEpochDay(firstDate);
+        BarSeries.Builder builder = BarSeries.builder(closes.length);
+        for (int i = 0; i < closes.length; i++) {
+            builder.add(firstDay + i, 0L, closes[i], closes[i], closes[i], closes[i], 0L);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 以測試用的 Data Provider 建立回測服務，指標與結果快取各自獨立
+     */
+    static BacktestService newBacktestService(DataProviderService dataProviderService) {
+        return newBacktestService(dataProviderService, new PortfolioCalculationService());
+    }
+
+    static BacktestService newBacktestService(DataProviderService dataProviderService,
+                                              PortfolioCalculationService portfolioCalculationService) {
+        return new BacktestService(dataProviderService, portfolioCalculationService,
+                new IndicatorCache(new SimpleMeterRegistry()), new BacktestResultCache(new SimpleMeterRegistry()));
+    }
+}
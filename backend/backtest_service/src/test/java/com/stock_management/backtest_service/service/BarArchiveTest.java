@@ -0,0 +1,201 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarLookup;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Bar Archive Tests")
+class BarArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private BarArchive archive;
+    private int today;
+
+    @BeforeEach
+    void setUp() {
+        archive = newArchive();
+        today = TradingCalendar.today();
+    }
+
+    private BarArchive newArchive() {
+        BarArchive barArchive = new BarArchive();
+        ReflectionTestUtils.setField(barArchive, "enabled", true);
+        ReflectionTestUtils.setField(barArchive, "directory", directory.toString());
+        barArchive.init();
+        return barArchive;
+    }
+
+    private BarSeries bars(int fromDay, int toDay) {
+        BarSeries.Builder builder = BarSeries.builder(toDay - fromDay + 1);
+        for (int day = fromDay; day <= toDay; day++) {
+            double close = 100.0 + day - fromDay;
+            builder.add(day, day * 86_400L, close - 1, close + 2, close - 2, close, 1000L + day);
+        }
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("封存的 K 棒應在重新建立後完整讀回（開高低收量）")
+    void shouldReadBackArchivedBarsAfterRestart() {
+        // given
+        int fromDay = today - 40;
+        int toDay = today - 11;
+        archive.store("2330", fromDay, toDay, bars(fromDay, toDay));
+
+        // when
+        BarLookup lookup = newArchive().lookup("2330", fromDay + 5, toDay - 5);
+
+        // then
+        assertThat(lookup.isComplete()).isTrue();
+        BarSeries result = lookup.getBars();
+        assertThat(result.size()).isEqualTo(20);
+        assertThat(result.getDay(0)).isEqualTo(fromDay + 5);
+        assertThat(result.getTimestamp(0)).isEqualTo((fromDay + 5) * 86_400L);
+        assertThat(result.getOpen(0)).isEqualTo(104.0);
+        assertThat(result.getHigh(0)).isEqualTo(107.0);
+        assertThat(result.getLow(0)).isEqualTo(103.0);
+        assertThat(result.getClose(0)).isEqualTo(105.0);
+        assertThat(result.getVolume(0)).isEqualTo(1000L + fromDay + 5);
+    }
+
+    @Test
+    @DisplayName("區間往後延伸時應附加記錄，超出封存區間的部分回報為缺少")
+    void shouldAppendForwardAndReportUncoveredRanges() {
+        // given
+        int fromDay = today - 40;
+        archive.store("2330", fromDay, fromDay + 9, bars(fromDay, fromDay + 9));
+        long sizeBefore = fileSize("2330");
+
+        // when
+        archive.store("2330", fromDay + 5, fromDay + 19, bars(fromDay + 5, fromDay + 19));
+        BarLookup lookup = archive.lookup("2330", fromDay - 5, fromDay + 25);
+
+        // then
+        assertThat(fileSize("2330")).isEqualTo(sizeBefore + 10L * BarArchive.RECORD_BYTES);
+        assertThat(lookup.getBars().size()).isEqualTo(20);
+        assertThat(lookup.getMissingRanges()).containsExactly(
+                new int[]{fromDay - 5, fromDay - 1},
+                new int[]{fromDay + 20, fromDay + 25});
+    }
+
+    @Test
+    @DisplayName("更新檔頭前中斷留下的記錄應被覆寫，不產生重複或亂序的交易日")
+    void shouldOverwriteOrphanRecordsWhenAppending() throws IOException {
+        // given：已封存 10 日，之後附加了 3 筆記錄但檔頭尚未更新
+        int fromDay = today - 40;
+        archive.store("2330", fromDay, fromDay + 9, bars(fromDay, fromDay + 9));
+        try (FileChannel channel = FileChannel.open(directory.resolve("2330.bars"), StandardOpenOption.WRITE)) {
+            ByteBuffer orphans = ByteBuffer.allocate(3 * BarArchive.RECORD_BYTES);
+            for (int day = fromDay + 10; day <= fromDay + 12; day++) {
+                orphans.putInt(day).putInt(0).putLong(0L)
+                       .putDouble(1).putDouble(1).putDouble(1).putDouble(1).putLong(0L);
+            }
+            orphans.flip();
+            channel.write(orphans, channel.size());
+        }
+
+        // when
+        archive.store("2330", fromDay + 10, fromDay + 14, bars(fromDay + 10, fromDay + 14));
+        BarLookup lookup = archive.lookup("2330", fromDay, fromDay + 14);
+
+        // then
+        assertThat(fileSize("2330")).isEqualTo(BarArchive.HEADER_BYTES + 15L * BarArchive.RECORD_BYTES);
+        assertThat(lookup.isComplete()).isTrue();
+        assertThat(lookup.getBars().size()).isEqualTo(15);
+        for (int i = 0; i < 15; i++) {
+            assertThat(lookup.getBars().getDay(i)).isEqualTo(fromDay + i);
+        }
+        assertThat(lookup.getBars().getClose(10)).isEqualTo(100.0);
+    }
+
+    @Test
+    @DisplayName("區間往前延伸時應重寫檔案並維持交易日排序")
+    void shouldRewriteWhenExtendingBackward() {
+        // given
+        int fromDay = today - 40;
+        archive.store("2330", fromDay + 10, fromDay + 19, bars(fromDay + 10, fromDay + 19));
+
+        // when
+        archive.store("2330", fromDay, fromDay + 12, bars(fromDay, fromDay + 12));
+        BarLookup lookup = archive.lookup("2330", fromDay, fromDay + 19);
+
+        // then
+        assertThat(lookup.isComplete()).isTrue();
+        assertThat(lookup.getBars().size()).isEqualTo(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(lookup.getBars().getDay(i)).isEqualTo(fromDay + i);
+        }
+    }
+
+    @Test
+    @DisplayName("今日（含）之後的資料與不相鄰的區間不應封存")
+    void shouldSkipVolatileAndDisjointRanges() {
+        // given
+        archive.store("2330", today - 5, today + 1, bars(today - 5, today + 1));
+        archive.store("2330", today - 40, today - 30, bars(today - 40, today - 30));
+
+        // when
+        BarLookup lookup = archive.lookup("2330", today - 40, today + 1);
+
+        // then
+        assertThat(lookup.getBars().size()).isEqualTo(5);
+        assertThat(lookup.getMissingRanges()).containsExactly(
+                new int[]{today - 40, today - 6},
+                new int[]{today, today + 1});
+    }
+
+    @Test
+    @DisplayName("重試用完仍為空的過去區間應封存為沒有 K 棒的區間")
+    void shouldArchiveExhaustedEmptyRange() {
+        // given
+        archive.store("6999", today - 10, today - 5, BarSeries.EMPTY);
+        assertThat(archive.lookup("6999", today - 10, today - 5).getMissingRanges()).hasSize(1);
+        archive.store("6999", today - 10, today - 5, BarSeries.EMPTY, true);
+
+        // when
+        BarLookup lookup = newArchive().lookup("6999", today - 10, today - 5);
+
+        // then
+        assertThat(lookup.getBars().isEmpty()).isTrue();
+        assertThat(lookup.getMissingRanges()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("停用或股票代號不合法時應直接回報整段缺少")
+    void shouldMissWhenDisabledOrSymbolUnsafe() {
+        // given
+        archive.store("../etc", today - 10, today - 5, bars(today - 10, today - 5));
+        ReflectionTestUtils.setField(archive, "enabled", false);
+
+        // when
+        BarLookup lookup = archive.lookup("2330", today - 10, today - 5);
+
+        // then
+        assertThat(lookup.getMissingRanges()).containsExactly(new int[]{today - 10, today - 5});
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+
+    private long fileSize(String symbol) {
+        try {
+            return Files.size(directory.resolve(symbol + ".bars"));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+@DisplayName("Data Provider Service Tests")
+class DataProviderServiceTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private DataProviderService dataProviderService;
+    private final Map<String, AtomicInteger> requestsPerSymbol = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(3);
+        executor.setMaxPoolSize(3);
+        executor.initialize();
+
+        HistoricalBarCache cache = new HistoricalBarCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBars", 10_000L);
+        cache.registerMetrics();
+
+        dataProviderService = spy(new DataProviderService(cache, new BarArchive(), executor));
+        ReflectionTestUtils.setField(dataProviderService, "maxSymbolsPerChunk", 1);
+        ReflectionTestUtils.setField(dataProviderService, "maxDaysPerChunk", 3);
+        ReflectionTestUtils.setField(dataProviderService, "retryBackoffMillis", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 模擬 Data Provider：failuresBeforeSuccess 次失敗後才成功，-1 表示永遠失敗
+     */
+    private void stubProvider(Map<String, Integer> failuresBeforeSuccess) {
+        doAnswer(invocation -> {
+            List<String> symbols = invocation.getArgument(0);
+            int fromDay = TradingCalendar.toEpochDay(invocation.getArgument(1));
+            int toDay = TradingCalendar.toEpochDay(invocation.getArgument(2));
+            Map<String, BarSeries> result = new HashMap<>();
+            for (String symbol : symbols) {
+                int attempt = requestsPerSymbol.computeIfAbsent(symbol + "@" + fromDay, key -> new AtomicInteger())
+                        .incrementAndGet();
+                int failures = failuresBeforeSuccess.getOrDefault(symbol, 0);
+                if (failures < 0 || attempt <= failures) {
+                    throw new IllegalStateException("provider timeout: " + symbol);
+                }
+                BarSeries.Builder builder = BarSeries.builder(toDay - fromDay + 1);
+                for (int day = fromDay; day <= toDay; day++) {
+                    builder.add(day, 0L, 100, 100, 100, 100, 1000L);
+                }
+                result.put(symbol, builder.build());
+            }
+            return result;
+        }).when(dataProviderService).fetchHistoricalBars(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("應切成區塊平行請求，只重試失敗的區塊並排除仍失敗的股票")
+    void shouldRetryFailedChunksAndDropMissingSymbols() {
+        // given
+        stubProvider(Map.of("2330", 1, "2317", -1));
+
+        // when
+        Map<String, BarSeries> bars = dataProviderService.getHistoricalBars(
+                Arrays.asList("2330", "2317", "0050"), "2024-03-04", "2024-03-09");
+
+        // then
+        assertThat(bars).containsOnlyKeys("2330", "0050");
+        assertThat(bars.get("2330").size()).isEqualTo(6);
+        assertThat(bars.get("0050").size()).isEqualTo(6);
+        // 每支股票兩個日期區塊；2330 每個區塊失敗一次、0050 不需重試、2317 用完三次嘗試
+        int from = TradingCalendar.toEpochDay("2024-03-04");
+        assertThat(requestsPerSymbol.get("2330@" + from).get()).isEqualTo(2);
+        assertThat(requestsPerSymbol.get("0050@" + from).get()).isEqualTo(1);
+        assertThat(requestsPerSymbol.get("0050@" + (from + 3)).get()).isEqualTo(1);
+        assertThat(requestsPerSymbol.get("2317@" + from).get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("成功取得的區塊應寫入快取，再次查詢不需請求 Data Provider")
+    void shouldServeRepeatedRequestFromCache() {
+        // given
+        stubProvider(Collections.emptyMap());
+        dataProviderService.getHistoricalBars(Collections.singletonList("2330"), "2024-03-04", "2024-03-09");
+
+        // when
+        Map<String, BarSeries> bars = dataProviderService.getHistoricalBars(
+                Collections.singletonList("2330"), "2024-03-05", "2024-03-08");
+
+        // then
+        assertThat(bars.get("2330").size()).isEqualTo(4);
+        int from = TradingCalendar.toEpochDay("2024-03-04");
+        assertThat(requestsPerSymbol.get("2330@" + from).get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("同時進行的請求區間重疊時，重疊的部分只向 Data Provider 請求一次")
+    void shouldShareOverlappingInFlightFetches() throws Exception {
+        // given：03-10 以前的區塊暫停，直到第二個請求已送出自己負責的區塊
+        int gateDay = TradingCalendar.toEpochDay("2024-03-10");
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<String> symbols = invocation.getArgument(0);
+            int fromDay = TradingCalendar.toEpochDay(invocation.getArgument(1));
+            int toDay = TradingCalendar.toEpochDay(invocation.getArgument(2));
+            requestsPerSymbol.computeIfAbsent(symbols.get(0) + "@" + fromDay, key -> new AtomicInteger())
+                    .incrementAndGet();
+            if (fromDay < gateDay) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            BarSeries.Builder builder = BarSeries.builder(toDay - fromDay + 1);
+            for (int day = fromDay; day <= toDay; day++) {
+                builder.add(day, 0L, 100, 100, 100, 100, 1000L);
+            }
+            return Map.of(symbols.get(0), builder.build());
+        }).when(dataProviderService).fetchHistoricalBars(anyList(), anyString(), anyString());
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try {
+            // when：第一個請求 03-04 ~ 03-09，第二個請求 03-06 ~ 03-12
+            Future<Map<String, BarSeries>> first = callers.submit(() -> dataProviderService.getHistoricalBars(
+                    Collections.singletonList("2330"), "2024-03-04", "2024-03-09"));
+            int from = TradingCalendar.toEpochDay("2024-03-04");
+            awaitRequest("2330@" + from);
+            Future<Map<String, BarSeries>> second = callers.submit(() -> dataProviderService.getHistoricalBars(
+                    Collections.singletonList("2330"), "2024-03-06", "2024-03-12"));
+            awaitRequest("2330@" + gateDay);
+            release.countDown();
+
+            // then
+            assertThat(first.get(10, TimeUnit.SECONDS).get("2330").size()).isEqualTo(6);
+            BarSeries shared = second.get(10, TimeUnit.SECONDS).get("2330");
+            assertThat(shared.size()).isEqualTo(7);
+            assertThat(shared.getDay(0)).isEqualTo(from + 2);
+            assertThat(shared.getDay(6)).isEqualTo(gateDay + 2);
+            assertThat(requestsPerSymbol).containsOnlyKeys("2330@" + from, "2330@" + (from + 3), "2330@" + gateDay);
+            assertThat(requestsPerSymbol.values()).allMatch(count -> count.get() == 1);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("登記區間後、送出請求前拋出例外時應釋放區間，之後的請求不會等待")
+    void shouldReleaseClaimedRangesWhenLookupThrows() {
+        // given：2330 登記區間後，下一支股票查詢快取時拋出例外
+        HistoricalBarCache cache = spy(new HistoricalBarCache(new SimpleMeterRegistry()));
+        doThrow(new IllegalStateException("cache failure")).when(cache).lookup(eq("BOOM"), anyInt(), anyInt());
+        dataProviderService = spy(new DataProviderService(cache, new BarArchive(), executor));
+        ReflectionTestUtils.setField(dataProviderService, "retryBackoffMillis", 0L);
+        stubProvider(Collections.emptyMap());
+        assertThatThrownBy(() -> dataProviderService.getHistoricalBars(
+                Arrays.asList("2330", "BOOM"), "2024-03-04", "2024-03-06"))
+                .hasMessageContaining("cache failure");
+
+        // when & then：同一個服務的下一個請求自行取得資料
+        Map<String, BarSeries> bars = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> dataProviderService.getHistoricalBars(
+                        Collections.singletonList("2330"), "2024-03-04", "2024-03-06"));
+        assertThat(bars.get("2330").size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("等待進行中的請求逾時後應自行請求重疊的區間")
+    void shouldFetchItselfWhenAwaitedRangeTimesOut() throws Exception {
+        // given：第一個請求卡住，第二個請求最多等待 50 毫秒
+        ReflectionTestUtils.setField(dataProviderService, "awaitTimeoutMillis", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<String> symbols = invocation.getArgument(0);
+            int fromDay = TradingCalendar.toEpochDay(invocation.getArgument(1));
+            int toDay = TradingCalendar.toEpochDay(invocation.getArgument(2));
+            requestsPerSymbol.computeIfAbsent(symbols.get(0) + "@" + fromDay, key -> new AtomicInteger())
+                    .incrementAndGet();
+            if (calls.incrementAndGet() == 1) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            BarSeries.Builder builder = BarSeries.builder(toDay - fromDay + 1);
+            for (int day = fromDay; day <= toDay; day++) {
+                builder.add(day, 0L, 100, 100, 100, 100, 1000L);
+            }
+            return Map.of(symbols.get(0), builder.build());
+        }).when(dataProviderService).fetchHistoricalBars(anyList(), anyString(), anyString());
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+
+        try {
+            int from = TradingCalendar.toEpochDay("2024-03-04");
+            Future<Map<String, BarSeries>> stuck = callers.submit(() -> dataProviderService.getHistoricalBars(
+                    Collections.singletonList("2330"), "2024-03-04", "2024-03-06"));
+            awaitRequest("2330@" + from);
+
+            // when
+            Map<String, BarSeries> bars = dataProviderService.getHistoricalBars(
+                    Collections.singletonList("2330"), "2024-03-04", "2024-03-06");
+
+            // then
+            assertThat(bars.get("2330").size()).isEqualTo(3);
+            assertThat(requestsPerSymbol.get("2330@" + from).get()).isEqualTo(2);
+            release.countDown();
+            assertThat(stuck.get(10, TimeUnit.SECONDS).get("2330").size()).isEqualTo(3);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    private void awaitRequest(String key) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!requestsPerSymbol.containsKey(key) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(requestsPerSymbol).containsKey(key);
+    }
+
+    @Test
+    @DisplayName("重試用完仍為空的過去區間（上市前）應記錄為已查詢，再次查詢不需請求 Data Provider")
+    void shouldRememberEmptyPreListingRange() {
+        // given：6999 在查詢區間內尚未上市，Data Provider 每次都回傳空陣列
+        doAnswer(invocation -> {
+            List<String> symbols = invocation.getArgument(0);
+            int fromDay = TradingCalendar.toEpochDay(invocation.getArgument(1));
+            int toDay = TradingCalendar.toEpochDay(invocation.getArgument(2));
+            Map<String, BarSeries> result = new HashMap<>();
+            for (String symbol : symbols) {
+                requestsPerSymbol.computeIfAbsent(symbol, key -> new AtomicInteger()).incrementAndGet();
+                BarSeries.Builder builder = BarSeries.builder(toDay - fromDay + 1);
+                for (int day = fromDay; !symbol.equals("6999") && day <= toDay; day++) {
+                    builder.add(day, 0L, 100, 100, 100, 100, 1000L);
+                }
+                result.put(symbol, builder.build());
+            }
+            return result;
+        }).when(dataProviderService).fetchHistoricalBars(anyList(), anyString(), anyString());
+        Map<String, BarSeries> first = dataProviderService.getHistoricalBars(
+                Arrays.asList("2330", "6999"), "2024-03-04", "2024-03-06");
+
+        // when
+        Map<String, BarSeries> second = dataProviderService.getHistoricalBars(
+                Arrays.asList("2330", "6999"), "2024-03-04", "2024-03-06");
+
+        // then：第一次用完三次嘗試，第二次直接由快取回傳空的 K 棒
+        assertThat(first).containsOnlyKeys("2330");
+        assertThat(second.get("6999").isEmpty()).isTrue();
+        assertThat(requestsPerSymbol.get("6999").get()).isEqualTo(3);
+        assertThat(requestsPerSymbol.get("2330").get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("所有股票都無法取得時應拋出例外")
+    void shouldFailWhenEverySymbolIsMissing() {
+        // given
+        stubProvider(Map.of("2330", -1));
+
+        // when & then
+        assertThatThrownBy(() -> dataProviderService.getHistoricalBars(
+                Collections.singletonList("2330"), "2024-03-04", "2024-03-06"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("所有股票皆無法取得歷史資料");
+    }
+}
@@ -0,0 +1,123 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarLookup;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Historical Bar Cache Tests")
+class HistoricalBarCacheTest {
+
+    private static final int JULY_1 = (int) LocalDate.of(2025, 7, 1).toEpochDay();
+
+    private SimpleMeterRegistry meterRegistry;
+    private HistoricalBarCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new HistoricalBarCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBars", 100L);
+        ReflectionTestUtils.setField(cache, "volatileTtlSeconds", 300L);
+        cache.registerMetrics();
+    }
+
+    private BarSeries bars(int fromDay, int toDay) {
+        BarSeries.Builder builder = BarSeries.builder(toDay - fromDay + 1);
+        for (int day = fromDay; day <= toDay; day++) {
+            double close = 100.0 + day - fromDay;
+            builder.add(day, day * 86_400L, close, close, close, close, 1000L);
+        }
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("過去交易日 - 查詢過的區間應直接命中，只補抓缺少的區間")
+    void shouldHitCachedPastRangeAndReportOnlyMissingRanges() {
+        // given
+        cache.store("2330", JULY_1, JULY_1 + 9, bars(JULY_1, JULY_1 + 9));
+
+        // when
+        BarLookup hit = cache.lookup("2330", JULY_1 + 2, JULY_1 + 5);
+        BarLookup partial = cache.lookup("2330", JULY_1 - 3, JULY_1 + 12);
+
+        // then
+        assertThat(hit.getMissingRanges()).isEmpty();
+        assertThat(hit.getBars().size()).isEqualTo(4);
+        assertThat(hit.getBars().getClose(0)).isEqualTo(102.0);
+
+        assertThat(partial.getMissingRanges())
+                .containsExactly(new int[]{JULY_1 - 3, JULY_1 - 1}, new int[]{JULY_1 + 10, JULY_1 + 12});
+        assertThat(partial.getBars().size()).isEqualTo(10);
+
+        assertThat(meterRegistry.counter("backtest.bar.cache.requests", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("backtest.bar.cache.requests", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("超過 K 棒上限 - 應淘汰最久未使用的股票")
+    void shouldEvictLeastRecentlyUsedSymbol() {
+        // given
+        cache.store("2330", JULY_1, JULY_1 + 39, bars(JULY_1, JULY_1 + 39));
+        cache.store("2317", JULY_1, JULY_1 + 39, bars(JULY_1, JULY_1 + 39));
+        cache.lookup("2330", JULY_1, JULY_1);
+
+        // when
+        cache.store("0050", JULY_1, JULY_1 + 39, bars(JULY_1, JULY_1 + 39));
+
+        // then
+        assertThat(cache.getTotalBars()).isEqualTo(80);
+        assertThat(cache.lookup("2317", JULY_1, JULY_1 + 39).getMissingRanges()).hasSize(1);
+        assertThat(cache.lookup("2330", JULY_1, JULY_1 + 39).getMissingRanges()).isEmpty();
+        assertThat(meterRegistry.counter("backtest.bar.cache.evictions").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("今日資料 - TTL 到期後應重新查詢")
+    void shouldExpireTodaysBarsAfterTtl() {
+        // given
+        ReflectionTestUtils.setField(cache, "volatileTtlSeconds", 0L);
+        int today = TradingCalendar.today();
+        cache.store("2330", today - 5, today, bars(today - 5, today));
+
+        // when
+        BarLookup lookup = cache.lookup("2330", today - 5, today);
+
+        // then
+        assertThat(lookup.getMissingRanges()).containsExactly(new int[]{today, today});
+        assertThat(lookup.getBars().size()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("空結果 - 平日區間的空結果不應被記錄為已查詢")
+    void shouldNotCacheEmptyResultForWeekdays() {
+        // given
+        cache.store("2330", JULY_1, JULY_1 + 3, BarSeries.EMPTY);
+
+        // when & then
+        assertThat(cache.lookup("2330", JULY_1, JULY_1 + 3).getMissingRanges()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("空結果 - 重試用完仍為空時只記錄今日以前的部分")
+    void shouldCacheExhaustedEmptyResultOnlyBeforeToday() {
+        // given
+        int today = TradingCalendar.today();
+        cache.store("6999", JULY_1, JULY_1 + 3, BarSeries.EMPTY, true);
+        cache.store("6999", today - 3, today + 1, BarSeries.EMPTY, true);
+
+        // when & then
+        assertThat(cache.lookup("6999", JULY_1, JULY_1 + 3).getMissingRanges()).isEmpty();
+        assertThat(cache.lookup("6999", today - 3, today + 1).getMissingRanges())
+                .containsExactly(new int[]{today, today + 1});
+    }
+}
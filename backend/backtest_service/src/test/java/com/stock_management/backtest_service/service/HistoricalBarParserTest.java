@@ -0,0 +1,113 @@
+package com.stock_management.backtest_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Historical Bar Parser Tests")
+class HistoricalBarParserTest {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private Map<String, BarSeries> parse(String json, String... symbols) throws IOException {
+        return HistoricalBarParser.parse(jsonFactory,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), Arrays.asList(symbols));
+    }
+
+    @Test
+    @DisplayName("應直接解析為欄式 K 棒，略過未請求的股票與未知欄位")
+    void shouldParseRequestedSymbolsIntoBarSeries() throws IOException {
+        // given
+        String json = """
+                {
+                  "2330": [
+                    {"date": "2025-07-02", "close": 1010.0, "ts": 1751414400, "open": 1000.0,
+                     "high": 1015.0, "low": 995.0, "volume": 32000, "extra": {"nested": [1, 2]}},
+                    {"date": "2025-07-01", "close": 1000.0, "ts": 1751328000, "open": null,
+                     "high": null, "low": null, "volume": 28000}
+                  ],
+                  "9999": [{"date": "2025-07-01", "close": 1.0}],
+                  "2317": []
+                }
+                """;
+
+        // when
+        Map<String, BarSeries> result = parse(json, "2330", "2317");
+
+        // then
+        assertThat(result).containsOnlyKeys("2330", "2317");
+        assertThat(result.get("2317").isEmpty()).isTrue();
+
+        BarSeries bars = result.get("2330");
+        assertThat(bars.size()).isEqualTo(2);
+        assertThat(bars.getDay(0)).isEqualTo(TradingCalendar.toEpochDay("2025-07-01"));
+        assertThat(bars.getOpen(0)).isNaN();
+        assertThat(bars.getClose(0)).isEqualTo(1000.0);
+        assertThat(bars.getVolume(0)).isEqualTo(28000L);
+        assertThat(bars.getDate(1)).isEqualTo("2025-07-02");
+        assertThat(bars.getTimestamp(1)).isEqualTo(1751414400L);
+        assertThat(bars.getOpen(1)).isEqualTo(1000.0);
+        assertThat(bars.getHigh(1)).isEqualTo(1015.0);
+        assertThat(bars.getLow(1)).isEqualTo(995.0);
+        assertThat(bars.getClose(1)).isEqualTo(1010.0);
+    }
+
+    @Test
+    @DisplayName("分 K 回應應保留同一交易日的每一根 K 棒並依時間戳記排序")
+    void shouldKeepEveryMinuteBarInIntradayMode() throws IOException {
+        // given
+        String json = """
+                {"2330": [
+                  {"date": "2025-07-01", "ts": 1751360520, "close": 1002.0, "volume": 30},
+                  {"date": "2025-07-01", "ts": 1751360460, "close": 1001.0, "volume": 20},
+                  {"date": "2025-07-02", "ts": 1751446860, "close": 1003.0, "volume": 10}
+                ]}
+                """;
+
+        // when
+        BarSeries bars = HistoricalBarParser.parse(jsonFactory,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), List.of("2330"), true).get("2330");
+
+        // then
+        assertThat(bars.isIntraday()).isTrue();
+        assertThat(bars.size()).isEqualTo(3);
+        assertThat(bars.getTimestamp(0)).isEqualTo(1751360460L);
+        assertThat(bars.getClose(0)).isEqualTo(1001.0);
+        assertThat(bars.getClose(1)).isEqualTo(1002.0);
+        assertThat(bars.getDate(2)).isEqualTo("2025-07-02");
+    }
+
+    @Test
+    @DisplayName("缺少收盤價的資料點應被略過")
+    void shouldSkipBarsWithoutClose() throws IOException {
+        // given
+        String json = "{\"2330\": [{\"date\": \"2025-07-01\", \"close\": null}, {\"date\": \"2025-07-02\", \"close\": 5}]}";
+
+        // when
+        BarSeries bars = parse(json, "2330").get("2330");
+
+        // then
+        assertThat(bars.size()).isEqualTo(1);
+        assertThat(bars.getClose(0)).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("回應不是 JSON 物件時應拋出例外")
+    void shouldRejectNonObjectResponse() {
+        assertThatThrownBy(() -> parse("[]", "2330"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("回應格式錯誤");
+    }
+}
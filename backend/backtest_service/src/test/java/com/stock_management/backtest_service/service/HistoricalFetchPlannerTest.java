@@ -0,0 +1,41 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.service.HistoricalFetchPlanner.FetchChunk;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Historical Fetch Planner Tests")
+class HistoricalFetchPlannerTest {
+
+    @Test
+    @DisplayName("應依股票數與天數上限切塊，且涵蓋所有股票與交易日")
+    void shouldSplitBySymbolsAndDays() {
+        // given
+        Map<Long, List<String>> groups = new LinkedHashMap<>();
+        groups.put(HistoricalFetchPlanner.rangeKey(100, 109), Arrays.asList("A", "B", "C", "D", "E"));
+        groups.put(HistoricalFetchPlanner.rangeKey(200, 200), Collections.singletonList("F"));
+
+        // when
+        List<FetchChunk> chunks = HistoricalFetchPlanner.plan(groups, 2, 4);
+
+        // then
+        // 區間 100~109 切成 3 個日期窗 × 3 個股票組，加上 F 一個區塊
+        assertThat(chunks).hasSize(10);
+        assertThat(chunks.get(0).getSymbols()).containsExactly("A", "B");
+        assertThat(chunks.get(0).getFromDay()).isEqualTo(100);
+        assertThat(chunks.get(0).getToDay()).isEqualTo(103);
+        assertThat(chunks.get(2).getSymbols()).containsExactly("E");
+        assertThat(chunks.get(8).getFromDay()).isEqualTo(108);
+        assertThat(chunks.get(8).getToDay()).isEqualTo(109);
+        assertThat(chunks.get(9).getSymbols()).containsExactly("F");
+
+        for (FetchChunk chunk : chunks) {
+            assertThat(chunk.getSymbols().size()).isLessThanOrEqualTo(2);
+            assertThat(chunk.getToDay() - chunk.getFromDay() + 1).isLessThanOrEqualTo(4);
+        }
+    }
+}
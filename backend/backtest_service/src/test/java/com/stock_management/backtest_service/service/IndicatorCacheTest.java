@@ -0,0 +1,124 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.IndicatorMemo;
+import com.stock_management.backtest_service.engine.IndicatorSpec;
+import com.stock_management.backtest_service.engine.IndicatorSpec.Type;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("Indicator Cache Tests")
+class IndicatorCacheTest {
+
+    private IndicatorCache cache;
+    private BarSeries bars;
+    private double[] closes;
+
+    @BeforeEach
+    void setUp() {
+        cache = new IndicatorCache(new SimpleMeterRegistry());
+        Random random = new Random(7);
+        int n = 80;
+        closes = new double[n];
+        BarSeries.Builder builder = BarSeries.builder(n);
+        double close = 100.0;
+        for (int i = 0; i < n; i++) {
+            close += random.nextGaussian();
+            closes[i] = close;
+            builder.add(20_000 + i, 0L, close, close + 1, close - 1, close, 1000L);
+        }
+        bars = builder.build();
+    }
+
+    @Test
+    @DisplayName("SMA、EMA 與布林通道應與逐視窗重新計算的結果一致")
+    void shouldMatchNaiveCalculations() {
+        // when
+        double[] sma = IndicatorSpec.of(Type.SMA, 10).compute("2330", bars, cache);
+        double[] ema = IndicatorSpec.of(Type.EMA, 10).compute("2330", bars, cache);
+        double[] upper = IndicatorSpec.bollinger(Type.BOLLINGER_UPPER, 10, 2.0).compute("2330", bars, cache);
+
+        // then
+        assertThat(sma[8]).isNaN();
+        assertThat(ema[8]).isNaN();
+        double expectedEma = Double.NaN;
+        for (int i = 9; i < closes.length; i++) {
+            double mean = 0.0;
+            for (int j = i - 9; j <= i; j++) {
+                mean += closes[j];
+            }
+            mean /= 10;
+            double variance = 0.0;
+            for (int j = i - 9; j <= i; j++) {
+                variance += (closes[j] - mean) * (closes[j] - mean);
+            }
+            expectedEma = i == 9 ? mean : expectedEma + 2.0 / 11 * (closes[i] - expectedEma);
+
+            assertThat(sma[i]).isCloseTo(mean, within(1e-9));
+            assertThat(ema[i]).isCloseTo(expectedEma, within(1e-9));
+            assertThat(upper[i]).isCloseTo(mean + 2 * Math.sqrt(variance / 10), within(1e-9));
+        }
+    }
+
+    @Test
+    @DisplayName("RSI 在只漲不跌時應為 100，ATR 在固定區間時應等於區間寬度")
+    void shouldComputeRsiAndAtr() {
+        // given
+        BarSeries.Builder builder = BarSeries.builder(30);
+        for (int i = 0; i < 30; i++) {
+            builder.add(20_000 + i, 0L, 100.0 + i, 101.0 + i, 99.0 + i, 100.0 + i, 1000L);
+        }
+        BarSeries rising = builder.build();
+
+        // when
+        double[] rsi = IndicatorSpec.of(Type.RSI, 14).compute("2317", rising, cache);
+        double[] atr = IndicatorSpec.of(Type.ATR, 14).compute("2317", rising, cache);
+
+        // then
+        assertThat(rsi[13]).isNaN();
+        assertThat(rsi[14]).isEqualTo(100.0);
+        assertThat(atr[12]).isNaN();
+        assertThat(atr[29]).isCloseTo(2.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("組合指標應透過快取共用組成序列，每個鍵只計算一次")
+    void shouldMemoizeSharedComponents() {
+        // given
+        List<String> computed = new ArrayList<>();
+        IndicatorMemo recording = (key, compute) -> cache.get(key, () -> {
+            computed.add(key.substring(key.lastIndexOf('|') + 1));
+            return compute.get();
+        });
+
+        // when
+        IndicatorSpec.macd(Type.MACD_HISTOGRAM, 12, 26, 9).compute("2330", bars, recording);
+        IndicatorSpec.macd(Type.MACD_SIGNAL, 12, 26, 9).compute("2330", bars, recording);
+        IndicatorSpec.of(Type.EMA, 12).compute("2330", bars, recording);
+
+        // then
+        assertThat(computed).containsExactlyInAnyOrder(
+                "MACD_HISTOGRAM(12,26,9)", "MACD(12,26)", "EMA(12)", "CLOSE", "EMA(26)", "MACD_SIGNAL(12,26,9)");
+        assertThat(cache.getTotalValues()).isEqualTo(6L * bars.size());
+    }
+
+    @Test
+    @DisplayName("指標參數不合法時應拋出例外")
+    void shouldRejectInvalidParameters() {
+        assertThatThrownBy(() -> IndicatorSpec.of(Type.SMA, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IndicatorSpec.macd(Type.MACD, 26, 12, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("快線");
+    }
+}
@@ -0,0 +1,174 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.MonteCarloRequestDto.ResamplingMethod;
+import com.stock_management.backtest_service.engine.BarSeries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.createBars;
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.newBacktestService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Monte Carlo Service Tests")
+class MonteCarloServiceTest {
+
+    @Mock
+    private DataProviderService dataProviderService;
+
+    private ForkJoinPool pool;
+    private BacktestService backtestService;
+    private MonteCarloService monteCarloService;
+    private MonteCarloRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        backtestService = newBacktestService(dataProviderService);
+        monteCarloService = new MonteCarloService(backtestService, pool);
+
+        request = new MonteCarloRequestDto();
+        request.setSymbols(Arrays.asList("2330", "2317"));
+        request.setStartDate("2025-07-01");
+        request.setEndDate("2025-07-10");
+        request.setInitialCapital(BigDecimal.valueOf(1_000_000));
+        request.setTradeActions(Arrays.asList(
+                new TradeAction("2025-07-01", "2330", TradeAction.TradeType.BUY, 300),
+                new TradeAction("2025-07-02", "2317", TradeAction.TradeType.BUY, 1000),
+                new TradeAction("2025-07-06", "2330", TradeAction.TradeType.SELL, 100)));
+        request.setSeed(7L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private void givenBars(double[] tsmc, double[] honHai) {
+        Map<String, BarSeries> historicalData = new HashMap<>();
+        historicalData.put("2330", createBars("2025-07-01", tsmc));
+        historicalData.put("2317", createBars("2025-07-01", honHai));
+        when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(historicalData);
+    }
+
+    @Test
+    @DisplayName("區塊拔靴法 - 固定成長率的歷史路徑重抽後與單次回測結果相同")
+    void bootstrapOfConstantGrowthShouldReproduceHistoricalBacktest() {
+        // given：每日報酬固定，任何重抽的順序都得到相同路徑
+        double[] growing = new double[10];
+        for (int day = 0; day < growing.length; day++) {
+            growing[day] = 1000 * Math.pow(1.01, day);
+        }
+        givenBars(growing, new double[]{100, 100, 100, 100, 100, 100, 100, 100, 100, 100});
+        request.setMethod(ResamplingMethod.BLOCK_BOOTSTRAP);
+        request.setBlockSize(3);
+        request.setPaths(500);
+
+        BacktestRequestDto single = new BacktestRequestDto();
+        single.setSymbols(request.getSymbols());
+        single.setStartDate(request.getStartDate());
+        single.setEndDate(request.getEndDate());
+        single.setInitialCapital(request.getInitialCapital());
+        single.setTradeActions(request.getTradeActions());
+        single.setPrecisionMode(PrecisionMode.FIXED_POINT);
+
+        // when
+        MonteCarloResponseDto response = monteCarloService.performMonteCarlo(request);
+        BacktestResponseDto expected = backtestService.performBacktest(single);
+
+        // then
+        assertThat(response.getMessage()).isEqualTo("蒙地卡羅回測執行成功");
+        assertThat(response.getPaths()).isEqualTo(500);
+        assertThat(response.getTradingDays()).isEqualTo(10);
+        assertThat(response.getFinalValue().getMin()).isEqualByComparingTo(response.getFinalValue().getMax());
+        assertThat(response.getFinalValue().getMedian()).isEqualByComparingTo(expected.getFinalValue());
+        assertThat(response.getAnnualizedSharpeRatio().getMedian())
+                .isEqualByComparingTo(expected.getAnnualizedSharpeRatio());
+        assertThat(response.getMaxDrawdown().getMedian()).isEqualByComparingTo(expected.getMaxDrawdown());
+        assertThat(response.getProbabilityOfLoss()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("相同種子 - 結果與執行緒池大小無關")
+    void sameSeedShouldGiveSameDistributionRegardlessOfParallelism() {
+        // given
+        givenBars(new double[]{1000, 1030, 990, 1005, 1050, 1020, 980, 1010, 1060, 1040},
+                  new double[]{150, 148.5, 152, 151, 149, 153.5, 155, 150.5, 147, 152});
+        request.setMethod(ResamplingMethod.BLOCK_BOOTSTRAP);
+        request.setBlockSize(2);
+        request.setPaths(2000);
+
+        // when
+        MonteCarloResponseDto parallel = monteCarloService.performMonteCarlo(request);
+        ForkJoinPool single = new ForkJoinPool(1);
+        MonteCarloResponseDto sequential;
+        try {
+            sequential = new MonteCarloService(backtestService, single).performMonteCarlo(request);
+        } finally {
+            single.shutdown();
+        }
+
+        // then
+        assertThat(parallel.getSeed()).isEqualTo(7L);
+        assertThat(parallel.getFinalValue()).isEqualTo(sequential.getFinalValue());
+        assertThat(parallel.getAnnualizedSharpeRatio()).isEqualTo(sequential.getAnnualizedSharpeRatio());
+        assertThat(parallel.getMaxDrawdown()).isEqualTo(sequential.getMaxDrawdown());
+        assertThat(parallel.getFinalValue().getMin())
+                .isLessThan(parallel.getFinalValue().getMax());
+    }
+
+    @Test
+    @DisplayName("幾何布朗運動 - 產生分散的路徑且分位數單調")
+    void gbmShouldProduceOrderedPercentiles() {
+        // given
+        givenBars(new double[]{1000, 1030, 990, 1005, 1050, 1020, 980, 1010, 1060, 1040},
+                  new double[]{150, 148.5, 152, 151, 149, 153.5, 155, 150.5, 147, 152});
+        request.setMethod(ResamplingMethod.GBM);
+        request.setPaths(1000);
+
+        // when
+        MonteCarloResponseDto response = monteCarloService.performMonteCarlo(request);
+
+        // then
+        MonteCarloResponseDto.Distribution finalValue = response.getFinalValue();
+        assertThat(response.getMessage()).isEqualTo("蒙地卡羅回測執行成功");
+        assertThat(finalValue.getStdDev()).isPositive();
+        assertThat(finalValue.getMin()).isLessThanOrEqualTo(finalValue.getPercentile5());
+        assertThat(finalValue.getPercentile5()).isLessThanOrEqualTo(finalValue.getMedian());
+        assertThat(finalValue.getMedian()).isLessThanOrEqualTo(finalValue.getPercentile95());
+        assertThat(finalValue.getPercentile95()).isLessThanOrEqualTo(finalValue.getMax());
+        assertThat(response.getMaxDrawdown().getMin()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        assertThat(response.getProbabilityOfLoss()).isBetween(BigDecimal.ZERO, BigDecimal.valueOf(100));
+        verify(dataProviderService, times(1)).getHistoricalBars(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("區塊長度小於 1 - 應回傳錯誤訊息")
+    void shouldRejectInvalidBlockSize() {
+        // given
+        request.setBlockSize(0);
+
+        // when
+        MonteCarloResponseDto response = monteCarloService.performMonteCarlo(request);
+
+        // then
+        assertThat(response.getMessage()).startsWith("蒙地卡羅回測執行失敗");
+        assertThat(response.getFinalValue()).isNull();
+        verifyNoInteractions(dataProviderService);
+    }
+}
@@ -0,0 +1,196 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.BacktestRequestDto.RiskMetric;
+import com.stock_management.backtest_service.dto.BacktestResponseDto;
+import com.stock_management.backtest_service.dto.RiskMetricsDto;
+import com.stock_management.backtest_service.dto.RollingMetricsDto;
+import com.stock_management.backtest_service.engine.FixedPoint;
+import com.stock_management.backtest_service.engine.PerformanceAccumulator;
+import com.stock_management.backtest_service.engine.SimulationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("Portfolio Calculation Service Tests")
+class PortfolioCalculationServiceTest {
+
+    private final PortfolioCalculationService service = new PortfolioCalculationService();
+
+    @Test
+    @DisplayName("逐日累加的平均、變異數應與兩次走訪的結果一致")
+    void accumulatorShouldMatchTwoPassStatistics() {
+        // given
+        double[] dailyReturns = {0.0, 0.012, -0.008, 0.021, -0.015, 0.004, 0.0007, -0.0303};
+        long[] totalValues = new long[dailyReturns.length];
+        double value = 100_000.0;
+        for (int day = 0; day < dailyReturns.length; day++) {
+            value *= 1 + dailyReturns[day];
+            totalValues[day] = FixedPoint.fromDouble(value);
+        }
+
+        // when
+        PerformanceAccumulator accumulator = PerformanceAccumulator.of(totalValues, dailyReturns);
+
+        // then
+        double mean = 0.0;
+        for (double dailyReturn : dailyReturns) {
+            mean += dailyReturn;
+        }
+        mean /= dailyReturns.length;
+        double variance = 0.0;
+        for (double dailyReturn : dailyReturns) {
+            variance += (dailyReturn - mean) * (dailyReturn - mean);
+        }
+        variance /= dailyReturns.length;
+
+        assertThat(accumulator.getCount()).isEqualTo(dailyReturns.length);
+        assertThat(accumulator.getMeanReturn()).isCloseTo(mean, within(1e-15));
+        assertThat(accumulator.getVariance()).isCloseTo(variance, within(1e-15));
+        assertThat(accumulator.getLastValue()).isEqualTo(totalValues[totalValues.length - 1]);
+    }
+
+    @Test
+    @DisplayName("最大回撤應以執行中的最高價值計算")
+    void shouldTrackRunningPeakForMaxDrawdown() {
+        // given
+        PerformanceAccumulator accumulator = new PerformanceAccumulator();
+        accumulator.add(FixedPoint.fromDouble(100_000), 0.0);
+        accumulator.add(FixedPoint.fromDouble(120_000), 0.2);
+        accumulator.add(FixedPoint.fromDouble(90_000), -0.25);
+        accumulator.add(FixedPoint.fromDouble(110_000), 0.2222);
+        accumulator.add(FixedPoint.fromDouble(100_000), -0.0909);
+
+        // when
+        BacktestResponseDto response = new BacktestResponseDto();
+        service.calculateBacktestResult(response, accumulator, new BigDecimal("100000"));
+
+        // then
+        assertThat(response.getMaxDrawdown()).isEqualByComparingTo("25.00");
+        assertThat(response.getTradingDays()).isEqualTo(5);
+        assertThat(response.getFinalValue()).isEqualByComparingTo("100000");
+        assertThat(response.getReturnRate()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("沒有任何交易日時應拋出例外")
+    void shouldRejectEmptyAccumulator() {
+        assertThatThrownBy(() -> service.calculateBacktestResult(
+                new BacktestResponseDto(), new PerformanceAccumulator(), new BigDecimal("100000")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("歷史資料為空");
+    }
+
+    @Test
+    @DisplayName("風險指標應只計算請求的項目")
+    void shouldComputeRequestedRiskMetricsOnly() {
+        // given
+        double[] dailyReturns = {0.0, 0.1, -0.1, 0.05, -0.02};
+        long[] totalValues = new long[dailyReturns.length];
+        double value = 100_000.0;
+        for (int day = 0; day < dailyReturns.length; day++) {
+            value *= 1 + dailyReturns[day];
+            totalValues[day] = FixedPoint.fromDouble(value);
+        }
+        long[] tradedValues = {FixedPoint.fromDouble(50_000), 0, 0, 0, FixedPoint.fromDouble(50_000)};
+        SimulationResult result = new SimulationResult(null, null, totalValues, dailyReturns, tradedValues,
+                PerformanceAccumulator.of(totalValues, dailyReturns));
+        double[] benchmarkReturns = {0.0, 0.05, -0.05, 0.025, -0.01};
+
+        // when
+        RiskMetricsDto metrics = service.calculateRiskMetrics(result,
+                EnumSet.of(RiskMetric.WIN_RATE, RiskMetric.DRAWDOWN_DURATION, RiskMetric.VAR,
+                           RiskMetric.CVAR, RiskMetric.BETA),
+                new BigDecimal("100000"), benchmarkReturns, 0.6);
+
+        // then
+        assertThat(metrics.getWinRate()).isEqualByComparingTo("40");
+        // 第 1 天創高後，第 2~4 天都未回到前高
+        assertThat(metrics.getMaxDrawdownDuration()).isEqualTo(3);
+        // 最差的 40%（2 天）：-10%、-2%
+        assertThat(metrics.getValueAtRisk()).isEqualByComparingTo("2");
+        assertThat(metrics.getConditionalValueAtRisk()).isEqualByComparingTo("6");
+        assertThat(metrics.getBeta()).isEqualByComparingTo("2");
+        assertThat(metrics.getSortinoRatio()).isNull();
+        assertThat(metrics.getCalmarRatio()).isNull();
+        assertThat(metrics.getAnnualizedVolatility()).isNull();
+        assertThat(metrics.getAnnualizedTurnover()).isNull();
+    }
+
+    @Test
+    @DisplayName("初始資金為 0 時 Calmar 比率應為 0 而非拋出例外")
+    void shouldReportZeroCalmarRatioWhenInitialCapitalIsZero() {
+        // given
+        double[] dailyReturns = {0.0, 0.1, -0.1};
+        long[] totalValues = {FixedPoint.fromDouble(100_000), FixedPoint.fromDouble(110_000), FixedPoint.fromDouble(99_000)};
+        SimulationResult result = new SimulationResult(null, null, totalValues, dailyReturns, new long[3],
+                PerformanceAccumulator.of(totalValues, dailyReturns));
+
+        // when
+        RiskMetricsDto metrics = service.calculateRiskMetrics(result, EnumSet.of(RiskMetric.CALMAR),
+                BigDecimal.ZERO, null, 0.95);
+
+        // then
+        assertThat(metrics.getCalmarRatio()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("滑動視窗序列應與逐視窗重新計算的結果一致")
+    void rollingMetricsShouldMatchNaiveRecomputation() {
+        // given
+        Random random = new Random(42);
+        int n = 120;
+        double[] dailyReturns = new double[n];
+        long[] totalValues = new long[n];
+        double value = 100_000.0;
+        for (int day = 0; day < n; day++) {
+            dailyReturns[day] = random.nextGaussian() * 0.02;
+            value *= 1 + dailyReturns[day];
+            totalValues[day] = FixedPoint.fromDouble(value);
+        }
+        SimulationResult result = new SimulationResult(null, null, totalValues, dailyReturns, new long[n],
+                PerformanceAccumulator.of(totalValues, dailyReturns));
+
+        // when
+        List<RollingMetricsDto> series = service.calculateRollingMetrics(result, List.of(20, 60, 20));
+
+        // then
+        assertThat(series).extracting(RollingMetricsDto::getWindow).containsExactly(20, 60);
+        for (RollingMetricsDto metrics : series) {
+            int window = metrics.getWindow();
+            assertThat(metrics.getSharpeRatio()).hasSize(n);
+            for (int day = 0; day < n; day++) {
+                if (day < window - 1) {
+                    assertThat(metrics.getVolatility().get(day)).isNull();
+                    continue;
+                }
+                double mean = 0.0;
+                long peak = 0;
+                for (int i = day - window + 1; i <= day; i++) {
+                    mean += dailyReturns[i];
+                    peak = Math.max(peak, totalValues[i]);
+                }
+                mean /= window;
+                double variance = 0.0;
+                for (int i = day - window + 1; i <= day; i++) {
+                    variance += (dailyReturns[i] - mean) * (dailyReturns[i] - mean);
+                }
+                double stdDev = Math.sqrt(variance / window);
+
+                assertThat(metrics.getVolatility().get(day).doubleValue())
+                        .isCloseTo(stdDev * Math.sqrt(252) * 100, within(0.011));
+                assertThat(metrics.getSharpeRatio().get(day).doubleValue())
+                        .isCloseTo(mean * 252 / (stdDev * Math.sqrt(252)), within(0.0002));
+                assertThat(metrics.getDrawdown().get(day).doubleValue())
+                        .isCloseTo((double) (peak - totalValues[day]) / peak * 100, within(0.011));
+            }
+        }
+    }
+}
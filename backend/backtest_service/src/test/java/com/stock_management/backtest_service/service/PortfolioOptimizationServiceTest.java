@@ -0,0 +1,287 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.PortfolioOptimizationRequestDto;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationRequestDto.OptimizationMethod;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationResponseDto;
+import com.stock_management.backtest_service.dto.PortfolioOptimizationResponseDto.OptimizedPortfolio;
+import com.stock_management.backtest_service.engine.BarSeries;
+import com.stock_management.backtest_service.engine.CovarianceEstimator;
+import com.stock_management.backtest_service.engine.PriceMatrix;
+import com.stock_management.backtest_service.engine.TradingCalendar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.newBacktestService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Portfolio Optimization Service Tests")
+class PortfolioOptimizationServiceTest {
+
+    private static final int DAYS = 300;
+
+    @Mock
+    private DataProviderService dataProviderService;
+
+    private ForkJoinPool pool;
+    private PortfolioOptimizationService portfolioOptimizationService;
+    private Map<String, BarSeries> historicalData;
+    private PortfolioOptimizationRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        BacktestService backtestService = newBacktestService(dataProviderService);
+        portfolioOptimizationService = new PortfolioOptimizationService(backtestService, pool);
+
+        // 單一市場因子加上個股雜訊，各股票的 beta、波動度與漂移不同
+        historicalData = syntheticUniverse(6, new Random(11));
+        historicalData.put("9999", createBars(new double[DAYS], 50.0)); // 價格從未變動
+        lenient().when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(historicalData);
+
+        request = new PortfolioOptimizationRequestDto();
+        request.setSymbols(new ArrayList<>(historicalData.keySet()));
+        request.setStartDate("2023-01-01");
+        request.setEndDate("2024-03-31");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private Map<String, BarSeries> syntheticUniverse(int size, Random random) {
+        double[] market = new double[DAYS];
+        for (int day = 1; day < DAYS; day++) {
+            market[day] = 0.0004 + 0.01 * random.nextGaussian();
+        }
+        Map<String, BarSeries> bars = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            double beta = 0.5 + 0.2 * (i % 8);
+            double noise = 0.005 + 0.003 * (i % 8);
+            double drift = 0.0002 * (i % 3);
+            double[] returns = new double[DAYS];
+            for (int day = 1; day < DAYS; day++) {
+                returns[day] = drift + beta * market[day] + noise * random.nextGaussian();
+            }
+            bars.put(String.valueOf(2300 + i), createBars(returns, 100.0));
+        }
+        return bars;
+    }
+
+    private BarSeries createBars(double[] returns, double firstClose) {
+        int firstDay = TradingCalendar.toEpochDay("2023-01-02");
+        BarSeries.Builder builder = BarSeries.builder(returns.length);
+        double close = firstClose;
+        for (int day = 0; day < returns.length; day++) {
+            close *= 1 + returns[day];
+            builder.add(firstDay + day, 0L, close, close, close, close, 0L);
+        }
+        return builder.build();
+    }
+
+    private double[] weightsOf(OptimizedPortfolio portfolio, CovarianceEstimator.Estimate estimate) {
+        double[] weights = new double[estimate.size()];
+        for (int i = 0; i < weights.length; i++) {
+            BigDecimal weight = portfolio.getWeights().get(estimate.getSymbol(i));
+            weights[i] = weight == null ? 0.0 : weight.doubleValue();
+        }
+        return weights;
+    }
+
+    private double[] covarianceTimes(CovarianceEstimator.Estimate estimate, double[] weights) {
+        double[] result = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            for (int j = 0; j < weights.length; j++) {
+                result[i] += estimate.getCovariance(i, j) * weights[j];
+            }
+        }
+        return result;
+    }
+
+    private CovarianceEstimator.Estimate referenceEstimate() throws Exception {
+        List<String> symbols = new ArrayList<>(historicalData.keySet());
+        symbols.remove("9999");
+        Collections.sort(symbols);
+        Map<String, BarSeries> included = new LinkedHashMap<>();
+        symbols.forEach(symbol -> included.put(symbol, historicalData.get(symbol)));
+        PriceMatrix priceMatrix = PriceMatrix.fromBars(included);
+        int[] columns = symbols.stream().mapToInt(priceMatrix::indexOfSymbol).toArray();
+        return CovarianceEstimator.estimate(priceMatrix, symbols.toArray(new String[0]), columns, pool);
+    }
+
+    @Test
+    @DisplayName("最佳化 - 三種權重皆滿足各自的最適條件")
+    void shouldSatisfyOptimalityConditions() throws Exception {
+        // when
+        PortfolioOptimizationResponseDto response = portfolioOptimizationService.optimize(request);
+        CovarianceEstimator.Estimate estimate = referenceEstimate();
+
+        // then
+        assertThat(response.getMessage()).isEqualTo("投資組合最佳化執行成功");
+        assertThat(response.getUniverseSize()).isEqualTo(6);
+        assertThat(response.getObservations()).isEqualTo(DAYS - 1);
+        assertThat(response.getExcludedSymbols()).containsExactly("9999");
+        assertThat(response.getPortfolios()).extracting(OptimizedPortfolio::getMethod)
+                .containsExactly(OptimizationMethod.MINIMUM_VARIANCE, OptimizationMethod.MAXIMUM_SHARPE,
+                        OptimizationMethod.RISK_PARITY);
+        for (OptimizedPortfolio portfolio : response.getPortfolios()) {
+            double total = portfolio.getWeights().values().stream().mapToDouble(BigDecimal::doubleValue).sum();
+            assertThat(total).isCloseTo(1.0, within(1e-5));
+        }
+
+        // 最小變異數：有持股的股票邊際風險相同，未持有的股票邊際風險不低於該值
+        double[] minimumVariance = weightsOf(response.getPortfolios().get(0), estimate);
+        double[] marginal = covarianceTimes(estimate, minimumVariance);
+        double level = 0.0;
+        for (int i = 0; i < marginal.length; i++) {
+            if (minimumVariance[i] > 1e-4) {
+                level = marginal[i];
+            }
+        }
+        for (int i = 0; i < marginal.length; i++) {
+            if (minimumVariance[i] > 1e-4) {
+                assertThat(marginal[i]).isCloseTo(level, within(level * 1e-3));
+            } else {
+                assertThat(marginal[i]).isGreaterThanOrEqualTo(level * (1 - 1e-3));
+            }
+        }
+
+        // 風險平價：各股票的風險貢獻相同
+        double[] riskParity = weightsOf(response.getPortfolios().get(2), estimate);
+        double[] riskParityMarginal = covarianceTimes(estimate, riskParity);
+        double contribution = riskParity[0] * riskParityMarginal[0];
+        for (int i = 1; i < riskParity.length; i++) {
+            assertThat(riskParity[i] * riskParityMarginal[i]).isCloseTo(contribution, within(contribution * 1e-3));
+        }
+
+        // 最大 Sharpe：不低於其他兩個投資組合與每一檔個股
+        double maximumSharpe = response.getPortfolios().get(1).getSharpeRatio().doubleValue();
+        assertThat(maximumSharpe).isGreaterThanOrEqualTo(response.getPortfolios().get(0).getSharpeRatio().doubleValue());
+        assertThat(maximumSharpe).isGreaterThanOrEqualTo(response.getPortfolios().get(2).getSharpeRatio().doubleValue());
+        for (int i = 0; i < estimate.size(); i++) {
+            double single = estimate.getMean(i) * 252 / Math.sqrt(estimate.getCovariance(i, i) * 252);
+            assertThat(maximumSharpe).isGreaterThanOrEqualTo(single - 1e-4);
+        }
+    }
+
+    @Test
+    @DisplayName("共變異數 - 分區塊平行計算與逐對以共同交易日計算的結果相同")
+    void blockedCovarianceShouldMatchPairwiseComputation() throws Exception {
+        // given：股票數跨越多個區塊，且部分股票較晚上市
+        Map<String, BarSeries> bars = syntheticUniverse(CovarianceEstimator.BLOCK_SIZE * 2 + 7, new Random(3));
+        String late = String.valueOf(2300 + 5);
+        BarSeries listed = bars.get(late);
+        bars.put(late, listed.slice(TradingCalendar.toEpochDay("2023-01-02") + 40, listed.getLastDay()));
+        PriceMatrix priceMatrix = PriceMatrix.fromBars(bars);
+        String[] symbols = bars.keySet().toArray(new String[0]);
+        int[] columns = Arrays.stream(symbols).mapToInt(priceMatrix::indexOfSymbol).toArray();
+
+        // when
+        CovarianceEstimator.Estimate estimate = CovarianceEstimator.estimate(priceMatrix, symbols, columns, pool);
+
+        // then
+        int observations = priceMatrix.getDayCount() - 1;
+        double[][] centered = new double[symbols.length][observations];
+        for (int i = 0; i < symbols.length; i++) {
+            double sum = 0.0;
+            int count = 0;
+            for (int t = 0; t < observations; t++) {
+                if (priceMatrix.hasPrice(columns[i], t) && priceMatrix.hasPrice(columns[i], t + 1)) {
+                    sum += priceMatrix.getClose(columns[i], t + 1) / priceMatrix.getClose(columns[i], t) - 1;
+                    count++;
+                }
+            }
+            double mean = sum / count;
+            assertThat(estimate.getMean(i)).isCloseTo(mean, within(1e-15));
+            for (int t = 0; t < observations; t++) {
+                centered[i][t] = priceMatrix.hasPrice(columns[i], t) && priceMatrix.hasPrice(columns[i], t + 1)
+                        ? priceMatrix.getClose(columns[i], t + 1) / priceMatrix.getClose(columns[i], t) - 1 - mean
+                        : 0.0;
+            }
+        }
+        for (int i = 0; i < symbols.length; i++) {
+            for (int j = 0; j < symbols.length; j++) {
+                double expected = 0.0;
+                int joint = 0;
+                for (int t = 0; t < observations; t++) {
+                    expected += centered[i][t] * centered[j][t];
+                    if (priceMatrix.hasPrice(columns[i], t) && priceMatrix.hasPrice(columns[i], t + 1)
+                            && priceMatrix.hasPrice(columns[j], t) && priceMatrix.hasPrice(columns[j], t + 1)) {
+                        joint++;
+                    }
+                }
+                expected /= joint - 1;
+                assertThat(estimate.getCovariance(i, j)).isCloseTo(expected, within(1e-12));
+            }
+        }
+
+        // 較晚上市的股票變異數等於其有效報酬的樣本變異數，不因缺值日被低估
+        int lateIndex = Arrays.asList(symbols).indexOf(late);
+        double sumSquares = 0.0;
+        int count = 0;
+        for (int t = 0; t < observations; t++) {
+            if (priceMatrix.hasPrice(columns[lateIndex], t) && priceMatrix.hasPrice(columns[lateIndex], t + 1)) {
+                sumSquares += centered[lateIndex][t] * centered[lateIndex][t];
+                count++;
+            }
+        }
+        assertThat(count).isLessThan(observations);
+        assertThat(estimate.getCovariance(lateIndex, lateIndex)).isCloseTo(sumSquares / (count - 1), within(1e-15));
+    }
+
+    @Test
+    @DisplayName("最佳化 - 有效報酬比例低於下限的股票應列為排除")
+    void shouldExcludeSymbolsBelowMinimumCoverage() {
+        // given：2399 在期間的後三分之一才上市
+        BarSeries base = historicalData.get("2300");
+        historicalData.put("2399", base.slice(TradingCalendar.toEpochDay("2023-01-02") + 200, base.getLastDay()));
+        request.setSymbols(new ArrayList<>(historicalData.keySet()));
+
+        // when
+        PortfolioOptimizationResponseDto response = portfolioOptimizationService.optimize(request);
+
+        // then
+        assertThat(response.getUniverseSize()).isEqualTo(6);
+        assertThat(response.getExcludedSymbols()).containsExactlyInAnyOrder("2399", "9999");
+    }
+
+    @Test
+    @DisplayName("快取 - 相同股票池與期間只載入一次股價")
+    void shouldReuseCachedCovarianceForSameUniverseAndRange() {
+        // given：股票順序不同但內容相同
+        PortfolioOptimizationRequestDto reordered = new PortfolioOptimizationRequestDto();
+        List<String> symbols = new ArrayList<>(request.getSymbols());
+        Collections.reverse(symbols);
+        reordered.setSymbols(symbols);
+        reordered.setStartDate(request.getStartDate());
+        reordered.setEndDate(request.getEndDate());
+        reordered.setMethods(EnumSet.of(OptimizationMethod.RISK_PARITY));
+
+        // when
+        PortfolioOptimizationResponseDto first = portfolioOptimizationService.optimize(request);
+        PortfolioOptimizationResponseDto second = portfolioOptimizationService.optimize(reordered);
+
+        // then
+        assertThat(first.isCached()).isFalse();
+        assertThat(second.isCached()).isTrue();
+        assertThat(second.getPortfolios()).hasSize(1);
+        assertThat(second.getPortfolios().get(0).getWeights())
+                .isEqualTo(first.getPortfolios().get(2).getWeights());
+        verify(dataProviderService, times(1)).getHistoricalBars(anyList(), anyString(), anyString());
+    }
+}
@@ -0,0 +1,133 @@
+package com.stock_management.backtest_service.service;
+
+import com.stock_management.backtest_service.dto.*;
+import com.stock_management.backtest_service.dto.BacktestBatchRequestDto.StrategyVariant;
+import com.stock_management.backtest_service.dto.BacktestRequestDto.PrecisionMode;
+import com.stock_management.backtest_service.dto.WalkForwardRequestDto.Objective;
+import com.stock_management.backtest_service.engine.BarSeries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.createBars;
+import static com.stock_management.backtest_service.service.BacktestTestFixtures.newBacktestService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Walk-forward Service Tests")
+class WalkForwardServiceTest {
+
+    @Mock
+    private DataProviderService dataProviderService;
+
+    private ForkJoinPool pool;
+    private WalkForwardService walkForwardService;
+    private WalkForwardRequestDto request;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        PortfolioCalculationService portfolioCalculationService = new PortfolioCalculationService();
+        BacktestService backtestService = newBacktestService(dataProviderService, portfolioCalculationService);
+        walkForwardService = new WalkForwardService(backtestService, portfolioCalculationService, pool);
+
+        // 2330 前半段上漲、後半段下跌；2317 相反
+        Map<String, BarSeries> historicalData = new HashMap<>();
+        historicalData.put("2330", createBars("2025-07-01", 100, 110, 120, 130, 140, 150, 140, 130, 120, 110, 100, 90));
+        historicalData.put("2317", createBars("2025-07-01", 100, 90, 80, 70, 60, 50, 60, 70, 80, 90, 100, 110));
+        lenient().when(dataProviderService.getHistoricalBars(anyList(), anyString(), anyString()))
+                .thenReturn(historicalData);
+
+        request = new WalkForwardRequestDto();
+        request.setSymbols(Arrays.asList("2330", "2317"));
+        request.setStartDate("2025-07-01");
+        request.setEndDate("2025-07-12");
+        request.setInitialCapital(BigDecimal.valueOf(1_000_000));
+        request.setPrecisionMode(PrecisionMode.FIXED_POINT);
+        request.setCandidates(Arrays.asList(allIn("tsmc", "2330"), allIn("honhai", "2317")));
+        request.setInSampleDays(4);
+        request.setOutOfSampleDays(2);
+        request.setObjective(Objective.RETURN_RATE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private StrategyVariant allIn(String name, String symbol) {
+        StrategyDefinition strategy = new StrategyDefinition(null,
+                new StrategyDefinition.Rebalance(1000, Map.of(symbol, BigDecimal.ONE)));
+        return new StrategyVariant(name, null, null, strategy);
+    }
+
+    @Test
+    @DisplayName("Walk-forward - 逐視窗選出樣本內最佳策略並串接樣本外權益曲線")
+    void shouldSelectBestCandidatePerWindowAndStitchOutOfSample() {
+        // when
+        WalkForwardResponseDto response = walkForwardService.performWalkForward(request);
+
+        // then
+        assertThat(response.getMessage()).isEqualTo("Walk-forward 分析執行成功");
+        assertThat(response.getWindows()).extracting(WalkForwardResponseDto.Window::getSelectedCandidate)
+                .containsExactly("tsmc", "tsmc", "honhai", "honhai");
+        assertThat(response.getWindows()).extracting(WalkForwardResponseDto.Window::getOutOfSampleStart)
+                .containsExactly("2025-07-05", "2025-07-07", "2025-07-09", "2025-07-11");
+
+        // 第一個樣本外視窗：第 5 日以 140 元全數買入 2330（7142 股，剩餘現金 120），第 6 日收 150
+        List<WalkForwardResponseDto.EquityPoint> equityCurve = response.getEquityCurve();
+        assertThat(equityCurve).hasSize(8);
+        assertThat(equityCurve.get(0).getDate()).isEqualTo("2025-07-05");
+        assertThat(equityCurve.get(1).getTotalValue()).isEqualByComparingTo("1071420");
+        assertThat(response.getWindows().get(0).getOutOfSampleReturnRate()).isEqualByComparingTo("7.14");
+
+        // 串接後的最終價值為最後一個樣本外視窗的最終價值
+        assertThat(response.getTradingDays()).isEqualTo(8);
+        assertThat(response.getFinalValue())
+                .isEqualByComparingTo(equityCurve.get(equityCurve.size() - 1).getTotalValue());
+        verify(dataProviderService, times(1)).getHistoricalBars(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Walk-forward - 視窗交界賣出持股時應計入交易成本，下一個視窗以賣出後的現金開始")
+    void shouldChargeTradingCostsWhenLiquidatingAtWindowBoundary() {
+        // given：只計 0.3% 證交稅
+        request.setTradingCosts(new BacktestRequestDto.TradingCosts(
+                BigDecimal.ZERO, null, BigDecimal.ZERO, new BigDecimal("0.003"), null, null));
+
+        // when
+        WalkForwardResponseDto response = walkForwardService.performWalkForward(request);
+
+        // then：第 6 日以 150 元賣出 7142 股，稅 3213 元（捨去至元）
+        List<WalkForwardResponseDto.EquityPoint> equityCurve = response.getEquityCurve();
+        assertThat(equityCurve.get(1).getTotalValue()).isEqualByComparingTo("1068207");
+        assertThat(response.getWindows().get(0).getOutOfSampleReturnRate()).isEqualByComparingTo("6.82");
+        // 第二個視窗第 7 日以 140 元買入 7630 股（剩餘現金 7 元）
+        assertThat(equityCurve.get(2).getTotalValue()).isEqualByComparingTo("1068207");
+    }
+
+    @Test
+    @DisplayName("Walk-forward - 資料期間不足一個視窗應回傳錯誤訊息")
+    void shouldFailWhenPeriodIsShorterThanOneWindow() {
+        // given
+        request.setInSampleDays(12);
+
+        // when
+        WalkForwardResponseDto response = walkForwardService.performWalkForward(request);
+
+        // then
+        assertThat(response.getMessage()).startsWith("Walk-forward 分析執行失敗");
+        assertThat(response.getWindows()).isNull();
+    }
+}
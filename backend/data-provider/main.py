@@ -108,6 +108,7 @@ class HistoricalRequest(BaseModel):
     symbols: List[str]
     start_date: str  # "2025-01-01"
     end_date: str    # "2025-07-31"
+    resolution: str = "1D"  # "1D": 日 K（由分 K 彙總）；"1Min": 原始 1 分 K
 
 class ScannerRequest(BaseModel):
     scanner_type: str           
@@ -146,14 +147,37 @@ async def get_positions():
     except Exception as e:
         raise HTTPException(status_code=500, detail=f"取得持股資料失敗: {str(e)}")
 
-async def get_kbars_async(symbol: str, start: str, end: str) -> Dict:
+def to_minute_bars(kbars) -> List[Dict]:
+    """保留每一根 1 分 K，依時間戳記排序；ts 為以 UTC 編碼的台北當地時間（秒）"""
+    data = []
+    for i in range(len(kbars.Close)):
+        if not (hasattr(kbars, 'ts') and len(kbars.ts) > i):
+            continue
+        ts = int(kbars.ts[i] // 1_000_000_000)
+        data.append({
+            "date": datetime.utcfromtimestamp(ts).strftime("%Y-%m-%d"),
+            "ts": ts,
+            "open": float(kbars.Open[i]) if hasattr(kbars, 'Open') else None,
+            "high": float(kbars.High[i]) if hasattr(kbars, 'High') else None,
+            "low": float(kbars.Low[i]) if hasattr(kbars, 'Low') else None,
+            "close": float(kbars.Close[i]),
+            "volume": int(kbars.Volume[i]) if hasattr(kbars, 'Volume') else None
+        })
+    data.sort(key=lambda x: x["ts"])
+    return data
+
+async def get_kbars_async(symbol: str, start: str, end: str, resolution: str = "1D") -> Dict:
     loop = asyncio.get_event_loop()
     future = loop.create_future()
 
     def callback(kbars):
         if not future.done():
             try:
-                if kbars and hasattr(kbars, 'Close') and len(kbars.Close) > 0:
+                if kbars and hasattr(kbars, 'Close') and len(kbars.Close) > 0 and resolution == "1Min":
+                    data = to_minute_bars(kbars)
+                    print(f"{symbol} 成功取得 {len(data)} 根分 K")
+                    future.set_result(data)
+                elif kbars and hasattr(kbars, 'Close') and len(kbars.Close) > 0:
                     # 按日期分組
                     daily_data = defaultdict(list)
                     
@@ -229,13 +253,16 @@ async def get_kbars_async(symbol: str, start: str, end: str) -> Dict:
 
 @app.post("/api/historical")
 async def get_historical_data(req: HistoricalRequest):
+    if req.resolution not in ("1D", "1Min"):
+        raise HTTPException(status_code=400, detail=f"不支援的 K 棒週期: {req.resolution}")
+
     try:
         # 確保 API 連線有效
         if not ensure_api_connection():
             raise HTTPException(status_code=503, detail="API 連線失敗")
             
         # 並行處理所有股票
-        tasks = [get_kbars_async(symbol, req.start_date, req.end_date) for symbol in req.symbols]
+        tasks = [get_kbars_async(symbol, req.start_date, req.end_date, req.resolution) for symbol in req.symbols]
         results = await asyncio.gather(*tasks, return_exceptions=True)
 
         # 建立回應格式
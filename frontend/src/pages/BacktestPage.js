@@ -18,6 +18,7 @@ import backtestService from '../services/backtestService';
 import TradeActionForm from '../components/TradeActionForm';
 import BacktestResults from '../components/BacktestResults';
 import PortfolioChart from '../components/PortfolioChart';
+import { getPortfolioHistory } from '../utils/portfolioHistory';
 
 const BacktestPage = () => {
   // 基本設定
@@ -73,7 +74,8 @@ const BacktestPage = () => {
         startDate,
         endDate,
         initialCapital: parseFloat(initialCapital),
-        tradeActions: tradeActions
+        tradeActions: tradeActions,
+        historyFormat: 'COMPACT'  // 精簡格式，由前端還原逐日資料
       };
 
       console.log('發送回測請求:', backtestRequest);
@@ -83,7 +85,7 @@ const BacktestPage = () => {
       // 檢查 message 欄位來判斷是否成功
       if (response.message && response.message.includes('成功')) {
         setBacktestResult(response);
-        setPortfolioHistory(response.portfolioHistory || []);
+        setPortfolioHistory(getPortfolioHistory(response));
         setSuccess('回測執行完成');
         
         // 如果需要顯示股價資料，可以另外取得
@@ -0,0 +1,40 @@
+import { expandCompactHistory, getPortfolioHistory } from '../portfolioHistory';
+
+describe('portfolioHistory', () => {
+  const compactHistory = {
+    dates: ['2025-07-01', '2025-07-02', '2025-07-03'],
+    prices: { '2330': [1000, 1010, null], '2317': [150, 152, 151] },
+    holdingsChanges: [
+      { day: 0, holdings: { '2330': 10 } },
+      { day: 2, holdings: { '2330': 0, '2317': 100 } }
+    ],
+    cash: [90000, 90000, 85000],
+    totalValue: [100000, 100100, 100100],
+    dailyReturn: [0, 0.001, 0]
+  };
+
+  test('should rebuild daily snapshots from compact history', () => {
+    const history = expandCompactHistory(compactHistory);
+
+    expect(history).toHaveLength(3);
+    expect(history[0]).toEqual({
+      date: '2025-07-01',
+      cash: 90000,
+      holdings: { '2330': 10 },
+      prices: { '2330': 1000, '2317': 150 },
+      totalValue: 100000,
+      dailyReturn: 0
+    });
+    expect(history[1].holdings).toEqual({ '2330': 10 });
+    expect(history[2].holdings).toEqual({ '2330': 0, '2317': 100 });
+    expect(history[2].prices).toEqual({ '2317': 151 });
+  });
+
+  test('should prefer full portfolio history when present', () => {
+    const portfolioHistory = [{ date: '2025-07-01' }];
+
+    expect(getPortfolioHistory({ portfolioHistory, compactHistory })).toBe(portfolioHistory);
+    expect(getPortfolioHistory({ compactHistory })).toHaveLength(3);
+    expect(getPortfolioHistory({})).toEqual([]);
+  });
+});
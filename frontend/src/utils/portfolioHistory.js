@@ -0,0 +1,48 @@
+// 將後端精簡格式的投資組合歷史（historyFormat: 'COMPACT'）還原為逐日快照陣列
+// 還原後的每筆資料與完整格式的 portfolioHistory 相同：{ date, cash, holdings, prices, totalValue, dailyReturn }
+export const expandCompactHistory = (compactHistory) => {
+  if (!compactHistory || !compactHistory.dates) {
+    return [];
+  }
+
+  const { dates, prices = {}, holdingsChanges = [], cash, totalValue, dailyReturn } = compactHistory;
+  const symbols = Object.keys(prices);
+  const history = [];
+  let holdings = {};
+  let nextChange = 0;
+
+  for (let day = 0; day < dates.length; day++) {
+    // 持股只在變動的交易日出現，依序套用即可得到當日持股
+    if (nextChange < holdingsChanges.length && holdingsChanges[nextChange].day === day) {
+      holdings = { ...holdings, ...holdingsChanges[nextChange].holdings };
+      nextChange++;
+    }
+
+    const dayPrices = {};
+    symbols.forEach((symbol) => {
+      const price = prices[symbol][day];
+      if (price !== null && price !== undefined) {
+        dayPrices[symbol] = price;
+      }
+    });
+
+    history.push({
+      date: dates[day],
+      cash: cash[day],
+      holdings,
+      prices: dayPrices,
+      totalValue: totalValue[day],
+      dailyReturn: dailyReturn[day]
+    });
+  }
+
+  return history;
+};
+
+// 取得回應中的投資組合歷史，完整格式與精簡格式皆可
+export const getPortfolioHistory = (response) => {
+  if (response.portfolioHistory) {
+    return response.portfolioHistory;
+  }
+  return expandCompactHistory(response.compactHistory);
+};